@@ -27,6 +27,12 @@ public class ConfigurationModule extends AbstractModule {
         bind(int.class).annotatedWith(Names.named("httpPort")).toInstance(8051);
         bind(int.class).annotatedWith(Names.named("maxThreads")).toInstance(50);
         bind(int.class).annotatedWith(Names.named("minThreads")).toInstance(5);
+        bind(int.class).annotatedWith(Names.named("inbreedingCacheSize")).toInstance(50000);
+        bind(int.class).annotatedWith(Names.named("pedigreeResponseCacheSize")).toInstance(1000);
+        bind(int.class).annotatedWith(Names.named("pedigreeHotSetSize")).toInstance(500);
+        bind(String.class).annotatedWith(Names.named("pedigreeHotSetFile")).toInstance("data/pedigree-hotset.json");
+        bind(int.class).annotatedWith(Names.named("pedigreeAsyncTimeoutSeconds")).toInstance(60);
+        bind(int.class).annotatedWith(Names.named("algorithmParallelism")).toInstance(Runtime.getRuntime().availableProcessors());
 
         bind(PedigreeImporter.class).to(DogSearchPedigreeImporter.class);
         bind(DogSearchClient.class).to(DogSearchSolrClient.class);
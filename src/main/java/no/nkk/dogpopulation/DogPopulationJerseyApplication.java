@@ -5,6 +5,7 @@ import com.google.inject.Singleton;
 import no.nkk.dogpopulation.concurrent.ThreadingResource;
 import no.nkk.dogpopulation.hdindex.HdIndexResource;
 import no.nkk.dogpopulation.pedigree.GraphResource;
+import no.nkk.dogpopulation.pedigree.NegotiatedEntityWriter;
 import no.nkk.dogpopulation.pedigree.PedigreeResource;
 import org.glassfish.jersey.server.ResourceConfig;
 
@@ -22,12 +23,14 @@ public class DogPopulationJerseyApplication extends ResourceConfig {
             PedigreeResource pedigreeResource,
             GraphResource graphResource,
             HdIndexResource hdIndexResource,
-            ThreadingResource threadingResource) {
+            ThreadingResource threadingResource,
+            NegotiatedEntityWriter negotiatedEntityWriter) {
 
         registerInstances(
                 pedigreeResource,
                 graphResource,
                 hdIndexResource,
-                threadingResource);
+                threadingResource,
+                negotiatedEntityWriter);
     }
 }
\ No newline at end of file
@@ -7,8 +7,13 @@ import no.nkk.dogpopulation.concurrent.ExecutorManager;
 import no.nkk.dogpopulation.concurrent.ThreadingModule;
 import no.nkk.dogpopulation.graph.GraphSchemaMigrator;
 import no.nkk.dogpopulation.graph.Neo4jModule;
+import no.nkk.dogpopulation.graph.aggregate.BreedYearAggregates;
 import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.inbreeding.StoredInbreedingService;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
 import no.nkk.dogpopulation.importer.breedupdater.BreedUpdateService;
+import no.nkk.dogpopulation.pedigree.PedigreeHotSet;
+import no.nkk.dogpopulation.pedigree.PedigreeWarmer;
 import org.eclipse.jetty.server.Server;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.slf4j.Logger;
@@ -78,10 +83,14 @@ public class Main {
         );
 
         final GraphDatabaseService db = injector.getInstance(GraphDatabaseService.class);
+        final PedigreeHotSet pedigreeHotSet = injector.getInstance(PedigreeHotSet.class);
+        final ExecutorManager executorManager = injector.getInstance(ExecutorManager.class);
         try {
             Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
                 @Override
                 public void run() {
+                    pedigreeHotSet.save();
+                    executorManager.shutdown();
                     db.shutdown();
                 }
             }));
@@ -96,9 +105,19 @@ public class Main {
             ExecutorService bulkWriterExecutor = injector.getInstance(Key.get(ExecutorService.class, Names.named(ExecutorManager.BULK_WRITER_MAP_KEY)));
             bulkWriteService.start(bulkWriterExecutor);
 
+            ExecutorService backgroundExecutor = injector.getInstance(Key.get(ExecutorService.class, Names.named(ExecutorManager.BACKGROUND_MAP_KEY)));
+            injector.getInstance(PedigreeIndex.class).buildInBackground(backgroundExecutor);
+            injector.getInstance(BreedYearAggregates.class).buildInBackground(backgroundExecutor);
+            ExecutorService inbreedingExecutor = injector.getInstance(Key.get(ExecutorService.class, Names.named(ExecutorManager.INBREEDING_MAP_KEY)));
+            injector.getInstance(StoredInbreedingService.class).start(backgroundExecutor, inbreedingExecutor);
+
+            pedigreeHotSet.load();
+
             Main main = injector.getInstance(Main.class);
             main.start();
 
+            injector.getInstance(PedigreeWarmer.class).warmInBackground();
+
             BreedUpdateService breedUpdateService = injector.getInstance(BreedUpdateService.class);
             breedUpdateService.initializeRecurringUpdates();
 
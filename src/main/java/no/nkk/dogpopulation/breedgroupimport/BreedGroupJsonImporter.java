@@ -7,6 +7,7 @@ import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.DogGraphLabel;
 import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
 import no.nkk.dogpopulation.graph.GraphUtils;
+import no.nkk.dogpopulation.graph.pedigree.BreedTable;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -22,11 +23,13 @@ public class BreedGroupJsonImporter {
 
     private final URL url;
     private final GraphDatabaseService graphDb;
+    private final BreedTable breedTable;
 
     @Inject
-    public BreedGroupJsonImporter(@Named("breedJsonUrl") URL url, GraphDatabaseService graphDb) {
+    public BreedGroupJsonImporter(@Named("breedJsonUrl") URL url, GraphDatabaseService graphDb, BreedTable breedTable) {
         this.url = url;
         this.graphDb = graphDb;
+        this.breedTable = breedTable;
     }
 
     public void importBreedGroup() {
@@ -41,6 +44,8 @@ public class BreedGroupJsonImporter {
 
             tx.success();
         }
+
+        breedTable.rebuild();
     }
 
     private void importBreedDefinition(Node breedGroupsCategory, BreedDefinition breedDefinition) {
@@ -1,7 +1,11 @@
 package no.nkk.dogpopulation.concurrent;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -13,8 +17,13 @@ public class ExecutorManager {
     public static final String BREED_IMPORTER_MAP_KEY = "system_breed";
     public static final String SOLR_MAP_KEY = "system_solrj";
     public static final String BULK_WRITER_MAP_KEY = "system_bulkWriter";
+    public static final String BACKGROUND_MAP_KEY = "system_background";
+    public static final String ALGORITHM_MAP_KEY = "system_algorithm";
+    public static final String PEDIGREE_MAP_KEY = "system_pedigree";
+    public static final String INBREEDING_MAP_KEY = "system_inbreeding";
 
     private final Map<String, ManageableExecutor> executorByName = new LinkedHashMap<>();
+    private final Map<String, ForkJoinPool> forkJoinPoolByName = new LinkedHashMap<>(); // guarded by executorByName
 
     public ManageableExecutor addBoundedQueueExecutor(String name, int corePoolSize, int maximumPoolSize, int workQueueCapacity) {
         synchronized(executorByName) {
@@ -51,6 +60,17 @@ public class ExecutorManager {
         }
     }
 
+    public ForkJoinPool addForkJoinPool(String name, int parallelism) {
+        synchronized(executorByName) {
+            if (executorByName.containsKey(name) || forkJoinPoolByName.containsKey(name)) {
+                throw new IllegalArgumentException("Attempting to re-assign existing thread-pool");
+            }
+            ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+            forkJoinPoolByName.put(name, forkJoinPool);
+            return forkJoinPool;
+        }
+    }
+
     public ManageableExecutor getExecutor(String name) {
         synchronized(executorByName) {
             return executorByName.get(name);
@@ -70,23 +90,27 @@ public class ExecutorManager {
     }
 
     public void shutdown() {
-        Map<String, ManageableExecutor> map = executorSnapshot();
-        for (Map.Entry<String, ManageableExecutor> e : map.entrySet()) {
-            e.getValue().shutdown();
+        List<ExecutorService> executors = new ArrayList<>();
+        synchronized(executorByName) {
+            executors.addAll(executorByName.values());
+            executors.addAll(forkJoinPoolByName.values());
+        }
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
         }
         try {
-            for (Map.Entry<String, ManageableExecutor> e : map.entrySet()) {
-                e.getValue().awaitTermination(10, TimeUnit.MILLISECONDS);
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(10, TimeUnit.MILLISECONDS);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-        for (Map.Entry<String, ManageableExecutor> e : map.entrySet()) {
-            e.getValue().shutdownNow();
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
         }
         try {
-            for (Map.Entry<String, ManageableExecutor> e : map.entrySet()) {
-                e.getValue().awaitTermination(1, TimeUnit.MILLISECONDS);
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(1, TimeUnit.MILLISECONDS);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
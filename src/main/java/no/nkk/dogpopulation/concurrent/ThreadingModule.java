@@ -2,10 +2,13 @@ package no.nkk.dogpopulation.concurrent;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
@@ -25,7 +28,17 @@ public class ThreadingModule extends AbstractModule {
         bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.BULK_WRITER_MAP_KEY)).toInstance(executorManager.addDirectHandoffExecutor(ExecutorManager.BULK_WRITER_MAP_KEY));
         bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.SOLR_MAP_KEY)).toInstance(executorManager.addDirectHandoffExecutor(ExecutorManager.SOLR_MAP_KEY));
         bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.BREED_IMPORTER_MAP_KEY)).toInstance(executorManager.addUnboundedQueueExecutor(ExecutorManager.BREED_IMPORTER_MAP_KEY, maxConcurrentBreedImports));
+        bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.BACKGROUND_MAP_KEY)).toInstance(executorManager.addUnboundedQueueExecutor(ExecutorManager.BACKGROUND_MAP_KEY, 1));
         bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.TRAVERSER_MAP_KEY)).toInstance(executorManager.addDirectHandoffExecutor(ExecutorManager.TRAVERSER_MAP_KEY));
+        bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.INBREEDING_MAP_KEY)).toInstance(executorManager.addUnboundedQueueExecutor(ExecutorManager.INBREEDING_MAP_KEY, 1));
+        bind(ExecutorService.class).annotatedWith(Names.named(ExecutorManager.PEDIGREE_MAP_KEY)).toInstance(executorManager.addUnboundedQueueExecutor(ExecutorManager.PEDIGREE_MAP_KEY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Provides
+    @Singleton
+    @Named(ExecutorManager.ALGORITHM_MAP_KEY)
+    public ForkJoinPool algorithmForkJoinPool(ExecutorManager executorManager, @Named("algorithmParallelism") int algorithmParallelism) {
+        return executorManager.addForkJoinPool(ExecutorManager.ALGORITHM_MAP_KEY, algorithmParallelism);
     }
 
     @Provides
@@ -1,16 +1,15 @@
 package no.nkk.dogpopulation.concurrent;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import no.nkk.dogpopulation.pedigree.JsonResponseWriter;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -22,31 +21,24 @@ import java.util.Map;
 public class ThreadingResource {
 
     private final ExecutorManager executorManager;
-    private final ObjectMapper objectMapper;
-    private final ObjectWriter prettyPrintingObjectWriter;
+    private final JsonResponseWriter jsonResponseWriter;
 
     @Inject
-    public ThreadingResource(ExecutorManager executorManager) {
+    public ThreadingResource(ExecutorManager executorManager, JsonResponseWriter jsonResponseWriter) {
         this.executorManager = executorManager;
-        objectMapper = new ObjectMapper();
-        prettyPrintingObjectWriter = objectMapper.writerWithDefaultPrettyPrinter();
+        this.jsonResponseWriter = jsonResponseWriter;
     }
 
     @GET
     @Path("/executor/status")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getPedigree() {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getPedigree(@QueryParam("pretty") boolean pretty) {
 
         Map<String, ExecutorStatus> statusMaps = new LinkedHashMap<>();
         for (Map.Entry<String, ManageableExecutor> e : executorManager.executorSnapshot().entrySet()) {
             statusMaps.put(e.getKey(), e.getValue().getStatus());
         }
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(statusMaps);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(statusMaps, pretty)).build();
     }
 }
@@ -1,10 +1,9 @@
 package no.nkk.dogpopulation.graph;
 
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
 /**
- * To be used for JSON serialization of a DescriptiveStatistics instance.
+ * To be used for JSON serialization of the statistics computed by a {@link QuantileHistogram}.
  *
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
@@ -14,117 +13,132 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
         "percentile55", "percentile60", "percentile65", "percentile70", "percentile75",
         "percentile80", "percentile85", "percentile90", "percentile95", "percentile99"})
 public class BasicStatistics {
-    private final DescriptiveStatistics descriptiveStatistics;
 
-    public BasicStatistics(DescriptiveStatistics descriptiveStatistics) {
-        this.descriptiveStatistics = descriptiveStatistics;
+    static final double[] PERCENTILES = {1, 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 60, 65, 70, 75, 80, 85, 90, 95, 99};
+
+    private final long n;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double standardDeviation;
+    private final double[] percentiles; // in order of PERCENTILES
+
+    BasicStatistics(long n, double sum, double min, double max, double mean, double standardDeviation, double[] percentiles) {
+        this.n = n;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.percentiles = percentiles;
     }
 
     public long getN() {
-        return descriptiveStatistics.getN();
+        return n;
     }
 
     public double getSum() {
-        return descriptiveStatistics.getSum();
+        return sum;
     }
 
     public double getMin() {
-        return descriptiveStatistics.getMin();
+        return min;
     }
 
     public double getMax() {
-        return descriptiveStatistics.getMax();
+        return max;
     }
 
     public double getMean() {
-        return descriptiveStatistics.getMean();
+        return mean;
     }
 
     public double getStandardDeviation() {
-        return descriptiveStatistics.getStandardDeviation();
+        return standardDeviation;
     }
 
     public double getPercentile1() {
-        return descriptiveStatistics.getPercentile(1);
+        return percentiles[0];
     }
 
     public double getPercentile5() {
-        return descriptiveStatistics.getPercentile(5);
+        return percentiles[1];
     }
 
     public double getPercentile10() {
-        return descriptiveStatistics.getPercentile(10);
+        return percentiles[2];
     }
 
     public double getPercentile15() {
-        return descriptiveStatistics.getPercentile(15);
+        return percentiles[3];
     }
 
     public double getPercentile20() {
-        return descriptiveStatistics.getPercentile(20);
+        return percentiles[4];
     }
 
     public double getPercentile25() {
-        return descriptiveStatistics.getPercentile(25);
+        return percentiles[5];
     }
 
     public double getPercentile30() {
-        return descriptiveStatistics.getPercentile(30);
+        return percentiles[6];
     }
 
     public double getPercentile35() {
-        return descriptiveStatistics.getPercentile(35);
+        return percentiles[7];
     }
 
     public double getPercentile40() {
-        return descriptiveStatistics.getPercentile(40);
+        return percentiles[8];
     }
 
     public double getPercentile45() {
-        return descriptiveStatistics.getPercentile(45);
+        return percentiles[9];
     }
 
     public double getPercentile50() {
-        return descriptiveStatistics.getPercentile(50);
+        return percentiles[10];
     }
 
     public double getPercentile55() {
-        return descriptiveStatistics.getPercentile(55);
+        return percentiles[11];
     }
 
     public double getPercentile60() {
-        return descriptiveStatistics.getPercentile(60);
+        return percentiles[12];
     }
 
     public double getPercentile65() {
-        return descriptiveStatistics.getPercentile(65);
+        return percentiles[13];
     }
 
     public double getPercentile70() {
-        return descriptiveStatistics.getPercentile(70);
+        return percentiles[14];
     }
 
     public double getPercentile75() {
-        return descriptiveStatistics.getPercentile(75);
+        return percentiles[15];
     }
 
     public double getPercentile80() {
-        return descriptiveStatistics.getPercentile(80);
+        return percentiles[16];
     }
 
     public double getPercentile85() {
-        return descriptiveStatistics.getPercentile(85);
+        return percentiles[17];
     }
 
     public double getPercentile90() {
-        return descriptiveStatistics.getPercentile(90);
+        return percentiles[18];
     }
 
     public double getPercentile95() {
-        return descriptiveStatistics.getPercentile(95);
+        return percentiles[19];
     }
 
     public double getPercentile99() {
-        return descriptiveStatistics.getPercentile(99);
+        return percentiles[20];
     }
 }
@@ -0,0 +1,140 @@
+package no.nkk.dogpopulation.graph;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.traversal.Evaluation;
+import org.neo4j.graphdb.traversal.Evaluator;
+import org.neo4j.graphdb.traversal.Traverser;
+
+/**
+ * Range index of the dogs of a breed-synonym by year, stored in the graph as one BREED_YEAR node per breed-synonym and
+ * year that the dogs of that year are connected to:
+ *
+ * <pre>
+ *   (breedSynonym)-[:HAS_BORN_YEAR]->(:BREED_YEAR {year})<-[:BORN_IN]-(dog)
+ *   (breedSynonym)-[:HAS_HD_YEAR]->(:BREED_YEAR {year})<-[:HD_XRAYED_IN]-(dog)
+ * </pre>
+ *
+ * A range of years is then found by visiting the year nodes of the breed-synonym, at most one per year, and only the
+ * dogs of the years within range, instead of every dog of the breed-synonym.
+ *
+ * The index is maintained by the DogNodeBuilder in the same transaction as the dog properties and breed. Breed-synonyms
+ * with dogs that were added before the index existed are indexed by the GraphSchemaMigrator, and are marked when
+ * indexed so that traversals can fall back to visiting all dogs of breed-synonyms that are not. Concurrent transactions
+ * may create two year nodes for the same breed-synonym and year, which is harmless as traversals select year nodes by
+ * their year property. Year nodes that no longer have any dogs are left in place.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class BreedYearIndex {
+
+    public static final BreedYearIndex BORN = new BreedYearIndex(DogGraphConstants.DOG_BORN_YEAR, DogGraphRelationshipType.HAS_BORN_YEAR, DogGraphRelationshipType.BORN_IN);
+    public static final BreedYearIndex HD_XRAY = new BreedYearIndex(DogGraphConstants.DOG_HDYEAR, DogGraphRelationshipType.HAS_HD_YEAR, DogGraphRelationshipType.HD_XRAYED_IN);
+
+    private final String dogYearProperty;
+    private final DogGraphRelationshipType breedToYear;
+    private final DogGraphRelationshipType dogToYear;
+
+    private BreedYearIndex(String dogYearProperty, DogGraphRelationshipType breedToYear, DogGraphRelationshipType dogToYear) {
+        this.dogYearProperty = dogYearProperty;
+        this.breedToYear = breedToYear;
+        this.dogToYear = dogToYear;
+    }
+
+
+    /**
+     * Connect the dog to the year nodes of its current breed-synonym and years, replacing any outdated connections.
+     * Must be called within a transaction after the properties and breed of the dog have been written.
+     *
+     * @param dogNode
+     */
+    public static void update(Node dogNode) {
+        Relationship isBreed = dogNode.getSingleRelationship(DogGraphRelationshipType.IS_BREED, Direction.OUTGOING);
+        Node breedSynonymNode = isBreed == null ? null : isBreed.getEndNode();
+        BORN.connect(dogNode, breedSynonymNode);
+        HD_XRAY.connect(dogNode, breedSynonymNode);
+        if (breedSynonymNode != null && !isIndexed(breedSynonymNode)
+                && breedSynonymNode.getDegree(DogGraphRelationshipType.IS_BREED, Direction.INCOMING) == 1) {
+            markIndexed(breedSynonymNode); // first dog of breed-synonym
+        }
+    }
+
+    /**
+     * @param breedSynonymNode
+     * @return whether all dogs of the breed-synonym are known to be in the index.
+     */
+    public static boolean isIndexed(Node breedSynonymNode) {
+        return breedSynonymNode.hasProperty(DogGraphConstants.BREEDSYNONYM_YEARS_INDEXED);
+    }
+
+    public static void markIndexed(Node breedSynonymNode) {
+        breedSynonymNode.setProperty(DogGraphConstants.BREEDSYNONYM_YEARS_INDEXED, true);
+    }
+
+    /**
+     * @param graphDb
+     * @param breedSynonymNode
+     * @param minYear
+     * @param maxYear
+     * @return a traverser with paths ending at the dogs of the breed-synonym with a year within range.
+     */
+    public Traverser traverse(GraphDatabaseService graphDb, Node breedSynonymNode, final int minYear, final int maxYear) {
+        return graphDb.traversalDescription()
+                .depthFirst()
+                .relationships(breedToYear, Direction.OUTGOING)
+                .relationships(dogToYear, Direction.INCOMING)
+                .evaluator(new Evaluator() {
+                    @Override
+                    public Evaluation evaluate(Path path) {
+                        switch (path.length()) {
+                            case 0:
+                                return Evaluation.EXCLUDE_AND_CONTINUE;
+                            case 1:
+                                int year = (int) path.endNode().getProperty(DogGraphConstants.BREEDYEAR_YEAR);
+                                if (minYear <= year && year <= maxYear) {
+                                    return Evaluation.EXCLUDE_AND_CONTINUE;
+                                }
+                                return Evaluation.EXCLUDE_AND_PRUNE;
+                            default:
+                                return Evaluation.INCLUDE_AND_PRUNE;
+                        }
+                    }
+                })
+                .traverse(breedSynonymNode);
+    }
+
+
+    private void connect(Node dogNode, Node breedSynonymNode) {
+        Integer year = (Integer) dogNode.getProperty(dogYearProperty, null);
+        Relationship existing = dogNode.getSingleRelationship(dogToYear, Direction.OUTGOING);
+        if (existing != null) {
+            Node yearNode = existing.getEndNode();
+            if (breedSynonymNode != null && year != null
+                    && year.equals(yearNode.getProperty(DogGraphConstants.BREEDYEAR_YEAR))
+                    && breedSynonymNode.equals(yearNode.getSingleRelationship(breedToYear, Direction.INCOMING).getStartNode())) {
+                return; // already connected to correct year node
+            }
+            existing.delete();
+        }
+        if (breedSynonymNode == null || year == null) {
+            return;
+        }
+        dogNode.createRelationshipTo(findOrCreateYearNode(breedSynonymNode, year), dogToYear);
+    }
+
+    private Node findOrCreateYearNode(Node breedSynonymNode, int year) {
+        for (Relationship relationship : breedSynonymNode.getRelationships(breedToYear, Direction.OUTGOING)) {
+            Node yearNode = relationship.getEndNode();
+            if (year == (int) yearNode.getProperty(DogGraphConstants.BREEDYEAR_YEAR)) {
+                return yearNode;
+            }
+        }
+        Node yearNode = breedSynonymNode.getGraphDatabase().createNode(DogGraphLabel.BREED_YEAR);
+        yearNode.setProperty(DogGraphConstants.BREEDYEAR_YEAR, year);
+        breedSynonymNode.createRelationshipTo(yearNode, breedToYear);
+        return yearNode;
+    }
+}
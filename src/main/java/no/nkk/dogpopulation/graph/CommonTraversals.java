@@ -21,7 +21,29 @@ public class CommonTraversals {
     }
 
 
-    public Traverser traverseDogOfBreedBornBetween(Node breedNode, final int minYear, final int maxYear) {
+    /**
+     * Uses the breed-year index when all dogs of the breed-synonym are indexed, otherwise visits all dogs of the
+     * breed-synonym.
+     */
+    public Traverser traverseDogOfBreedBornBetween(Node breedNode, int minYear, int maxYear) {
+        if (BreedYearIndex.isIndexed(breedNode)) {
+            return BreedYearIndex.BORN.traverse(graphDb, breedNode, minYear, maxYear);
+        }
+        return traverseDogOfBreedWithYearPropertyBetween(breedNode, DogGraphConstants.DOG_BORN_YEAR, minYear, maxYear);
+    }
+
+    /**
+     * Uses the breed-year index when all dogs of the breed-synonym are indexed, otherwise visits all dogs of the
+     * breed-synonym.
+     */
+    public Traverser traverseDogOfBreedHdXrayedBetween(Node breedNode, int minYear, int maxYear) {
+        if (BreedYearIndex.isIndexed(breedNode)) {
+            return BreedYearIndex.HD_XRAY.traverse(graphDb, breedNode, minYear, maxYear);
+        }
+        return traverseDogOfBreedWithYearPropertyBetween(breedNode, DogGraphConstants.DOG_HDYEAR, minYear, maxYear);
+    }
+
+    private Traverser traverseDogOfBreedWithYearPropertyBetween(Node breedNode, final String yearProperty, final int minYear, final int maxYear) {
         return graphDb.traversalDescription()
                 .depthFirst()
                 .relationships(DogGraphRelationshipType.IS_BREED, Direction.INCOMING)
@@ -30,11 +52,11 @@ public class CommonTraversals {
                     @Override
                     public Evaluation evaluate(Path path) {
                         Node dogNode = path.endNode();
-                        if (!dogNode.hasProperty(DogGraphConstants.DOG_BORN_YEAR)) {
+                        if (!dogNode.hasProperty(yearProperty)) {
                             return Evaluation.EXCLUDE_AND_CONTINUE;
                         }
-                        int bornYear = (int) dogNode.getProperty(DogGraphConstants.DOG_BORN_YEAR);
-                        if (minYear <= bornYear && bornYear <= maxYear) {
+                        int year = (int) dogNode.getProperty(yearProperty);
+                        if (minYear <= year && year <= maxYear) {
                             return Evaluation.INCLUDE_AND_CONTINUE;
                         }
                         return Evaluation.EXCLUDE_AND_CONTINUE;
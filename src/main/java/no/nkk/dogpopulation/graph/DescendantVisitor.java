@@ -0,0 +1,18 @@
+package no.nkk.dogpopulation.graph;
+
+import java.io.IOException;
+
+/**
+ * Receives the descendants of a dog one by one as they are traversed, so that they need not be collected first.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public interface DescendantVisitor {
+
+    /**
+     * @param uuid the uuid of the descendant.
+     * @param generation 1 for children, 2 for grandchildren, and so on.
+     * @throws IOException
+     */
+    void visit(String uuid, int generation) throws IOException;
+}
@@ -21,6 +21,9 @@ public class DogGraphConstants {
 
     public static final String BREEDSYNONYM_SYNONYM = "synonym";
     public static final String BREEDSYNONYM_UPDATEDTO = "updatedTo";
+    public static final String BREEDSYNONYM_YEARS_INDEXED = "yearsIndexed";
+
+    public static final String BREEDYEAR_YEAR = "year";
 
     public static final String CATEGORY_CATEGORY = "category";
 
@@ -43,6 +46,8 @@ public class DogGraphConstants {
     public static final String DOG_BORN_DAY = "b_day";
     public static final String DOG_HDDIAG = "hd_diag";
     public static final String DOG_HDYEAR = "hd_year";
+    public static final String DOG_INBREEDING3 = "coi3";
+    public static final String DOG_INBREEDING6 = "coi6";
 
     public static final String HASPARENT_ROLE = "role";
 
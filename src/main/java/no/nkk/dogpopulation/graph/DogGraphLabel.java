@@ -12,5 +12,7 @@ public enum DogGraphLabel implements Label {
     BREED_GROUP,
     BREED_SYNONYM,
     DOG,
-    LITTER
+    LITTER,
+    BREED_YEAR,
+    INBREEDING_PENDING
 }
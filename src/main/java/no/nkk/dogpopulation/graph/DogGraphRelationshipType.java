@@ -12,5 +12,9 @@ public enum DogGraphRelationshipType implements RelationshipType {
     MEMBER_OF,
     REGISTERED_IN,
     IN_LITTER,
-    HAS_LITTER
+    HAS_LITTER,
+    HAS_BORN_YEAR,
+    BORN_IN,
+    HAS_HD_YEAR,
+    HD_XRAYED_IN
 }
@@ -2,6 +2,13 @@ package no.nkk.dogpopulation.graph;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import no.nkk.dogpopulation.concurrent.ExecutorManager;
+import no.nkk.dogpopulation.graph.aggregate.BreedYearAggregates;
+import no.nkk.dogpopulation.graph.dashboard.Dashboard;
+import no.nkk.dogpopulation.graph.dashboard.DashboardAlgorithm;
+import no.nkk.dogpopulation.graph.dashboard.DashboardMetrics;
+import no.nkk.dogpopulation.graph.dashboard.DogGroupAccumulator;
 import no.nkk.dogpopulation.graph.dataerror.breed.IncorrectBreedAlgorithm;
 import no.nkk.dogpopulation.graph.dataerror.breed.IncorrectBreedRecord;
 import no.nkk.dogpopulation.graph.dataerror.circularparentchain.CircularAncestryBreedGroupAlgorithm;
@@ -10,21 +17,39 @@ import no.nkk.dogpopulation.graph.dataerror.circularparentchain.CircularRecord;
 import no.nkk.dogpopulation.graph.dataerror.gender.IncorrectGenderRecord;
 import no.nkk.dogpopulation.graph.dataerror.gender.IncorrectOrMissingGenderAlgorithm;
 import no.nkk.dogpopulation.graph.dogbuilder.BreedSynonymNodeCache;
+import no.nkk.dogpopulation.graph.diversity.GeneticDiversity;
+import no.nkk.dogpopulation.graph.diversity.GeneticDiversityAlgorithm;
 import no.nkk.dogpopulation.graph.hdindex.DmuHdIndexAlgorithm;
 import no.nkk.dogpopulation.graph.hdxray.HDXrayStatistics;
 import no.nkk.dogpopulation.graph.hdxray.HDXrayStatisticsAlgorithm;
 import no.nkk.dogpopulation.graph.inbreeding.InbreedingAlgorithm;
+import no.nkk.dogpopulation.graph.inbreeding.MatingPlanAlgorithm;
+import no.nkk.dogpopulation.graph.inbreeding.MatingPlanVisitor;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingCache;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingMethod;
 import no.nkk.dogpopulation.graph.inbreeding.InbreedingOfGroup;
 import no.nkk.dogpopulation.graph.inbreeding.InbreedingOfGroupAlgorithm;
 import no.nkk.dogpopulation.graph.inbreeding.InbreedingResult;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingTimeSeries;
+import no.nkk.dogpopulation.graph.inbreeding.StoredInbreedingService;
+import no.nkk.dogpopulation.graph.inbreeding.TabularInbreedingOfGroupAlgorithm;
 import no.nkk.dogpopulation.graph.litter.LitterStatistics;
 import no.nkk.dogpopulation.graph.litter.LitterStatisticsAlgorithm;
 import no.nkk.dogpopulation.graph.pedigree.Ancestry;
+import no.nkk.dogpopulation.graph.pedigree.BreedTable;
+import no.nkk.dogpopulation.graph.pedigree.DagDog;
 import no.nkk.dogpopulation.graph.pedigree.Dog;
+import no.nkk.dogpopulation.graph.pedigree.DogConverter;
+import no.nkk.dogpopulation.graph.pedigree.OffspringPage;
 import no.nkk.dogpopulation.graph.pedigree.PedigreeAlgorithm;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeBatch;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeDag;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeDagAlgorithm;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeUtils;
 import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
 import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompleteness;
 import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompletenessAlgorithm;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
 import no.nkk.dogpopulation.importer.dogsearch.DogDetails;
 import org.joda.time.LocalDateTime;
 import org.neo4j.cypher.javacompat.ExecutionEngine;
@@ -35,19 +60,23 @@ import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Traverser;
 import org.neo4j.graphdb.traversal.Uniqueness;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * All public methods must wrap access to the graph-database within a transaction. Private methods may assume that
@@ -64,18 +93,30 @@ public class GraphQueryService {
     private final GraphDatabaseService graphDb;
     private final ExecutionEngine engine;
     private final BreedSynonymNodeCache breedSynonymNodeCache;
+    private final InbreedingCache inbreedingCache;
+    private final ForkJoinPool forkJoinPool;
+    private final PedigreeIndex pedigreeIndex;
+    private final StoredInbreedingService storedInbreedingService;
+    private final BreedTable breedTable;
+    private final BreedYearAggregates breedYearAggregates;
 
     @Inject
-    public GraphQueryService(GraphDatabaseService graphDb, ExecutionEngine executionEngine, BreedSynonymNodeCache breedSynonymNodeCache) {
+    public GraphQueryService(GraphDatabaseService graphDb, ExecutionEngine executionEngine, BreedSynonymNodeCache breedSynonymNodeCache, InbreedingCache inbreedingCache, PedigreeIndex pedigreeIndex, StoredInbreedingService storedInbreedingService, BreedTable breedTable, BreedYearAggregates breedYearAggregates, @Named(ExecutorManager.ALGORITHM_MAP_KEY) ForkJoinPool forkJoinPool) {
         this.graphDb = graphDb;
         engine = executionEngine;
         this.breedSynonymNodeCache = breedSynonymNodeCache;
+        this.inbreedingCache = inbreedingCache;
+        this.forkJoinPool = forkJoinPool;
+        this.pedigreeIndex = pedigreeIndex;
+        this.storedInbreedingService = storedInbreedingService;
+        this.breedTable = breedTable;
+        this.breedYearAggregates = breedYearAggregates;
     }
 
 
     public void writeDmuFiles(File dataFile, File pedigreeFile, File uuidMappingFile, File breedCodeMappingFile, File dataErrorFile, Set<String> breed, boolean regenerateLitterId) {
         try (Transaction tx = graphDb.beginTx()) {
-            DmuHdIndexAlgorithm algorithm = new DmuHdIndexAlgorithm(graphDb, engine, breed, regenerateLitterId);
+            DmuHdIndexAlgorithm algorithm = new DmuHdIndexAlgorithm(graphDb, breed, regenerateLitterId, pedigreeIndex);
             algorithm.writeFiles(dataFile, pedigreeFile, uuidMappingFile, breedCodeMappingFile, dataErrorFile);
             tx.success();
         }
@@ -179,15 +220,114 @@ public class GraphQueryService {
             if (node == null) {
                 return null; // dog not found
             }
-            TopLevelDog dog = new PedigreeAlgorithm(graphDb).getPedigree(node);
-            InbreedingResult inbreedingResult3 = computeCoefficientOfInbreeding(id, 3);
-            InbreedingResult inbreedingResult6 = computeCoefficientOfInbreeding(id, 6);
-            updateInbreedingContributions(dog, inbreedingResult3, inbreedingResult6);
+            TopLevelDog dog = getPedigree(node, new PedigreeAlgorithm(graphDb, DogConverter.direct(breedTable)), new InbreedingAlgorithm(graphDb, 6, inbreedingCache));
             tx.success();
             return dog;
         }
     }
 
+    /**
+     * Get the pedigrees of all the given dogs within a single transaction. Ancestors shared by several of the dogs are
+     * only read from the graph once, and the coefficients of inbreeding of shared common ancestors are only computed
+     * once.
+     *
+     * @param ids
+     * @return the pedigrees in the order of the ids, and the ids of dogs not found.
+     */
+    public PedigreeBatch getPedigrees(List<String> ids) {
+        try (Transaction tx = graphDb.beginTx()) {
+            PedigreeAlgorithm pedigreeAlgorithm = new PedigreeAlgorithm(graphDb, DogConverter.memoizing(breedTable));
+            InbreedingAlgorithm inbreedingAlgorithm = new InbreedingAlgorithm(graphDb, 6, inbreedingCache);
+            List<TopLevelDog> pedigrees = new ArrayList<>(ids.size());
+            List<String> unknownDogs = new ArrayList<>();
+            for (String id : ids) {
+                Node node = getDogNode(id);
+                if (node == null) {
+                    unknownDogs.add(id);
+                    continue;
+                }
+                pedigrees.add(getPedigree(node, pedigreeAlgorithm, inbreedingAlgorithm));
+            }
+            tx.success();
+            return new PedigreeBatch(pedigrees, unknownDogs);
+        }
+    }
+
+    private TopLevelDog getPedigree(Node node, PedigreeAlgorithm pedigreeAlgorithm, InbreedingAlgorithm inbreedingAlgorithm) {
+        TopLevelDog dog = pedigreeAlgorithm.getPedigree(node);
+        if (isStoredAsNotInbred(node)) {
+            InbreedingResult notInbred = new InbreedingResult(0, Collections.<String, Double>emptyMap());
+            updateInbreedingContributions(dog, notInbred, notInbred);
+            return dog; // no ancestor contributes, so there is nothing to compute
+        }
+        InbreedingResult[] inbreedingResults = inbreedingAlgorithm.computeSewallWrightCoefficientsOfInbreeding(node, 3, 6);
+        updateInbreedingContributions(dog, inbreedingResults[0], inbreedingResults[1]);
+        return dog;
+    }
+
+    /**
+     * @param id
+     * @param offset
+     * @param limit
+     * @return a page of the litters of the dog, or null if the dog is not found.
+     */
+    public OffspringPage getOffspring(String id, int offset, int limit) {
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = getDogNode(id);
+            if (node == null) {
+                return null; // dog not found
+            }
+            OffspringPage offspringPage = PedigreeUtils.getOffspring(node, offset, limit, breedTable);
+            tx.success();
+            return offspringPage;
+        }
+    }
+
+    /**
+     * @param id
+     * @param generations number of generations of ancestors to include.
+     * @return the pedigree of the dog with every ancestor only once, or null if the dog is not found.
+     */
+    public PedigreeDag getPedigreeDag(String id, int generations) {
+        try (Transaction tx = graphDb.beginTx()) {
+            Node node = getDogNode(id);
+            if (node == null) {
+                return null; // dog not found
+            }
+            PedigreeDag pedigree = new PedigreeDagAlgorithm(graphDb, breedTable).getPedigree(node, generations);
+            DagDog dog = pedigree.getDogs().get(pedigree.getUuid());
+            dog.setInbreedingCoefficient3(0.0);
+            dog.setInbreedingCoefficient6(0.0);
+            if (!isStoredAsNotInbred(node)) {
+                InbreedingResult[] inbreedingResults = new InbreedingAlgorithm(graphDb, 6, inbreedingCache).computeSewallWrightCoefficientsOfInbreeding(node, 3, 6);
+                for (Map.Entry<String, Double> e : inbreedingResults[0].getCoiByContributingAncestor().entrySet()) {
+                    DagDog ancestor = pedigree.getDogs().get(e.getKey());
+                    if (ancestor != null) {
+                        ancestor.setInbreedingCoefficient3(100 * e.getValue());
+                    }
+                }
+                for (Map.Entry<String, Double> e : inbreedingResults[1].getCoiByContributingAncestor().entrySet()) {
+                    DagDog ancestor = pedigree.getDogs().get(e.getKey());
+                    if (ancestor != null) {
+                        ancestor.setInbreedingCoefficient6(100 * e.getValue());
+                    }
+                }
+            }
+            tx.success();
+            return pedigree;
+        }
+    }
+
+    /**
+     * The contribution of every ancestor can only be found by walking the pedigree, so the stored coefficients are
+     * only enough to answer a pedigree request when the dog is not inbred.
+     */
+    private boolean isStoredAsNotInbred(Node node) {
+        Double coi3 = storedInbreedingService.getStoredCoefficientOfInbreeding(node, 3);
+        Double coi6 = storedInbreedingService.getStoredCoefficientOfInbreeding(node, 6);
+        return coi3 != null && coi3 == 0 && coi6 != null && coi6 == 0;
+    }
+
     private void updateInbreedingContributions(Dog dog, InbreedingResult inbreedingResult3, InbreedingResult inbreedingResult6) {
         dog.setInbreedingCoefficient3(0.0);
         dog.setInbreedingCoefficient6(0.0);
@@ -248,15 +388,14 @@ public class GraphQueryService {
             if (motherNode == null) {
                 return null; // parent-2 not found
             }
-            TopLevelDog father = new PedigreeAlgorithm(graphDb).getPedigree(fatherNode);
-            TopLevelDog mother = new PedigreeAlgorithm(graphDb).getPedigree(motherNode);
-            InbreedingResult inbreedingResult3 = new InbreedingAlgorithm(graphDb, 3).computeSewallWrightCoefficientOfInbreeding(uuid, fatherNode, motherNode);
-            InbreedingResult inbreedingResult6 = new InbreedingAlgorithm(graphDb, 6).computeSewallWrightCoefficientOfInbreeding(uuid, fatherNode, motherNode);
+            TopLevelDog father = new PedigreeAlgorithm(graphDb, DogConverter.direct(breedTable)).getPedigree(fatherNode);
+            TopLevelDog mother = new PedigreeAlgorithm(graphDb, DogConverter.direct(breedTable)).getPedigree(motherNode);
+            InbreedingResult[] inbreedingResults = new InbreedingAlgorithm(graphDb, 6, inbreedingCache).computeSewallWrightCoefficientsOfInbreeding(uuid, fatherNode, motherNode, 3, 6);
 
             TopLevelDog ficticiousDog = new TopLevelDog();
             ficticiousDog.setUuid(uuid);
             ficticiousDog.setName(name);
-            updateInbreedingContributions(ficticiousDog, inbreedingResult3, inbreedingResult6);
+            updateInbreedingContributions(ficticiousDog, inbreedingResults[0], inbreedingResults[1]);
             ficticiousDog.setAncestry(new Ancestry(father, mother));
             tx.success();
             return ficticiousDog;
@@ -264,6 +403,41 @@ public class GraphQueryService {
     }
 
 
+    /**
+     * Compute the expected coefficient of inbreeding of the offspring of every combination of the given fathers and
+     * mothers within a single transaction, and visit the coefficients of each father as soon as they are computed.
+     * Dogs that are not found are reported in the plan but otherwise ignored.
+     *
+     * @param fatherUuids
+     * @param motherUuids
+     * @param generations how many generations to use from the pedigree.
+     * @param visitor
+     * @throws IOException when thrown by the visitor.
+     */
+    public void visitMatingPlan(List<String> fatherUuids, List<String> motherUuids, int generations, MatingPlanVisitor visitor) throws IOException {
+        try (Transaction tx = graphDb.beginTx()) {
+            List<String> unknownDogs = new ArrayList<>();
+            List<Node> fathers = getDogNodes(fatherUuids, unknownDogs);
+            List<Node> mothers = getDogNodes(motherUuids, unknownDogs);
+            new MatingPlanAlgorithm(graphDb, generations, inbreedingCache, forkJoinPool).visitMatingPlan(fathers, mothers, unknownDogs, visitor);
+            tx.success();
+        }
+    }
+
+    private List<Node> getDogNodes(List<String> uuids, List<String> unknownDogs) {
+        List<Node> nodes = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            Node node = getDogNode(uuid);
+            if (node == null) {
+                unknownDogs.add(uuid);
+                continue;
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+
     public void populateDescendantUuids(Node dog, Set<String> descendants) {
         try (Transaction tx = graphDb.beginTx()) {
             populateDescendantIds(dog, descendants);
@@ -271,6 +445,30 @@ public class GraphQueryService {
         }
     }
 
+    /**
+     * Visit the descendants of the dog generation by generation within a single transaction, without collecting them.
+     *
+     * @param id
+     * @param generations maximum number of generations to visit.
+     * @param visitor
+     * @return false if the dog is not found, true otherwise.
+     * @throws IOException when thrown by the visitor.
+     */
+    public boolean visitDescendants(String id, int generations, DescendantVisitor visitor) throws IOException {
+        try (Transaction tx = graphDb.beginTx()) {
+            Node dog = getDogNode(id);
+            if (dog == null) {
+                tx.success();
+                return false;
+            }
+            for (Path position : traverseDescendants(dog, generations)) {
+                visitor.visit((String) position.endNode().getProperty(DogGraphConstants.DOG_UUID), position.length());
+            }
+            tx.success();
+            return true;
+        }
+    }
+
 
     /**
      * Compute the "Coefficient Of Inbreeding" using the method by geneticist Sewall Wright. The computation is done
@@ -283,7 +481,7 @@ public class GraphQueryService {
     public InbreedingResult computeCoefficientOfInbreeding(String uuid, int generations) {
         try (Transaction tx = graphDb.beginTx()) {
             Node dog = getDogNode(uuid);
-            InbreedingResult inbreedingResult = new InbreedingAlgorithm(graphDb, generations).computeSewallWrightCoefficientOfInbreeding(dog);
+            InbreedingResult inbreedingResult = new InbreedingAlgorithm(graphDb, generations, inbreedingCache).computeSewallWrightCoefficientOfInbreeding(dog);
             tx.success();
             return inbreedingResult;
         }
@@ -292,7 +490,7 @@ public class GraphQueryService {
 
     public PedigreeCompleteness getPedigreeCompletenessOfGroup(int generations, Set<String> breedSet, int minYear, int maxYear) {
         try (Transaction tx = graphDb.beginTx()) {
-            PedigreeCompletenessAlgorithm algorithm = new PedigreeCompletenessAlgorithm(graphDb, generations);
+            PedigreeCompletenessAlgorithm algorithm = new PedigreeCompletenessAlgorithm(graphDb, generations, pedigreeIndex);
             PedigreeCompleteness pedigreeCompletenessOfGroup = algorithm.getPedigreeCompletenessOfGroup(breedSet, minYear, maxYear);
             tx.success();
             return pedigreeCompletenessOfGroup;
@@ -301,9 +499,25 @@ public class GraphQueryService {
 
 
     public HDXrayStatistics getHDXrayStatisticsOfGroupBornBetween(Set<String> breedSet, int minYear, int maxYear) {
+        return getHDXrayStatisticsOfGroupBornBetween(breedSet, minYear, maxYear, false);
+    }
+
+
+    /**
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @param verify whether to scan the graph rather than using the breed-year aggregates, a mismatch with the
+     *               aggregates is logged.
+     * @return the statistics, from the graph when verifying.
+     */
+    public HDXrayStatistics getHDXrayStatisticsOfGroupBornBetween(Set<String> breedSet, int minYear, int maxYear, boolean verify) {
         try (Transaction tx = graphDb.beginTx()) {
-            HDXrayStatisticsAlgorithm algorithm = new HDXrayStatisticsAlgorithm(graphDb);
+            HDXrayStatisticsAlgorithm algorithm = new HDXrayStatisticsAlgorithm(graphDb, verify ? null : breedYearAggregates);
             HDXrayStatistics hdXrayStatistics = algorithm.hdXrayStatisticsForDogsOfBreedBornBetween(breedSet, minYear, maxYear);
+            if (verify && breedYearAggregates.isBuilt()) {
+                verifyHDXrayStatistics(new HDXrayStatisticsAlgorithm(graphDb, breedYearAggregates).hdXrayStatisticsForDogsOfBreedBornBetween(breedSet, minYear, maxYear), hdXrayStatistics);
+            }
             tx.success();
             return hdXrayStatistics;
         }
@@ -311,38 +525,178 @@ public class GraphQueryService {
 
 
     public HDXrayStatistics getHDXrayStatisticsOfGroupHdXRayedBetween(Set<String> breedSet, int minYear, int maxYear) {
+        return getHDXrayStatisticsOfGroupHdXRayedBetween(breedSet, minYear, maxYear, false);
+    }
+
+
+    /**
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @param verify whether to scan the graph rather than using the breed-year aggregates, a mismatch with the
+     *               aggregates is logged.
+     * @return the statistics, from the graph when verifying.
+     */
+    public HDXrayStatistics getHDXrayStatisticsOfGroupHdXRayedBetween(Set<String> breedSet, int minYear, int maxYear, boolean verify) {
         try (Transaction tx = graphDb.beginTx()) {
-            HDXrayStatisticsAlgorithm algorithm = new HDXrayStatisticsAlgorithm(graphDb);
+            HDXrayStatisticsAlgorithm algorithm = new HDXrayStatisticsAlgorithm(graphDb, verify ? null : breedYearAggregates);
             HDXrayStatistics hdXrayStatistics = algorithm.hdXrayStatisticsForDogsOfBreedXrayedBetween(breedSet, minYear, maxYear);
+            if (verify && breedYearAggregates.isBuilt()) {
+                verifyHDXrayStatistics(new HDXrayStatisticsAlgorithm(graphDb, breedYearAggregates).hdXrayStatisticsForDogsOfBreedXrayedBetween(breedSet, minYear, maxYear), hdXrayStatistics);
+            }
             tx.success();
             return hdXrayStatistics;
         }
     }
 
 
+    private static void verifyHDXrayStatistics(HDXrayStatistics fromAggregates, HDXrayStatistics fromGraph) {
+        if (fromAggregates.getDogCount() != fromGraph.getDogCount() || !fromAggregates.getCountByDiagnose().equals(fromGraph.getCountByDiagnose())) {
+            LOGGER.warn("HD statistics of {} {}-{} from aggregates differ from graph: {} dogs {} vs {} dogs {}", fromGraph.getBreed(), fromGraph.getMinYear(), fromGraph.getMaxYear(),
+                    fromAggregates.getDogCount(), fromAggregates.getCountByDiagnose(), fromGraph.getDogCount(), fromGraph.getCountByDiagnose());
+        }
+    }
+
+
     public InbreedingOfGroup getInbreedingOfGroup(int generations, Set<String> breedSet, int minYear, int maxYear) {
+        return getInbreedingOfGroup(InbreedingMethod.PATHCOUNTING, generations, breedSet, minYear, maxYear);
+    }
+
+
+    public InbreedingOfGroup getInbreedingOfGroup(InbreedingMethod method, int generations, Set<String> breedSet, int minYear, int maxYear) {
         try (Transaction tx = graphDb.beginTx()) {
-            InbreedingOfGroupAlgorithm algorithm = new InbreedingOfGroupAlgorithm(graphDb, generations);
-            InbreedingOfGroup inbreedingOfGroup = algorithm.getInbreedingOfGroup(breedSet, minYear, maxYear);
+            InbreedingOfGroup inbreedingOfGroup;
+            if (method == InbreedingMethod.TABULAR) {
+                TabularInbreedingOfGroupAlgorithm algorithm = new TabularInbreedingOfGroupAlgorithm(graphDb, generations, pedigreeIndex);
+                inbreedingOfGroup = algorithm.getInbreedingOfGroup(breedSet, minYear, maxYear);
+            } else {
+                InbreedingOfGroupAlgorithm algorithm = new InbreedingOfGroupAlgorithm(graphDb, generations, inbreedingCache, forkJoinPool, storedInbreedingService);
+                inbreedingOfGroup = algorithm.getInbreedingOfGroup(breedSet, minYear, maxYear);
+            }
             tx.success();
             return inbreedingOfGroup;
         }
     }
 
 
+    public InbreedingTimeSeries getInbreedingTimeSeries(int generations, Set<String> breedSet, int minYear, int maxYear) {
+        try (Transaction tx = graphDb.beginTx()) {
+            InbreedingOfGroupAlgorithm algorithm = new InbreedingOfGroupAlgorithm(graphDb, generations, inbreedingCache, forkJoinPool, storedInbreedingService);
+            InbreedingTimeSeries inbreedingTimeSeries = algorithm.getInbreedingTimeSeries(breedSet, minYear, maxYear);
+            tx.success();
+            return inbreedingTimeSeries;
+        }
+    }
+
+
+    public GeneticDiversity getGeneticDiversityOfGroup(int generations, Set<String> breedSet, int minYear, int maxYear, int topContributors) {
+        try (Transaction tx = graphDb.beginTx()) {
+            GeneticDiversityAlgorithm algorithm = new GeneticDiversityAlgorithm(graphDb, generations, pedigreeIndex);
+            GeneticDiversity geneticDiversity = algorithm.getGeneticDiversityOfGroup(breedSet, minYear, maxYear, topContributors);
+            tx.success();
+            return geneticDiversity;
+        }
+    }
+
+
+    /**
+     * Compute several metrics of the breed group in a single scan of the group.
+     *
+     * @param generations the generations used by the pedigree completeness and inbreeding metrics.
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @param metrics the names of the metrics to compute, see {@link DashboardMetrics}.
+     * @return the dashboard with the metrics in the given order.
+     */
+    public Dashboard getDashboard(int generations, Set<String> breedSet, int minYear, int maxYear, Collection<String> metrics) {
+        try (Transaction tx = graphDb.beginTx()) {
+            PedigreeIndex.Reader reader = pedigreeIndex.isBuilt() ? pedigreeIndex.reader() : null;
+            try {
+                List<DogGroupAccumulator> accumulators = new ArrayList<>();
+                for (String metric : metrics) {
+                    accumulators.add(createDashboardAccumulator(metric, reader, generations, breedSet, minYear, maxYear));
+                }
+                Dashboard dashboard = new DashboardAlgorithm(graphDb).getDashboard(breedSet, minYear, maxYear, accumulators);
+                tx.success();
+                return dashboard;
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    private DogGroupAccumulator createDashboardAccumulator(String metric, PedigreeIndex.Reader reader, int generations, Set<String> breedSet, int minYear, int maxYear) {
+        switch (metric) {
+            case DashboardMetrics.PEDIGREE_COMPLETENESS:
+                return DashboardMetrics.pedigreeCompleteness(new PedigreeCompletenessAlgorithm(graphDb, generations, pedigreeIndex).accumulator(reader), breedSet, minYear, maxYear);
+            case DashboardMetrics.INBREEDING:
+                return DashboardMetrics.inbreeding(new InbreedingOfGroupAlgorithm(graphDb, generations, inbreedingCache, forkJoinPool, storedInbreedingService), breedSet, minYear, maxYear);
+            case DashboardMetrics.LITTER:
+                if (breedYearAggregates.isBuilt()) {
+                    return DashboardMetrics.litter(new LitterStatisticsAlgorithm(graphDb, breedSet, minYear, maxYear, breedYearAggregates));
+                }
+                return DashboardMetrics.litter(breedSet, minYear, maxYear);
+            case DashboardMetrics.HD_STATISTICS_BORN_YEAR:
+                if (breedYearAggregates.isBuilt()) {
+                    return DashboardMetrics.hdStatisticsBornYear(new HDXrayStatisticsAlgorithm(graphDb, breedYearAggregates), breedSet, minYear, maxYear);
+                }
+                return DashboardMetrics.hdStatisticsBornYear(breedSet, minYear, maxYear);
+            case DashboardMetrics.HD_STATISTICS_XRAY_YEAR:
+                if (breedYearAggregates.isBuilt()) {
+                    return DashboardMetrics.hdStatisticsXrayYear(new HDXrayStatisticsAlgorithm(graphDb, breedYearAggregates), breedSet, minYear, maxYear);
+                }
+                return DashboardMetrics.hdStatisticsXrayYear(breedSet, minYear, maxYear);
+            default:
+                throw new IllegalArgumentException("Unknown dashboard metric: " + metric);
+        }
+    }
+
+
     public LitterStatistics getLitterStatisticsOfGroup(Set<String> breed, int minYear, int maxYear) {
+        return getLitterStatisticsOfGroup(breed, minYear, maxYear, false);
+    }
+
+
+    /**
+     * @param breed
+     * @param minYear
+     * @param maxYear
+     * @param verify whether to scan the graph rather than using the breed-year aggregates, a mismatch with the
+     *               aggregates is logged.
+     * @return the statistics, from the graph when verifying.
+     */
+    public LitterStatistics getLitterStatisticsOfGroup(Set<String> breed, int minYear, int maxYear, boolean verify) {
         try (Transaction tx = graphDb.beginTx()) {
-            LitterStatisticsAlgorithm algorithm = new LitterStatisticsAlgorithm(graphDb, breed, minYear, maxYear);
+            LitterStatisticsAlgorithm algorithm = new LitterStatisticsAlgorithm(graphDb, breed, minYear, maxYear, verify ? null : breedYearAggregates);
             LitterStatistics litterStatistics = algorithm.execute();
+            if (verify && breedYearAggregates.isBuilt()) {
+                verifyLitterStatistics(new LitterStatisticsAlgorithm(graphDb, breed, minYear, maxYear, breedYearAggregates).execute(), litterStatistics);
+            }
             tx.success();
             return litterStatistics;
         }
     }
 
 
+    private static void verifyLitterStatistics(LitterStatistics fromAggregates, LitterStatistics fromGraph) {
+        if (fromAggregates.getDogCount() != fromGraph.getDogCount()
+                || fromAggregates.getDogsWithAtLeastOneLitter() != fromGraph.getDogsWithAtLeastOneLitter()
+                || fromAggregates.getLitterCount() != fromGraph.getLitterCount()
+                || fromAggregates.getPuppyCount() != fromGraph.getPuppyCount()) {
+            LOGGER.warn("Litter statistics of {} {}-{} from aggregates differ from graph: {}/{}/{}/{} vs {}/{}/{}/{} (dogs/dogs with litter/litters/puppies)",
+                    fromGraph.getBreedSet(), fromGraph.getMinYear(), fromGraph.getMaxYear(),
+                    fromAggregates.getDogCount(), fromAggregates.getDogsWithAtLeastOneLitter(), fromAggregates.getLitterCount(), fromAggregates.getPuppyCount(),
+                    fromGraph.getDogCount(), fromGraph.getDogsWithAtLeastOneLitter(), fromGraph.getLitterCount(), fromGraph.getPuppyCount());
+        }
+    }
+
+
     public List<String> getAllDogsWithInconsistentGender(int skip, int limit, String breedSynonym) {
         try (Transaction tx = graphDb.beginTx()) {
-            IncorrectOrMissingGenderAlgorithm algorithm = new IncorrectOrMissingGenderAlgorithm(graphDb, engine);
+            IncorrectOrMissingGenderAlgorithm algorithm = new IncorrectOrMissingGenderAlgorithm(graphDb);
             List<String> result = algorithm.findDataError(skip, limit, breedSynonym);
             tx.success();
             return result;
@@ -352,7 +706,7 @@ public class GraphQueryService {
 
     public IncorrectGenderRecord getDogWithInconsistentGender(String uuid) {
         try (Transaction tx = graphDb.beginTx()) {
-            IncorrectOrMissingGenderAlgorithm algorithm = new IncorrectOrMissingGenderAlgorithm(graphDb, engine);
+            IncorrectOrMissingGenderAlgorithm algorithm = new IncorrectOrMissingGenderAlgorithm(graphDb);
             IncorrectGenderRecord igr = algorithm.findDataError(uuid);
             tx.success();
             return igr;
@@ -382,7 +736,7 @@ public class GraphQueryService {
 
     public List<CircularRecord> getCircluarParentChainInAncestryOf(String uuid) {
         try (Transaction tx = graphDb.beginTx()) {
-            CircularParentChainAlgorithm algorithm = new CircularParentChainAlgorithm(graphDb, engine);
+            CircularParentChainAlgorithm algorithm = new CircularParentChainAlgorithm(graphDb);
             List<CircularRecord> circle = algorithm.run(uuid);
             tx.success();
             return circle;
@@ -392,7 +746,7 @@ public class GraphQueryService {
 
     public List<String> getCircluarParentChainInAncestryOf(Set<String> breedSet) {
         try (Transaction tx = graphDb.beginTx()) {
-            CircularAncestryBreedGroupAlgorithm algorithm = new CircularAncestryBreedGroupAlgorithm(graphDb, engine);
+            CircularAncestryBreedGroupAlgorithm algorithm = new CircularAncestryBreedGroupAlgorithm(graphDb, pedigreeIndex);
             List<String> uuids = algorithm.run(breedSet);
             tx.success();
             return uuids;
@@ -480,19 +834,23 @@ public class GraphQueryService {
 
 
     private void populateDescendantIds(Node dog, Collection<? super String> descendants) {
-        for (Path position : graphDb.traversalDescription()
-                .depthFirst()
-                .uniqueness(Uniqueness.NODE_PATH)
+        for (Path position : traverseDescendants(dog, Integer.MAX_VALUE)) {
+            descendants.add((String) position.endNode().getProperty(DogGraphConstants.DOG_UUID));
+        }
+    }
+
+    /**
+     * Breadth-first with global node uniqueness, so that every descendant is visited exactly once and in the generation
+     * of its shortest path from the dog, even when there are many paths to it because of inbreeding.
+     */
+    private Traverser traverseDescendants(Node dog, int generations) {
+        return graphDb.traversalDescription()
+                .breadthFirst()
+                .uniqueness(Uniqueness.NODE_GLOBAL)
                 .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.INCOMING)
                 .evaluator(Evaluators.excludeStartPosition())
-                .traverse(dog)) {
-            Node descendant = position.endNode();
-            String uuid = (String) descendant.getProperty(DogGraphConstants.DOG_UUID);
-            if (descendants.contains(uuid)) {
-                return; // more than one path to descendant, this is because of inbreeding
-            }
-            descendants.add(uuid);
-        }
+                .evaluator(Evaluators.toDepth(generations))
+                .traverse(dog);
     }
 
     Node getSingleNode(DogGraphLabel label, String property, String value) {
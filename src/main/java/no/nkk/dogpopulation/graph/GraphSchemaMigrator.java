@@ -3,12 +3,21 @@ package no.nkk.dogpopulation.graph;
 import com.google.inject.Inject;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.traversal.Evaluators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 public class GraphSchemaMigrator {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphSchemaMigrator.class);
+
+    private static final int DOGS_PER_TRANSACTION = 10000;
+
     private final GraphDatabaseService graphDb;
 
     @Inject
@@ -18,6 +27,7 @@ public class GraphSchemaMigrator {
 
     public void migrateSchema(GraphDatabaseService graphDb) {
         migrateBreedNodesToBreedSynonymNodes(graphDb);
+        migrateDogsToBreedYearIndex(graphDb);
     }
 
     public void migrateBreedNodesToBreedSynonymNodes(GraphDatabaseService graphDb) {
@@ -50,4 +60,50 @@ public class GraphSchemaMigrator {
         }
     }
 
+    /**
+     * Add the dogs of all breed-synonyms that are not yet marked as indexed to the breed-year index.
+     */
+    public void migrateDogsToBreedYearIndex(GraphDatabaseService graphDb) {
+        List<Long> breedSynonymNodeIds = new ArrayList<>();
+        try (Transaction tx = graphDb.beginTx()) {
+            try (ResourceIterator<Node> it = graphDb.findNodes(DogGraphLabel.BREED_SYNONYM)) {
+                while (it.hasNext()) {
+                    Node breedSynonymNode = it.next();
+                    if (!BreedYearIndex.isIndexed(breedSynonymNode)) {
+                        breedSynonymNodeIds.add(breedSynonymNode.getId());
+                    }
+                }
+            }
+            tx.success();
+        }
+        if (breedSynonymNodeIds.isEmpty()) {
+            return; // already migrated
+        }
+        LOGGER.info("Adding dogs of {} breed-synonyms to breed-year index...", breedSynonymNodeIds.size());
+        int dogCount = 0;
+        for (long breedSynonymNodeId : breedSynonymNodeIds) {
+            List<Long> dogNodeIds = new ArrayList<>();
+            try (Transaction tx = graphDb.beginTx()) {
+                for (Relationship isBreed : graphDb.getNodeById(breedSynonymNodeId).getRelationships(DogGraphRelationshipType.IS_BREED, Direction.INCOMING)) {
+                    dogNodeIds.add(isBreed.getStartNode().getId());
+                }
+                tx.success();
+            }
+            for (int i = 0; i < dogNodeIds.size(); i += DOGS_PER_TRANSACTION) {
+                try (Transaction tx = graphDb.beginTx()) {
+                    for (long dogNodeId : dogNodeIds.subList(i, Math.min(i + DOGS_PER_TRANSACTION, dogNodeIds.size()))) {
+                        BreedYearIndex.update(graphDb.getNodeById(dogNodeId));
+                    }
+                    tx.success();
+                }
+            }
+            try (Transaction tx = graphDb.beginTx()) {
+                BreedYearIndex.markIndexed(graphDb.getNodeById(breedSynonymNodeId));
+                tx.success();
+            }
+            dogCount += dogNodeIds.size();
+        }
+        LOGGER.info("Added {} dogs to breed-year index", dogCount);
+    }
+
 }
@@ -17,6 +17,11 @@ public class GraphUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphUtils.class);
 
+    private static final String BREED_NODE_ID_QUERY = "MATCH \n"
+            + "  (s:BREED_SYNONYM {synonym:{synonym}})-[:MEMBER_OF]->(b:BREED) \n"
+            + "RETURN \n"
+            + "  ID(b)\n";
+
 
     public static Node getSingleNode(GraphDatabaseService graphDb, DogGraphLabel label, String property, String value) {
         ResourceIterable<Node> nodeIterator = graphDb.findNodesByLabelAndProperty(label, property, value);
@@ -60,12 +65,7 @@ public class GraphUtils {
     public static Long getBreedNodeId(ExecutionEngine engine, String breedSynonym) {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put("synonym", breedSynonym);
-        StringBuilder synonymQuery = new StringBuilder();
-        synonymQuery.append("MATCH \n");
-        synonymQuery.append("  (s:BREED_SYNONYM {synonym:{synonym}})-[:MEMBER_OF]->(b:BREED) \n");
-        synonymQuery.append("RETURN \n");
-        synonymQuery.append("  ID(b)\n");
-        ExecutionResult syonymResult = engine.execute(synonymQuery.toString(), params);
+        ExecutionResult syonymResult = engine.execute(BREED_NODE_ID_QUERY, params);
         try (ResourceIterator<Map<String,Object>> iterator = syonymResult.iterator()) {
             for (Map<String,Object> record : IteratorUtil.asIterable(iterator)) {
                 return (Long) record.get("ID(b)");
@@ -74,4 +74,15 @@ public class GraphUtils {
         return null;
     }
 
+    public static Long getBreedNodeId(GraphDatabaseService graphDb, String breedSynonym) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("synonym", breedSynonym);
+        try (Result synonymResult = graphDb.execute(BREED_NODE_ID_QUERY, params)) {
+            if (synonymResult.hasNext()) {
+                return (Long) synonymResult.next().get("ID(b)");
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,276 @@
+package no.nkk.dogpopulation.graph;
+
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The pedigree of a group of dogs and all their known ancestors, loaded once from the graph into primitive arrays.
+ * Dogs are numbered from 1 to {@link #size()} in an order where parents always come before their offspring, number 0
+ * is used for an unknown parent. Relationships that would make a dog its own ancestor (circular parent chains) are
+ * dropped while ordering.
+ *
+ * Thread-safety: Instances of this class are immutable, but must only be loaded within a transaction.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class OrderedPedigree {
+
+    private final Node[] nodes;
+    private final int[] father;
+    private final int[] mother;
+    private final Map<Long, Integer> indexByNodeId;
+
+    private OrderedPedigree(Node[] nodes, int[] father, int[] mother, Map<Long, Integer> indexByNodeId) {
+        this.nodes = nodes;
+        this.father = father;
+        this.mother = mother;
+        this.indexByNodeId = indexByNodeId;
+    }
+
+
+    /**
+     * Load the pedigree of the given dogs from the graph. Must be called within a transaction.
+     *
+     * @param graphDb
+     * @param dogs the dogs of the group.
+     * @param generations number of generations incl. the dogs of the group. Ancestors further away than this from
+     *                    every dog of the group are not loaded, and the most distant loaded ancestors are treated as
+     *                    founders, i.e. dogs without known parents.
+     * @return the ordered pedigree.
+     */
+    public static OrderedPedigree load(GraphDatabaseService graphDb, List<Node> dogs, int generations) {
+        // discover all ancestors in breadth-first order so that each dog gets its shortest distance to the group
+        List<Node> discovered = new ArrayList<>(dogs.size() * 2);
+        List<Integer> depths = new ArrayList<>(dogs.size() * 2);
+        Map<Long, Integer> discoveryIndexByNodeId = new HashMap<>();
+        for (Path path : graphDb.traversalDescription()
+                .breadthFirst()
+                .uniqueness(Uniqueness.NODE_GLOBAL)
+                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)
+                .evaluator(Evaluators.toDepth(generations - 1))
+                .traverse(dogs.toArray(new Node[dogs.size()]))) {
+            Node node = path.endNode();
+            discoveryIndexByNodeId.put(node.getId(), discovered.size());
+            discovered.add(node);
+            depths.add(path.length());
+        }
+
+        int n = discovered.size();
+        int[] discoveredFather = new int[n];
+        int[] discoveredMother = new int[n];
+        for (int i = 0; i < n; i++) {
+            discoveredFather[i] = -1;
+            discoveredMother[i] = -1;
+            if (depths.get(i) >= generations - 1) {
+                continue; // parents are outside of pedigree
+            }
+            for (Relationship hasParent : discovered.get(i).getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)) {
+                Integer parent = discoveryIndexByNodeId.get(hasParent.getEndNode().getId());
+                if (parent == null) {
+                    continue;
+                }
+                ParentRole role = ParentRole.valueOf(((String) hasParent.getProperty(DogGraphConstants.HASPARENT_ROLE)).toUpperCase());
+                if ((role == ParentRole.FATHER && discoveredFather[i] == -1) || discoveredMother[i] != -1) {
+                    discoveredFather[i] = parent;
+                } else {
+                    discoveredMother[i] = parent;
+                }
+            }
+        }
+
+        return ordered(discovered, discoveredFather, discoveredMother);
+    }
+
+
+    /**
+     * Load the pedigree of the given dogs from a pedigree-index without reading anything from the graph. Dogs that are
+     * not found in the index are part of the pedigree, but without known parents.
+     *
+     * @param graphDb
+     * @param pedigreeIndex an open reader of the pedigree-index.
+     * @param dogs the dogs of the group.
+     * @param generations number of generations incl. the dogs of the group.
+     * @return the ordered pedigree.
+     */
+    public static OrderedPedigree load(GraphDatabaseService graphDb, PedigreeIndex.Reader pedigreeIndex, List<Node> dogs, int generations) {
+        List<Node> discovered = new ArrayList<>(dogs.size() * 2);
+        Map<Integer, Integer> discoveryIndexByIndex = new HashMap<>();
+        Map<Long, Integer> discoveryIndexByNodeId = new HashMap<>();
+        for (Node dog : dogs) {
+            if (discoveryIndexByNodeId.containsKey(dog.getId())) {
+                continue;
+            }
+            int index = pedigreeIndex.indexOf(dog.getId());
+            discoveryIndexByNodeId.put(dog.getId(), discovered.size());
+            if (index != PedigreeIndex.UNKNOWN) {
+                discoveryIndexByIndex.put(index, discovered.size());
+            }
+            discovered.add(dog);
+        }
+        // breadth-first, one generation at a time
+        int generationStart = 0;
+        for (int depth = 0; depth < generations - 1 && generationStart < discovered.size(); depth++) {
+            int generationEnd = discovered.size();
+            for (int d = generationStart; d < generationEnd; d++) {
+                int index = pedigreeIndex.indexOf(discovered.get(d).getId());
+                if (index == PedigreeIndex.UNKNOWN) {
+                    continue;
+                }
+                for (int parent : new int[]{pedigreeIndex.father(index), pedigreeIndex.mother(index)}) {
+                    if (parent == PedigreeIndex.UNKNOWN || discoveryIndexByIndex.containsKey(parent)) {
+                        continue;
+                    }
+                    discoveryIndexByIndex.put(parent, discovered.size());
+                    discovered.add(graphDb.getNodeById(pedigreeIndex.nodeId(parent)));
+                }
+            }
+            generationStart = generationEnd;
+        }
+
+        int n = discovered.size();
+        int[] discoveredFather = new int[n];
+        int[] discoveredMother = new int[n];
+        for (int i = 0; i < n; i++) {
+            discoveredFather[i] = -1;
+            discoveredMother[i] = -1;
+            if (i >= generationStart) {
+                continue; // parents are outside of pedigree
+            }
+            int index = pedigreeIndex.indexOf(discovered.get(i).getId());
+            if (index == PedigreeIndex.UNKNOWN) {
+                continue;
+            }
+            Integer father = discoveryIndexByIndex.get(pedigreeIndex.father(index));
+            if (father != null) {
+                discoveredFather[i] = father;
+            }
+            Integer mother = discoveryIndexByIndex.get(pedigreeIndex.mother(index));
+            if (mother != null) {
+                discoveredMother[i] = mother;
+            }
+        }
+        return ordered(discovered, discoveredFather, discoveredMother);
+    }
+
+
+    private static OrderedPedigree ordered(List<Node> discovered, int[] discoveredFather, int[] discoveredMother) {
+        int n = discovered.size();
+        int[] order = topologicalOrder(discoveredFather, discoveredMother);
+
+        Node[] nodes = new Node[n + 1];
+        int[] father = new int[n + 1];
+        int[] mother = new int[n + 1];
+        int[] indexByDiscoveryIndex = new int[n];
+        Map<Long, Integer> indexByNodeId = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indexByDiscoveryIndex[order[i]] = i + 1;
+        }
+        for (int i = 0; i < n; i++) {
+            int d = order[i];
+            nodes[i + 1] = discovered.get(d);
+            father[i + 1] = discoveredFather[d] == -1 ? 0 : indexByDiscoveryIndex[discoveredFather[d]];
+            mother[i + 1] = discoveredMother[d] == -1 ? 0 : indexByDiscoveryIndex[discoveredMother[d]];
+            indexByNodeId.put(nodes[i + 1].getId(), i + 1);
+        }
+        return new OrderedPedigree(nodes, father, mother, indexByNodeId);
+    }
+
+
+    /**
+     * Depth-first post-order of the pedigree where parents come before offspring. A parent relationship to a dog that
+     * is still on the stack means that the dog is its own ancestor, such relationships are removed from the arrays.
+     */
+    private static int[] topologicalOrder(int[] father, int[] mother) {
+        final int NEW = 0, IN_PROGRESS = 1, DONE = 2;
+        int n = father.length;
+        int[] state = new int[n];
+        int[] order = new int[n];
+        int orderSize = 0;
+        int[] stack = new int[n];
+        int[] visitedParents = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (state[root] != NEW) {
+                continue;
+            }
+            int top = 0;
+            stack[0] = root;
+            visitedParents[0] = 0;
+            state[root] = IN_PROGRESS;
+            while (top >= 0) {
+                int dog = stack[top];
+                if (visitedParents[top] < 2) {
+                    int[] parents = visitedParents[top] == 0 ? father : mother;
+                    visitedParents[top]++;
+                    int parent = parents[dog];
+                    if (parent == -1) {
+                        continue;
+                    }
+                    if (state[parent] == IN_PROGRESS) {
+                        parents[dog] = -1; // circular parent chain
+                    } else if (state[parent] == NEW) {
+                        state[parent] = IN_PROGRESS;
+                        top++;
+                        stack[top] = parent;
+                        visitedParents[top] = 0;
+                    }
+                    continue;
+                }
+                state[dog] = DONE;
+                order[orderSize++] = dog;
+                top--;
+            }
+        }
+        return order;
+    }
+
+
+    /**
+     * @return the number of dogs in the pedigree.
+     */
+    public int size() {
+        return nodes.length - 1;
+    }
+
+    /**
+     * @param dog index of dog in range [1, size()]
+     * @return the index of the father, or 0 if unknown.
+     */
+    public int father(int dog) {
+        return father[dog];
+    }
+
+    /**
+     * @param dog index of dog in range [1, size()]
+     * @return the index of the mother, or 0 if unknown.
+     */
+    public int mother(int dog) {
+        return mother[dog];
+    }
+
+    public Node node(int dog) {
+        return nodes[dog];
+    }
+
+    /**
+     * @param node
+     * @return the index of the node, or 0 if the node is not part of this pedigree.
+     */
+    public int indexOf(Node node) {
+        Integer index = indexByNodeId.get(node.getId());
+        if (index == null) {
+            return 0;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,178 @@
+package no.nkk.dogpopulation.graph;
+
+import java.util.Arrays;
+
+/**
+ * Collects values into bins of fixed width, plus the exact count, sum, mean, variance, min and max, and computes
+ * {@link BasicStatistics} from the bins in one pass instead of keeping and sorting every value. Memory is proportional
+ * to the range of the values divided by the bin width, not to the number of values.
+ *
+ * Percentiles are exact when every value is a multiple of the bin width, e.g. pedigree sizes and litter sizes with
+ * width 1, and otherwise within half a bin width of the value that {@link
+ * org.apache.commons.math3.stat.descriptive.DescriptiveStatistics} would report.
+ *
+ * Histograms with the same bin width can be merged, so that parallel workers can each collect into their own.
+ *
+ * Thread-safety: Not thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class QuantileHistogram {
+
+    private final double binWidth;
+
+    private long firstBin; // bin of counts[0], bin i holds values rounding to i * binWidth
+    private long[] counts = new long[0];
+
+    private long n;
+    private double sum;
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public QuantileHistogram(double binWidth) {
+        if (!(binWidth > 0)) {
+            throw new IllegalArgumentException("binWidth must be positive: " + binWidth);
+        }
+        this.binWidth = binWidth;
+    }
+
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * @param value
+     * @param count number of times to add the value.
+     */
+    public void add(double value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long bin = Math.round(value / binWidth);
+        ensureBin(bin);
+        counts[(int) (bin - firstBin)] += count;
+        addMoments(count, value * count, value, 0, value, value);
+    }
+
+    /**
+     * Add all values of another histogram with the same bin width to this histogram.
+     *
+     * @param other
+     */
+    public void merge(QuantileHistogram other) {
+        if (other.binWidth != binWidth) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bin widths: " + binWidth + " and " + other.binWidth);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] > 0) {
+                long bin = other.firstBin + i;
+                ensureBin(bin);
+                counts[(int) (bin - firstBin)] += other.counts[i];
+            }
+        }
+        addMoments(other.n, other.sum, other.mean, other.m2, other.min, other.max);
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public BasicStatistics toBasicStatistics() {
+        double[] percentiles = new double[BasicStatistics.PERCENTILES.length];
+        if (n == 0) {
+            Arrays.fill(percentiles, Double.NaN);
+            return new BasicStatistics(0, 0.0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, percentiles);
+        }
+
+        // order statistics needed by all percentiles, found in one pass over the bins
+        long[] ranks = new long[2 * percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            long rank = (long) Math.floor(position(BasicStatistics.PERCENTILES[i]));
+            ranks[2 * i] = Math.max(1, Math.min(rank, n));
+            ranks[2 * i + 1] = Math.max(1, Math.min(rank + 1, n));
+        }
+        long[] sortedRanks = ranks.clone();
+        Arrays.sort(sortedRanks);
+        double[] sortedValues = new double[sortedRanks.length];
+        int bin = 0;
+        long cumulative = counts[0];
+        for (int i = 0; i < sortedRanks.length; i++) {
+            while (cumulative < sortedRanks[i]) {
+                cumulative += counts[++bin];
+            }
+            sortedValues[i] = Math.max(min, Math.min(max, (firstBin + bin) * binWidth));
+        }
+
+        // same estimate as commons-math Percentile
+        for (int i = 0; i < percentiles.length; i++) {
+            double pos = position(BasicStatistics.PERCENTILES[i]);
+            if (pos < 1) {
+                percentiles[i] = min;
+            } else if (pos >= n) {
+                percentiles[i] = max;
+            } else {
+                double lower = sortedValues[Arrays.binarySearch(sortedRanks, ranks[2 * i])];
+                double upper = sortedValues[Arrays.binarySearch(sortedRanks, ranks[2 * i + 1])];
+                percentiles[i] = lower + (pos - Math.floor(pos)) * (upper - lower);
+            }
+        }
+        double standardDeviation = n > 1 ? Math.sqrt(m2 / (n - 1)) : 0;
+        return new BasicStatistics(n, sum, min, max, mean, standardDeviation, percentiles);
+    }
+
+
+    private double position(double percentile) {
+        return percentile * (n + 1) / 100;
+    }
+
+    private void ensureBin(long bin) {
+        if (counts.length == 0) {
+            counts = new long[16];
+            firstBin = bin;
+            return;
+        }
+        long lastBin = firstBin + counts.length - 1;
+        if (firstBin <= bin && bin <= lastBin) {
+            return;
+        }
+        long newFirstBin = Math.min(firstBin, bin);
+        long needed = Math.max(lastBin, bin) - newFirstBin + 1;
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Value range too large for bin width " + binWidth);
+        }
+        int length = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * counts.length));
+        if (bin < firstBin) {
+            newFirstBin = lastBin - length + 1; // grow downwards
+        }
+        long[] newCounts = new long[length];
+        System.arraycopy(counts, 0, newCounts, (int) (firstBin - newFirstBin), counts.length);
+        counts = newCounts;
+        firstBin = newFirstBin;
+    }
+
+    private void addMoments(long nB, double sumB, double meanB, double m2B, double minB, double maxB) {
+        if (nB == 0) {
+            return;
+        }
+        if (n == 0) {
+            n = nB;
+            sum = sumB;
+            mean = meanB;
+            m2 = m2B;
+            min = minB;
+            max = maxB;
+            return;
+        }
+        long total = n + nB;
+        double delta = meanB - mean;
+        mean += delta * nB / total;
+        m2 += m2B + delta * delta * ((double) n * nB / total);
+        n = total;
+        sum += sumB;
+        min = Math.min(min, minB);
+        max = Math.max(max, maxB);
+    }
+}
@@ -0,0 +1,608 @@
+package no.nkk.dogpopulation.graph.aggregate;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import no.nkk.dogpopulation.graph.Builder;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteListener;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.dogbuilder.DogChanges;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory aggregates of the dogs and litters of every breed-synonym per year, so that HD and litter statistics of a
+ * breed group can be answered by summing a few aggregates instead of reading every dog of the group from the graph.
+ *
+ * Dogs are aggregated per breed-synonym and birth-year, and per breed-synonym and HD x-ray-year, with the number of
+ * dogs and the number of dogs per HD diagnosis. Dogs are also counted by birth-year when they have at least one litter.
+ * A litter is counted once when at least one of its parents is within the selection, so litters are aggregated in
+ * groups of litters whose parents have the same breed-synonyms and birth-years, with the number of litters per litter
+ * size, and every breed-synonym and birth-year references the groups of the litters of its dogs.
+ *
+ * The previous breed-synonym, years, diagnosis and litter group of every dog and litter are kept, so that the
+ * aggregates can be updated incrementally. The aggregates are built from the graph in the background after startup,
+ * and kept current by refreshing every dog and litter that the bulk-write-service commits a change to. Changes written
+ * to the graph without going through the bulk-write-service are not detected. Algorithms must fall back to scanning the
+ * graph when the aggregates are not built.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class BreedYearAggregates implements BulkWriteListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BreedYearAggregates.class);
+
+    private static final int UNKNOWN = 0;
+    private static final long UNKNOWN_BREED = -1;
+    private static final int UNKNOWN_SIZE = Integer.MIN_VALUE;
+
+    private final GraphDatabaseService graphDb;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // all fields below are guarded by lock
+    private Data data = new Data();
+    private boolean built;
+    private boolean building;
+    private final Set<Long> dogsChangedWhileBuilding = new LinkedHashSet<>();
+    private final Set<Long> littersChangedWhileBuilding = new LinkedHashSet<>();
+
+    @Inject
+    public BreedYearAggregates(GraphDatabaseService graphDb, BulkWriteService bulkWriteService) {
+        this.graphDb = graphDb;
+        bulkWriteService.addListener(this);
+    }
+
+
+    /**
+     * Build the aggregates in the background, the aggregates are not used by any algorithm until completely built.
+     *
+     * @param executorService
+     */
+    public void buildInBackground(ExecutorService executorService) {
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    build();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to build breed-year aggregates", e);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Build the aggregates from the graph. Changes committed by the bulk-write-service while building are applied
+     * before the new aggregates are made available.
+     */
+    public void build() {
+        long startTime = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            building = true;
+            dogsChangedWhileBuilding.clear();
+            littersChangedWhileBuilding.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Data newData = new Data();
+        try (Transaction tx = graphDb.beginTx()) {
+            try (ResourceIterator<Node> dogs = graphDb.findNodes(DogGraphLabel.DOG)) {
+                while (dogs.hasNext()) {
+                    newData.refreshDog(dogs.next());
+                }
+            }
+            try (ResourceIterator<Node> litters = graphDb.findNodes(DogGraphLabel.LITTER)) {
+                while (litters.hasNext()) {
+                    newData.refreshLitter(litters.next());
+                }
+            }
+            tx.success();
+        }
+
+        lock.writeLock().lock();
+        try (Transaction tx = graphDb.beginTx()) {
+            Set<Node> dogs = new LinkedHashSet<>();
+            for (Long nodeId : dogsChangedWhileBuilding) {
+                dogs.add(graphDb.getNodeById(nodeId));
+            }
+            Set<Node> litters = new LinkedHashSet<>();
+            for (Long nodeId : littersChangedWhileBuilding) {
+                litters.add(graphDb.getNodeById(nodeId));
+            }
+            newData.refresh(dogs, litters);
+            dogsChangedWhileBuilding.clear();
+            littersChangedWhileBuilding.clear();
+            data = newData;
+            built = true;
+            building = false;
+            tx.success();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Breed-year aggregates of {} dogs and {} litters built in {} ms", newData.dogCount, newData.litterCount, System.currentTimeMillis() - startTime);
+    }
+
+
+    public boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return built;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param breedSynonymNodes
+     * @param minYear
+     * @param maxYear
+     * @return the HD diagnoses of the dogs of the breed-synonyms born within range.
+     */
+    public HdCounts hdCountsOfDogsBornBetween(Collection<Node> breedSynonymNodes, int minYear, int maxYear) {
+        lock.readLock().lock();
+        try {
+            return data.hdCounts(data.byBornYear, breedSynonymNodes, minYear, maxYear);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param breedSynonymNodes
+     * @param minYear
+     * @param maxYear
+     * @return the HD diagnoses of the dogs of the breed-synonyms HD x-rayed within range.
+     */
+    public HdCounts hdCountsOfDogsXrayedBetween(Collection<Node> breedSynonymNodes, int minYear, int maxYear) {
+        lock.readLock().lock();
+        try {
+            return data.hdCounts(data.byHdYear, breedSynonymNodes, minYear, maxYear);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param breedSynonymNodes
+     * @param minYear
+     * @param maxYear
+     * @return the litters of the dogs of the breed-synonyms born within range.
+     */
+    public LitterCounts litterCountsOfDogsBornBetween(Collection<Node> breedSynonymNodes, int minYear, int maxYear) {
+        lock.readLock().lock();
+        try {
+            return data.litterCounts(breedSynonymNodes, minYear, maxYear);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void bulkCommitted(List<Builder<?>> builders) {
+        DogChanges changes = DogChanges.of(builders);
+        Set<Node> dogs = new LinkedHashSet<>();
+        dogs.addAll(changes.getDogs());
+        dogs.addAll(changes.getParentsWithChangedLitters());
+        Set<Node> litters = new LinkedHashSet<>(changes.getLitters());
+        if (dogs.isEmpty() && litters.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                for (Node dog : dogs) {
+                    dogsChangedWhileBuilding.add(dog.getId());
+                }
+                for (Node litter : litters) {
+                    littersChangedWhileBuilding.add(litter.getId());
+                }
+            }
+            if (!built) {
+                return;
+            }
+            try (Transaction tx = graphDb.beginTx()) {
+                data.refresh(dogs, litters);
+                tx.success();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Number of dogs and number of dogs per HD diagnosis.
+     */
+    public static class HdCounts {
+        private final int dogCount;
+        private final Map<String, Integer> countByDiagnose;
+
+        private HdCounts(int dogCount, Map<String, Integer> countByDiagnose) {
+            this.dogCount = dogCount;
+            this.countByDiagnose = countByDiagnose;
+        }
+
+        public int getDogCount() {
+            return dogCount;
+        }
+
+        public Map<String, Integer> getCountByDiagnose() {
+            return countByDiagnose;
+        }
+    }
+
+
+    /**
+     * Number of dogs, number of dogs with at least one litter, and number of litters per litter size. Litters without
+     * a size are not counted.
+     */
+    public static class LitterCounts {
+        private final int dogCount;
+        private final int dogsWithAtLeastOneLitter;
+        private final SortedMap<Integer, Integer> countByLitterSize;
+
+        private LitterCounts(int dogCount, int dogsWithAtLeastOneLitter, SortedMap<Integer, Integer> countByLitterSize) {
+            this.dogCount = dogCount;
+            this.dogsWithAtLeastOneLitter = dogsWithAtLeastOneLitter;
+            this.countByLitterSize = countByLitterSize;
+        }
+
+        public int getDogCount() {
+            return dogCount;
+        }
+
+        public int getDogsWithAtLeastOneLitter() {
+            return dogsWithAtLeastOneLitter;
+        }
+
+        public SortedMap<Integer, Integer> getCountByLitterSize() {
+            return countByLitterSize;
+        }
+    }
+
+
+    /**
+     * Aggregate of the dogs of one breed-synonym and year.
+     */
+    private static class YearAggregate {
+        private int dogs;
+        private int dogsWithLitter;
+        private int[] countByDiagnosis = new int[0];
+        private final Set<LitterGroup> litterGroups = new HashSet<>(); // only used when aggregated by birth-year
+
+        void addDiagnosis(int diagnosis, int delta) {
+            if (diagnosis >= countByDiagnosis.length) {
+                countByDiagnosis = Arrays.copyOf(countByDiagnosis, diagnosis + 1);
+            }
+            countByDiagnosis[diagnosis] += delta;
+        }
+    }
+
+
+    /**
+     * A breed-synonym and birth-year of a parent of a litter.
+     */
+    private static class Cell {
+        private final long breed;
+        private final int year;
+
+        private Cell(long breed, int year) {
+            this.breed = breed;
+            this.year = year;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Cell cell = (Cell) o;
+
+            if (breed != cell.breed) return false;
+            return year == cell.year;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (breed ^ (breed >>> 32));
+            result = 31 * result + year;
+            return result;
+        }
+    }
+
+
+    /**
+     * All litters whose parents have the same set of breed-synonyms and birth-years.
+     */
+    private static class LitterGroup {
+        private final Set<Cell> cells;
+        private int litters;
+        private final SortedMap<Integer, Integer> countBySize = new TreeMap<>();
+
+        private LitterGroup(Set<Cell> cells) {
+            this.cells = cells;
+        }
+
+        void add(int size, int delta) {
+            litters += delta;
+            if (size == UNKNOWN_SIZE) {
+                return;
+            }
+            Integer count = countBySize.get(size);
+            int newCount = (count == null ? 0 : count) + delta;
+            if (newCount == 0) {
+                countBySize.remove(size);
+            } else {
+                countBySize.put(size, newCount);
+            }
+        }
+    }
+
+
+    /**
+     * The aggregates and the previous state of every dog and litter. Dogs and litters are given dense int ids in
+     * range [1, count], index 0 of every array is reserved for unknown.
+     */
+    private static class Data {
+        private int dogCount;
+        private int[] dogIndexByNodeId = new int[1024];
+        private long[] breed = new long[1024];
+        private int[] bornYear = new int[1024];
+        private int[] hdYear = new int[1024];
+        private int[] diagnosis = new int[1024];
+        private boolean[] hasLitter = new boolean[1024];
+
+        private int litterCount;
+        private int[] litterIndexByNodeId = new int[1024];
+        private int[] litterSize = new int[1024];
+        private LitterGroup[] litterGroup = new LitterGroup[1024];
+
+        private final List<String> diagnoses = new ArrayList<>(Collections.<String>singletonList(null));
+        private final Map<String, Integer> diagnosisIndex = new HashMap<>();
+
+        private final Map<Long, TreeMap<Integer, YearAggregate>> byBornYear = new HashMap<>();
+        private final Map<Long, TreeMap<Integer, YearAggregate>> byHdYear = new HashMap<>();
+        private final Map<Set<Cell>, LitterGroup> litterGroups = new HashMap<>();
+
+        void refresh(Set<Node> dogs, Set<Node> litters) {
+            Set<Node> allLitters = new LinkedHashSet<>(litters);
+            for (Node dog : dogs) {
+                refreshDog(dog);
+                for (Relationship hasLitter : dog.getRelationships(Direction.OUTGOING, DogGraphRelationshipType.HAS_LITTER)) {
+                    allLitters.add(hasLitter.getEndNode());
+                }
+            }
+            for (Node litter : allLitters) {
+                refreshLitter(litter);
+            }
+        }
+
+        int refreshDog(Node dog) {
+            int index = indexOf(dogIndexByNodeId, dog.getId());
+            if (index == UNKNOWN) {
+                index = addDog(dog.getId());
+            } else {
+                aggregateDog(index, -1);
+            }
+            Relationship isBreed = dog.getSingleRelationship(DogGraphRelationshipType.IS_BREED, Direction.OUTGOING);
+            breed[index] = isBreed == null ? UNKNOWN_BREED : isBreed.getEndNode().getId();
+            bornYear[index] = dog.hasProperty(DogGraphConstants.DOG_BORN_YEAR) ? (int) dog.getProperty(DogGraphConstants.DOG_BORN_YEAR) : UNKNOWN;
+            hdYear[index] = dog.hasProperty(DogGraphConstants.DOG_HDYEAR) ? (int) dog.getProperty(DogGraphConstants.DOG_HDYEAR) : UNKNOWN;
+            diagnosis[index] = dog.hasProperty(DogGraphConstants.DOG_HDDIAG) ? diagnosisIndexOf((String) dog.getProperty(DogGraphConstants.DOG_HDDIAG)) : UNKNOWN;
+            hasLitter[index] = dog.hasRelationship(Direction.OUTGOING, DogGraphRelationshipType.HAS_LITTER);
+            aggregateDog(index, 1);
+            return index;
+        }
+
+        private void aggregateDog(int index, int delta) {
+            if (breed[index] == UNKNOWN_BREED) {
+                return;
+            }
+            if (bornYear[index] != UNKNOWN) {
+                YearAggregate aggregate = yearAggregate(byBornYear, breed[index], bornYear[index]);
+                aggregate.dogs += delta;
+                if (hasLitter[index]) {
+                    aggregate.dogsWithLitter += delta;
+                }
+                if (diagnosis[index] != UNKNOWN) {
+                    aggregate.addDiagnosis(diagnosis[index], delta);
+                }
+            }
+            if (hdYear[index] != UNKNOWN) {
+                YearAggregate aggregate = yearAggregate(byHdYear, breed[index], hdYear[index]);
+                aggregate.dogs += delta;
+                if (diagnosis[index] != UNKNOWN) {
+                    aggregate.addDiagnosis(diagnosis[index], delta);
+                }
+            }
+        }
+
+        void refreshLitter(Node litter) {
+            int index = indexOf(litterIndexByNodeId, litter.getId());
+            if (index == UNKNOWN) {
+                index = addLitter(litter.getId());
+            } else if (litterGroup[index] != null) {
+                LitterGroup group = litterGroup[index];
+                group.add(litterSize[index], -1);
+                if (group.litters == 0) {
+                    for (Cell cell : group.cells) {
+                        yearAggregate(byBornYear, cell.breed, cell.year).litterGroups.remove(group);
+                    }
+                    litterGroups.remove(group.cells);
+                }
+            }
+            Set<Cell> cells = new HashSet<>();
+            for (Relationship hasLitter : litter.getRelationships(Direction.INCOMING, DogGraphRelationshipType.HAS_LITTER)) {
+                Node parent = hasLitter.getStartNode();
+                int parentIndex = indexOf(dogIndexByNodeId, parent.getId());
+                if (parentIndex == UNKNOWN) {
+                    parentIndex = refreshDog(parent);
+                }
+                if (breed[parentIndex] != UNKNOWN_BREED && bornYear[parentIndex] != UNKNOWN) {
+                    cells.add(new Cell(breed[parentIndex], bornYear[parentIndex]));
+                }
+            }
+            litterSize[index] = litter.hasProperty(DogGraphConstants.LITTER_COUNT) ? (int) litter.getProperty(DogGraphConstants.LITTER_COUNT) : UNKNOWN_SIZE;
+            if (cells.isEmpty()) {
+                litterGroup[index] = null;
+                return;
+            }
+            LitterGroup group = litterGroups.get(cells);
+            if (group == null) {
+                group = new LitterGroup(cells);
+                litterGroups.put(cells, group);
+                for (Cell cell : cells) {
+                    yearAggregate(byBornYear, cell.breed, cell.year).litterGroups.add(group);
+                }
+            }
+            group.add(litterSize[index], 1);
+            litterGroup[index] = group;
+        }
+
+        HdCounts hdCounts(Map<Long, TreeMap<Integer, YearAggregate>> aggregates, Collection<Node> breedSynonymNodes, int minYear, int maxYear) {
+            int dogs = 0;
+            int[] countByDiagnosis = new int[diagnoses.size()];
+            for (Node breedSynonymNode : breedSynonymNodes) {
+                TreeMap<Integer, YearAggregate> byYear = aggregates.get(breedSynonymNode.getId());
+                if (byYear == null || minYear > maxYear) {
+                    continue;
+                }
+                for (YearAggregate aggregate : byYear.subMap(minYear, true, maxYear, true).values()) {
+                    dogs += aggregate.dogs;
+                    for (int i = 1; i < aggregate.countByDiagnosis.length; i++) {
+                        countByDiagnosis[i] += aggregate.countByDiagnosis[i];
+                    }
+                }
+            }
+            Map<String, Integer> countByDiagnose = new LinkedHashMap<>();
+            for (int i = 1; i < countByDiagnosis.length; i++) {
+                if (countByDiagnosis[i] > 0) {
+                    countByDiagnose.put(diagnoses.get(i), countByDiagnosis[i]);
+                }
+            }
+            return new HdCounts(dogs, countByDiagnose);
+        }
+
+        LitterCounts litterCounts(Collection<Node> breedSynonymNodes, int minYear, int maxYear) {
+            int dogs = 0;
+            int dogsWithLitter = 0;
+            Set<LitterGroup> groups = new HashSet<>();
+            for (Node breedSynonymNode : breedSynonymNodes) {
+                TreeMap<Integer, YearAggregate> byYear = byBornYear.get(breedSynonymNode.getId());
+                if (byYear == null || minYear > maxYear) {
+                    continue;
+                }
+                for (YearAggregate aggregate : byYear.subMap(minYear, true, maxYear, true).values()) {
+                    dogs += aggregate.dogs;
+                    dogsWithLitter += aggregate.dogsWithLitter;
+                    groups.addAll(aggregate.litterGroups);
+                }
+            }
+            SortedMap<Integer, Integer> countByLitterSize = new TreeMap<>();
+            for (LitterGroup group : groups) {
+                for (Map.Entry<Integer, Integer> e : group.countBySize.entrySet()) {
+                    Integer count = countByLitterSize.get(e.getKey());
+                    countByLitterSize.put(e.getKey(), (count == null ? 0 : count) + e.getValue());
+                }
+            }
+            return new LitterCounts(dogs, dogsWithLitter, countByLitterSize);
+        }
+
+        private static YearAggregate yearAggregate(Map<Long, TreeMap<Integer, YearAggregate>> aggregates, long breed, int year) {
+            TreeMap<Integer, YearAggregate> byYear = aggregates.get(breed);
+            if (byYear == null) {
+                byYear = new TreeMap<>();
+                aggregates.put(breed, byYear);
+            }
+            YearAggregate aggregate = byYear.get(year);
+            if (aggregate == null) {
+                aggregate = new YearAggregate();
+                byYear.put(year, aggregate);
+            }
+            return aggregate;
+        }
+
+        private int diagnosisIndexOf(String diagnose) {
+            Integer index = diagnosisIndex.get(diagnose);
+            if (index == null) {
+                index = diagnoses.size();
+                diagnoses.add(diagnose);
+                diagnosisIndex.put(diagnose, index);
+            }
+            return index;
+        }
+
+        private static int indexOf(int[] indexByNodeId, long nodeId) {
+            if (nodeId >= indexByNodeId.length) {
+                return UNKNOWN;
+            }
+            return indexByNodeId[(int) nodeId];
+        }
+
+        private int addDog(long nodeId) {
+            if (nodeId >= dogIndexByNodeId.length) {
+                dogIndexByNodeId = Arrays.copyOf(dogIndexByNodeId, (int) Math.max(2L * dogIndexByNodeId.length, nodeId + 1));
+            }
+            int index = ++dogCount;
+            if (index >= breed.length) {
+                int capacity = 2 * breed.length;
+                breed = Arrays.copyOf(breed, capacity);
+                bornYear = Arrays.copyOf(bornYear, capacity);
+                hdYear = Arrays.copyOf(hdYear, capacity);
+                diagnosis = Arrays.copyOf(diagnosis, capacity);
+                hasLitter = Arrays.copyOf(hasLitter, capacity);
+            }
+            dogIndexByNodeId[(int) nodeId] = index;
+            breed[index] = UNKNOWN_BREED;
+            return index;
+        }
+
+        private int addLitter(long nodeId) {
+            if (nodeId >= litterIndexByNodeId.length) {
+                litterIndexByNodeId = Arrays.copyOf(litterIndexByNodeId, (int) Math.max(2L * litterIndexByNodeId.length, nodeId + 1));
+            }
+            int index = ++litterCount;
+            if (index >= litterSize.length) {
+                int capacity = 2 * litterSize.length;
+                litterSize = Arrays.copyOf(litterSize, capacity);
+                litterGroup = Arrays.copyOf(litterGroup, capacity);
+            }
+            litterIndexByNodeId[(int) nodeId] = index;
+            return index;
+        }
+    }
+}
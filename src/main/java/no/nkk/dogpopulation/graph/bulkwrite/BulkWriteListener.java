@@ -0,0 +1,23 @@
+package no.nkk.dogpopulation.graph.bulkwrite;
+
+import no.nkk.dogpopulation.graph.Builder;
+
+import java.util.List;
+
+/**
+ * Callback used to observe changes written to the graph by the {@link BulkWriteService}. Listeners are called by the
+ * single writer thread after the bulk has been committed, but before any of the futures of the bulk are completed.
+ * This means that anyone waiting for a write to complete will always see the effects of all listeners.
+ *
+ * Implementations must be fast and must not submit new builders to the bulk-write-service and wait for their
+ * completion, as that would dead-lock the writer thread.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public interface BulkWriteListener {
+
+    /**
+     * @param builders all top-level builders of the committed bulk, in the same order as they were written.
+     */
+    void bulkCommitted(List<Builder<?>> builders);
+}
@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -45,6 +46,9 @@ public class BulkWriteService implements Runnable {
     private final AtomicLong builderCount = new AtomicLong();
     private final AtomicLong duration = new AtomicLong();
 
+    private final List<BulkWriteListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<BulkWriteTransactionListener> transactionListeners = new CopyOnWriteArrayList<>();
+
     private AtomicReference<Thread> consumerThreadRef = new AtomicReference<>();
 
     // only ever assigned and accessed by single writer thread, no synchronization necessary
@@ -117,6 +121,25 @@ public class BulkWriteService implements Runnable {
     }
 
 
+    /**
+     * Register a listener that will be notified each time a bulk has been committed to the graph.
+     *
+     * @param listener
+     */
+    public void addListener(BulkWriteListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Register a listener that will be called within the transaction of each bulk, just before it is committed.
+     *
+     * @param listener
+     */
+    public void addTransactionListener(BulkWriteTransactionListener listener) {
+        transactionListeners.add(listener);
+    }
+
+
     /**
      * Will perform cleanup of key when build is done and committed to graph.
      * Only one builder with the same key may ever exist on the queue when built using this method.
@@ -189,6 +212,8 @@ public class BulkWriteService implements Runnable {
 
         runTaskPoststeps(currentBulk);
 
+        notifyListeners(currentBulk);
+
         signalAllTasksComplete(currentBulk);
 
         builderCount.addAndGet(currentBulk.size());
@@ -247,6 +272,8 @@ public class BulkWriteService implements Runnable {
                 task.performDirty(graphDb);
             }
 
+            notifyTransactionListeners(bulk);
+
             // commit in single transaction
             tx.success();
             success = true;
@@ -266,4 +293,37 @@ public class BulkWriteService implements Runnable {
             task.runPostStep();
         }
     }
+
+    private void notifyTransactionListeners(List<WriteTask<?>> bulk) {
+        if (transactionListeners.isEmpty()) {
+            return;
+        }
+        List<Builder<?>> builders = buildersOf(bulk);
+        for (BulkWriteTransactionListener listener : transactionListeners) {
+            listener.bulkWritten(builders);
+        }
+    }
+
+    private static List<Builder<?>> buildersOf(List<WriteTask<?>> bulk) {
+        List<Builder<?>> builders = new ArrayList<>(bulk.size());
+        for (WriteTask<?> task : bulk) {
+            builders.add(task.getBuilder());
+        }
+        return builders;
+    }
+
+    private void notifyListeners(List<WriteTask<?>> bulk) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<Builder<?>> builders = buildersOf(bulk);
+        for (BulkWriteListener listener : listeners) {
+            try {
+                listener.bulkCommitted(builders);
+            } catch (RuntimeException e) {
+                // bulk is already committed, a failing listener must never cause the bulk to be retried
+                LOGGER.error("Listener " + listener.getClass().getSimpleName() + " failed", e);
+            }
+        }
+    }
 }
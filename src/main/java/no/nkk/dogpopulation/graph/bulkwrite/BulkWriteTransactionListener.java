@@ -0,0 +1,25 @@
+package no.nkk.dogpopulation.graph.bulkwrite;
+
+import no.nkk.dogpopulation.graph.Builder;
+
+import java.util.List;
+
+/**
+ * Callback used to write derived data in the same transaction as the changes written to the graph by the
+ * {@link BulkWriteService}, so that the derived data is committed if and only if the bulk is. Listeners are called by
+ * the single writer thread after all builders of the bulk have been performed, but before the bulk is committed.
+ *
+ * Implementations must be fast, as the writer thread holds the locks of the whole bulk while they run. An exception
+ * rolls back the bulk.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public interface BulkWriteTransactionListener {
+
+    /**
+     * Called within the transaction of the bulk.
+     *
+     * @param builders all top-level builders of the bulk, in the same order as they were written.
+     */
+    void bulkWritten(List<Builder<?>> builders);
+}
@@ -25,6 +25,10 @@ public class WriteTask<V> implements Future<V> {
         this.value = value;
     }
 
+    Builder<V> getBuilder() {
+        return builder;
+    }
+
     void signalComplete() {
         countDownLatch.countDown();
     }
@@ -0,0 +1,52 @@
+package no.nkk.dogpopulation.graph.dashboard;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"breed", "minYear", "maxYear", "dogCount"})
+public class Dashboard {
+
+    private final Set<String> breed;
+    private final int minYear;
+    private final int maxYear;
+    private final int dogCount;
+    private final Map<String, Object> metrics;
+
+    public Dashboard(Set<String> breed, int minYear, int maxYear, int dogCount, Map<String, Object> metrics) {
+        this.breed = breed;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.dogCount = dogCount;
+        this.metrics = metrics;
+    }
+
+    public Set<String> getBreed() {
+        return breed;
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * @return the number of dogs visited, born or HD x-rayed within range.
+     */
+    public int getDogCount() {
+        return dogCount;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getMetrics() {
+        return metrics;
+    }
+}
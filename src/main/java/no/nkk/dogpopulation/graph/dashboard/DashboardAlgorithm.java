@@ -0,0 +1,76 @@
+package no.nkk.dogpopulation.graph.dashboard;
+
+import no.nkk.dogpopulation.graph.CommonTraversals;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes several metrics of a breed group in a single scan, instead of one scan per metric. The breed group is
+ * resolved once, and every dog born within the year range is visited once and given to every accumulator. Dogs HD
+ * x-rayed but not born within the year range are only visited when an accumulator needs them, which is not the case
+ * when the HD metrics are answered from the breed-year aggregates. The dog count of the dashboard is the number of
+ * dogs born within the year range, so it does not depend on which dogs are visited.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class DashboardAlgorithm {
+
+    private final GraphDatabaseService graphDb;
+
+    public DashboardAlgorithm(GraphDatabaseService graphDb) {
+        this.graphDb = graphDb;
+    }
+
+
+    public Dashboard getDashboard(Set<String> breedSet, int minYear, int maxYear, List<DogGroupAccumulator> accumulators) {
+        boolean visitDogsOnlyHdXrayedInRange = false;
+        for (DogGroupAccumulator accumulator : accumulators) {
+            visitDogsOnlyHdXrayedInRange |= accumulator.needsDogsOnlyHdXrayedInRange();
+        }
+        int dogCount = 0;
+        CommonTraversals commonTraversals = new CommonTraversals(graphDb);
+        for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
+            Node breedSynonymNode = breedMemberPath.endNode();
+            for (Path dogPath : commonTraversals.traverseDogOfBreedBornBetween(breedSynonymNode, minYear, maxYear)) {
+                Node dogNode = dogPath.endNode();
+                boolean hdXrayedInRange = isWithin(dogNode, DogGraphConstants.DOG_HDYEAR, minYear, maxYear);
+                for (DogGroupAccumulator accumulator : accumulators) {
+                    accumulator.add(dogNode, true, hdXrayedInRange);
+                }
+                dogCount++;
+            }
+            if (!visitDogsOnlyHdXrayedInRange) {
+                continue;
+            }
+            for (Path dogPath : commonTraversals.traverseDogOfBreedHdXrayedBetween(breedSynonymNode, minYear, maxYear)) {
+                Node dogNode = dogPath.endNode();
+                if (isWithin(dogNode, DogGraphConstants.DOG_BORN_YEAR, minYear, maxYear)) {
+                    continue; // already visited
+                }
+                for (DogGroupAccumulator accumulator : accumulators) {
+                    accumulator.add(dogNode, false, true);
+                }
+            }
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (DogGroupAccumulator accumulator : accumulators) {
+            metrics.put(accumulator.getName(), accumulator.getResult());
+        }
+        return new Dashboard(breedSet, minYear, maxYear, dogCount, metrics);
+    }
+
+    private static boolean isWithin(Node dogNode, String yearProperty, int minYear, int maxYear) {
+        if (!dogNode.hasProperty(yearProperty)) {
+            return false;
+        }
+        int year = (int) dogNode.getProperty(yearProperty);
+        return minYear <= year && year <= maxYear;
+    }
+}
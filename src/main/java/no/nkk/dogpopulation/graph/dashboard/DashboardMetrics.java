@@ -0,0 +1,253 @@
+package no.nkk.dogpopulation.graph.dashboard;
+
+import no.nkk.dogpopulation.graph.hdxray.HDXrayStatisticsAccumulator;
+import no.nkk.dogpopulation.graph.hdxray.HDXrayStatisticsAlgorithm;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingOfGroupAlgorithm;
+import no.nkk.dogpopulation.graph.litter.LitterStatisticsAccumulator;
+import no.nkk.dogpopulation.graph.litter.LitterStatisticsAlgorithm;
+import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompletenessAccumulator;
+import org.neo4j.graphdb.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The metrics available to the dashboard, each computing the same result as its own endpoint. Like their endpoints, the
+ * litter and HD metrics are answered from the breed-year aggregates when built, and from the dogs visited otherwise.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class DashboardMetrics {
+
+    public static final String PEDIGREE_COMPLETENESS = "pedigreeCompleteness";
+    public static final String INBREEDING = "inbreeding";
+    public static final String LITTER = "litter";
+    public static final String HD_STATISTICS_BORN_YEAR = "hdStatisticsBornYear";
+    public static final String HD_STATISTICS_XRAY_YEAR = "hdStatisticsXrayYear";
+
+    public static final List<String> ALL = Collections.unmodifiableList(Arrays.asList(PEDIGREE_COMPLETENESS, INBREEDING, LITTER, HD_STATISTICS_BORN_YEAR, HD_STATISTICS_XRAY_YEAR));
+
+    private DashboardMetrics() {
+    }
+
+
+    /**
+     * Pedigree completeness of the dogs born within range, as /graph/pedigreecompleteness.
+     */
+    public static DogGroupAccumulator pedigreeCompleteness(final PedigreeCompletenessAccumulator accumulator, final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new DogGroupAccumulator() {
+            @Override
+            public String getName() {
+                return PEDIGREE_COMPLETENESS;
+            }
+
+            @Override
+            public boolean needsDogsOnlyHdXrayedInRange() {
+                return false;
+            }
+
+            @Override
+            public void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange) {
+                if (bornInRange) {
+                    accumulator.add(dogNode);
+                }
+            }
+
+            @Override
+            public Object getResult() {
+                return accumulator.build(breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * Inbreeding of the dogs born within range, as /graph/inbreeding. The coefficients are computed after the scan, in
+     * parallel when the algorithm is given a fork-join pool.
+     */
+    public static DogGroupAccumulator inbreeding(final InbreedingOfGroupAlgorithm algorithm, final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new DogGroupAccumulator() {
+            private final List<Node> dogs = new ArrayList<>();
+
+            @Override
+            public String getName() {
+                return INBREEDING;
+            }
+
+            @Override
+            public boolean needsDogsOnlyHdXrayedInRange() {
+                return false;
+            }
+
+            @Override
+            public void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange) {
+                if (bornInRange) {
+                    dogs.add(dogNode);
+                }
+            }
+
+            @Override
+            public Object getResult() {
+                return algorithm.getInbreedingOfDogs(dogs, breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * Litters of the dogs born within range, as /graph/litter.
+     */
+    public static DogGroupAccumulator litter(final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new DogGroupAccumulator() {
+            private final LitterStatisticsAccumulator accumulator = new LitterStatisticsAccumulator();
+
+            @Override
+            public String getName() {
+                return LITTER;
+            }
+
+            @Override
+            public boolean needsDogsOnlyHdXrayedInRange() {
+                return false;
+            }
+
+            @Override
+            public void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange) {
+                if (bornInRange) {
+                    accumulator.add(dogNode);
+                }
+            }
+
+            @Override
+            public Object getResult() {
+                return accumulator.build(breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * Litters of the dogs born within range from the breed-year aggregates, as /graph/litter. Ignores the dogs visited.
+     */
+    public static DogGroupAccumulator litter(final LitterStatisticsAlgorithm algorithm) {
+        return new AggregatesAccumulator(LITTER) {
+            @Override
+            public Object getResult() {
+                return algorithm.execute();
+            }
+        };
+    }
+
+    /**
+     * HD diagnoses of the dogs born within range, as /graph/hdstatistics/bornyear.
+     */
+    public static DogGroupAccumulator hdStatisticsBornYear(final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new DogGroupAccumulator() {
+            private final HDXrayStatisticsAccumulator accumulator = new HDXrayStatisticsAccumulator();
+
+            @Override
+            public String getName() {
+                return HD_STATISTICS_BORN_YEAR;
+            }
+
+            @Override
+            public boolean needsDogsOnlyHdXrayedInRange() {
+                return false;
+            }
+
+            @Override
+            public void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange) {
+                if (bornInRange) {
+                    accumulator.add(dogNode);
+                }
+            }
+
+            @Override
+            public Object getResult() {
+                return accumulator.build(breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * HD diagnoses of the dogs born within range from the breed-year aggregates, as /graph/hdstatistics/bornyear.
+     * Ignores the dogs visited.
+     */
+    public static DogGroupAccumulator hdStatisticsBornYear(final HDXrayStatisticsAlgorithm algorithm, final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new AggregatesAccumulator(HD_STATISTICS_BORN_YEAR) {
+            @Override
+            public Object getResult() {
+                return algorithm.hdXrayStatisticsForDogsOfBreedBornBetween(breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * HD diagnoses of the dogs HD x-rayed within range, as /graph/hdstatistics/xrayyear.
+     */
+    public static DogGroupAccumulator hdStatisticsXrayYear(final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new DogGroupAccumulator() {
+            private final HDXrayStatisticsAccumulator accumulator = new HDXrayStatisticsAccumulator();
+
+            @Override
+            public String getName() {
+                return HD_STATISTICS_XRAY_YEAR;
+            }
+
+            @Override
+            public boolean needsDogsOnlyHdXrayedInRange() {
+                return true;
+            }
+
+            @Override
+            public void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange) {
+                if (hdXrayedInRange) {
+                    accumulator.add(dogNode);
+                }
+            }
+
+            @Override
+            public Object getResult() {
+                return accumulator.build(breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * HD diagnoses of the dogs HD x-rayed within range from the breed-year aggregates, as
+     * /graph/hdstatistics/xrayyear. Ignores the dogs visited.
+     */
+    public static DogGroupAccumulator hdStatisticsXrayYear(final HDXrayStatisticsAlgorithm algorithm, final Set<String> breedSet, final int minYear, final int maxYear) {
+        return new AggregatesAccumulator(HD_STATISTICS_XRAY_YEAR) {
+            @Override
+            public Object getResult() {
+                return algorithm.hdXrayStatisticsForDogsOfBreedXrayedBetween(breedSet, minYear, maxYear);
+            }
+        };
+    }
+
+    /**
+     * A metric that is answered from the breed-year aggregates after the scan rather than from the dogs visited.
+     */
+    private abstract static class AggregatesAccumulator implements DogGroupAccumulator {
+        private final String name;
+
+        private AggregatesAccumulator(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean needsDogsOnlyHdXrayedInRange() {
+            return false;
+        }
+
+        @Override
+        public void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange) {
+        }
+    }
+}
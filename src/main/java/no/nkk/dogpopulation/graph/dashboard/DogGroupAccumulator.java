@@ -0,0 +1,39 @@
+package no.nkk.dogpopulation.graph.dashboard;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * A metric of the dashboard, computed from the dogs visited in a single scan of the breed group.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public interface DogGroupAccumulator {
+
+    /**
+     * @return the name of the metric in the dashboard.
+     */
+    String getName();
+
+    /**
+     * @return whether the metric counts dogs that were HD x-rayed but not born within the year range, if no metric does
+     * those dogs are not visited.
+     */
+    boolean needsDogsOnlyHdXrayedInRange();
+
+    /**
+     * Called once for every dog of the breed group that was born, or HD x-rayed when needed by any metric, within the
+     * year range, within a transaction. The metric decides which of the dogs it counts.
+     *
+     * @param dogNode
+     * @param bornInRange whether the dog was born within the year range.
+     * @param hdXrayedInRange whether the dog was HD x-rayed within the year range.
+     */
+    void add(Node dogNode, boolean bornInRange, boolean hdXrayedInRange);
+
+    /**
+     * Called within the transaction after all dogs have been added.
+     *
+     * @return the metric, to be serialized as JSON.
+     */
+    Object getResult();
+}
@@ -3,7 +3,7 @@ package no.nkk.dogpopulation.graph.dataerror.circularparentchain;
 import no.nkk.dogpopulation.graph.CommonTraversals;
 import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.traversal.Traverser;
 import org.neo4j.graphdb.traversal.Uniqueness;
@@ -19,25 +19,58 @@ public class CircularAncestryBreedGroupAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CircularParentChainAlgorithm.class);
 
+    private static final byte ON_PATH = 1;
+    private static final byte DONE = 2;
+
     private final GraphDatabaseService graphDb;
-    private final ExecutionEngine engine;
     private final CircularParentChainAlgorithm algorithm;
+    private final PedigreeIndex pedigreeIndex;
+
+    public CircularAncestryBreedGroupAlgorithm(GraphDatabaseService graphDb) {
+        this(graphDb, null);
+    }
 
-    public CircularAncestryBreedGroupAlgorithm(GraphDatabaseService graphDb, ExecutionEngine engine) {
+    /**
+     * @param graphDb
+     * @param pedigreeIndex the pedigree-index to use when built, or null to always traverse the graph.
+     */
+    public CircularAncestryBreedGroupAlgorithm(GraphDatabaseService graphDb, PedigreeIndex pedigreeIndex) {
         this.graphDb = graphDb;
-        this.engine = engine;
-        this.algorithm = new CircularParentChainAlgorithm(graphDb, engine);
+        this.algorithm = new CircularParentChainAlgorithm(graphDb);
+        this.pedigreeIndex = pedigreeIndex;
     }
 
     public List<String> run(Set<String> breedSet) {
+        if (pedigreeIndex != null && pedigreeIndex.isBuilt()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                return run(reader, breedSet);
+            }
+        }
+        return run(null, breedSet);
+    }
+
+    /**
+     * @param reader the pedigree-index reader to walk the ancestry with, or null to traverse the graph.
+     * @param breedSet
+     * @return the uuid of one dog in each circle found in the ancestry of the dogs of the breed-group.
+     */
+    public List<String> run(PedigreeIndex.Reader reader, Set<String> breedSet) {
         Set<String> result = new LinkedHashSet<>();
         CommonTraversals commonTraversals = new CommonTraversals(graphDb);
-        Set<Relationship> alreadyVisited = new HashSet<>(30000);
+        Set<Relationship> alreadyVisited = new HashSet<>(reader == null ? 30000 : 16);
+        byte[] state = reader == null ? null : new byte[reader.size() + 1];
         for (Path breedPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
             Node breedNode = breedPath.endNode();
             for (Path path : commonTraversals.traverseDogsOfBreed(breedNode)) {
                 Node dogNode = path.endNode();
-                String uuid = (String) dogNode.getProperty(DogGraphConstants.DOG_UUID);
+                int dog = reader == null ? PedigreeIndex.UNKNOWN : reader.indexOf(dogNode.getId());
+                if (dog != PedigreeIndex.UNKNOWN) {
+                    int circleDog = findCircle(reader, dog, state);
+                    if (circleDog != PedigreeIndex.UNKNOWN) {
+                        result.add((String) graphDb.getNodeById(reader.nodeId(circleDog)).getProperty(DogGraphConstants.DOG_UUID));
+                    }
+                    continue;
+                }
                 List<Relationship> circle = findCircle(dogNode, alreadyVisited);
                 if (circle != null && circle.size() > 0) {
                     // there is at least one circle in ancestry, eliminate any descendants from further search
@@ -52,6 +85,52 @@ public class CircularAncestryBreedGroupAlgorithm {
         return new ArrayList<>(result);
     }
 
+    /**
+     * Depth-first search of the ancestry of a dog in the pedigree-index. Ancestors whose ancestry has already been
+     * searched are marked DONE in state and not searched again. When a circle is found, every dog on the current path,
+     * i.e. the circle and the descendants leading to it, is marked DONE, so that the circle is reported only once.
+     *
+     * @return the id of the dog where the circle closes, or UNKNOWN if there is no circle in the ancestry of the dog.
+     */
+    private static int findCircle(PedigreeIndex.Reader reader, int dog, byte[] state) {
+        if (state[dog] == DONE) {
+            return PedigreeIndex.UNKNOWN;
+        }
+        int[] path = new int[64];
+        int[] nextParent = new int[64]; // 0 is father, 1 is mother, 2 is no more parents
+        path[0] = dog;
+        state[dog] = ON_PATH;
+        int depth = 1;
+        while (depth > 0) {
+            int node = path[depth - 1];
+            int parentRole = nextParent[depth - 1]++;
+            if (parentRole == 2) {
+                state[node] = DONE;
+                depth--;
+                continue;
+            }
+            int parent = parentRole == 0 ? reader.father(node) : reader.mother(node);
+            if (parent == PedigreeIndex.UNKNOWN || state[parent] == DONE) {
+                continue;
+            }
+            if (state[parent] == ON_PATH) {
+                for (int i = 0; i < depth; i++) {
+                    state[path[i]] = DONE;
+                }
+                return parent;
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, 2 * depth);
+                nextParent = Arrays.copyOf(nextParent, 2 * depth);
+            }
+            path[depth] = parent;
+            nextParent[depth] = 0;
+            state[parent] = ON_PATH;
+            depth++;
+        }
+        return PedigreeIndex.UNKNOWN;
+    }
+
     private List<Relationship> findCircle(Node dogNode, Set<Relationship> alreadyVisited) {
         AncestorExpander ancestorExpander = new AncestorExpander(alreadyVisited);
         for (Path path : traverseAncestorsWithExpander(dogNode, ancestorExpander)) {
@@ -2,13 +2,10 @@ package no.nkk.dogpopulation.graph.dataerror.circularparentchain;
 
 import no.nkk.dogpopulation.graph.DogGraphConstants;
 import org.joda.time.LocalDate;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
-import org.neo4j.cypher.javacompat.ExecutionResult;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
-import org.neo4j.graphdb.ResourceIterator;
-import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.graphdb.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,11 +21,9 @@ public class CircularParentChainAlgorithm {
     private static final Logger LOGGER = LoggerFactory.getLogger(CircularParentChainAlgorithm.class);
 
     private final GraphDatabaseService graphDb;
-    private final ExecutionEngine engine;
 
-    public CircularParentChainAlgorithm(GraphDatabaseService graphDb, ExecutionEngine engine) {
+    public CircularParentChainAlgorithm(GraphDatabaseService graphDb) {
         this.graphDb = graphDb;
-        this.engine = engine;
     }
 
     public List<CircularRecord> run(String uuid) {
@@ -38,9 +33,9 @@ public class CircularParentChainAlgorithm {
         query.append("RETURN p");
         Map<String, Object> params = new LinkedHashMap<>();
         params.put("uuid", uuid);
-        ExecutionResult result = engine.execute(query.toString(), params);
-        try (ResourceIterator<Map<String,Object>> iterator = result.iterator()) {
-            for (Map<String,Object> record : IteratorUtil.asIterable(iterator)) {
+        try (Result result = graphDb.execute(query.toString(), params)) {
+            while (result.hasNext()) {
+                Map<String,Object> record = result.next();
                 List<Relationship> hasParentList = (List<Relationship>) record.get("p");
                 List<CircularRecord> circle = new ArrayList<>();
                 for (Relationship hasParent : hasParentList) {
@@ -4,10 +4,7 @@ import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
 import no.nkk.dogpopulation.graph.GraphUtils;
 import org.joda.time.LocalDate;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
-import org.neo4j.cypher.javacompat.ExecutionResult;
 import org.neo4j.graphdb.*;
-import org.neo4j.helpers.collection.IteratorUtil;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -20,17 +17,15 @@ import java.util.Map;
 public class IncorrectOrMissingGenderAlgorithm {
 
     private final GraphDatabaseService graphDb;
-    private final ExecutionEngine engine;
 
-    public IncorrectOrMissingGenderAlgorithm(GraphDatabaseService graphDb, ExecutionEngine engine) {
+    public IncorrectOrMissingGenderAlgorithm(GraphDatabaseService graphDb) {
         this.graphDb = graphDb;
-        this.engine = engine;
     }
 
     public List<String> findDataError(int skip, int limit, String breedSynonym) {
         List<String> list = new ArrayList<>();
 
-        Long idOfBreed = GraphUtils.getBreedNodeId(engine, breedSynonym);
+        Long idOfBreed = GraphUtils.getBreedNodeId(graphDb, breedSynonym);
         if (idOfBreed == null) {
             return list;
         }
@@ -48,10 +43,9 @@ public class IncorrectOrMissingGenderAlgorithm {
         query.append("  p.uuid\n");
         query.append("SKIP ").append(skip).append(" \n");
         query.append("LIMIT ").append(limit).append(" \n");
-        ExecutionResult result1 = engine.execute(query.toString(), params);
-        try (ResourceIterator<Map<String,Object>> iterator = result1.iterator()) {
-            for (Map<String,Object> record : IteratorUtil.asIterable(iterator)) {
-                list.add((String) record.get("p.uuid"));
+        try (Result result1 = graphDb.execute(query.toString(), params)) {
+            while (result1.hasNext()) {
+                list.add((String) result1.next().get("p.uuid"));
             }
         }
         return list;
@@ -60,10 +54,9 @@ public class IncorrectOrMissingGenderAlgorithm {
     public IncorrectGenderRecord findDataError(String uuid) {
         Map<String, Object> params = new LinkedHashMap<>();
         params.put("uuid", uuid);
-        ExecutionResult result1 = engine.execute("MATCH (p:DOG {uuid:{uuid}})<-[r:HAS_PARENT]-(c) WHERE (p.gender='female' AND r.role='father') OR (p.gender='male' AND r.role='mother') RETURN DISTINCT p", params);
-        try (ResourceIterator<Map<String,Object>> iterator = result1.iterator()) {
-            for (Map<String,Object> record : IteratorUtil.asIterable(iterator)) {
-                Node parent = (Node) record.get("p");
+        try (Result result1 = graphDb.execute("MATCH (p:DOG {uuid:{uuid}})<-[r:HAS_PARENT]-(c) WHERE (p.gender='female' AND r.role='father') OR (p.gender='male' AND r.role='mother') RETURN DISTINCT p", params)) {
+            while (result1.hasNext()) {
+                Node parent = (Node) result1.next().get("p");
                 IncorrectGenderRecord igr = populateRecord(parent);
                 return igr;
             }
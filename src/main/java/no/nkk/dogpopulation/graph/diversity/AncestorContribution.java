@@ -0,0 +1,53 @@
+package no.nkk.dogpopulation.graph.diversity;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * The genetic contribution of an ancestor to a reference population, measured in percent of the genes of the
+ * reference population.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"uuid", "regNo", "name", "contribution", "marginalContribution"})
+public class AncestorContribution {
+
+    private final String uuid;
+    private final String regNo;
+    private final String name;
+    private final double contribution;
+    private final double marginalContribution;
+
+    public AncestorContribution(String uuid, String regNo, String name, double contribution, double marginalContribution) {
+        this.uuid = uuid;
+        this.regNo = regNo;
+        this.name = name;
+        this.contribution = contribution;
+        this.marginalContribution = marginalContribution;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getRegNo() {
+        return regNo;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the total expected contribution of the ancestor in percent.
+     */
+    public double getContribution() {
+        return contribution;
+    }
+
+    /**
+     * @return the contribution in percent that is not already explained by the ancestors ranked before this one.
+     */
+    public double getMarginalContribution() {
+        return marginalContribution;
+    }
+}
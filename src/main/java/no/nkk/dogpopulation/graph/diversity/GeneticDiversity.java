@@ -0,0 +1,106 @@
+package no.nkk.dogpopulation.graph.diversity;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Measures of the genetic diversity of a reference population based on the contribution of founders and ancestors.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"numberOfDogs", "breed", "minYear", "maxYear", "generations", "numberOfAncestors", "numberOfFounders", "founderEquivalents", "effectiveNumberOfAncestors", "explainedByAncestors", "topContributors"})
+public class GeneticDiversity {
+
+    private final Set<String> breed;
+    private final int minYear;
+    private final int maxYear;
+    private final int generations;
+    private final int numberOfDogs;
+    private final int numberOfAncestors;
+    private final int numberOfFounders;
+    private final double founderEquivalents;
+    private final double effectiveNumberOfAncestors;
+    private final double explainedByAncestors;
+    private final AncestorContribution[] topContributors;
+
+    public GeneticDiversity(Set<String> breed, int minYear, int maxYear, int generations, int numberOfDogs, int numberOfAncestors, int numberOfFounders, double founderEquivalents, double effectiveNumberOfAncestors, double explainedByAncestors, List<AncestorContribution> topContributors) {
+        this.breed = breed;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.generations = generations;
+        this.numberOfDogs = numberOfDogs;
+        this.numberOfAncestors = numberOfAncestors;
+        this.numberOfFounders = numberOfFounders;
+        this.founderEquivalents = founderEquivalents;
+        this.effectiveNumberOfAncestors = effectiveNumberOfAncestors;
+        this.explainedByAncestors = explainedByAncestors;
+        this.topContributors = topContributors.toArray(new AncestorContribution[topContributors.size()]);
+    }
+
+    public int getNumberOfDogs() {
+        return numberOfDogs;
+    }
+
+    public Set<String> getBreed() {
+        return breed;
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * @return number of dogs in the pedigree of the reference population that have offspring in that pedigree.
+     */
+    public int getNumberOfAncestors() {
+        return numberOfAncestors;
+    }
+
+    /**
+     * @return number of dogs in the pedigree of the reference population without any known parents.
+     */
+    public int getNumberOfFounders() {
+        return numberOfFounders;
+    }
+
+    /**
+     * @return the effective number of founders (f_e), i.e. the number of equally contributing founders that would
+     * give the same genetic diversity as the actual founders.
+     */
+    public double getFounderEquivalents() {
+        return founderEquivalents;
+    }
+
+    /**
+     * @return the effective number of ancestors (f_a) by the method of Boichard et al. (1997), which also accounts for
+     * bottlenecks in the pedigree after the founders.
+     */
+    public double getEffectiveNumberOfAncestors() {
+        return effectiveNumberOfAncestors;
+    }
+
+    /**
+     * @return the percentage of the genes of the reference population that are explained by the ancestors used to
+     * compute the effective number of ancestors.
+     */
+    public double getExplainedByAncestors() {
+        return explainedByAncestors;
+    }
+
+    /**
+     * @return the ancestors with the highest marginal contribution, in order of selection.
+     */
+    public AncestorContribution[] getTopContributors() {
+        return topContributors;
+    }
+}
@@ -0,0 +1,224 @@
+package no.nkk.dogpopulation.graph.diversity;
+
+import no.nkk.dogpopulation.graph.CommonTraversals;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.OrderedPedigree;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the founder equivalents (f_e), the effective number of ancestors (f_a) and the top contributing ancestors of
+ * a reference population. The pedigree of the reference population is loaded once and ordered so that parents come
+ * before offspring, which allows the expected genetic contribution of every ancestor to be computed in one backward
+ * pass over primitive arrays: each dog of the reference population starts with 1/N and every dog passes half of its
+ * contribution on to each parent.
+ *
+ * The effective number of ancestors uses the iterative method of Boichard, Maignel and Verrier (1997). In each round
+ * the ancestor with the highest marginal contribution is selected, then the pedigree of all selected ancestors is cut
+ * and the contributions are recomputed together with the fraction of the genes of every dog that already originate from
+ * selected ancestors.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class GeneticDiversityAlgorithm {
+
+    private static final int MAX_ANCESTORS = 1000;
+    private static final double FULLY_EXPLAINED = 1 - 1e-9;
+
+    private final GraphDatabaseService graphDb;
+    private final int PEDIGREE_GENERATIONS;
+    private final PedigreeIndex pedigreeIndex;
+
+    public GeneticDiversityAlgorithm(GraphDatabaseService graphDb, int generations) {
+        this(graphDb, generations, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param generations number of generations incl. the reference population, ancestors at the edge of the pedigree
+     *                    are treated as founders.
+     * @param pedigreeIndex the pedigree-index to load the pedigree from when built, or null to always load the
+     *                      pedigree from the graph.
+     */
+    public GeneticDiversityAlgorithm(GraphDatabaseService graphDb, int generations, PedigreeIndex pedigreeIndex) {
+        this.graphDb = graphDb;
+        this.PEDIGREE_GENERATIONS = generations;
+        this.pedigreeIndex = pedigreeIndex;
+    }
+
+
+    /**
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @param topContributors maximum number of contributing ancestors to report.
+     * @return the genetic diversity of the dogs of the breed-group born within range.
+     */
+    public GeneticDiversity getGeneticDiversityOfGroup(Set<String> breedSet, int minYear, int maxYear, int topContributors) {
+        List<Node> dogs = new ArrayList<>();
+        CommonTraversals commonTraversals = new CommonTraversals(graphDb);
+        for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
+            for (Path dogPath : commonTraversals.traverseDogOfBreedBornBetween(breedMemberPath.endNode(), minYear, maxYear)) {
+                dogs.add(dogPath.endNode());
+            }
+        }
+
+        OrderedPedigree pedigree = loadPedigree(dogs);
+        int n = pedigree.size();
+        boolean[] reference = new boolean[n + 1];
+        int numberOfDogs = 0;
+        for (Node dog : dogs) {
+            int i = pedigree.indexOf(dog);
+            if (!reference[i]) {
+                reference[i] = true;
+                numberOfDogs++;
+            }
+        }
+        boolean[] ancestor = new boolean[n + 1];
+        int numberOfAncestors = 0;
+        int numberOfFounders = 0;
+        for (int i = 1; i <= n; i++) {
+            ancestor[pedigree.father(i)] = true;
+            ancestor[pedigree.mother(i)] = true;
+        }
+        ancestor[0] = false;
+        for (int i = 1; i <= n; i++) {
+            if (ancestor[i]) {
+                numberOfAncestors++;
+            }
+            if (pedigree.father(i) == 0 && pedigree.mother(i) == 0) {
+                numberOfFounders++;
+            }
+        }
+        if (numberOfDogs == 0) {
+            return new GeneticDiversity(breedSet, minYear, maxYear, PEDIGREE_GENERATIONS, 0, 0, 0, 0, 0, 0, new ArrayList<AncestorContribution>());
+        }
+
+        boolean[] selected = new boolean[n + 1];
+        double[] contribution = new double[n + 1];
+        double[] fromSelected = new double[n + 1];
+        computeContributions(pedigree, reference, numberOfDogs, selected, contribution);
+        double[] totalContribution = contribution.clone();
+        double founderEquivalents = founderEquivalents(pedigree, totalContribution);
+
+        List<AncestorContribution> contributors = new ArrayList<>();
+        double explained = 0;
+        double sumOfSquares = 0;
+        for (int round = 0; round < MAX_ANCESTORS && explained < FULLY_EXPLAINED; round++) {
+            if (round > 0) {
+                computeContributions(pedigree, reference, numberOfDogs, selected, contribution);
+            }
+            computeFractionFromSelected(pedigree, selected, fromSelected);
+            int best = 0;
+            double bestMarginal = 0;
+            for (int i = 1; i <= n; i++) {
+                if (!ancestor[i] || selected[i]) {
+                    continue;
+                }
+                double marginal = contribution[i] * (1 - fromSelected[i]);
+                if (marginal > bestMarginal) {
+                    best = i;
+                    bestMarginal = marginal;
+                }
+            }
+            if (best == 0) {
+                break;
+            }
+            selected[best] = true;
+            explained += bestMarginal;
+            sumOfSquares += bestMarginal * bestMarginal;
+            if (contributors.size() < topContributors) {
+                contributors.add(ancestorContribution(pedigree.node(best), totalContribution[best], bestMarginal));
+            }
+        }
+        double effectiveNumberOfAncestors = sumOfSquares == 0 ? 0 : 1 / sumOfSquares;
+
+        return new GeneticDiversity(breedSet, minYear, maxYear, PEDIGREE_GENERATIONS, numberOfDogs, numberOfAncestors, numberOfFounders, founderEquivalents, effectiveNumberOfAncestors, 100 * explained, contributors);
+    }
+
+
+    private OrderedPedigree loadPedigree(List<Node> dogs) {
+        if (pedigreeIndex != null && pedigreeIndex.isBuilt()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                return OrderedPedigree.load(graphDb, reader, dogs, PEDIGREE_GENERATIONS);
+            }
+        }
+        return OrderedPedigree.load(graphDb, dogs, PEDIGREE_GENERATIONS);
+    }
+
+
+    /**
+     * Backward pass from the youngest to the oldest dog where every dog passes half of its contribution on to each
+     * parent. Selected dogs keep their contribution, i.e. their pedigree is cut.
+     *
+     * @param pedigree
+     * @param reference whether each dog is part of the reference population.
+     * @param numberOfDogs size of the reference population.
+     * @param selected
+     * @param contribution output, the expected fraction of the genes of the reference population that come from each
+     *                     dog, element 0 is unused.
+     */
+    private static void computeContributions(OrderedPedigree pedigree, boolean[] reference, int numberOfDogs, boolean[] selected, double[] contribution) {
+        int n = pedigree.size();
+        double share = 1.0 / numberOfDogs;
+        for (int i = 0; i <= n; i++) {
+            contribution[i] = reference[i] ? share : 0;
+        }
+        for (int i = n; i >= 1; i--) {
+            if (selected[i]) {
+                continue;
+            }
+            double half = 0.5 * contribution[i];
+            contribution[pedigree.father(i)] += half;
+            contribution[pedigree.mother(i)] += half;
+        }
+        contribution[0] = 0;
+    }
+
+
+    /**
+     * Forward pass from the oldest to the youngest dog computing the fraction of the genes of each dog that originate
+     * from selected dogs.
+     */
+    private static void computeFractionFromSelected(OrderedPedigree pedigree, boolean[] selected, double[] fromSelected) {
+        int n = pedigree.size();
+        fromSelected[0] = 0;
+        for (int i = 1; i <= n; i++) {
+            fromSelected[i] = selected[i] ? 1 : 0.5 * (fromSelected[pedigree.father(i)] + fromSelected[pedigree.mother(i)]);
+        }
+    }
+
+
+    /**
+     * A dog with one unknown parent passes half of its contribution on to an unknown founder, so such unknown parents
+     * are counted as founders of their own.
+     */
+    private static double founderEquivalents(OrderedPedigree pedigree, double[] contribution) {
+        double sumOfSquares = 0;
+        for (int i = 1; i <= pedigree.size(); i++) {
+            int father = pedigree.father(i);
+            int mother = pedigree.mother(i);
+            if (father == 0 && mother == 0) {
+                sumOfSquares += contribution[i] * contribution[i];
+            } else if (father == 0 || mother == 0) {
+                double half = 0.5 * contribution[i];
+                sumOfSquares += half * half;
+            }
+        }
+        return sumOfSquares == 0 ? 0 : 1 / sumOfSquares;
+    }
+
+
+    private static AncestorContribution ancestorContribution(Node node, double contribution, double marginalContribution) {
+        String uuid = (String) node.getProperty(DogGraphConstants.DOG_UUID);
+        String regNo = (String) node.getProperty(DogGraphConstants.DOG_REGNO, null);
+        String name = (String) node.getProperty(DogGraphConstants.DOG_NAME, null);
+        return new AncestorContribution(uuid, regNo, name, 100 * contribution, 100 * marginalContribution);
+    }
+}
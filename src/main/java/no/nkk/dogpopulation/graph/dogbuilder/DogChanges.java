@@ -0,0 +1,123 @@
+package no.nkk.dogpopulation.graph.dogbuilder;
+
+import no.nkk.dogpopulation.graph.Builder;
+import org.neo4j.graphdb.Node;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Summary of the dogs and litters that were written by a committed bulk of builders, including builders nested within
+ * relationship builders. Used by bulk-write listeners that maintain derived data, so that knowledge of how each builder
+ * works is kept within this package.
+ *
+ * Thread-safety: Instances of this class are not modified after creation.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class DogChanges {
+
+    private final Set<Node> dogs = new LinkedHashSet<>();
+    private final Set<Node> childrenWithChangedParents = new LinkedHashSet<>();
+    private final Set<Node> litters = new LinkedHashSet<>();
+    private final Set<Node> parentsWithChangedLitters = new LinkedHashSet<>();
+    private final Set<Node> puppiesWithChangedLitter = new LinkedHashSet<>();
+
+    private DogChanges() {
+    }
+
+
+    /**
+     * @param builders the top-level builders of a committed bulk.
+     * @return the changes written by the builders.
+     */
+    public static DogChanges of(List<Builder<?>> builders) {
+        DogChanges changes = new DogChanges();
+        for (Builder<?> builder : builders) {
+            changes.visit(builder);
+        }
+        return changes;
+    }
+
+
+    private void visit(Builder<?> builder) {
+        if (builder == null) {
+            return;
+        }
+        if (builder instanceof DogNodeBuilder) {
+            DogNodeBuilder dogNodeBuilder = (DogNodeBuilder) builder;
+            if (dogNodeBuilder.dirty) { // a builder that was given an existing node did not write anything
+                addIfNotNull(dogs, dogNodeBuilder.result);
+            }
+        } else if (builder instanceof LitterNodeBuilder) {
+            addIfNotNull(litters, ((LitterNodeBuilder) builder).result);
+        } else if (builder instanceof HasParentRelationshipBuilder) {
+            HasParentRelationshipBuilder hasParentBuilder = (HasParentRelationshipBuilder) builder;
+            addIfNotNull(childrenWithChangedParents, hasParentBuilder.child());
+            visit(hasParentBuilder.childBuilder());
+            visit(hasParentBuilder.parentBuilder());
+        } else if (builder instanceof HasParentRelationshipDeleteBuilder) {
+            HasParentRelationshipDeleteBuilder deleteBuilder = (HasParentRelationshipDeleteBuilder) builder;
+            addIfNotNull(childrenWithChangedParents, deleteBuilder.child());
+            visit(deleteBuilder.childBuilder());
+        } else if (builder instanceof HasLitterRelationshipBuilder) {
+            HasLitterRelationshipBuilder hasLitterBuilder = (HasLitterRelationshipBuilder) builder;
+            addIfNotNull(parentsWithChangedLitters, hasLitterBuilder.parent());
+            visit(hasLitterBuilder.parentBuilder());
+            visit(hasLitterBuilder.litterBuilder());
+        } else if (builder instanceof InLitterRelationshipBuilder) {
+            InLitterRelationshipBuilder inLitterBuilder = (InLitterRelationshipBuilder) builder;
+            addIfNotNull(puppiesWithChangedLitter, inLitterBuilder.puppy());
+            visit(inLitterBuilder.puppyBuilder());
+            visit(inLitterBuilder.litterBuilder());
+        }
+    }
+
+    private static void addIfNotNull(Set<Node> set, Node node) {
+        if (node != null) {
+            set.add(node);
+        }
+    }
+
+
+    public boolean isEmpty() {
+        return dogs.isEmpty() && childrenWithChangedParents.isEmpty() && litters.isEmpty() && parentsWithChangedLitters.isEmpty() && puppiesWithChangedLitter.isEmpty();
+    }
+
+    /**
+     * @return dogs that were created or had their properties or breed written.
+     */
+    public Set<Node> getDogs() {
+        return Collections.unmodifiableSet(dogs);
+    }
+
+    /**
+     * @return dogs that got a parent relationship created, replaced or deleted.
+     */
+    public Set<Node> getChildrenWithChangedParents() {
+        return Collections.unmodifiableSet(childrenWithChangedParents);
+    }
+
+    /**
+     * @return litters that were created or had their properties written.
+     */
+    public Set<Node> getLitters() {
+        return Collections.unmodifiableSet(litters);
+    }
+
+    /**
+     * @return dogs that were connected to a litter as a parent.
+     */
+    public Set<Node> getParentsWithChangedLitters() {
+        return Collections.unmodifiableSet(parentsWithChangedLitters);
+    }
+
+    /**
+     * @return dogs that were connected to a litter as a puppy.
+     */
+    public Set<Node> getPuppiesWithChangedLitter() {
+        return Collections.unmodifiableSet(puppiesWithChangedLitter);
+    }
+}
@@ -53,6 +53,7 @@ public class DogNodeBuilder extends AbstractNodeBuilder implements PostStepBuild
     protected Node doBuild(GraphDatabaseService graphDb) {
         Node dogNode = addDog(graphDb);
         connectToBreed(dogNode);
+        BreedYearIndex.update(dogNode);
         return dogNode;
     }
 
@@ -75,6 +75,28 @@ public class HasLitterRelationshipBuilder extends AbstractRelationshipBuilder {
         super.reset();
     }
 
+    /**
+     * @return the parent node, only available after this builder has been built.
+     */
+    public Node parent() {
+        return parent;
+    }
+
+    /**
+     * @return the litter node, only available after this builder has been built.
+     */
+    public Node litter() {
+        return litter;
+    }
+
+    Builder<Node> parentBuilder() {
+        return parentBuilder;
+    }
+
+    Builder<Node> litterBuilder() {
+        return litterBuilder;
+    }
+
     public HasLitterRelationshipBuilder parent(Node parent) {
         this.parent = parent;
         return this;
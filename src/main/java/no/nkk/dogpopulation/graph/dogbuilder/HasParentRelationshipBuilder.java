@@ -89,6 +89,28 @@ public class HasParentRelationshipBuilder extends AbstractRelationshipBuilder {
         super.reset();
     }
 
+    /**
+     * @return the child node, only available after this builder has been built.
+     */
+    public Node child() {
+        return child;
+    }
+
+    /**
+     * @return the parent node, only available after this builder has been built.
+     */
+    public Node parent() {
+        return parent;
+    }
+
+    Builder<Node> childBuilder() {
+        return childBuilder;
+    }
+
+    Builder<Node> parentBuilder() {
+        return parentBuilder;
+    }
+
     public HasParentRelationshipBuilder child(Node child) {
         this.child = child;
         return this;
@@ -16,6 +16,7 @@ public class HasParentRelationshipDeleteBuilder extends AbstractRelationshipBuil
 
     private Builder<Node> childBuilder;
     private ParentRole parentRole;
+    private Node child;
 
     HasParentRelationshipDeleteBuilder() {
     }
@@ -29,7 +30,7 @@ public class HasParentRelationshipDeleteBuilder extends AbstractRelationshipBuil
             throw new MissingFieldException("parentRole");
         }
 
-        Node child = childBuilder.build(graphDb);
+        child = childBuilder.build(graphDb);
         Iterable<Relationship> parentRelationshipIterator = child.getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING);
         for (Relationship relationship : parentRelationshipIterator) {
             // iterate through parents already known by graph
@@ -42,6 +43,17 @@ public class HasParentRelationshipDeleteBuilder extends AbstractRelationshipBuil
         return null;
     }
 
+    /**
+     * @return the child node, only available after this builder has been built.
+     */
+    public Node child() {
+        return child;
+    }
+
+    Builder<Node> childBuilder() {
+        return childBuilder;
+    }
+
     public HasParentRelationshipDeleteBuilder child(Builder<Node> childBuilder) {
         this.childBuilder = childBuilder;
         return this;
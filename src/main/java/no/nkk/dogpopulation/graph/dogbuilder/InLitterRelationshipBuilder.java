@@ -54,6 +54,28 @@ public class InLitterRelationshipBuilder extends AbstractRelationshipBuilder {
         super.reset();
     }
 
+    /**
+     * @return the puppy node, only available after this builder has been built.
+     */
+    public Node puppy() {
+        return puppy;
+    }
+
+    /**
+     * @return the litter node, only available after this builder has been built.
+     */
+    public Node litter() {
+        return litter;
+    }
+
+    Builder<Node> puppyBuilder() {
+        return puppyBuilder;
+    }
+
+    Builder<Node> litterBuilder() {
+        return litterBuilder;
+    }
+
     public InLitterRelationshipBuilder litter(Node litter) {
         this.litter = litter;
         return this;
@@ -12,12 +12,12 @@ import no.nkk.dogpopulation.graph.dataerror.circularparentchain.CircularAncestry
 import no.nkk.dogpopulation.graph.dataerror.circularparentchain.CircularParentChainAlgorithm;
 import no.nkk.dogpopulation.graph.dataerror.circularparentchain.CircularRecord;
 import no.nkk.dogpopulation.graph.dataerror.gender.IncorrectOrMissingGenderAlgorithm;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
 import no.nkk.dogpopulation.importer.dogsearch.DogDetails;
 import no.nkk.dogpopulation.importer.dogsearch.DogHealth;
 import no.nkk.dogpopulation.importer.dogsearch.DogHealthHD;
 import no.nkk.dogpopulation.importer.dogsearch.DogId;
 import org.joda.time.DateTime;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -55,14 +55,27 @@ public class DmuHdIndexAlgorithm {
 
     private final boolean regenerateLitterId;
 
-    public DmuHdIndexAlgorithm(GraphDatabaseService graphDb, ExecutionEngine engine, Set<String> breed, boolean regenerateLitterId) {
+    private final PedigreeIndex pedigreeIndex;
+
+    public DmuHdIndexAlgorithm(GraphDatabaseService graphDb, Set<String> breed, boolean regenerateLitterId) {
+        this(graphDb, breed, regenerateLitterId, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param breed
+     * @param regenerateLitterId
+     * @param pedigreeIndex the pedigree-index to use when built, or null to always traverse the graph.
+     */
+    public DmuHdIndexAlgorithm(GraphDatabaseService graphDb, Set<String> breed, boolean regenerateLitterId, PedigreeIndex pedigreeIndex) {
         this.graphDb = graphDb;
         this.breed = breed;
         this.regenerateLitterId = regenerateLitterId;
+        this.pedigreeIndex = pedigreeIndex;
         this.commonTraversals = new CommonTraversals(graphDb);
-        this.circularAncestryBreedGroupAlgorithm = new CircularAncestryBreedGroupAlgorithm(graphDb, engine);
-        this.circularParentChainAlgorithm = new CircularParentChainAlgorithm(graphDb, engine);
-        this.incorrectOrMissingGenderAlgorithm = new IncorrectOrMissingGenderAlgorithm(graphDb, engine);
+        this.circularAncestryBreedGroupAlgorithm = new CircularAncestryBreedGroupAlgorithm(graphDb);
+        this.circularParentChainAlgorithm = new CircularParentChainAlgorithm(graphDb);
+        this.incorrectOrMissingGenderAlgorithm = new IncorrectOrMissingGenderAlgorithm(graphDb);
     }
 
     public void writeFiles(File dataFile, File pedigreeFile, File uuidMappingFile, File breedCodeMappingFile, File dataErrorFile) {
@@ -72,20 +85,29 @@ public class DmuHdIndexAlgorithm {
     }
 
     DmuDataset extractData() {
+        if (pedigreeIndex != null && pedigreeIndex.isBuilt()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                return extractData(reader);
+            }
+        }
+        return extractData(null);
+    }
+
+    private DmuDataset extractData(PedigreeIndex.Reader reader) {
         Set<Long> visitedNodes = new HashSet<>();
         Set<Long> dataErrorDogNodes = new LinkedHashSet<>();
-        markDogsWithCircularAncestry(dataErrorDogNodes);
+        markDogsWithCircularAncestry(reader, dataErrorDogNodes);
         markDogsWithIncorrectGender(dataErrorDogNodes);
         for (Path breedSynonymPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breed)) {
-            buildDataset(visitedNodes, breedSynonymPath, dataErrorDogNodes);
+            buildDataset(reader, visitedNodes, breedSynonymPath, dataErrorDogNodes);
         }
         dataset.filterByRelationToDogWithHDxrayImageTaken();
         return dataset;
     }
 
 
-    private void markDogsWithCircularAncestry(Set<Long> dataErrorDogNodes) {
-        List<String> circleDogs = circularAncestryBreedGroupAlgorithm.run(breed);
+    private void markDogsWithCircularAncestry(PedigreeIndex.Reader reader, Set<Long> dataErrorDogNodes) {
+        List<String> circleDogs = circularAncestryBreedGroupAlgorithm.run(reader, breed);
         for (int i=0; i<circleDogs.size(); i++) {
             String circleDog = circleDogs.get(i);
             List<CircularRecord> circle = circularParentChainAlgorithm.run(circleDog);
@@ -119,7 +141,7 @@ public class DmuHdIndexAlgorithm {
     }
 
 
-    private void buildDataset(Set<Long> visitedNodes, Path breedSynonymPath, Set<Long> dataErrorDogNodes) {
+    private void buildDataset(PedigreeIndex.Reader reader, Set<Long> visitedNodes, Path breedSynonymPath, Set<Long> dataErrorDogNodes) {
         int breedNkkId = -1;
         Node breedSynonymNode = breedSynonymPath.endNode();
         String breedName = "Breed Node does not have breed name set!";
@@ -191,7 +213,18 @@ public class DmuHdIndexAlgorithm {
 
             long motherId = -breedNkkId;
             long fatherId = -breedNkkId;
-            if (dogNode.hasRelationship(DogGraphRelationshipType.HAS_PARENT)) {
+            int dog = reader == null ? PedigreeIndex.UNKNOWN : reader.indexOf(dogNode.getId());
+            if (dog != PedigreeIndex.UNKNOWN) {
+                // do not link to parents that have known data-errors
+                int father = reader.father(dog);
+                if (father != PedigreeIndex.UNKNOWN && !dataErrorDogNodes.contains(reader.nodeId(father))) {
+                    fatherId = reader.nodeId(father);
+                }
+                int mother = reader.mother(dog);
+                if (mother != PedigreeIndex.UNKNOWN && !dataErrorDogNodes.contains(reader.nodeId(mother))) {
+                    motherId = reader.nodeId(mother);
+                }
+            } else if (dogNode.hasRelationship(DogGraphRelationshipType.HAS_PARENT)) {
                 for (Relationship hasParent : dogNode.getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)) {
                     Node parentNode = hasParent.getEndNode();
                     ParentRole parentRole = ParentRole.valueOf(((String) hasParent.getProperty(DogGraphConstants.HASPARENT_ROLE)).toUpperCase());
@@ -0,0 +1,43 @@
+package no.nkk.dogpopulation.graph.hdxray;
+
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import org.neo4j.graphdb.Node;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the dogs of a group and their HD diagnoses into {@link HDXrayStatistics}.
+ *
+ * Thread-safety: Not thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class HDXrayStatisticsAccumulator {
+
+    private int dogCount;
+    private final Map<String, Integer> countByDiagnose = new LinkedHashMap<>();
+
+
+    /**
+     * @param dogNode the dog, must be called within a transaction.
+     */
+    public void add(Node dogNode) {
+        dogCount++;
+        if (dogNode.hasProperty(DogGraphConstants.DOG_HDDIAG)) {
+            String diagnose = (String) dogNode.getProperty(DogGraphConstants.DOG_HDDIAG);
+            Integer diagCount = countByDiagnose.get(diagnose);
+            if (diagCount == null) {
+                countByDiagnose.put(diagnose, 1);
+            } else {
+                countByDiagnose.put(diagnose, diagCount + 1);
+            }
+        }
+    }
+
+
+    public HDXrayStatistics build(Set<String> breedSet, int minYear, int maxYear) {
+        return new HDXrayStatistics(breedSet, minYear, maxYear, dogCount, countByDiagnose);
+    }
+}
@@ -1,22 +1,20 @@
 package no.nkk.dogpopulation.graph.hdxray;
 
 import no.nkk.dogpopulation.graph.CommonTraversals;
-import no.nkk.dogpopulation.graph.DogGraphConstants;
-import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
-import org.neo4j.graphdb.Direction;
+import no.nkk.dogpopulation.graph.aggregate.BreedYearAggregates;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
-import org.neo4j.graphdb.traversal.Evaluation;
-import org.neo4j.graphdb.traversal.Evaluator;
-import org.neo4j.graphdb.traversal.Evaluators;
 import org.neo4j.graphdb.traversal.Traverser;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
+ * Counts HD diagnoses of the dogs of a breed group, either from the breed-year aggregates when built, or by scanning
+ * every dog of the group.
+ *
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 public class HDXrayStatisticsAlgorithm {
@@ -27,13 +25,27 @@ public class HDXrayStatisticsAlgorithm {
 
     private final GraphDatabaseService graphDb;
     private final CommonTraversals commonTraversals;
+    private final BreedYearAggregates breedYearAggregates;
 
     public HDXrayStatisticsAlgorithm(GraphDatabaseService graphDb) {
+        this(graphDb, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param breedYearAggregates the aggregates to count from when built, or null to always scan the graph.
+     */
+    public HDXrayStatisticsAlgorithm(GraphDatabaseService graphDb, BreedYearAggregates breedYearAggregates) {
         this.graphDb = graphDb;
         this.commonTraversals = new CommonTraversals(graphDb);
+        this.breedYearAggregates = breedYearAggregates;
     }
 
     public HDXrayStatistics hdXrayStatisticsForDogsOfBreedBornBetween(Set<String> breedSet, int minYear, int maxYear) {
+        if (breedYearAggregates != null && breedYearAggregates.isBuilt()) {
+            BreedYearAggregates.HdCounts counts = breedYearAggregates.hdCountsOfDogsBornBetween(breedSynonymNodes(breedSet), minYear, maxYear);
+            return new HDXrayStatistics(breedSet, minYear, maxYear, counts.getDogCount(), counts.getCountByDiagnose());
+        }
         BreedTraverserFactory factory = new BreedTraverserFactory() {
             @Override
             public Traverser traverse(int minYear, int maxYear, Node breedNode) {
@@ -44,56 +56,35 @@ public class HDXrayStatisticsAlgorithm {
     }
 
     public HDXrayStatistics hdXrayStatisticsForDogsOfBreedXrayedBetween(Set<String> breedSet, int minYear, int maxYear) {
+        if (breedYearAggregates != null && breedYearAggregates.isBuilt()) {
+            BreedYearAggregates.HdCounts counts = breedYearAggregates.hdCountsOfDogsXrayedBetween(breedSynonymNodes(breedSet), minYear, maxYear);
+            return new HDXrayStatistics(breedSet, minYear, maxYear, counts.getDogCount(), counts.getCountByDiagnose());
+        }
         BreedTraverserFactory factory = new BreedTraverserFactory() {
             @Override
             public Traverser traverse(int minYear, int maxYear, Node breedNode) {
-                return traverseDogsOfBreedHdXrayedBetween(breedNode, minYear, maxYear);
+                return commonTraversals.traverseDogOfBreedHdXrayedBetween(breedNode, minYear, maxYear);
             }
         };
         return hdXrayStatisticsForDogsOfBreed(breedSet, minYear, maxYear, factory);
     }
 
+    private List<Node> breedSynonymNodes(Set<String> breedSet) {
+        List<Node> breedSynonymNodes = new ArrayList<>();
+        for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
+            breedSynonymNodes.add(breedMemberPath.endNode());
+        }
+        return breedSynonymNodes;
+    }
+
     private HDXrayStatistics hdXrayStatisticsForDogsOfBreed(Set<String> breedSet, int minYear, int maxYear, BreedTraverserFactory factory) {
-        int dogCount = 0;
-        Map<String, Integer> countByDiagnose = new LinkedHashMap<>();
+        HDXrayStatisticsAccumulator accumulator = new HDXrayStatisticsAccumulator();
         for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
             for (Path dogPath : factory.traverse(minYear, maxYear, breedMemberPath.endNode())) {
-                Node dogNode = dogPath.endNode();
-                dogCount++;
-                if (dogNode.hasProperty(DogGraphConstants.DOG_HDDIAG)) {
-                    String diagnose = (String) dogNode.getProperty(DogGraphConstants.DOG_HDDIAG);
-                    Integer diagCount = countByDiagnose.get(diagnose);
-                    if (diagCount == null) {
-                        countByDiagnose.put(diagnose, 1);
-                    } else {
-                        countByDiagnose.put(diagnose, diagCount + 1);
-                    }
-                }
+                accumulator.add(dogPath.endNode());
             }
         }
-        return new HDXrayStatistics(breedSet, minYear, maxYear, dogCount, countByDiagnose);
-    }
-
-    private Traverser traverseDogsOfBreedHdXrayedBetween(Node breedNode, final int minYear, final int maxYear) {
-        return graphDb.traversalDescription()
-                .depthFirst()
-                .relationships(DogGraphRelationshipType.IS_BREED, Direction.INCOMING)
-                .evaluator(Evaluators.atDepth(1))
-                .evaluator(new Evaluator() {
-                    @Override
-                    public Evaluation evaluate(Path path) {
-                        Node dogNode = path.endNode();
-                        if (!dogNode.hasProperty(DogGraphConstants.DOG_HDYEAR)) {
-                            return Evaluation.EXCLUDE_AND_CONTINUE;
-                        }
-                        int hdXrayYear = (int) dogNode.getProperty(DogGraphConstants.DOG_HDYEAR);
-                        if (minYear <= hdXrayYear && hdXrayYear <= maxYear) {
-                            return Evaluation.INCLUDE_AND_CONTINUE;
-                        }
-                        return Evaluation.EXCLUDE_AND_CONTINUE;
-                    }
-                })
-                .traverse(breedNode);
+        return accumulator.build(breedSet, minYear, maxYear);
     }
 
 }
@@ -0,0 +1,139 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+
+/**
+ * Checks whether two ancestry paths that end in the same ancestor have any other dog in common, without allocating
+ * memory per check. The nodes of one path are marked in an open-addressing table of node-ids where every slot is
+ * stamped with the generation of the mark, so forgetting the previously marked path is just a matter of incrementing
+ * the generation. The nodes of the other path are given as a pre-computed array of node-ids.
+ *
+ * Thread-safety: Not thread-safe, each instance must only be used by one computation at a time.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+class DisjointPathChecker {
+
+    private long[] slotNodeId;
+    private int[] slotGeneration;
+    private int mask;
+    private int generation;
+
+    DisjointPathChecker(int expectedPathLength) {
+        allocate(8);
+        ensureCapacity(expectedPathLength + 1);
+    }
+
+    /**
+     * Keep the table at most one quarter full so that probe sequences stay short.
+     */
+    private void ensureCapacity(int nodeCount) {
+        int capacity = slotNodeId.length;
+        while (4 * nodeCount > capacity) {
+            capacity <<= 1;
+        }
+        if (capacity != slotNodeId.length) {
+            allocate(capacity);
+        }
+    }
+
+    private void allocate(int capacity) {
+        slotNodeId = new long[capacity];
+        slotGeneration = new int[capacity];
+        mask = capacity - 1;
+        generation = 0;
+    }
+
+
+    /**
+     * @param path
+     * @return the node-ids of the path in order from start-node to end-node.
+     */
+    static long[] nodeIdsOf(Path path) {
+        long[] nodeIds = new long[path.length() + 1];
+        int i = 0;
+        for (Node node : path.nodes()) {
+            nodeIds[i++] = node.getId();
+        }
+        return nodeIds;
+    }
+
+
+    /**
+     * Mark all nodes of the given path, forgetting the nodes of the previously marked path.
+     *
+     * @param path
+     */
+    void mark(Path path) {
+        ensureCapacity(path.length() + 1);
+        nextGeneration();
+        for (Node node : path.nodes()) {
+            add(node.getId());
+        }
+    }
+
+    /**
+     * Mark all given nodes, forgetting the nodes of the previously marked path.
+     *
+     * @param nodeIds
+     */
+    void mark(long[] nodeIds) {
+        ensureCapacity(nodeIds.length);
+        nextGeneration();
+        for (long nodeId : nodeIds) {
+            add(nodeId);
+        }
+    }
+
+    /**
+     * @param nodeIds the node-ids of a path that has the same end-node as the marked path.
+     * @return true if no other node than the common end-node of the two paths is marked.
+     */
+    boolean isDisjointExceptEndNode(long[] nodeIds) {
+        long endNodeId = nodeIds[nodeIds.length - 1];
+        for (int i = 0; i < nodeIds.length - 1; i++) {
+            long nodeId = nodeIds[i];
+            if (nodeId != endNodeId && contains(nodeId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private void nextGeneration() {
+        if (generation == Integer.MAX_VALUE) {
+            allocate(slotNodeId.length);
+        }
+        generation++;
+    }
+
+    private void add(long nodeId) {
+        int slot = hash(nodeId) & mask;
+        while (slotGeneration[slot] == generation) {
+            if (slotNodeId[slot] == nodeId) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slotGeneration[slot] = generation;
+        slotNodeId[slot] = nodeId;
+    }
+
+    private boolean contains(long nodeId) {
+        int slot = hash(nodeId) & mask;
+        while (slotGeneration[slot] == generation) {
+            if (slotNodeId[slot] == nodeId) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static int hash(long nodeId) {
+        int h = (int) (nodeId ^ (nodeId >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,12 +1,12 @@
 package no.nkk.dogpopulation.graph.inbreeding;
 
-import com.google.common.collect.Sets;
 import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.traversal.Evaluation;
 import org.neo4j.graphdb.traversal.Evaluator;
 import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.TraversalDescription;
 import org.neo4j.graphdb.traversal.Uniqueness;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +30,8 @@ public class InbreedingAlgorithm {
 
     private final int PEDIGREE_GENERATIONS;
 
+    private final InbreedingCache cache;
+
     private final InbreedingResult ZERO = new InbreedingResult(0, Collections.unmodifiableMap(new LinkedHashMap<String, Double>()));
 
 
@@ -38,6 +40,11 @@ public class InbreedingAlgorithm {
      */
     private static class InbreedingState {
         private final Set<CommonAncestorPath> alreadyVisited = new HashSet<>(); // used to avoid loops
+        private final long cacheVersion; // read before computing, so that results are not cached after an invalidation
+
+        private InbreedingState(long cacheVersion) {
+            this.cacheVersion = cacheVersion;
+        }
     }
 
     /**
@@ -49,8 +56,21 @@ public class InbreedingAlgorithm {
      * @param pedigreeGenerations
      */
     public InbreedingAlgorithm(GraphDatabaseService graphDb, int pedigreeGenerations) {
+        this(graphDb, pedigreeGenerations, new InbreedingCache(graphDb, 10000));
+    }
+
+    /**
+     * Create an algorithm that will look up and store the coefficient of every dog it computes, including ancestors
+     * computed recursively, in the given cache.
+     *
+     * @param graphDb
+     * @param pedigreeGenerations
+     * @param cache
+     */
+    public InbreedingAlgorithm(GraphDatabaseService graphDb, int pedigreeGenerations, InbreedingCache cache) {
         this.graphDb = graphDb;
         PEDIGREE_GENERATIONS = pedigreeGenerations;
+        this.cache = cache;
     }
 
 
@@ -61,7 +81,54 @@ public class InbreedingAlgorithm {
      * @return the Coefficient Of Inbreeding.
      */
     public InbreedingResult computeSewallWrightCoefficientOfInbreeding(Node dog) {
-        return computeCoefficientOfInbreeding(new InbreedingState(), dog, PEDIGREE_GENERATIONS, 0);
+        InbreedingState state = newStates(PEDIGREE_GENERATIONS)[0];
+        try {
+            return computeCoefficientOfInbreeding(state, dog, PEDIGREE_GENERATIONS, 0);
+        } finally {
+            cache.computationFinished();
+        }
+    }
+
+
+    /**
+     * Compute the "Coefficient Of Inbreeding" using the method by geneticist Sewall Wright for several numbers of
+     * generations at once. The pedigree is only traversed once, to the largest number of generations, and every
+     * contribution is counted for each number of generations that includes both paths to the common ancestor. The
+     * result for each number of generations is identical to the result of computing it alone.
+     *
+     * @param dog the dog for which we want the inbreeding coefficients of.
+     * @param generations the numbers of generations to compute the coefficient for.
+     * @return the Coefficient Of Inbreeding for each of the given numbers of generations, in the same order.
+     */
+    public InbreedingResult[] computeSewallWrightCoefficientsOfInbreeding(Node dog, int... generations) {
+        InbreedingResult[] results = new InbreedingResult[generations.length];
+        List<Integer> uncachedGenerations = new ArrayList<>(generations.length);
+        for (int i = 0; i < generations.length; i++) {
+            results[i] = cache.get(dog, generations[i]);
+            if (results[i] == null && !uncachedGenerations.contains(generations[i])) {
+                uncachedGenerations.add(generations[i]);
+            }
+        }
+        if (uncachedGenerations.isEmpty()) {
+            return results;
+        }
+        int[] toDepths = toIntArray(uncachedGenerations);
+        InbreedingState[] states = newStates(toDepths);
+        InbreedingResult[] computed;
+        try {
+            computed = computeUncachedCoefficientsOfInbreeding(states, dog, toDepths, 0);
+            for (int k = 0; k < toDepths.length; k++) {
+                cache.put(dog, toDepths[k], computed[k], states[k].cacheVersion);
+            }
+        } finally {
+            cache.computationFinished();
+        }
+        for (int i = 0; i < generations.length; i++) {
+            if (results[i] == null) {
+                results[i] = computed[uncachedGenerations.indexOf(generations[i])];
+            }
+        }
+        return results;
     }
 
 
@@ -74,23 +141,179 @@ public class InbreedingAlgorithm {
      * @return the Coefficient Of Inbreeding of the inbredDogId.
      */
     public InbreedingResult computeSewallWrightCoefficientOfInbreeding(String inbredDogId, Node firstParent, Node secondParent) {
-        return computeCoefficientOfInbreeding(new InbreedingState(), inbredDogId, PEDIGREE_GENERATIONS, 0, firstParent, secondParent);
+        InbreedingState[] states = newStates(PEDIGREE_GENERATIONS);
+        try {
+            return computeCoefficientsOfInbreeding(states, inbredDogId, new int[]{PEDIGREE_GENERATIONS}, 0, firstParent, secondParent)[0];
+        } finally {
+            cache.computationFinished();
+        }
+    }
+
+
+    /**
+     * Collect the ancestry paths of a parent so that they can be shared by the computation of many matings with the
+     * same first parent, see {@link #computeSewallWrightCoefficientOfInbreeding(String, AncestryPathTable, Node)}.
+     *
+     * @param firstParent
+     * @return the ancestry paths of the parent, only valid for algorithms with the same number of generations.
+     */
+    public AncestryPathTable ancestryPathTableOf(Node firstParent) {
+        return new AncestryPathTable(PEDIGREE_GENERATIONS, mapAncestryPathsByAncestorUuid(firstParent, PEDIGREE_GENERATIONS - 1, 0), null);
+    }
+
+
+    /**
+     * Collect the ancestry paths of a parent in the order they are traversed as second parent, so that they can be
+     * shared by the computation of many matings with the same second parent, see
+     * {@link #computeSewallWrightCoefficientOfInbreeding(String, AncestryPathTable, AncestryPathTable)}.
+     *
+     * @param secondParent
+     * @return the ancestry paths of the parent, only valid for algorithms with the same number of generations.
+     */
+    public AncestryPathTable secondParentPathTableOf(Node secondParent) {
+        List<AncestryPath> paths = new ArrayList<>();
+        for (Path path : traverseSecondParent(PEDIGREE_GENERATIONS - 1).traverse(secondParent)) {
+            paths.add(new AncestryPath(path, (String) path.endNode().getProperty(DogGraphConstants.DOG_UUID)));
+        }
+        return new AncestryPathTable(PEDIGREE_GENERATIONS, null, paths);
+    }
+
+
+    /**
+     * Compute the "Coefficient Of Inbreeding" of a not-yet-bred offspring of two parents, where the ancestry paths of
+     * the first parent have already been collected. The result is the same as from
+     * {@link #computeSewallWrightCoefficientOfInbreeding(String, Node, Node)}.
+     *
+     * @param inbredDogId a non-existent ID of the dog we want as a result of breeding the two parents
+     * @param firstParentPaths the ancestry paths of the first parent to use in the wanted breeding
+     * @param secondParent the second parent to use in the wanted breeding
+     * @return the Coefficient Of Inbreeding of the inbredDogId.
+     */
+    public InbreedingResult computeSewallWrightCoefficientOfInbreeding(String inbredDogId, AncestryPathTable firstParentPaths, Node secondParent) {
+        if (firstParentPaths.generations != PEDIGREE_GENERATIONS) {
+            throw new IllegalArgumentException("Ancestry paths of " + firstParentPaths.generations + " generations can not be used to compute inbreeding with " + PEDIGREE_GENERATIONS + " generations");
+        }
+        InbreedingState[] states = newStates(PEDIGREE_GENERATIONS);
+        try {
+            return computeInbreedingCoefficients(states, inbredDogId, secondParent, firstParentPaths.pathsByAncestorUuid, new int[]{PEDIGREE_GENERATIONS}, PEDIGREE_GENERATIONS - 1, 0)[0];
+        } finally {
+            cache.computationFinished();
+        }
+    }
+
+
+    /**
+     * Compute the "Coefficient Of Inbreeding" of a not-yet-bred offspring of two parents, where the ancestry paths of
+     * both parents have already been collected, so that neither pedigree is traversed. The result is the same as from
+     * {@link #computeSewallWrightCoefficientOfInbreeding(String, Node, Node)}.
+     *
+     * @param inbredDogId a non-existent ID of the dog we want as a result of breeding the two parents
+     * @param firstParentPaths the ancestry paths of the first parent, see {@link #ancestryPathTableOf(Node)}.
+     * @param secondParentPaths the ancestry paths of the second parent, see {@link #secondParentPathTableOf(Node)}.
+     * @return the Coefficient Of Inbreeding of the inbredDogId.
+     */
+    public InbreedingResult computeSewallWrightCoefficientOfInbreeding(String inbredDogId, AncestryPathTable firstParentPaths, AncestryPathTable secondParentPaths) {
+        if (firstParentPaths.pathsByAncestorUuid == null || secondParentPaths.pathsInTraversalOrder == null) {
+            throw new IllegalArgumentException("Ancestry paths of the first parent must be collected by ancestryPathTableOf and of the second parent by secondParentPathTableOf");
+        }
+        if (firstParentPaths.generations != PEDIGREE_GENERATIONS || secondParentPaths.generations != PEDIGREE_GENERATIONS) {
+            throw new IllegalArgumentException("Ancestry paths of " + firstParentPaths.generations + " and " + secondParentPaths.generations + " generations can not be used to compute inbreeding with " + PEDIGREE_GENERATIONS + " generations");
+        }
+        int[] toDepths = new int[]{PEDIGREE_GENERATIONS};
+        InbreedingState[] states = newStates(toDepths);
+        DisjointPathChecker disjointPathChecker = new DisjointPathChecker(PEDIGREE_GENERATIONS - 1);
+        double[] coi = new double[toDepths.length];
+        List<Map<String, Double>> contributingAncestors = newContributingAncestors(toDepths.length);
+
+        try {
+            for (AncestryPath secondParentPath : secondParentPaths.pathsInTraversalOrder) {
+                List<AncestryPath> firstParentPathList = firstParentPaths.pathsByAncestorUuid.get(secondParentPath.ancestorUuid);
+                if (firstParentPathList == null) {
+                    continue; // not a common ancestor
+                }
+                disjointPathChecker.mark(secondParentPath.nodeIds);
+                addContributionsThroughCommonAncestor(states, inbredDogId, toDepths, 0, secondParentPath.path, firstParentPathList, disjointPathChecker, coi, contributingAncestors);
+            }
+        } finally {
+            cache.computationFinished();
+        }
+
+        return results(inbredDogId, coi, contributingAncestors)[0];
+    }
+
+
+    /**
+     * Compute the "Coefficient Of Inbreeding" of a not-yet-bred offspring of two parents for several numbers of
+     * generations in one traversal, see {@link #computeSewallWrightCoefficientsOfInbreeding(Node, int...)}.
+     *
+     * @param inbredDogId a non-existent ID of the dog we want as a result of breeding the two parents
+     * @param firstParent the first parent to use in the wanted breeding
+     * @param secondParent the second parent to use in the wanted breeding
+     * @param generations the numbers of generations to compute the coefficient for.
+     * @return the Coefficient Of Inbreeding of the inbredDogId for each of the given numbers of generations.
+     */
+    public InbreedingResult[] computeSewallWrightCoefficientsOfInbreeding(String inbredDogId, Node firstParent, Node secondParent, int... generations) {
+        InbreedingState[] states = newStates(generations);
+        try {
+            return computeCoefficientsOfInbreeding(states, inbredDogId, generations, 0, firstParent, secondParent);
+        } finally {
+            cache.computationFinished();
+        }
+    }
+
+
+    /**
+     * Start a computation in the cache, which must be followed by {@link InbreedingCache#computationFinished()}.
+     *
+     * @param toDepths the numbers of generations to compute.
+     * @return one state for each number of generations.
+     */
+    private InbreedingState[] newStates(int... toDepths) {
+        int maxToDepth = 0;
+        for (int toDepth : toDepths) {
+            maxToDepth = Math.max(maxToDepth, toDepth);
+        }
+        long cacheVersion = cache.computationStarted(maxToDepth);
+        InbreedingState[] states = new InbreedingState[toDepths.length];
+        for (int k = 0; k < toDepths.length; k++) {
+            states[k] = new InbreedingState(cacheVersion);
+        }
+        return states;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
     }
 
 
     private InbreedingResult computeCoefficientOfInbreeding(InbreedingState state, Node dog, int toDepth, int recursionLevel) {
+        InbreedingResult cached = cache.get(dog, toDepth);
+        if (cached != null) {
+            return cached;
+        }
+        InbreedingResult result = computeUncachedCoefficientsOfInbreeding(new InbreedingState[]{state}, dog, new int[]{toDepth}, recursionLevel)[0];
+        cache.put(dog, toDepth, result, state.cacheVersion);
+        return result;
+    }
+
+
+    private InbreedingResult[] computeUncachedCoefficientsOfInbreeding(InbreedingState[] states, Node dog, int[] toDepths, int recursionLevel) {
         Iterable<Relationship> relationships = dog.getRelationships(Direction.OUTGOING, DogGraphRelationshipType.HAS_PARENT);
 
         Iterator<Relationship> parents = relationships.iterator();
 
         if (!parents.hasNext()) {
-            return ZERO; // no known parents
+            return zeros(toDepths.length); // no known parents
         }
 
         Relationship firstHasParent = parents.next();
 
         if (!parents.hasNext()) {
-            return ZERO; // missing one parent
+            return zeros(toDepths.length); // missing one parent
         }
 
         Relationship secondHasParent = parents.next();
@@ -101,32 +324,42 @@ public class InbreedingAlgorithm {
 
         String inbredDogId = (String) dog.getProperty(DogGraphConstants.DOG_UUID);
 
-        return computeCoefficientOfInbreeding(state, inbredDogId, toDepth, recursionLevel, firstParent, secondParent);
+        return computeCoefficientsOfInbreeding(states, inbredDogId, toDepths, recursionLevel, firstParent, secondParent);
     }
 
+    private InbreedingResult[] zeros(int n) {
+        InbreedingResult[] results = new InbreedingResult[n];
+        Arrays.fill(results, ZERO);
+        return results;
+    }
 
-    private InbreedingResult computeCoefficientOfInbreeding(InbreedingState state, String inbredDogId, int toDepth, int recursionLevel, Node firstParent, Node secondParent) {
-        Map<String, List<Path>> firstParentPathsByUuid = mapAncestryPathsByAncestorUuid(firstParent, toDepth - 1, recursionLevel);
 
-        InbreedingResult coi = computeInbreedingCoefficient(state, inbredDogId, secondParent, firstParentPathsByUuid, toDepth - 1, recursionLevel);
+    /**
+     * @param states one state for each number of generations, so that each coefficient is computed exactly as if it
+     *               was computed alone.
+     * @param toDepths the numbers of generations.
+     */
+    private InbreedingResult[] computeCoefficientsOfInbreeding(InbreedingState[] states, String inbredDogId, int[] toDepths, int recursionLevel, Node firstParent, Node secondParent) {
+        int maxToDepth = 0;
+        for (int toDepth : toDepths) {
+            maxToDepth = Math.max(maxToDepth, toDepth);
+        }
 
-        return coi;
+        Map<String, List<AncestryPath>> firstParentPathsByUuid = mapAncestryPathsByAncestorUuid(firstParent, maxToDepth - 1, recursionLevel);
+
+        return computeInbreedingCoefficients(states, inbredDogId, secondParent, firstParentPathsByUuid, toDepths, maxToDepth - 1, recursionLevel);
     }
 
 
-    private InbreedingResult computeInbreedingCoefficient(InbreedingState state, String inbredDogId, Node secondParent, Map<String, List<Path>> firstParentPathsByUuid, int generations, int recursionLevel) {
-        CommonAncestorEvaluator commonAncestorEvaluator = new CommonAncestorEvaluator(firstParentPathsByUuid, recursionLevel);
+    private InbreedingResult[] computeInbreedingCoefficients(InbreedingState[] states, String inbredDogId, Node secondParent, Map<String, List<AncestryPath>> firstParentPathsByUuid, int[] toDepths, int generations, int recursionLevel) {
+        // the evaluator is invoked lazily by the traversal while the loop below is running, so each needs its own checker
+        DisjointPathChecker disjointPathChecker = new DisjointPathChecker(generations);
+        CommonAncestorEvaluator commonAncestorEvaluator = new CommonAncestorEvaluator(firstParentPathsByUuid, new DisjointPathChecker(generations), recursionLevel);
 
-        double coi = 0;
-        Map<String, Double> contributingAncestors = new LinkedHashMap<>();
+        double[] coi = new double[toDepths.length];
+        List<Map<String, Double>> contributingAncestors = newContributingAncestors(toDepths.length);
 
-        for (Path secondParentPath : graphDb.traversalDescription()
-                .depthFirst()
-                .uniqueness(Uniqueness.NODE_PATH)
-                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)
-                .evaluator(Evaluators.toDepth(generations - 1))
-                .evaluator(commonAncestorEvaluator)
-                .traverse(secondParent)){
+        for (Path secondParentPath : traverseSecondParent(generations).evaluator(commonAncestorEvaluator).traverse(secondParent)) {
 
             Node commonAncestor = secondParentPath.endNode();
 
@@ -134,44 +367,93 @@ public class InbreedingAlgorithm {
 
             // determine path from one parent to the other through this common ancestor.
 
-            List<Path> firstParentPaths = firstParentPathsByUuid.get(ancestorUuid);
+            List<AncestryPath> firstParentPaths = firstParentPathsByUuid.get(ancestorUuid);
+
+            disjointPathChecker.mark(secondParentPath);
+
+            addContributionsThroughCommonAncestor(states, inbredDogId, toDepths, recursionLevel, secondParentPath, firstParentPaths, disjointPathChecker, coi, contributingAncestors);
+        }
+
+        return results(inbredDogId, coi, contributingAncestors);
+    }
 
-            for (Path firstParentPath : firstParentPaths) {
 
-                Sets.SetView<Node> intersection = Sets.intersection(Sets.newLinkedHashSet(secondParentPath.nodes()), Sets.newLinkedHashSet(firstParentPath.nodes()));
-                if (intersection.size() > 1) {
-                    continue; // there are more than one common ancestor in the two paths
+    private TraversalDescription traverseSecondParent(int generations) {
+        return graphDb.traversalDescription()
+                .depthFirst()
+                .uniqueness(Uniqueness.NODE_PATH)
+                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)
+                .evaluator(Evaluators.toDepth(generations - 1));
+    }
+
+
+    /**
+     * Add the contributions of all paths between the parents through the common ancestor at the end of the second
+     * parent path, which must be marked in the disjoint-path checker.
+     */
+    private void addContributionsThroughCommonAncestor(InbreedingState[] states, String inbredDogId, int[] toDepths, int recursionLevel, Path secondParentPath, List<AncestryPath> firstParentPaths, DisjointPathChecker disjointPathChecker, double[] coi, List<Map<String, Double>> contributingAncestors) {
+        Node commonAncestor = secondParentPath.endNode();
+
+        for (AncestryPath firstParentAncestryPath : firstParentPaths) {
+
+            if (!disjointPathChecker.isDisjointExceptEndNode(firstParentAncestryPath.nodeIds)) {
+                continue; // there are more than one common ancestor in the two paths
+            }
+
+            Path firstParentPath = firstParentAncestryPath.path;
+
+            int n = secondParentPath.length() + firstParentPath.length();
+
+            double contribution = Math.pow(0.5, n + 1);
+
+            int longestPathLength = Math.max(secondParentPath.length(), firstParentPath.length());
+
+            CommonAncestorPath commonAncestorPath = null;
+            for (int k = 0; k < toDepths.length; k++) {
+                if (longestPathLength > toDepths[k] - 2) {
+                    continue; // common ancestor is outside of pedigree with this number of generations
                 }
 
-                CommonAncestorPath commonAncestorPath = new CommonAncestorPath(firstParentPath, secondParentPath);
-                if (state.alreadyVisited.contains(commonAncestorPath)) {
+                if (commonAncestorPath == null) {
+                    commonAncestorPath = new CommonAncestorPath(firstParentPath, secondParentPath);
+                }
+                if (states[k].alreadyVisited.contains(commonAncestorPath)) {
                     continue; // break recursive forever loop
                 }
-                state.alreadyVisited.add(commonAncestorPath);
-
-                int n = secondParentPath.length() + firstParentPath.length();
-
-                double contribution = Math.pow(0.5, n + 1);
+                states[k].alreadyVisited.add(commonAncestorPath);
 
-                InbreedingResult ancestorCoi = computeCoefficientOfInbreeding(state, commonAncestor, PEDIGREE_GENERATIONS, recursionLevel + 1);
-                contributingAncestors.putAll(ancestorCoi.getCoiByContributingAncestor());
+                InbreedingResult ancestorCoi = computeCoefficientOfInbreeding(states[k], commonAncestor, toDepths[k], recursionLevel + 1);
+                contributingAncestors.get(k).putAll(ancestorCoi.getCoiByContributingAncestor());
 
-                coi += contribution * (1 + ancestorCoi.getCoi());
+                coi[k] += contribution * (1 + ancestorCoi.getCoi());
 
                 tracePathBetweenParentsThroughCommonAncestor(inbredDogId, secondParentPath, firstParentPath, ancestorCoi.getCoi(), recursionLevel);
             }
         }
+    }
 
-        if (coi > 0) {
-            contributingAncestors.put(inbredDogId, coi);
+    private static List<Map<String, Double>> newContributingAncestors(int n) {
+        List<Map<String, Double>> contributingAncestors = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            contributingAncestors.add(new LinkedHashMap<String, Double>());
         }
+        return contributingAncestors;
+    }
 
-        return new InbreedingResult(coi, contributingAncestors);
+    private static InbreedingResult[] results(String inbredDogId, double[] coi, List<Map<String, Double>> contributingAncestors) {
+        InbreedingResult[] results = new InbreedingResult[coi.length];
+        for (int k = 0; k < coi.length; k++) {
+            if (coi[k] > 0) {
+                contributingAncestors.get(k).put(inbredDogId, coi[k]);
+            }
+            results[k] = new InbreedingResult(coi[k], Collections.unmodifiableMap(contributingAncestors.get(k)));
+        }
+        return results;
     }
 
 
-    private Map<String, List<Path>> mapAncestryPathsByAncestorUuid(Node startNode, int generations, int recursionLevel) {
-        Map<String, List<Path>> visited = new LinkedHashMap<>();
+    private Map<String, List<AncestryPath>> mapAncestryPathsByAncestorUuid(Node startNode, int generations, int recursionLevel) {
+        Map<String, List<AncestryPath>> visited = new LinkedHashMap<>();
         for (Path path : graphDb.traversalDescription()
                 .depthFirst()
                 .uniqueness(Uniqueness.NONE)
@@ -180,12 +462,12 @@ public class InbreedingAlgorithm {
                 .traverse(startNode)) {
             Node endNode = path.endNode();
             String endNodeUuid = (String) endNode.getProperty(DogGraphConstants.DOG_UUID);
-            List<Path> paths = visited.get(endNodeUuid);
+            List<AncestryPath> paths = visited.get(endNodeUuid);
             if (paths == null) {
                 paths = new ArrayList<>();
                 visited.put(endNodeUuid, paths);
             }
-            paths.add(path);
+            paths.add(new AncestryPath(path, endNodeUuid));
             tracePath(1, path, false, recursionLevel);
         }
         return visited;
@@ -269,17 +551,55 @@ public class InbreedingAlgorithm {
     }
 
 
+    /**
+     * All ancestry paths of a parent, keyed by the uuid of the ancestor for a first parent, or in traversal order for
+     * a second parent. Never modified after creation, so it can be shared by computations running in different
+     * threads and transactions.
+     */
+    public static class AncestryPathTable {
+        private final int generations;
+        private final Map<String, List<AncestryPath>> pathsByAncestorUuid;
+        private final List<AncestryPath> pathsInTraversalOrder;
+
+        private AncestryPathTable(int generations, Map<String, List<AncestryPath>> pathsByAncestorUuid, List<AncestryPath> pathsInTraversalOrder) {
+            this.generations = generations;
+            this.pathsByAncestorUuid = pathsByAncestorUuid;
+            this.pathsInTraversalOrder = pathsInTraversalOrder;
+        }
+    }
+
+
+    /**
+     * A path from a parent to one of its ancestors along with the node-ids of the path, so that the nodes only have to
+     * be resolved once no matter how many paths from the other parent it is checked against.
+     */
+    private static class AncestryPath {
+        private final Path path;
+        private final long[] nodeIds;
+        private final String ancestorUuid;
+
+        private AncestryPath(Path path, String ancestorUuid) {
+            this.path = path;
+            this.nodeIds = DisjointPathChecker.nodeIdsOf(path);
+            this.ancestorUuid = ancestorUuid;
+        }
+    }
+
+
     /**
      * Evaluates whether or not a node is a common ancestor.
      */
     private static class CommonAncestorEvaluator implements Evaluator {
 
-        private final Map<String, List<Path>> otherParentPathsByEndNodeUuid;
+        private final Map<String, List<AncestryPath>> otherParentPathsByEndNodeUuid;
+
+        private final DisjointPathChecker disjointPathChecker;
 
         private final int recursionLevel;
 
-        CommonAncestorEvaluator(Map<String, List<Path>> otherParentPathsByEndNodeUuid, int recursionLevel) {
+        CommonAncestorEvaluator(Map<String, List<AncestryPath>> otherParentPathsByEndNodeUuid, DisjointPathChecker disjointPathChecker, int recursionLevel) {
             this.otherParentPathsByEndNodeUuid = otherParentPathsByEndNodeUuid;
+            this.disjointPathChecker = disjointPathChecker;
             this.recursionLevel = recursionLevel;
         }
 
@@ -288,16 +608,16 @@ public class InbreedingAlgorithm {
             Node endNode = path.endNode();
             String endNodeUuid = (String) endNode.getProperty(DogGraphConstants.DOG_UUID);
 
-            List<Path> otherPaths = otherParentPathsByEndNodeUuid.get(endNodeUuid);
+            List<AncestryPath> otherPaths = otherParentPathsByEndNodeUuid.get(endNodeUuid);
 
             if (otherPaths == null) {
                 tracePath(2, path, false, recursionLevel);
                 return Evaluation.EXCLUDE_AND_CONTINUE; // node never before seen in pedigree
             }
 
-            for (Path otherPath : otherPaths) {
-                Sets.SetView<Node> intersection = Sets.intersection(Sets.newLinkedHashSet(path.nodes()), Sets.newLinkedHashSet(otherPath.nodes()));
-                if (intersection.size() == 1) {
+            disjointPathChecker.mark(path);
+            for (AncestryPath otherPath : otherPaths) {
+                if (disjointPathChecker.isDisjointExceptEndNode(otherPath.nodeIds)) {
                     tracePath(2, path, true, recursionLevel);
                     return Evaluation.INCLUDE_AND_CONTINUE; // common ancestor on both mother and father side
                 }
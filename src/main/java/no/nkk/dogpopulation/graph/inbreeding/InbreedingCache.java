@@ -0,0 +1,250 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import no.nkk.dogpopulation.graph.Builder;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteListener;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.dogbuilder.DogChanges;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of inbreeding coefficients keyed by dog node and number of generations. The cache is shared by all
+ * inbreeding computations, both across recursion levels within a single computation and across requests.
+ *
+ * A coefficient computed with a number of generations depends on the parents of the ancestors within that number of
+ * generations, so when the bulk-write-service commits a change to the parents of a dog, the cached coefficients of
+ * that dog and of its descendants within the highest number of generations cached or being computed are invalidated.
+ * A change further back can still alter a cached coefficient through the coefficient of an inbred common ancestor,
+ * such coefficients are only refreshed when evicted. Nothing is walked when the cache is empty and no coefficient is
+ * being computed. Changes written to the graph without going through the bulk-write-service are not detected.
+ *
+ * A coefficient computed before a change is not cached after the change invalidated it. The version at which each dog
+ * was last invalidated is kept for a bounded number of dogs, and a coefficient is only refused when its own dog was
+ * invalidated after the computation started, or when that can no longer be ruled out because the record was dropped.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class InbreedingCache implements BulkWriteListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InbreedingCache.class);
+
+    /*
+     * Above this number of affected dogs it is cheaper to clear the entire cache than to invalidate dog by dog.
+     */
+    private static final int MAX_DOGS_TO_INVALIDATE = 10000;
+
+    private static final int MAX_INVALIDATIONS = 10000;
+
+    private final GraphDatabaseService graphDb;
+    private final Cache<Key, InbreedingResult> cache;
+
+    // highest number of generations ever cached or computed, bounds the descendants walked and the keys of each dog
+    private final AtomicInteger maxGenerations = new AtomicInteger();
+
+    // number of computations started and not yet finished
+    private final AtomicInteger computing = new AtomicInteger();
+
+    // incremented on every invalidation, guarded by itself together with invalidatedAt and droppedInvalidation
+    private final AtomicLong version = new AtomicLong();
+
+    // version at which each dog was last invalidated, oldest first
+    private final Map<Long, Long> invalidatedAt = new LinkedHashMap<>();
+
+    // newest invalidation no longer recorded in invalidatedAt
+    private long droppedInvalidation;
+
+    @Inject
+    public InbreedingCache(GraphDatabaseService graphDb, BulkWriteService bulkWriteService, @Named("inbreedingCacheSize") int maximumSize) {
+        this(graphDb, maximumSize);
+        bulkWriteService.addListener(this);
+    }
+
+    /**
+     * Create a cache that is not invalidated by writes to the graph. Such a cache should only be used for the duration
+     * of a single computation.
+     *
+     * @param graphDb
+     * @param maximumSize
+     */
+    public InbreedingCache(GraphDatabaseService graphDb, int maximumSize) {
+        this.graphDb = graphDb;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+
+    InbreedingResult get(Node dog, int generations) {
+        return cache.getIfPresent(new Key(dog.getId(), generations));
+    }
+
+    /**
+     * Must be called before coefficients are computed, and followed by {@link #computationFinished()} when done.
+     *
+     * @param generations the highest number of generations that will be computed.
+     * @return the version to pass to {@link #put(Node, int, InbreedingResult, long)}.
+     */
+    long computationStarted(int generations) {
+        int max;
+        while ((max = maxGenerations.get()) < generations) {
+            if (maxGenerations.compareAndSet(max, generations)) {
+                break;
+            }
+        }
+        computing.incrementAndGet();
+        return version.get();
+    }
+
+    void computationFinished() {
+        computing.decrementAndGet();
+    }
+
+    /**
+     * Cache the coefficient unless the dog has been invalidated since the given version was read.
+     *
+     * @param dog
+     * @param generations
+     * @param result
+     * @param version
+     */
+    void put(Node dog, int generations, InbreedingResult result, long version) {
+        synchronized (this.version) {
+            Long invalidated = invalidatedAt.get(dog.getId());
+            if (version >= droppedInvalidation && (invalidated == null || version >= invalidated)) {
+                cache.put(new Key(dog.getId(), generations), result);
+            }
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        synchronized (version) {
+            droppedInvalidation = version.incrementAndGet();
+            invalidatedAt.clear();
+            cache.invalidateAll();
+        }
+    }
+
+
+    /**
+     * Invalidate all cached coefficients of the given dogs and of their descendants within the highest number of
+     * generations cached or being computed. Must be called within a transaction.
+     *
+     * @param dogs the dogs that got their parents changed.
+     */
+    public void invalidatePedigreeOf(Iterable<Node> dogs) {
+        int generationsUpperBound = maxGenerations.get();
+        if (generationsUpperBound == 0) {
+            return; // nothing has ever been computed
+        }
+        Set<Long> affected = new LinkedHashSet<>();
+        for (Node dog : dogs) {
+            for (Path path : graphDb.traversalDescription()
+                    .breadthFirst()
+                    .uniqueness(Uniqueness.NODE_GLOBAL)
+                    .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.INCOMING)
+                    .evaluator(Evaluators.toDepth(generationsUpperBound - 1))
+                    .traverse(dog)) {
+                affected.add(path.endNode().getId());
+                if (affected.size() > MAX_DOGS_TO_INVALIDATE) {
+                    LOGGER.debug("Parent change affects more than {} dogs, clearing inbreeding cache.", MAX_DOGS_TO_INVALIDATE);
+                    invalidateAll();
+                    return;
+                }
+            }
+        }
+        List<Key> keys = new ArrayList<>(affected.size() * generationsUpperBound);
+        for (Long nodeId : affected) {
+            for (int generations = 1; generations <= generationsUpperBound; generations++) {
+                keys.add(new Key(nodeId, generations));
+            }
+        }
+        synchronized (version) {
+            long invalidation = version.incrementAndGet();
+            for (Long nodeId : affected) {
+                invalidatedAt.remove(nodeId); // keep oldest first
+                invalidatedAt.put(nodeId, invalidation);
+            }
+            Iterator<Map.Entry<Long, Long>> it = invalidatedAt.entrySet().iterator();
+            while (invalidatedAt.size() > MAX_INVALIDATIONS) {
+                droppedInvalidation = it.next().getValue();
+                it.remove();
+            }
+        }
+        cache.invalidateAll(keys);
+    }
+
+
+    @Override
+    public void bulkCommitted(List<Builder<?>> builders) {
+        Set<Node> children = DogChanges.of(builders).getChildrenWithChangedParents();
+        if (children.isEmpty()) {
+            return;
+        }
+        if (cache.size() == 0 && computing.get() == 0) {
+            return; // nothing cached, and nothing computed before the change that could be cached after it
+        }
+        try (Transaction tx = graphDb.beginTx()) {
+            invalidatePedigreeOf(children);
+            tx.success();
+        }
+    }
+
+
+    private static class Key {
+        private final long nodeId;
+        private final int generations;
+
+        private Key(long nodeId, int generations) {
+            this.nodeId = nodeId;
+            this.generations = generations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (nodeId != key.nodeId) return false;
+            return generations == key.generations;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (nodeId ^ (nodeId >>> 32));
+            result = 31 * result + generations;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+/**
+ * The methods available for computing the inbreeding of a group of dogs.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public enum InbreedingMethod {
+
+    /**
+     * Path-counting method by Sewall Wright, computed dog by dog. See {@link InbreedingOfGroupAlgorithm}.
+     */
+    PATHCOUNTING,
+
+    /**
+     * Tabular method by Meuwissen and Luo, computed for the entire group at once. See
+     * {@link TabularInbreedingOfGroupAlgorithm}.
+     */
+    TABULAR
+}
@@ -0,0 +1,74 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.graph.QuantileHistogram;
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+import org.neo4j.graphdb.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the coefficients of inbreeding of the dogs of a group into the statistics, frequency distribution and
+ * threshold lists reported by {@link InbreedingOfGroup}. Used by all algorithms that compute inbreeding of a group so
+ * that the reported numbers are identical regardless of how the coefficients were computed.
+ *
+ * Thread-safety: Not thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class InbreedingOfGroupAccumulator {
+
+    private static final double COEFFICIENT_PERCENTAGE_BIN_WIDTH = 0.01;
+
+    private final QuantileHistogram coefficientStatistics = new QuantileHistogram(COEFFICIENT_PERCENTAGE_BIN_WIDTH);
+    private final int[] frequency = new int[60];
+    private final List<UuidAndRegNo> dogsWithCoefficientAbove1250 = new ArrayList<>();
+    private final List<UuidAndRegNo> dogsWithCoefficientAbove2500 = new ArrayList<>();
+    private final List<UuidAndRegNo> dogsWithCoefficientAbove3000 = new ArrayList<>();
+
+
+    /**
+     * @param dogNode the dog, must be called within a transaction.
+     * @param coi the coefficient of inbreeding of the dog in range [0, 1].
+     */
+    public void add(Node dogNode, double coi) {
+        double percentage = 100 * coi;
+        int index = 1 + (int) percentage;
+        if (percentage == 0) {
+            index = 0;
+        }
+        frequency[index]++;
+        double percentageTimes100 = 100 * percentage;
+        if (percentageTimes100 >= 3000) {
+            dogsWithCoefficientAbove3000.add(new UuidAndRegNo(dogNode));
+        } else if (percentageTimes100 >= 2500) {
+            dogsWithCoefficientAbove2500.add(new UuidAndRegNo(dogNode));
+        } else if (percentageTimes100 >= 1250) {
+            dogsWithCoefficientAbove1250.add(new UuidAndRegNo(dogNode));
+        }
+        coefficientStatistics.add(percentage);
+    }
+
+
+    /**
+     * Add everything collected by another accumulator to this accumulator. Dogs of the other accumulator are ordered
+     * after the dogs of this accumulator.
+     *
+     * @param other
+     */
+    public void merge(InbreedingOfGroupAccumulator other) {
+        coefficientStatistics.merge(other.coefficientStatistics);
+        for (int i = 0; i < frequency.length; i++) {
+            frequency[i] += other.frequency[i];
+        }
+        dogsWithCoefficientAbove1250.addAll(other.dogsWithCoefficientAbove1250);
+        dogsWithCoefficientAbove2500.addAll(other.dogsWithCoefficientAbove2500);
+        dogsWithCoefficientAbove3000.addAll(other.dogsWithCoefficientAbove3000);
+    }
+
+
+    public InbreedingOfGroup build(Set<String> breedSet, int minYear, int maxYear, int generations) {
+        return new InbreedingOfGroup(breedSet, minYear, maxYear, generations, coefficientStatistics.toBasicStatistics(), frequency, dogsWithCoefficientAbove1250, dogsWithCoefficientAbove2500, dogsWithCoefficientAbove3000);
+    }
+}
@@ -1,61 +1,203 @@
 package no.nkk.dogpopulation.graph.inbreeding;
 
-import no.nkk.dogpopulation.graph.BasicStatistics;
 import no.nkk.dogpopulation.graph.CommonTraversals;
-import no.nkk.dogpopulation.graph.UuidAndRegNo;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Transaction;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
+ * Computes the inbreeding of every dog in a group using the path-counting method. When given a fork-join pool, the
+ * dogs of the group are split into chunks that are computed in parallel, each chunk within its own read transaction.
+ * Every chunk collects its coefficients into its own accumulators, which are merged in the original order of the dogs
+ * as the chunks are joined, so the result is the same as when computed sequentially. When given the
+ * stored-inbreeding-service, the stored coefficient of a dog is used instead of computing it whenever a current value
+ * is stored for the number of generations.
+ *
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 public class InbreedingOfGroupAlgorithm {
 
+    private static final int DOGS_PER_TASK = 64;
+    private static final Integer ALL_YEARS = 0;
+
     private final GraphDatabaseService graphDb;
     private final int PEDIGREE_GENERATIONS;
+    private final InbreedingCache inbreedingCache;
+    private final ForkJoinPool forkJoinPool;
+    private final StoredInbreedingService storedInbreedingService;
 
     public InbreedingOfGroupAlgorithm(GraphDatabaseService graphDb, int generations) {
+        this(graphDb, generations, new InbreedingCache(graphDb, 10000));
+    }
+
+    public InbreedingOfGroupAlgorithm(GraphDatabaseService graphDb, int generations, InbreedingCache inbreedingCache) {
+        this(graphDb, generations, inbreedingCache, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param generations
+     * @param inbreedingCache
+     * @param forkJoinPool the pool used to compute dogs in parallel, or null to compute all dogs on the calling thread.
+     */
+    public InbreedingOfGroupAlgorithm(GraphDatabaseService graphDb, int generations, InbreedingCache inbreedingCache, ForkJoinPool forkJoinPool) {
+        this(graphDb, generations, inbreedingCache, forkJoinPool, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param generations
+     * @param inbreedingCache
+     * @param forkJoinPool the pool used to compute dogs in parallel, or null to compute all dogs on the calling thread.
+     * @param storedInbreedingService the service with stored coefficients, or null to compute all dogs.
+     */
+    public InbreedingOfGroupAlgorithm(GraphDatabaseService graphDb, int generations, InbreedingCache inbreedingCache, ForkJoinPool forkJoinPool, StoredInbreedingService storedInbreedingService) {
         this.graphDb = graphDb;
         this.PEDIGREE_GENERATIONS = generations;
+        this.inbreedingCache = inbreedingCache;
+        this.forkJoinPool = forkJoinPool;
+        this.storedInbreedingService = storedInbreedingService;
     }
 
 
     public InbreedingOfGroup getInbreedingOfGroup(final Set<String> breedSet, final int minYear, final int maxYear) {
-        DescriptiveStatistics coefficientStatistics = new DescriptiveStatistics();
-        int[] frequency = new int[60];
-        List<UuidAndRegNo> dogsWithCoefficientAbove1250 = new ArrayList<>();
-        List<UuidAndRegNo> dogsWithCoefficientAbove2500 = new ArrayList<>();
-        List<UuidAndRegNo> dogsWithCoefficientAbove3000 = new ArrayList<>();
-        InbreedingAlgorithm algorithm = new InbreedingAlgorithm(graphDb, PEDIGREE_GENERATIONS);
+        return getInbreedingOfDogs(getDogsOfGroup(breedSet, minYear, maxYear), breedSet, minYear, maxYear);
+    }
+
+
+    /**
+     * Compute the inbreeding of dogs that were already found by the caller, e.g. in a scan of the breed group that
+     * also collects other statistics.
+     *
+     * @param dogs the dogs of the group.
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @return the inbreeding of the dogs.
+     */
+    public InbreedingOfGroup getInbreedingOfDogs(List<Node> dogs, Set<String> breedSet, int minYear, int maxYear) {
+        InbreedingOfGroupAccumulator accumulator = accumulate(dogs, false).get(ALL_YEARS);
+        if (accumulator == null) {
+            accumulator = new InbreedingOfGroupAccumulator();
+        }
+        return accumulator.build(breedSet, minYear, maxYear, PEDIGREE_GENERATIONS);
+    }
+
+
+    /**
+     * Compute the inbreeding of the group for every birth-year in range using a single scan of the breed group, rather
+     * than one scan per year.
+     *
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @return the inbreeding of every birth-year within range that has at least one dog, in order of year.
+     */
+    public InbreedingTimeSeries getInbreedingTimeSeries(final Set<String> breedSet, final int minYear, final int maxYear) {
+        List<Node> dogs = getDogsOfGroup(breedSet, minYear, maxYear);
+        Map<Integer, InbreedingOfGroupAccumulator> accumulatorByYear = accumulate(dogs, true);
+        List<InbreedingOfGroup> years = new ArrayList<>(accumulatorByYear.size());
+        for (Map.Entry<Integer, InbreedingOfGroupAccumulator> e : accumulatorByYear.entrySet()) {
+            int year = e.getKey();
+            years.add(e.getValue().build(breedSet, year, year, PEDIGREE_GENERATIONS));
+        }
+        return new InbreedingTimeSeries(breedSet, minYear, maxYear, PEDIGREE_GENERATIONS, years);
+    }
+
+
+    private List<Node> getDogsOfGroup(Set<String> breedSet, int minYear, int maxYear) {
+        List<Node> dogs = new ArrayList<>();
         CommonTraversals commonTraversals = new CommonTraversals(graphDb);
         for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
             for (Path dogPath : commonTraversals.traverseDogOfBreedBornBetween(breedMemberPath.endNode(), minYear, maxYear)) {
-                Node dogNode = dogPath.endNode();
-                double coi = algorithm.computeSewallWrightCoefficientOfInbreeding(dogNode).getCoi();
-                double percentage = 100 * coi;
-                int index = 1 + (int) percentage;
-                if (percentage == 0) {
-                    index = 0;
+                dogs.add(dogPath.endNode());
+            }
+        }
+        return dogs;
+    }
+
+
+    /**
+     * @param dogs
+     * @param byBornYear whether to collect the dogs of every birth-year separately.
+     * @return the coefficients of inbreeding of the dogs collected by birth-year in order of year, or all under
+     * {@link #ALL_YEARS}.
+     */
+    private Map<Integer, InbreedingOfGroupAccumulator> accumulate(List<Node> dogs, boolean byBornYear) {
+        InbreedingTask task = new InbreedingTask(dogs, byBornYear, 0, dogs.size());
+        if (forkJoinPool == null) {
+            return task.compute();
+        }
+        return forkJoinPool.invoke(task);
+    }
+
+
+    private class InbreedingTask extends RecursiveTask<Map<Integer, InbreedingOfGroupAccumulator>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node> dogs;
+        private final boolean byBornYear;
+        private final int from;
+        private final int to;
+
+        private InbreedingTask(List<Node> dogs, boolean byBornYear, int from, int to) {
+            this.dogs = dogs;
+            this.byBornYear = byBornYear;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Integer, InbreedingOfGroupAccumulator> compute() {
+            if (forkJoinPool != null && to - from > DOGS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                InbreedingTask first = new InbreedingTask(dogs, byBornYear, from, middle);
+                InbreedingTask second = new InbreedingTask(dogs, byBornYear, middle, to);
+                invokeAll(first, second);
+                Map<Integer, InbreedingOfGroupAccumulator> accumulatorByYear = first.join();
+                for (Map.Entry<Integer, InbreedingOfGroupAccumulator> e : second.join().entrySet()) {
+                    InbreedingOfGroupAccumulator accumulator = accumulatorByYear.get(e.getKey());
+                    if (accumulator == null) {
+                        accumulatorByYear.put(e.getKey(), e.getValue());
+                    } else {
+                        accumulator.merge(e.getValue());
+                    }
                 }
-                frequency[index]++;
-                double percentageTimes100 = 100 * percentage;
-                if (percentageTimes100 >= 3000) {
-                    dogsWithCoefficientAbove3000.add(new UuidAndRegNo(dogNode));
-                } else if (percentageTimes100 >= 2500) {
-                    dogsWithCoefficientAbove2500.add(new UuidAndRegNo(dogNode));
-                } else if (percentageTimes100 >= 1250) {
-                    dogsWithCoefficientAbove1250.add(new UuidAndRegNo(dogNode));
+                return accumulatorByYear;
+            }
+            Map<Integer, InbreedingOfGroupAccumulator> accumulatorByYear = new TreeMap<>();
+            try (Transaction tx = graphDb.beginTx()) {
+                InbreedingAlgorithm algorithm = new InbreedingAlgorithm(graphDb, PEDIGREE_GENERATIONS, inbreedingCache);
+                for (int i = from; i < to; i++) {
+                    Node dogNode = dogs.get(i);
+                    Double coi = null;
+                    if (storedInbreedingService != null) {
+                        coi = storedInbreedingService.getStoredCoefficientOfInbreeding(dogNode, PEDIGREE_GENERATIONS);
+                    }
+                    if (coi == null) {
+                        coi = algorithm.computeSewallWrightCoefficientOfInbreeding(dogNode).getCoi();
+                    }
+                    Integer year = byBornYear ? (Integer) dogNode.getProperty(DogGraphConstants.DOG_BORN_YEAR) : ALL_YEARS;
+                    InbreedingOfGroupAccumulator accumulator = accumulatorByYear.get(year);
+                    if (accumulator == null) {
+                        accumulator = new InbreedingOfGroupAccumulator();
+                        accumulatorByYear.put(year, accumulator);
+                    }
+                    accumulator.add(dogNode, coi);
                 }
-                coefficientStatistics.addValue(percentage);
+                tx.success();
             }
+            return accumulatorByYear;
         }
-        return new InbreedingOfGroup(breedSet, minYear, maxYear, PEDIGREE_GENERATIONS, new BasicStatistics(coefficientStatistics), frequency, dogsWithCoefficientAbove1250, dogsWithCoefficientAbove2500, dogsWithCoefficientAbove3000);
     }
-
 }
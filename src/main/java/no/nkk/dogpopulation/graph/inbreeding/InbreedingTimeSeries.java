@@ -0,0 +1,61 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The inbreeding of a group of dogs for every birth-year in a range.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"numberOfDogs", "breed", "minYear", "maxYear", "generations", "years"})
+public class InbreedingTimeSeries {
+
+    private final Set<String> breed;
+    private final int minYear;
+    private final int maxYear;
+    private final int generations;
+    private final InbreedingOfGroup[] years;
+
+    public InbreedingTimeSeries(Set<String> breed, int minYear, int maxYear, int generations, List<InbreedingOfGroup> years) {
+        this.breed = breed;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.generations = generations;
+        this.years = years.toArray(new InbreedingOfGroup[years.size()]);
+    }
+
+    public int getNumberOfDogs() {
+        int numberOfDogs = 0;
+        for (InbreedingOfGroup year : years) {
+            numberOfDogs += year.getNumberOfDogs();
+        }
+        return numberOfDogs;
+    }
+
+    public Set<String> getBreed() {
+        return breed;
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * @return the inbreeding of every birth-year that has at least one dog, in order of year. The minYear and maxYear
+     * of each element is the birth-year.
+     */
+    public InbreedingOfGroup[] getYears() {
+        return years;
+    }
+}
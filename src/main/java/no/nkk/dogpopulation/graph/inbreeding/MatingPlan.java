@@ -0,0 +1,89 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+
+import java.util.List;
+
+/**
+ * The expected coefficient of inbreeding of the offspring of every combination of a set of candidate fathers and
+ * mothers. Coefficients are given in percent, both as a matrix with one row per father and one column per mother, and
+ * as a list of all matings ranked from lowest to highest coefficient.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"generations", "fathers", "mothers", "unknownDogs", "inbreedingCoefficients", "ranking"})
+public class MatingPlan {
+
+    private final int generations;
+    private final UuidAndRegNo[] fathers;
+    private final UuidAndRegNo[] mothers;
+    private final String[] unknownDogs;
+    private final double[][] inbreedingCoefficients;
+    private final Mating[] ranking;
+
+    public MatingPlan(int generations, List<UuidAndRegNo> fathers, List<UuidAndRegNo> mothers, List<String> unknownDogs, double[][] inbreedingCoefficients, List<Mating> ranking) {
+        this.generations = generations;
+        this.fathers = fathers.toArray(new UuidAndRegNo[fathers.size()]);
+        this.mothers = mothers.toArray(new UuidAndRegNo[mothers.size()]);
+        this.unknownDogs = unknownDogs.toArray(new String[unknownDogs.size()]);
+        this.inbreedingCoefficients = inbreedingCoefficients;
+        this.ranking = ranking.toArray(new Mating[ranking.size()]);
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public UuidAndRegNo[] getFathers() {
+        return fathers;
+    }
+
+    public UuidAndRegNo[] getMothers() {
+        return mothers;
+    }
+
+    /**
+     * @return the uuids of requested dogs that were not found, these are not part of the plan.
+     */
+    public String[] getUnknownDogs() {
+        return unknownDogs;
+    }
+
+    /**
+     * @return coefficient of inbreeding in percent, indexed by father and then by mother.
+     */
+    public double[][] getInbreedingCoefficients() {
+        return inbreedingCoefficients;
+    }
+
+    public Mating[] getRanking() {
+        return ranking;
+    }
+
+
+    @JsonPropertyOrder({"father", "mother", "inbreedingCoefficient"})
+    public static class Mating {
+        private final String father;
+        private final String mother;
+        private final double inbreedingCoefficient;
+
+        public Mating(String father, String mother, double inbreedingCoefficient) {
+            this.father = father;
+            this.mother = mother;
+            this.inbreedingCoefficient = inbreedingCoefficient;
+        }
+
+        public String getFather() {
+            return father;
+        }
+
+        public String getMother() {
+            return mother;
+        }
+
+        public double getInbreedingCoefficient() {
+            return inbreedingCoefficient;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the expected coefficient of inbreeding of the offspring of every combination of candidate fathers and
+ * mothers. The ancestry paths of each father and of each mother are collected once and shared by all matings with
+ * that dog, and coefficients of common ancestors are shared by all matings through the inbreeding cache. When given a
+ * fork-join pool, the matings of each father are computed as a separate task within its own read transaction.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class MatingPlanAlgorithm {
+
+    private static final String OFFSPRING_ID = "xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx";
+
+    private final GraphDatabaseService graphDb;
+    private final int PEDIGREE_GENERATIONS;
+    private final InbreedingCache inbreedingCache;
+    private final ForkJoinPool forkJoinPool;
+
+    /**
+     * @param graphDb
+     * @param generations
+     * @param inbreedingCache
+     * @param forkJoinPool the pool used to compute fathers in parallel, or null to compute all on the calling thread.
+     */
+    public MatingPlanAlgorithm(GraphDatabaseService graphDb, int generations, InbreedingCache inbreedingCache, ForkJoinPool forkJoinPool) {
+        this.graphDb = graphDb;
+        this.PEDIGREE_GENERATIONS = generations;
+        this.inbreedingCache = inbreedingCache;
+        this.forkJoinPool = forkJoinPool;
+    }
+
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @param fathers
+     * @param mothers
+     * @param unknownDogs uuids of requested dogs that were not found, only used to report them in the plan.
+     * @return the mating plan.
+     */
+    public MatingPlan getMatingPlan(List<Node> fathers, List<Node> mothers, List<String> unknownDogs) {
+        final MatingPlan[] matingPlan = new MatingPlan[1];
+        final double[][] coefficients = new double[fathers.size()][];
+        try {
+            visitMatingPlan(fathers, mothers, unknownDogs, new MatingPlanVisitor() {
+                private List<UuidAndRegNo> fatherIds;
+                private List<UuidAndRegNo> motherIds;
+                private List<String> unknownDogs;
+
+                @Override
+                public void start(int generations, List<UuidAndRegNo> fathers, List<UuidAndRegNo> mothers, List<String> unknownDogs) {
+                    this.fatherIds = fathers;
+                    this.motherIds = mothers;
+                    this.unknownDogs = unknownDogs;
+                }
+
+                @Override
+                public void father(int father, double[] inbreedingCoefficients) {
+                    coefficients[father] = inbreedingCoefficients;
+                }
+
+                @Override
+                public void end(List<MatingPlan.Mating> ranking) {
+                    matingPlan[0] = new MatingPlan(PEDIGREE_GENERATIONS, fatherIds, motherIds, unknownDogs, coefficients, ranking);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e); // never thrown by the visitor above
+        }
+        return matingPlan[0];
+    }
+
+
+    /**
+     * Compute the mating plan and visit the coefficients of each father as soon as they, and those of all previous
+     * fathers, are computed. The ancestry paths of every mother are collected once before the first father, and the
+     * visitor is always called on the calling thread. Must be called within a transaction.
+     *
+     * @param fathers
+     * @param mothers
+     * @param unknownDogs uuids of requested dogs that were not found, only used to report them in the plan.
+     * @param visitor
+     * @throws IOException when thrown by the visitor, remaining fathers are then cancelled.
+     */
+    public void visitMatingPlan(List<Node> fathers, List<Node> mothers, List<String> unknownDogs, MatingPlanVisitor visitor) throws IOException {
+        List<UuidAndRegNo> fatherIds = new ArrayList<>(fathers.size());
+        for (Node father : fathers) {
+            fatherIds.add(new UuidAndRegNo(father));
+        }
+        List<UuidAndRegNo> motherIds = new ArrayList<>(mothers.size());
+        for (Node mother : mothers) {
+            motherIds.add(new UuidAndRegNo(mother));
+        }
+        visitor.start(PEDIGREE_GENERATIONS, fatherIds, motherIds, unknownDogs);
+
+        InbreedingAlgorithm algorithm = new InbreedingAlgorithm(graphDb, PEDIGREE_GENERATIONS, inbreedingCache);
+        final List<InbreedingAlgorithm.AncestryPathTable> motherPaths = new ArrayList<>(mothers.size());
+        for (Node mother : mothers) {
+            motherPaths.add(algorithm.secondParentPathTableOf(mother));
+        }
+
+        double[][] coefficients = new double[fathers.size()][];
+        if (forkJoinPool == null) {
+            for (int f = 0; f < fathers.size(); f++) {
+                coefficients[f] = computeMatingsOfFather(fathers.get(f), motherPaths);
+                visitor.father(f, coefficients[f]);
+            }
+        } else {
+            List<Future<double[]>> futures = new ArrayList<>(fathers.size());
+            for (final Node father : fathers) {
+                futures.add(forkJoinPool.submit(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        try (Transaction tx = graphDb.beginTx()) {
+                            double[] result = computeMatingsOfFather(father, motherPaths);
+                            tx.success();
+                            return result;
+                        }
+                    }
+                }));
+            }
+            try {
+                for (int f = 0; f < futures.size(); f++) {
+                    coefficients[f] = futures.get(f).get();
+                    visitor.father(f, coefficients[f]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                for (Future<double[]> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        List<MatingPlan.Mating> ranking = new ArrayList<>(fathers.size() * mothers.size());
+        for (int f = 0; f < fathers.size(); f++) {
+            for (int m = 0; m < mothers.size(); m++) {
+                ranking.add(new MatingPlan.Mating(fatherIds.get(f).getUuid(), motherIds.get(m).getUuid(), coefficients[f][m]));
+            }
+        }
+        Collections.sort(ranking, new Comparator<MatingPlan.Mating>() {
+            @Override
+            public int compare(MatingPlan.Mating o1, MatingPlan.Mating o2) {
+                return Double.compare(o1.getInbreedingCoefficient(), o2.getInbreedingCoefficient()); // stable sort keeps matrix order on ties
+            }
+        });
+        visitor.end(ranking);
+    }
+
+
+    /**
+     * @return coefficient of inbreeding in percent of the offspring of the father with each of the mothers.
+     */
+    private double[] computeMatingsOfFather(Node father, List<InbreedingAlgorithm.AncestryPathTable> motherPaths) {
+        InbreedingAlgorithm algorithm = new InbreedingAlgorithm(graphDb, PEDIGREE_GENERATIONS, inbreedingCache);
+        InbreedingAlgorithm.AncestryPathTable fatherPaths = algorithm.ancestryPathTableOf(father);
+        double[] coefficients = new double[motherPaths.size()];
+        for (int m = 0; m < motherPaths.size(); m++) {
+            coefficients[m] = 100 * algorithm.computeSewallWrightCoefficientOfInbreeding(OFFSPRING_ID, fatherPaths, motherPaths.get(m)).getCoi();
+        }
+        return coefficients;
+    }
+}
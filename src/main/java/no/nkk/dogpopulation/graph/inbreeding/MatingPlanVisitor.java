@@ -0,0 +1,39 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives a mating plan part by part while it is computed, so that the coefficients of each father can be written
+ * as soon as they are complete. The parts are visited in the order of the properties of {@link MatingPlan}.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public interface MatingPlanVisitor {
+
+    /**
+     * @param generations
+     * @param fathers
+     * @param mothers
+     * @param unknownDogs uuids of requested dogs that were not found, these are not part of the plan.
+     * @throws IOException
+     */
+    void start(int generations, List<UuidAndRegNo> fathers, List<UuidAndRegNo> mothers, List<String> unknownDogs) throws IOException;
+
+    /**
+     * Called once for every father, in the order of the fathers.
+     *
+     * @param father the index of the father.
+     * @param inbreedingCoefficients coefficient of inbreeding in percent of the offspring with each of the mothers.
+     * @throws IOException
+     */
+    void father(int father, double[] inbreedingCoefficients) throws IOException;
+
+    /**
+     * @param ranking all matings ranked from lowest to highest coefficient.
+     * @throws IOException
+     */
+    void end(List<MatingPlan.Mating> ranking) throws IOException;
+}
@@ -0,0 +1,406 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import no.nkk.dogpopulation.graph.Builder;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteListener;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteTransactionListener;
+import no.nkk.dogpopulation.graph.dogbuilder.DogChanges;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the coefficients of inbreeding of 3 and 6 generations as properties on every dog node, so that they can
+ * be read instead of computed. Whenever the bulk-write-service commits a change to the parents of a dog, that dog and
+ * all descendants that have it within their 6 generation window are marked as pending and recomputed in the
+ * background. A dog that gets a new coefficient can in turn change the coefficient of descendants that have it as a
+ * common ancestor, so the descendants of every dog whose stored value changes are recomputed as well.
+ *
+ * Stored coefficients of dogs that are pending are never returned, so readers either get a current value or must
+ * compute the coefficient themselves. Dogs are marked pending with the INBREEDING_PENDING label in the same transaction
+ * as the parent change, and the label is removed in the same transaction as the new coefficients are stored, so
+ * pending dogs are found again after a restart. Changes written to the graph without going through the
+ * bulk-write-service are not detected.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class StoredInbreedingService implements BulkWriteTransactionListener, BulkWriteListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoredInbreedingService.class);
+
+    private static final int MAX_GENERATIONS = 6;
+    private static final int DOGS_PER_TRANSACTION = 500;
+
+    private final GraphDatabaseService graphDb;
+    private final InbreedingCache inbreedingCache;
+
+    // dogs with stored coefficients that are not current, guarded by locking the set itself
+    private final Set<Long> pending = new LinkedHashSet<>();
+    private final Set<Long> inProgress = new HashSet<>();
+
+    // dogs labeled by the bulk that is being written, only accessed by the bulk-writer thread
+    private Set<Long> labeledByBulk = Collections.emptySet();
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile ExecutorService executorService;
+    private volatile ExecutorService recomputeAllExecutorService;
+
+    private final AtomicBoolean recomputeAllRunning = new AtomicBoolean();
+    private final AtomicLong recomputeAllTotal = new AtomicLong();
+    private final AtomicLong recomputeAllProcessed = new AtomicLong();
+    private final AtomicLong recomputeAllStartTime = new AtomicLong();
+    private final AtomicLong recomputeAllEndTime = new AtomicLong();
+    private final AtomicLong computedDogs = new AtomicLong();
+
+    @Inject
+    public StoredInbreedingService(GraphDatabaseService graphDb, BulkWriteService bulkWriteService, InbreedingCache inbreedingCache) {
+        this.graphDb = graphDb;
+        this.inbreedingCache = inbreedingCache;
+        bulkWriteService.addTransactionListener(this);
+        bulkWriteService.addListener(this);
+    }
+
+
+    /**
+     * Start recomputing pending dogs in the background, including dogs that were still pending at shutdown. Until
+     * started, changes are only recorded as pending.
+     *
+     * @param executorService the executor to recompute pending dogs with.
+     * @param recomputeAllExecutorService the executor to recompute all dogs with, so that a long recomputation does
+     *                                    not hold up other work of the first executor.
+     */
+    public void start(ExecutorService executorService, ExecutorService recomputeAllExecutorService) {
+        List<Long> labeled = new ArrayList<>();
+        try (Transaction tx = graphDb.beginTx()) {
+            try (ResourceIterator<Node> dogs = graphDb.findNodes(DogGraphLabel.INBREEDING_PENDING)) {
+                while (dogs.hasNext()) {
+                    labeled.add(dogs.next().getId());
+                }
+            }
+            tx.success();
+        }
+        if (!labeled.isEmpty()) {
+            LOGGER.info("Found {} dogs with pending coefficients of inbreeding", labeled.size());
+        }
+        markPending(labeled);
+        this.recomputeAllExecutorService = recomputeAllExecutorService;
+        this.executorService = executorService;
+        scheduleRecomputePending();
+    }
+
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @param dog
+     * @param generations
+     * @return the stored coefficient of inbreeding in range [0, 1], or null if no current value is stored for this
+     * number of generations.
+     */
+    public Double getStoredCoefficientOfInbreeding(Node dog, int generations) {
+        String property = propertyOf(generations);
+        if (property == null) {
+            return null;
+        }
+        synchronized (pending) {
+            if (pending.contains(dog.getId()) || inProgress.contains(dog.getId())) {
+                return null;
+            }
+        }
+        if (dog.hasLabel(DogGraphLabel.INBREEDING_PENDING)) {
+            return null; // committed, but not yet seen by bulkCommitted
+        }
+        return (Double) dog.getProperty(property, null);
+    }
+
+    private static String propertyOf(int generations) {
+        if (generations == 3) {
+            return DogGraphConstants.DOG_INBREEDING3;
+        }
+        if (generations == 6) {
+            return DogGraphConstants.DOG_INBREEDING6;
+        }
+        return null;
+    }
+
+
+    @Override
+    public void bulkWritten(List<Builder<?>> builders) {
+        Set<Node> children = DogChanges.of(builders).getChildrenWithChangedParents();
+        if (children.isEmpty()) {
+            labeledByBulk = Collections.emptySet();
+            return;
+        }
+        labeledByBulk = descendantsWithinWindow(children, true);
+        labelPending(labeledByBulk);
+    }
+
+    @Override
+    public void bulkCommitted(List<Builder<?>> builders) {
+        Set<Long> labeled = labeledByBulk;
+        labeledByBulk = Collections.emptySet();
+        if (labeled.isEmpty()) {
+            return;
+        }
+        markPending(labeled);
+        scheduleRecomputePending();
+    }
+
+
+    /**
+     * @param dogs
+     * @param includeDogs whether to include the given dogs themselves.
+     * @return ids of all dogs that have one of the given dogs within their largest window of generations.
+     */
+    private Set<Long> descendantsWithinWindow(Collection<Node> dogs, boolean includeDogs) {
+        Set<Long> descendants = new LinkedHashSet<>();
+        for (Path path : graphDb.traversalDescription()
+                .breadthFirst()
+                .uniqueness(Uniqueness.NODE_GLOBAL)
+                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.INCOMING)
+                .evaluator(includeDogs ? Evaluators.toDepth(MAX_GENERATIONS - 1) : Evaluators.includingDepths(1, MAX_GENERATIONS - 1))
+                .traverse(dogs.toArray(new Node[dogs.size()]))) {
+            descendants.add(path.endNode().getId());
+        }
+        return descendants;
+    }
+
+    private void markPending(Collection<Long> nodeIds) {
+        synchronized (pending) {
+            pending.addAll(nodeIds);
+        }
+    }
+
+    /**
+     * Must be called within a transaction.
+     */
+    private void labelPending(Collection<Long> nodeIds) {
+        for (Long nodeId : nodeIds) {
+            graphDb.getNodeById(nodeId).addLabel(DogGraphLabel.INBREEDING_PENDING);
+        }
+    }
+
+
+    private void scheduleRecomputePending() {
+        ExecutorService executor = executorService;
+        if (executor == null) {
+            return;
+        }
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                boolean success = false;
+                try {
+                    recomputePending();
+                    success = true;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to recompute stored coefficients of inbreeding", e);
+                } finally {
+                    drainScheduled.set(false);
+                }
+                if (success) {
+                    scheduleRecomputePending(); // dogs might have been marked after the last check
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Recompute the stored coefficients of all pending dogs on the calling thread.
+     */
+    public void recomputePending() {
+        while (true) {
+            List<Long> batch = new ArrayList<>(DOGS_PER_TRANSACTION);
+            synchronized (pending) {
+                Iterator<Long> it = pending.iterator();
+                while (it.hasNext() && batch.size() < DOGS_PER_TRANSACTION) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+                inProgress.addAll(batch);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                markPending(recompute(batch, true));
+            } catch (RuntimeException e) {
+                markPending(batch); // keep stored values of batch from being used
+                throw e;
+            } finally {
+                synchronized (pending) {
+                    inProgress.removeAll(batch);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Start recomputing the stored coefficients of every dog in the graph in the background, unless already running.
+     *
+     * @return the status after starting.
+     */
+    public StoredInbreedingStatus startRecomputeAll() {
+        ExecutorService executor = recomputeAllExecutorService;
+        if (executor == null) {
+            throw new IllegalStateException("Not started");
+        }
+        if (recomputeAllRunning.get()) {
+            return getStatus();
+        }
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    recomputeAll();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to recompute all stored coefficients of inbreeding", e);
+                }
+            }
+        });
+        return getStatus();
+    }
+
+
+    /**
+     * Recompute the stored coefficients of every dog in the graph on the calling thread, unless already running.
+     */
+    public void recomputeAll() {
+        if (!recomputeAllRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            recomputeAllStartTime.set(System.currentTimeMillis());
+            recomputeAllProcessed.set(0);
+            long[] nodeIds = new long[1024];
+            int n = 0;
+            try (Transaction tx = graphDb.beginTx()) {
+                try (ResourceIterator<Node> dogs = graphDb.findNodes(DogGraphLabel.DOG)) {
+                    while (dogs.hasNext()) {
+                        if (n == nodeIds.length) {
+                            nodeIds = Arrays.copyOf(nodeIds, 2 * n);
+                        }
+                        nodeIds[n++] = dogs.next().getId();
+                    }
+                }
+                tx.success();
+            }
+            recomputeAllTotal.set(n);
+            LOGGER.info("Recomputing stored coefficients of inbreeding of {} dogs", n);
+            for (int i = 0; i < n; i += DOGS_PER_TRANSACTION) {
+                List<Long> batch = new ArrayList<>(DOGS_PER_TRANSACTION);
+                for (int j = i; j < Math.min(n, i + DOGS_PER_TRANSACTION); j++) {
+                    batch.add(nodeIds[j]);
+                }
+                recompute(batch, false);
+                recomputeAllProcessed.addAndGet(batch.size());
+            }
+            LOGGER.info("Recomputed stored coefficients of inbreeding of {} dogs in {} ms", n, System.currentTimeMillis() - recomputeAllStartTime.get());
+        } finally {
+            recomputeAllEndTime.set(System.currentTimeMillis());
+            recomputeAllRunning.set(false);
+        }
+    }
+
+
+    /**
+     * Store the coefficients of the dogs and remove their pending label, in one transaction.
+     *
+     * @param nodeIds
+     * @param labelDescendantsOfChanged whether to label the descendants of dogs that got a different coefficient than
+     *                                  what was stored before as pending, in the same transaction.
+     * @return ids of the descendants that were labeled as pending.
+     */
+    private Set<Long> recompute(List<Long> nodeIds, boolean labelDescendantsOfChanged) {
+        List<Node> changed = new ArrayList<>();
+        Set<Long> labeled = Collections.emptySet();
+        try (Transaction tx = graphDb.beginTx()) {
+            InbreedingAlgorithm algorithm = new InbreedingAlgorithm(graphDb, MAX_GENERATIONS, inbreedingCache);
+            for (Long nodeId : nodeIds) {
+                Node dog;
+                try {
+                    dog = graphDb.getNodeById(nodeId);
+                } catch (NotFoundException e) {
+                    continue; // deleted
+                }
+                InbreedingResult[] results = algorithm.computeSewallWrightCoefficientsOfInbreeding(dog, 3, 6);
+                boolean coiChanged = setIfChanged(dog, DogGraphConstants.DOG_INBREEDING3, results[0].getCoi());
+                coiChanged |= setIfChanged(dog, DogGraphConstants.DOG_INBREEDING6, results[1].getCoi());
+                if (coiChanged) { // also when first stored, descendants may have been computed without it
+                    changed.add(dog);
+                }
+                dog.removeLabel(DogGraphLabel.INBREEDING_PENDING);
+            }
+            if (labelDescendantsOfChanged && !changed.isEmpty()) {
+                labeled = descendantsWithinWindow(changed, false);
+                labelPending(labeled);
+            }
+            tx.success();
+        }
+        computedDogs.addAndGet(nodeIds.size());
+        return labeled;
+    }
+
+    /**
+     * @return whether the stored value changed, including when there was no value before.
+     */
+    private static boolean setIfChanged(Node dog, String property, double coi) {
+        Object existing = dog.getProperty(property, null);
+        if (existing != null && (Double) existing == coi) {
+            return false;
+        }
+        dog.setProperty(property, coi);
+        return true;
+    }
+
+
+    public StoredInbreedingStatus getStatus() {
+        int pendingDogs;
+        synchronized (pending) {
+            pendingDogs = pending.size() + inProgress.size();
+        }
+        boolean running = recomputeAllRunning.get();
+        long startTime = recomputeAllStartTime.get();
+        long durationMs = startTime == 0 ? 0 : (running ? System.currentTimeMillis() : recomputeAllEndTime.get()) - startTime;
+        return new StoredInbreedingStatus(running, recomputeAllTotal.get(), recomputeAllProcessed.get(), durationMs, pendingDogs, computedDogs.get());
+    }
+}
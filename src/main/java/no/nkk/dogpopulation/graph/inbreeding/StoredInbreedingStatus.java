@@ -0,0 +1,58 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Progress of the recomputation of stored coefficients of inbreeding.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"recomputeAllRunning", "recomputeAllTotal", "recomputeAllProcessed", "recomputeAllDurationMs", "pendingDogs", "computedDogs"})
+public class StoredInbreedingStatus {
+
+    private final boolean recomputeAllRunning;
+    private final long recomputeAllTotal;
+    private final long recomputeAllProcessed;
+    private final long recomputeAllDurationMs;
+    private final int pendingDogs;
+    private final long computedDogs;
+
+    public StoredInbreedingStatus(boolean recomputeAllRunning, long recomputeAllTotal, long recomputeAllProcessed, long recomputeAllDurationMs, int pendingDogs, long computedDogs) {
+        this.recomputeAllRunning = recomputeAllRunning;
+        this.recomputeAllTotal = recomputeAllTotal;
+        this.recomputeAllProcessed = recomputeAllProcessed;
+        this.recomputeAllDurationMs = recomputeAllDurationMs;
+        this.pendingDogs = pendingDogs;
+        this.computedDogs = computedDogs;
+    }
+
+    public boolean isRecomputeAllRunning() {
+        return recomputeAllRunning;
+    }
+
+    public long getRecomputeAllTotal() {
+        return recomputeAllTotal;
+    }
+
+    public long getRecomputeAllProcessed() {
+        return recomputeAllProcessed;
+    }
+
+    public long getRecomputeAllDurationMs() {
+        return recomputeAllDurationMs;
+    }
+
+    /**
+     * @return number of dogs waiting to have their stored coefficients recomputed after a change to their pedigree.
+     */
+    public int getPendingDogs() {
+        return pendingDogs;
+    }
+
+    /**
+     * @return number of dogs that had their stored coefficients computed since startup.
+     */
+    public long getComputedDogs() {
+        return computedDogs;
+    }
+}
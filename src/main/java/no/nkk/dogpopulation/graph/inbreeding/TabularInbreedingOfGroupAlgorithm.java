@@ -0,0 +1,192 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.graph.CommonTraversals;
+import no.nkk.dogpopulation.graph.OrderedPedigree;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the inbreeding of a group of dogs using the tabular method of Meuwissen and Luo (1992). The pedigree of the
+ * entire group is loaded once and ordered so that parents come before offspring, then the coefficients of all dogs in
+ * the pedigree are computed in a single pass where each dog only visits its own ancestors.
+ *
+ * The pedigree is truncated to the given number of generations counted from the dogs of the group, ancestors at the
+ * edge of the pedigree are treated as founders. This is comparable but not identical to the path-counting method
+ * in {@link InbreedingAlgorithm}, which uses a fresh window of generations when computing the inbreeding of each
+ * common ancestor.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class TabularInbreedingOfGroupAlgorithm {
+
+    private final GraphDatabaseService graphDb;
+    private final int PEDIGREE_GENERATIONS;
+    private final PedigreeIndex pedigreeIndex;
+
+    public TabularInbreedingOfGroupAlgorithm(GraphDatabaseService graphDb, int generations) {
+        this(graphDb, generations, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param generations
+     * @param pedigreeIndex the pedigree-index to load the pedigree from when built, or null to always load the
+     *                      pedigree from the graph.
+     */
+    public TabularInbreedingOfGroupAlgorithm(GraphDatabaseService graphDb, int generations, PedigreeIndex pedigreeIndex) {
+        this.graphDb = graphDb;
+        this.PEDIGREE_GENERATIONS = generations;
+        this.pedigreeIndex = pedigreeIndex;
+    }
+
+
+    public InbreedingOfGroup getInbreedingOfGroup(final Set<String> breedSet, final int minYear, final int maxYear) {
+        List<Node> dogs = new ArrayList<>();
+        CommonTraversals commonTraversals = new CommonTraversals(graphDb);
+        for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
+            for (Path dogPath : commonTraversals.traverseDogOfBreedBornBetween(breedMemberPath.endNode(), minYear, maxYear)) {
+                dogs.add(dogPath.endNode());
+            }
+        }
+
+        OrderedPedigree pedigree = loadPedigree(dogs);
+        double[] coefficients = computeCoefficientsOfInbreeding(pedigree);
+
+        InbreedingOfGroupAccumulator accumulator = new InbreedingOfGroupAccumulator();
+        for (Node dogNode : dogs) {
+            accumulator.add(dogNode, coefficients[pedigree.indexOf(dogNode)]);
+        }
+        return accumulator.build(breedSet, minYear, maxYear, PEDIGREE_GENERATIONS);
+    }
+
+
+    private OrderedPedigree loadPedigree(List<Node> dogs) {
+        if (pedigreeIndex != null && pedigreeIndex.isBuilt()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                return OrderedPedigree.load(graphDb, reader, dogs, PEDIGREE_GENERATIONS);
+            }
+        }
+        return OrderedPedigree.load(graphDb, dogs, PEDIGREE_GENERATIONS);
+    }
+
+
+    /**
+     * The Meuwissen and Luo algorithm. For each dog i, the diagonal element of the numerator relationship matrix is
+     * computed as a(i,i) = sum over ancestors j of L(i,j)^2 * D(j), where L(i,j) is the fraction of genes that i gets
+     * from j and D(j) is the within-family variance of j. Ancestors must be visited from the youngest to the oldest,
+     * which in an ordered pedigree means visiting them by descending index.
+     *
+     * @param pedigree
+     * @return coefficient of inbreeding by pedigree index, element 0 is unused.
+     */
+    static double[] computeCoefficientsOfInbreeding(OrderedPedigree pedigree) {
+        int n = pedigree.size();
+        double[] F = new double[n + 1];
+        double[] D = new double[n + 1];
+        double[] L = new double[n + 1];
+        IntMaxHeap ancestors = new IntMaxHeap(n + 1);
+        F[0] = -1; // unknown parent
+        for (int i = 1; i <= n; i++) {
+            int father = pedigree.father(i);
+            int mother = pedigree.mother(i);
+            D[i] = 0.5 - 0.25 * (F[father] + F[mother]);
+            if (father == 0 || mother == 0) {
+                F[i] = 0;
+                continue;
+            }
+            if (i > 1 && father == pedigree.father(i - 1) && mother == pedigree.mother(i - 1)) {
+                F[i] = F[i - 1]; // full sibling of previous dog
+                continue;
+            }
+            double aii = 0;
+            L[i] = 1;
+            ancestors.push(i);
+            while (!ancestors.isEmpty()) {
+                int j = ancestors.pop();
+                aii += L[j] * L[j] * D[j];
+                int fatherOfJ = pedigree.father(j);
+                if (fatherOfJ != 0) {
+                    if (L[fatherOfJ] == 0) {
+                        ancestors.push(fatherOfJ);
+                    }
+                    L[fatherOfJ] += 0.5 * L[j];
+                }
+                int motherOfJ = pedigree.mother(j);
+                if (motherOfJ != 0) {
+                    if (L[motherOfJ] == 0) {
+                        ancestors.push(motherOfJ);
+                    }
+                    L[motherOfJ] += 0.5 * L[j];
+                }
+                L[j] = 0;
+            }
+            F[i] = aii - 1;
+        }
+        F[0] = 0;
+        return F;
+    }
+
+
+    /**
+     * Binary max-heap of primitive ints.
+     */
+    private static class IntMaxHeap {
+        private final int[] heap;
+        private int size;
+
+        IntMaxHeap(int capacity) {
+            heap = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int value) {
+            int i = size++;
+            heap[i] = value;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heap[parent] >= heap[i]) {
+                    break;
+                }
+                swap(parent, i);
+                i = parent;
+            }
+        }
+
+        int pop() {
+            int max = heap[0];
+            heap[0] = heap[--size];
+            int i = 0;
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heap[left] > heap[largest]) {
+                    largest = left;
+                }
+                if (right < size && heap[right] > heap[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return max;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package no.nkk.dogpopulation.graph.litter;
+
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.QuantileHistogram;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the litters of the dogs of a group into {@link LitterStatistics}. A dog or litter that is added more than
+ * once is only counted once, so a litter with both parents in the group is counted once.
+ *
+ * Thread-safety: Not thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class LitterStatisticsAccumulator {
+
+    private final Set<Long> dogNodeIds = new HashSet<>();
+    private final Set<Long> litterNodeIds = new HashSet<>();
+    private final QuantileHistogram litterSizeStatistics = new QuantileHistogram(1);
+    private int dogsWithAtLeastOneLitter;
+
+
+    /**
+     * @param dogNode the dog, must be called within a transaction.
+     */
+    public void add(Node dogNode) {
+        if (!dogNodeIds.add(dogNode.getId())) {
+            return;
+        }
+        boolean atLeastOneLitter = false;
+        for (Relationship hasLitter : dogNode.getRelationships(DogGraphRelationshipType.HAS_LITTER, Direction.OUTGOING)) {
+            atLeastOneLitter = true;
+            Node litterNode = hasLitter.getEndNode();
+            if (!litterNodeIds.add(litterNode.getId())) {
+                continue;
+            }
+            if (litterNode.hasProperty(DogGraphConstants.LITTER_COUNT)) {
+                litterSizeStatistics.add((Integer) litterNode.getProperty(DogGraphConstants.LITTER_COUNT));
+            }
+        }
+        if (atLeastOneLitter) {
+            dogsWithAtLeastOneLitter++;
+        }
+    }
+
+
+    public LitterStatistics build(Set<String> breedSet, int minYear, int maxYear) {
+        return new LitterStatistics(breedSet, minYear, maxYear, dogNodeIds.size(), dogsWithAtLeastOneLitter, litterSizeStatistics.toBasicStatistics());
+    }
+}
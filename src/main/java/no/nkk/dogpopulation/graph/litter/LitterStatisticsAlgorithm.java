@@ -1,22 +1,21 @@
 package no.nkk.dogpopulation.graph.litter;
 
-import no.nkk.dogpopulation.graph.BasicStatistics;
 import no.nkk.dogpopulation.graph.CommonTraversals;
-import no.nkk.dogpopulation.graph.DogGraphConstants;
-import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.neo4j.graphdb.Direction;
+import no.nkk.dogpopulation.graph.QuantileHistogram;
+import no.nkk.dogpopulation.graph.aggregate.BreedYearAggregates;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
-import org.neo4j.graphdb.traversal.Evaluators;
-import org.neo4j.graphdb.traversal.Traverser;
-import org.neo4j.graphdb.traversal.Uniqueness;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
+ * Litter statistics of the dogs of a breed group, either from the breed-year aggregates when built, or by scanning
+ * every dog of the group and its litters.
+ *
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 public class LitterStatisticsAlgorithm {
@@ -25,55 +24,52 @@ public class LitterStatisticsAlgorithm {
     private final Set<String> breedSet;
     private final int minYear;
     private final int maxYear;
+    private final BreedYearAggregates breedYearAggregates;
 
     public LitterStatisticsAlgorithm(GraphDatabaseService graphDb, Set<String> breedSet, int minYear, int maxYear) {
+        this(graphDb, breedSet, minYear, maxYear, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param breedSet
+     * @param minYear
+     * @param maxYear
+     * @param breedYearAggregates the aggregates to count from when built, or null to always scan the graph.
+     */
+    public LitterStatisticsAlgorithm(GraphDatabaseService graphDb, Set<String> breedSet, int minYear, int maxYear, BreedYearAggregates breedYearAggregates) {
         this.graphDb = graphDb;
         this.breedSet = breedSet;
         this.minYear = minYear;
         this.maxYear = maxYear;
+        this.breedYearAggregates = breedYearAggregates;
     }
 
     public LitterStatistics execute() {
-        int dogCount = 0;
-        int dogsWithAtLeastOneLitter = 0;
-        DescriptiveStatistics litterSizeStatistics = new DescriptiveStatistics();
+        if (breedYearAggregates != null && breedYearAggregates.isBuilt()) {
+            return fromAggregates();
+        }
+        LitterStatisticsAccumulator accumulator = new LitterStatisticsAccumulator();
         CommonTraversals commonTraversals = new CommonTraversals(graphDb);
-        Set<Node> dogNodes = new HashSet<>();
-        Set<Node> litterNodes = new HashSet<>();
         for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
             for (Path dogPath : commonTraversals.traverseDogOfBreedBornBetween(breedMemberPath.endNode(), minYear, maxYear)) {
-                Node dogNode = dogPath.endNode();
-                if (dogNodes.contains(dogNode)) {
-                    continue;
-                }
-                dogNodes.add(dogNode);
-                dogCount++;
-                boolean atLeastOneLitter = false;
-                for (Path litterPath : traverseLitters(dogNode)) {
-                    atLeastOneLitter = true;
-                    Node litterNode = litterPath.endNode();
-                    if (litterNodes.contains(litterNode)) {
-                        continue;
-                    }
-                    litterNodes.add(litterNode);
-                    if (litterNode.hasProperty(DogGraphConstants.LITTER_COUNT)) {
-                        litterSizeStatistics.addValue((Integer) litterNode.getProperty(DogGraphConstants.LITTER_COUNT));
-                    }
-                }
-                if (atLeastOneLitter) {
-                    dogsWithAtLeastOneLitter++;
-                }
+                accumulator.add(dogPath.endNode());
             }
         }
-        return new LitterStatistics(breedSet, minYear, maxYear, dogCount, dogsWithAtLeastOneLitter, new BasicStatistics(litterSizeStatistics));
+        return accumulator.build(breedSet, minYear, maxYear);
     }
 
-    private Traverser traverseLitters(Node dogNode) {
-        return graphDb.traversalDescription()
-                .uniqueness(Uniqueness.NODE_GLOBAL)
-                .evaluator(Evaluators.atDepth(1))
-                .relationships(DogGraphRelationshipType.HAS_LITTER, Direction.OUTGOING)
-                .traverse(dogNode);
+    private LitterStatistics fromAggregates() {
+        List<Node> breedSynonymNodes = new ArrayList<>();
+        for (Path breedMemberPath : new CommonTraversals(graphDb).traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
+            breedSynonymNodes.add(breedMemberPath.endNode());
+        }
+        BreedYearAggregates.LitterCounts counts = breedYearAggregates.litterCountsOfDogsBornBetween(breedSynonymNodes, minYear, maxYear);
+        QuantileHistogram litterSizeStatistics = new QuantileHistogram(1);
+        for (Map.Entry<Integer, Integer> e : counts.getCountByLitterSize().entrySet()) {
+            litterSizeStatistics.add(e.getKey(), e.getValue());
+        }
+        return new LitterStatistics(breedSet, minYear, maxYear, counts.getDogCount(), counts.getDogsWithAtLeastOneLitter(), litterSizeStatistics.toBasicStatistics());
     }
 
 }
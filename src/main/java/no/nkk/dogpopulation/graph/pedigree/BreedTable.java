@@ -0,0 +1,126 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resolves the breed of a breed-synonym node, i.e. the synonym and the FCI id of the breed it is a member of, with a
+ * lookup in an immutable table keyed by node id instead of following the MEMBER_OF relationship and reading the
+ * properties of both nodes. There are only a few hundred breed synonyms, while a single pedigree resolves the breed of
+ * hundreds of ancestors.
+ *
+ * The table is rebuilt when the breed groups are imported, which is the only time breed synonyms become members of
+ * breeds. Breed synonyms created after the last rebuild are resolved from the graph.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class BreedTable {
+
+    private final GraphDatabaseService graphDb;
+
+    private volatile Table table = new Table(new long[0], new String[0], new String[0]);
+
+    @Inject
+    public BreedTable(GraphDatabaseService graphDb) {
+        this.graphDb = graphDb;
+    }
+
+
+    /**
+     * Replace the table with one built from all breed synonyms currently in the graph.
+     */
+    public void rebuild() {
+        Map<Long, String[]> breedBySynonymNodeId = new TreeMap<>();
+        try (Transaction tx = graphDb.beginTx()) {
+            try (ResourceIterator<Node> it = graphDb.findNodes(DogGraphLabel.BREED_SYNONYM)) {
+                while (it.hasNext()) {
+                    Node breedSynonymNode = it.next();
+                    Breed breed = readBreed(breedSynonymNode);
+                    breedBySynonymNodeId.put(breedSynonymNode.getId(), new String[]{breed.getName(), breed.getId()});
+                }
+            }
+            tx.success();
+        }
+        long[] nodeIds = new long[breedBySynonymNodeId.size()];
+        String[] names = new String[nodeIds.length];
+        String[] fciIds = new String[nodeIds.length];
+        int i = 0;
+        for (Map.Entry<Long, String[]> e : breedBySynonymNodeId.entrySet()) {
+            nodeIds[i] = e.getKey();
+            names[i] = e.getValue()[0];
+            fciIds[i] = e.getValue()[1];
+            i++;
+        }
+        table = new Table(nodeIds, names, fciIds);
+    }
+
+    /**
+     * @return the number of breed synonyms in the table.
+     */
+    public int size() {
+        return table.nodeIds.length;
+    }
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @param breedSynonymNode
+     * @return a new breed with the synonym as name, and the FCI id if the synonym is a member of a breed.
+     */
+    public Breed getBreed(Node breedSynonymNode) {
+        Table table = this.table;
+        int i = Arrays.binarySearch(table.nodeIds, breedSynonymNode.getId());
+        if (i < 0) {
+            return readBreed(breedSynonymNode);
+        }
+        Breed breed = new Breed(table.names[i]);
+        breed.setId(table.fciIds[i]);
+        return breed;
+    }
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @param breedSynonymNode
+     * @return the breed of the breed synonym read from the graph.
+     */
+    static Breed readBreed(Node breedSynonymNode) {
+        String breedName = (String) breedSynonymNode.getProperty(DogGraphConstants.BREEDSYNONYM_SYNONYM);
+        Breed breed = new Breed(breedName);
+        Relationship breedMemberRelationship = breedSynonymNode.getSingleRelationship(DogGraphRelationshipType.MEMBER_OF, Direction.OUTGOING);
+        if (breedMemberRelationship != null) {
+            Node breedNode = breedMemberRelationship.getEndNode();
+            breed.setId((String) breedNode.getProperty(DogGraphConstants.BREED_FCI_BREED_ID, null));
+        }
+        return breed;
+    }
+
+
+    private static class Table {
+        private final long[] nodeIds; // sorted
+        private final String[] names;
+        private final String[] fciIds;
+
+        private Table(long[] nodeIds, String[] names, String[] fciIds) {
+            this.nodeIds = nodeIds;
+            this.names = names;
+            this.fciIds = fciIds;
+        }
+    }
+}
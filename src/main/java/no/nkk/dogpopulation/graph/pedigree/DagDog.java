@@ -0,0 +1,76 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dog of a {@link PedigreeDag}, where the parents are referenced by uuid rather than nested.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonIgnoreProperties({"ancestry", "ownAncestor"})
+@JsonPropertyOrder({"uuid", "name", "born", "breed", "ids", "generation", "father", "mother", "ownAncestors", "inbreedingCoefficient3", "inbreedingCoefficient6", "health"})
+public class DagDog extends Dog {
+    private int generation;
+    private String father;
+    private String mother;
+    private List<String> ownAncestors;
+
+    /**
+     * @return the number of generations between the top-level dog and this dog along the shortest path, 0 for the
+     * top-level dog itself.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * @return the uuid of the father, or null if unknown or outside of the pedigree.
+     */
+    public String getFather() {
+        return father;
+    }
+
+    public void setFather(String father) {
+        this.father = father;
+    }
+
+    /**
+     * @return the uuid of the mother, or null if unknown or outside of the pedigree.
+     */
+    public String getMother() {
+        return mother;
+    }
+
+    public void setMother(String mother) {
+        this.mother = mother;
+    }
+
+    /**
+     * @return the uuids of the dogs this dog is linked to by an OWN_ANCESTOR relationship, i.e. a circular
+     * registration. Such a dog is also given as father or mother when the relationship has a role. Null if none.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public List<String> getOwnAncestors() {
+        return ownAncestors;
+    }
+
+    public void setOwnAncestors(List<String> ownAncestors) {
+        this.ownAncestors = ownAncestors;
+    }
+
+    public void addOwnAncestor(String uuid) {
+        if (ownAncestors == null) {
+            ownAncestors = new ArrayList<>(1);
+        }
+        ownAncestors.add(uuid);
+    }
+}
@@ -0,0 +1,82 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import org.neo4j.graphdb.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts dog nodes to the dogs of a pedigree. A memoizing converter reads the properties and breed of each node only
+ * once, and gives every later conversion of the same node a copy of the first. Each conversion still gets its own dog
+ * instance, because the same ancestor gets different ancestry and inbreeding contributions in different pedigrees.
+ *
+ * Thread-safety: Memoizing instances are not thread-safe, and must only be used within a single transaction.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class DogConverter {
+
+    private final Map<Long, Dog> templateByNodeId;
+    private final BreedTable breedTable;
+
+    private DogConverter(Map<Long, Dog> templateByNodeId, BreedTable breedTable) {
+        this.templateByNodeId = templateByNodeId;
+        this.breedTable = breedTable;
+    }
+
+    /**
+     * @return a converter that reads every node on every conversion.
+     */
+    public static DogConverter direct() {
+        return direct(null);
+    }
+
+    /**
+     * @param breedTable the table to resolve breeds with, or null to read breeds from the graph.
+     * @return a converter that reads every node on every conversion.
+     */
+    public static DogConverter direct(BreedTable breedTable) {
+        return new DogConverter(null, breedTable);
+    }
+
+    /**
+     * @return a converter that reads each node only once.
+     */
+    public static DogConverter memoizing() {
+        return memoizing(null);
+    }
+
+    /**
+     * @param breedTable the table to resolve breeds with, or null to read breeds from the graph.
+     * @return a converter that reads each node only once.
+     */
+    public static DogConverter memoizing(BreedTable breedTable) {
+        return new DogConverter(new HashMap<Long, Dog>(), breedTable);
+    }
+
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @param source
+     * @param target
+     * @return the target populated with the properties and breed of the source node.
+     */
+    public Dog populateDog(Node source, Dog target) {
+        if (templateByNodeId == null) {
+            return PedigreeUtils.populateDog(source, target, breedTable);
+        }
+        Dog template = templateByNodeId.get(source.getId());
+        if (template == null) {
+            template = PedigreeUtils.populateDog(source, new Dog(), breedTable);
+            templateByNodeId.put(source.getId(), template);
+        }
+        target.setUuid(template.getUuid());
+        target.setName(template.getName());
+        target.setBreed(template.getBreed());
+        target.getIds().putAll(template.getIds());
+        target.setBorn(template.getBorn());
+        target.setHealth(template.getHealth());
+        return target;
+    }
+}
@@ -0,0 +1,47 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/**
+ * A page of the litters of a dog, ordered by birth date with the most recent litter first.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"uuid", "totalLitters", "offset", "limit", "offspring"})
+public class OffspringPage {
+    private final String uuid;
+    private final int totalLitters;
+    private final int offset;
+    private final int limit;
+    private final Offspring[] offspring;
+
+    public OffspringPage(String uuid, int totalLitters, int offset, int limit, List<Offspring> offspring) {
+        this.uuid = uuid;
+        this.totalLitters = totalLitters;
+        this.offset = offset;
+        this.limit = limit;
+        this.offspring = offspring.toArray(new Offspring[offspring.size()]);
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public int getTotalLitters() {
+        return totalLitters;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Offspring[] getOffspring() {
+        return offspring;
+    }
+}
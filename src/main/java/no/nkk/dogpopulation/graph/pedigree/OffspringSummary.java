@@ -0,0 +1,38 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+/**
+ * Number of litters and puppies of a dog, the litters themselves are available page by page.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class OffspringSummary {
+    private int litters;
+    private int puppies;
+
+    public OffspringSummary() {
+    }
+
+    public OffspringSummary(int litters, int puppies) {
+        this.litters = litters;
+        this.puppies = puppies;
+    }
+
+    public int getLitters() {
+        return litters;
+    }
+
+    public void setLitters(int litters) {
+        this.litters = litters;
+    }
+
+    /**
+     * @return the number of puppies connected to the litters in the graph.
+     */
+    public int getPuppies() {
+        return puppies;
+    }
+
+    public void setPuppies(int puppies) {
+        this.puppies = puppies;
+    }
+}
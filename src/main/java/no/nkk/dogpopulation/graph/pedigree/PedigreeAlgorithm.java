@@ -15,9 +15,20 @@ import org.neo4j.graphdb.traversal.Uniqueness;
 public class PedigreeAlgorithm {
 
     private final GraphDatabaseService graphDb;
+    private final DogConverter dogConverter;
 
     public PedigreeAlgorithm(GraphDatabaseService graphDb) {
+        this(graphDb, DogConverter.direct());
+    }
+
+    /**
+     * @param graphDb
+     * @param dogConverter used to convert every dog of the pedigree, a memoizing converter can be shared by the
+     *                     pedigrees of many dogs within the same transaction.
+     */
+    public PedigreeAlgorithm(GraphDatabaseService graphDb, DogConverter dogConverter) {
         this.graphDb = graphDb;
+        this.dogConverter = dogConverter;
     }
 
 
@@ -25,7 +36,7 @@ public class PedigreeAlgorithm {
         TopLevelDog dog = new TopLevelDog();
         for (Path path : traversePedigree(node, dog)) {
         }
-        dog.setOffspring(PedigreeUtils.getOffspring(node));
+        dog.setOffspring(PedigreeUtils.getOffspringSummary(node));
         if (node.hasProperty(DogGraphConstants.DOG_GENDER)) {
             dog.setGender((String) node.getProperty(DogGraphConstants.DOG_GENDER));
         }
@@ -38,7 +49,7 @@ public class PedigreeAlgorithm {
                 .depthFirst()
                 .uniqueness(Uniqueness.RELATIONSHIP_PATH)
                 .evaluator(Evaluators.toDepth(9))
-                .expand(new PedigreePathExpander(), new InitialBranchState.State<>(initialState, null))
+                .expand(new PedigreePathExpander(dogConverter), new InitialBranchState.State<>(initialState, null))
                 .traverse(node);
     }
 
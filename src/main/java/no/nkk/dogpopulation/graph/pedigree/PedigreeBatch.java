@@ -0,0 +1,33 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/**
+ * The pedigrees of a batch of dogs, in the order requested.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"pedigrees", "unknownDogs"})
+public class PedigreeBatch {
+
+    private final TopLevelDog[] pedigrees;
+    private final String[] unknownDogs;
+
+    public PedigreeBatch(List<TopLevelDog> pedigrees, List<String> unknownDogs) {
+        this.pedigrees = pedigrees.toArray(new TopLevelDog[pedigrees.size()]);
+        this.unknownDogs = unknownDogs.toArray(new String[unknownDogs.size()]);
+    }
+
+    public TopLevelDog[] getPedigrees() {
+        return pedigrees;
+    }
+
+    /**
+     * @return the ids of requested dogs that were not found, these have no pedigree in the batch.
+     */
+    public String[] getUnknownDogs() {
+        return unknownDogs;
+    }
+}
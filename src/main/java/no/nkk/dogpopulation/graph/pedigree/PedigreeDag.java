@@ -0,0 +1,64 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A pedigree where every ancestor appears only once, in the dogs map keyed by uuid, no matter how many paths lead to
+ * it from the top-level dog. Parents are referenced by uuid, so the size of the pedigree grows with the number of
+ * distinct ancestors rather than with the number of paths.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@JsonPropertyOrder({"uuid", "generations", "gender", "offspring", "dogs"})
+public class PedigreeDag {
+    private String uuid;
+    private int generations;
+    private String gender;
+    private OffspringSummary offspring;
+    private final Map<String, DagDog> dogs = new LinkedHashMap<>();
+
+    /**
+     * @return the uuid of the top-level dog.
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    public void setUuid(String uuid) {
+        this.uuid = uuid;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public void setGenerations(int generations) {
+        this.generations = generations;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    public void setGender(String gender) {
+        this.gender = gender;
+    }
+
+    public OffspringSummary getOffspring() {
+        return offspring;
+    }
+
+    public void setOffspring(OffspringSummary offspring) {
+        this.offspring = offspring;
+    }
+
+    /**
+     * @return the top-level dog and all its ancestors by uuid, ordered by generation.
+     */
+    public Map<String, DagDog> getDogs() {
+        return dogs;
+    }
+}
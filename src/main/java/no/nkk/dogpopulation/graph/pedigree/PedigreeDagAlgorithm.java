@@ -0,0 +1,89 @@
+package no.nkk.dogpopulation.graph.pedigree;
+
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.ParentRole;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
+
+/**
+ * Builds a {@link PedigreeDag}. The ancestors are traversed breadth-first with global node uniqueness, so that every
+ * ancestor is visited and converted only once even in heavily line-bred pedigrees, and is placed in the generation of
+ * its shortest path from the top-level dog. Like the nested pedigree, OWN_ANCESTOR relationships that mark circular
+ * registrations are followed as well, and are listed as own-ancestor edges of the dog they start from.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeDagAlgorithm {
+
+    private final GraphDatabaseService graphDb;
+    private final BreedTable breedTable;
+
+    public PedigreeDagAlgorithm(GraphDatabaseService graphDb) {
+        this(graphDb, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param breedTable the table to resolve breeds with, or null to read breeds from the graph.
+     */
+    public PedigreeDagAlgorithm(GraphDatabaseService graphDb, BreedTable breedTable) {
+        this.graphDb = graphDb;
+        this.breedTable = breedTable;
+    }
+
+
+    /**
+     * @param node the top-level dog.
+     * @param generations number of generations of ancestors to include.
+     * @return the pedigree.
+     */
+    public PedigreeDag getPedigree(Node node, int generations) {
+        PedigreeDag pedigree = new PedigreeDag();
+        pedigree.setGenerations(generations);
+        for (Path path : graphDb.traversalDescription()
+                .breadthFirst()
+                .uniqueness(Uniqueness.NODE_GLOBAL)
+                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)
+                .relationships(DogGraphRelationshipType.OWN_ANCESTOR, Direction.OUTGOING)
+                .evaluator(Evaluators.toDepth(generations))
+                .traverse(node)) {
+            DagDog dog = new DagDog();
+            PedigreeUtils.populateDog(path.endNode(), dog, breedTable);
+            dog.setGeneration(path.length());
+            if (path.length() < generations) {
+                setParents(path.endNode(), dog);
+            }
+            pedigree.getDogs().put(dog.getUuid(), dog);
+        }
+        pedigree.setUuid((String) node.getProperty(DogGraphConstants.DOG_UUID));
+        pedigree.setOffspring(PedigreeUtils.getOffspringSummary(node));
+        if (node.hasProperty(DogGraphConstants.DOG_GENDER)) {
+            pedigree.setGender((String) node.getProperty(DogGraphConstants.DOG_GENDER));
+        }
+        return pedigree;
+    }
+
+    private static void setParents(Node node, DagDog dog) {
+        for (Relationship hasParent : node.getRelationships(Direction.OUTGOING, DogGraphRelationshipType.HAS_PARENT, DogGraphRelationshipType.OWN_ANCESTOR)) {
+            String parentUuid = (String) hasParent.getEndNode().getProperty(DogGraphConstants.DOG_UUID);
+            if (hasParent.isType(DogGraphRelationshipType.OWN_ANCESTOR)) {
+                dog.addOwnAncestor(parentUuid);
+                if (!hasParent.hasProperty(DogGraphConstants.HASPARENT_ROLE)) {
+                    continue;
+                }
+            }
+            ParentRole role = ParentRole.valueOf(((String) hasParent.getProperty(DogGraphConstants.HASPARENT_ROLE)).toUpperCase());
+            if (role == ParentRole.FATHER) {
+                dog.setFather(parentUuid);
+            } else if (role == ParentRole.MOTHER) {
+                dog.setMother(parentUuid);
+            }
+        }
+    }
+}
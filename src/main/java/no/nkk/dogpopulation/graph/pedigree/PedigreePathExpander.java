@@ -14,6 +14,16 @@ import org.neo4j.graphdb.traversal.BranchState;
  */
 public class PedigreePathExpander implements PathExpander<Dog> {
 
+    private final DogConverter dogConverter;
+
+    public PedigreePathExpander() {
+        this(DogConverter.direct());
+    }
+
+    public PedigreePathExpander(DogConverter dogConverter) {
+        this.dogConverter = dogConverter;
+    }
+
     @Override
     public Iterable<Relationship> expand(Path path, BranchState<Dog> state) {
         Iterable<Relationship> expansion = path.endNode().getRelationships(Direction.OUTGOING, DogGraphRelationshipType.HAS_PARENT, DogGraphRelationshipType.OWN_ANCESTOR);
@@ -21,7 +31,7 @@ public class PedigreePathExpander implements PathExpander<Dog> {
         Dog child = state.getState();
 
         if (path.length() == 0) {
-            PedigreeUtils.populateDog(path.endNode(), child);
+            dogConverter.populateDog(path.endNode(), child);
 
             return expansion;
         }
@@ -32,7 +42,7 @@ public class PedigreePathExpander implements PathExpander<Dog> {
             child.setAncestry(ancestry);
         }
         Dog parent = new Dog();
-        PedigreeUtils.populateDog(path.endNode(), parent);
+        dogConverter.populateDog(path.endNode(), parent);
         Relationship incomingHasParent = path.reverseRelationships().iterator().next();
         ParentRole role = ParentRole.valueOf(((String) incomingHasParent.getProperty(DogGraphConstants.HASPARENT_ROLE)).toUpperCase());
         if (role == ParentRole.FATHER) {
@@ -9,7 +9,11 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
@@ -17,19 +21,19 @@ import java.util.List;
 public class PedigreeUtils {
 
     public static Dog populateDog(Node source, Dog target) {
+        return populateDog(source, target, null);
+    }
+
+    /**
+     * @param source
+     * @param target
+     * @param breedTable the table to resolve the breed with, or null to read the breed from the graph.
+     * @return the target populated with the properties and breed of the source node.
+     */
+    public static Dog populateDog(Node source, Dog target, BreedTable breedTable) {
         String uuid = (String) source.getProperty(DogGraphConstants.DOG_UUID);
         String name = (String) source.getProperty(DogGraphConstants.DOG_NAME);
-        Relationship breedRelation = source.getSingleRelationship(DogGraphRelationshipType.IS_BREED, Direction.OUTGOING);
-        Node breedSynonymNode = breedRelation.getEndNode();
-        String breedName = (String) breedSynonymNode.getProperty(DogGraphConstants.BREEDSYNONYM_SYNONYM);
-        Breed breed = new Breed(breedName);
-        if (breedSynonymNode.hasRelationship(Direction.OUTGOING, DogGraphRelationshipType.MEMBER_OF)) {
-            Relationship breedMemberRelationship = breedSynonymNode.getSingleRelationship(DogGraphRelationshipType.MEMBER_OF, Direction.OUTGOING);
-            if (breedMemberRelationship != null) {
-                Node breedNode = breedMemberRelationship.getEndNode();
-                breed.setId((String) breedNode.getProperty(DogGraphConstants.BREED_FCI_BREED_ID));
-            }
-        }
+        Breed breed = getBreed(source, breedTable);
         target.setUuid(uuid);
         target.setName(name);
         target.setBreed(breed);
@@ -66,60 +70,110 @@ public class PedigreeUtils {
         return target;
     }
 
+    private static Breed getBreed(Node dogNode, BreedTable breedTable) {
+        Relationship breedRelation = dogNode.getSingleRelationship(DogGraphRelationshipType.IS_BREED, Direction.OUTGOING);
+        Node breedSynonymNode = breedRelation.getEndNode();
+        if (breedTable == null) {
+            return BreedTable.readBreed(breedSynonymNode);
+        }
+        return breedTable.getBreed(breedSynonymNode);
+    }
+
 
-    public static Offspring[] getOffspring(Node dogNode) {
-        if (!dogNode.hasRelationship(Direction.OUTGOING, DogGraphRelationshipType.HAS_LITTER)) {
-            return null;
+    /**
+     * Count the litters and puppies of the dog from the relationship degrees, without loading the puppies.
+     *
+     * @param dogNode
+     * @return the summary.
+     */
+    public static OffspringSummary getOffspringSummary(Node dogNode) {
+        int litters = 0;
+        int puppies = 0;
+        for (Relationship hasLitter : dogNode.getRelationships(Direction.OUTGOING, DogGraphRelationshipType.HAS_LITTER)) {
+            litters++;
+            puppies += hasLitter.getEndNode().getDegree(DogGraphRelationshipType.IN_LITTER, Direction.INCOMING);
         }
+        return new OffspringSummary(litters, puppies);
+    }
 
-        List<Offspring> offspringList = new ArrayList<>();
+    /**
+     * Only the puppies of the litters within the page are loaded.
+     *
+     * @param dogNode
+     * @param offset number of litters to skip.
+     * @param limit maximum number of litters to return.
+     * @param breedTable the table to resolve the breeds of the puppies with, or null to read them from the graph.
+     * @return a page of the litters of the dog, ordered by birth date with the most recent litter first and litters
+     * without birth date last.
+     */
+    public static OffspringPage getOffspring(Node dogNode, int offset, int limit, BreedTable breedTable) {
+        List<Node> litterNodes = new ArrayList<>(dogNode.getDegree(DogGraphRelationshipType.HAS_LITTER, Direction.OUTGOING));
+        final Map<Node, LocalDate> bornByLitter = new HashMap<>();
         for (Relationship hasLitter : dogNode.getRelationships(Direction.OUTGOING, DogGraphRelationshipType.HAS_LITTER)) {
-            Offspring offspring = new Offspring();
             Node litterNode = hasLitter.getEndNode();
-            String litterId = (String) litterNode.getProperty(DogGraphConstants.LITTER_ID);
-            offspring.setId(litterId);
-            if (litterNode.hasProperty(DogGraphConstants.LITTER_COUNT)) {
-                int count = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_COUNT);
-                offspring.setCount(count);
-            }
-            if (litterNode.hasProperty(DogGraphConstants.LITTER_YEAR)
-                    && litterNode.hasProperty(DogGraphConstants.LITTER_MONTH)
-                    && litterNode.hasProperty(DogGraphConstants.LITTER_DAY)) {
-                int year = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_YEAR);
-                int month = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_MONTH);
-                int day = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_DAY);
-                LocalDate bornDate = new LocalDate(year, month, day);
-                offspring.setBorn(DateTimeFormat.forPattern("yyyy-MM-dd").print(bornDate));
-            }
-            List<Puppy> puppyList = new ArrayList<>();
-            for (Relationship inLitter : litterNode.getRelationships(Direction.INCOMING, DogGraphRelationshipType.IN_LITTER)) {
-                Node puppyNode = inLitter.getStartNode();
-                Puppy puppy = new Puppy();
-                puppy.setId((String) puppyNode.getProperty(DogGraphConstants.DOG_UUID));
-                puppy.setName((String) puppyNode.getProperty(DogGraphConstants.DOG_NAME));
-                if (puppyNode.hasProperty(DogGraphConstants.DOG_REGNO)) {
-                    puppy.setRegNo((String) puppyNode.getProperty(DogGraphConstants.DOG_REGNO));
+            litterNodes.add(litterNode);
+            bornByLitter.put(litterNode, getLitterBorn(litterNode));
+        }
+        Collections.sort(litterNodes, new Comparator<Node>() {
+            @Override
+            public int compare(Node o1, Node o2) {
+                LocalDate born1 = bornByLitter.get(o1);
+                LocalDate born2 = bornByLitter.get(o2);
+                if (born1 == null) {
+                    return born2 == null ? 0 : 1;
                 }
-                Relationship isBreed = puppyNode.getSingleRelationship(DogGraphRelationshipType.IS_BREED, Direction.OUTGOING);
-                Node puppyBreedSynonymNode = isBreed.getEndNode();
-                Breed puppyBreed = new Breed((String) puppyBreedSynonymNode.getProperty(DogGraphConstants.BREEDSYNONYM_SYNONYM));
-                if (puppyBreedSynonymNode.hasRelationship(Direction.OUTGOING, DogGraphRelationshipType.MEMBER_OF)) {
-                    Relationship breedMemberRelationship = puppyBreedSynonymNode.getSingleRelationship(DogGraphRelationshipType.MEMBER_OF, Direction.OUTGOING);
-                    if (breedMemberRelationship != null) {
-                        Node breedNode = breedMemberRelationship.getEndNode();
-                        puppyBreed.setId((String) breedNode.getProperty(DogGraphConstants.BREED_FCI_BREED_ID));
-                    }
+                if (born2 == null) {
+                    return -1;
                 }
-                puppy.setBreed(puppyBreed);
-                puppyList.add(puppy);
+                return born2.compareTo(born1);
             }
-            Puppy[] puppyArr = puppyList.toArray(new Puppy[puppyList.size()]);
-            offspring.setPuppies(puppyArr);
-            offspringList.add(offspring);
+        });
+        List<Offspring> offspringList = new ArrayList<>();
+        for (int i = offset; i < litterNodes.size() && i < offset + limit; i++) {
+            Node litterNode = litterNodes.get(i);
+            offspringList.add(getOffspring(litterNode, bornByLitter.get(litterNode), breedTable));
+        }
+        return new OffspringPage((String) dogNode.getProperty(DogGraphConstants.DOG_UUID), litterNodes.size(), offset, limit, offspringList);
+    }
+
+    private static LocalDate getLitterBorn(Node litterNode) {
+        if (litterNode.hasProperty(DogGraphConstants.LITTER_YEAR)
+                && litterNode.hasProperty(DogGraphConstants.LITTER_MONTH)
+                && litterNode.hasProperty(DogGraphConstants.LITTER_DAY)) {
+            int year = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_YEAR);
+            int month = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_MONTH);
+            int day = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_DAY);
+            return new LocalDate(year, month, day);
         }
-        Offspring[] offspringArr = offspringList.toArray(new Offspring[offspringList.size()]);
+        return null;
+    }
 
-        return offspringArr;
+    private static Offspring getOffspring(Node litterNode, LocalDate bornDate, BreedTable breedTable) {
+        Offspring offspring = new Offspring();
+        String litterId = (String) litterNode.getProperty(DogGraphConstants.LITTER_ID);
+        offspring.setId(litterId);
+        if (litterNode.hasProperty(DogGraphConstants.LITTER_COUNT)) {
+            int count = (Integer) litterNode.getProperty(DogGraphConstants.LITTER_COUNT);
+            offspring.setCount(count);
+        }
+        if (bornDate != null) {
+            offspring.setBorn(DateTimeFormat.forPattern("yyyy-MM-dd").print(bornDate));
+        }
+        List<Puppy> puppyList = new ArrayList<>();
+        for (Relationship inLitter : litterNode.getRelationships(Direction.INCOMING, DogGraphRelationshipType.IN_LITTER)) {
+            Node puppyNode = inLitter.getStartNode();
+            Puppy puppy = new Puppy();
+            puppy.setId((String) puppyNode.getProperty(DogGraphConstants.DOG_UUID));
+            puppy.setName((String) puppyNode.getProperty(DogGraphConstants.DOG_NAME));
+            if (puppyNode.hasProperty(DogGraphConstants.DOG_REGNO)) {
+                puppy.setRegNo((String) puppyNode.getProperty(DogGraphConstants.DOG_REGNO));
+            }
+            puppy.setBreed(getBreed(puppyNode, breedTable));
+            puppyList.add(puppy);
+        }
+        Puppy[] puppyArr = puppyList.toArray(new Puppy[puppyList.size()]);
+        offspring.setPuppies(puppyArr);
+        return offspring;
     }
 
 }
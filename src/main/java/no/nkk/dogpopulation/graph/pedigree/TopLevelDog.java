@@ -8,14 +8,14 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
  */
 @JsonPropertyOrder({"uuid", "name", "born", "breed", "gender", "ids", "inbreedingCoefficient3", "inbreedingCoefficient6", "ownAncestor", "health", "offspring", "ancestry"})
 public class TopLevelDog extends Dog {
-    private Offspring[] offspring;
+    private OffspringSummary offspring;
     private String gender;
 
-    public Offspring[] getOffspring() {
+    public OffspringSummary getOffspring() {
         return offspring;
     }
 
-    public void setOffspring(Offspring[] offspring) {
+    public void setOffspring(OffspringSummary offspring) {
         this.offspring = offspring;
     }
 
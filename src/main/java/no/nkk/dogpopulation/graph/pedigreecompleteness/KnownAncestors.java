@@ -0,0 +1,99 @@
+package no.nkk.dogpopulation.graph.pedigreecompleteness;
+
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memoized "known ancestors per generation" vectors. Element k of the vector of a dog is the number of ancestor paths
+ * of length k from the dog, i.e. 1 for the dog itself at k = 0, and the sum of element k - 1 of the parent vectors
+ * otherwise. The pedigree size of a dog is then the sum of its vector from generation 1, and an ancestor shared by
+ * siblings, half-siblings or through inbreeding is evaluated once instead of once for every path that leads to it.
+ *
+ * A vector is computed to the requested length only, and the parent vectors to one less, so the recursion also ends
+ * when the pedigree contains a cycle. The longest vector computed for a dog is kept and reused for shorter requests.
+ *
+ * Thread-safety: Not thread-safe, use one instance per group computation.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+class KnownAncestors {
+
+    private final PedigreeIndex.Reader reader;
+    private final Map<Integer, int[]> vectorByIndex = new HashMap<>();
+    private final Map<Long, int[]> vectorByNodeId = new HashMap<>();
+
+    /**
+     * @param reader the pedigree-index reader to find parents with, or null to traverse the graph.
+     */
+    KnownAncestors(PedigreeIndex.Reader reader) {
+        this.reader = reader;
+    }
+
+
+    /**
+     * @param dogNode the dog, must be called within a transaction.
+     * @param generations number of generations including the dog itself.
+     * @return the number of ancestor paths of length 1 to generations - 1 from the dog.
+     */
+    int pedigreeSize(Node dogNode, int generations) {
+        if (generations <= 1) {
+            return 0;
+        }
+        int dog = reader != null ? reader.indexOf(dogNode.getId()) : PedigreeIndex.UNKNOWN;
+        int[] vector = dog != PedigreeIndex.UNKNOWN ? vector(dog, generations) : vector(dogNode, generations);
+        int n = 0;
+        for (int k = 1; k < generations; k++) {
+            n += vector[k];
+        }
+        return n;
+    }
+
+
+    private int[] vector(int dog, int length) {
+        int[] vector = vectorByIndex.get(dog);
+        if (vector != null && vector.length >= length) {
+            return vector;
+        }
+        vector = new int[length];
+        vector[0] = 1;
+        addShifted(vector, reader.father(dog));
+        addShifted(vector, reader.mother(dog));
+        vectorByIndex.put(dog, vector);
+        return vector;
+    }
+
+    private void addShifted(int[] vector, int parent) {
+        if (parent == PedigreeIndex.UNKNOWN || vector.length <= 1) {
+            return;
+        }
+        int[] parentVector = vector(parent, vector.length - 1);
+        for (int k = 1; k < vector.length; k++) {
+            vector[k] += parentVector[k - 1];
+        }
+    }
+
+    private int[] vector(Node dogNode, int length) {
+        int[] vector = vectorByNodeId.get(dogNode.getId());
+        if (vector != null && vector.length >= length) {
+            return vector;
+        }
+        vector = new int[length];
+        vector[0] = 1;
+        if (length > 1) {
+            for (Relationship hasParent : dogNode.getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)) {
+                int[] parentVector = vector(hasParent.getEndNode(), length - 1);
+                for (int k = 1; k < length; k++) {
+                    vector[k] += parentVector[k - 1];
+                }
+            }
+        }
+        vectorByNodeId.put(dogNode.getId(), vector);
+        return vector;
+    }
+}
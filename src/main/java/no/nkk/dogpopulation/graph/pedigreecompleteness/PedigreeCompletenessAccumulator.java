@@ -0,0 +1,67 @@
+package no.nkk.dogpopulation.graph.pedigreecompleteness;
+
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.QuantileHistogram;
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the pedigree sizes of the dogs of a group into {@link PedigreeCompleteness}.
+ *
+ * Thread-safety: Not thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeCompletenessAccumulator {
+
+    private final PedigreeCompletenessAlgorithm algorithm;
+    private final KnownAncestors knownAncestors; // shared by all dogs of the group
+    private final int N;
+    private final QuantileHistogram pedigreeSizeStat;
+    private final QuantileHistogram completenessStat;
+    private final int[] pedigreeSizeHistogram;
+    private final List<UuidAndRegNo> dogsWithEmptyPedigree = new ArrayList<>();
+    private final List<UuidAndRegNo> dogsWithJustOneParent = new ArrayList<>();
+
+    PedigreeCompletenessAccumulator(PedigreeCompletenessAlgorithm algorithm, PedigreeIndex.Reader reader) {
+        this.algorithm = algorithm;
+        this.knownAncestors = new KnownAncestors(reader);
+        this.N = PedigreeCompleteness.getSizeOfCompletePedigree(algorithm.getGenerations());
+        this.pedigreeSizeStat = new QuantileHistogram(1);
+        this.completenessStat = new QuantileHistogram(100.0 / N); // one bin per pedigree size
+        this.pedigreeSizeHistogram = new int[N + 1];
+    }
+
+
+    /**
+     * @param dogNode the dog, must be called within a transaction.
+     */
+    public void add(Node dogNode) {
+        int pedigreeSize = knownAncestors.pedigreeSize(dogNode, algorithm.getGenerations());
+        pedigreeSizeStat.add(pedigreeSize);
+        completenessStat.add(100.0 * pedigreeSize / N);
+        pedigreeSizeHistogram[pedigreeSize]++; // update histogram
+        if (pedigreeSize == 0) {
+            dogsWithEmptyPedigree.add(new UuidAndRegNo(dogNode));
+        }
+        int parents = 0;
+        for (Relationship hasParent : dogNode.getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)) {
+            parents++;
+        }
+        if (parents == 1) {
+            dogsWithJustOneParent.add(new UuidAndRegNo(dogNode));
+        }
+    }
+
+
+    public PedigreeCompleteness build(Set<String> breedSet, int minYear, int maxYear) {
+        return new PedigreeCompleteness(algorithm.getGenerations(), breedSet, minYear, maxYear, pedigreeSizeStat.toBasicStatistics(), completenessStat.toBasicStatistics(), pedigreeSizeHistogram, dogsWithEmptyPedigree, dogsWithJustOneParent);
+    }
+}
@@ -1,17 +1,11 @@
 package no.nkk.dogpopulation.graph.pedigreecompleteness;
 
-import no.nkk.dogpopulation.graph.BasicStatistics;
 import no.nkk.dogpopulation.graph.CommonTraversals;
-import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
-import no.nkk.dogpopulation.graph.UuidAndRegNo;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.neo4j.graphdb.*;
-import org.neo4j.graphdb.traversal.Evaluators;
-import org.neo4j.graphdb.traversal.Traverser;
-import org.neo4j.graphdb.traversal.Uniqueness;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -21,58 +15,64 @@ public class PedigreeCompletenessAlgorithm {
 
     private final GraphDatabaseService graphDb;
     private final int PEDIGREE_GENERATIONS;
+    private final PedigreeIndex pedigreeIndex;
 
     public PedigreeCompletenessAlgorithm(GraphDatabaseService graphDb, int generations) {
+        this(graphDb, generations, null);
+    }
+
+    /**
+     * @param graphDb
+     * @param generations
+     * @param pedigreeIndex the pedigree-index to use when built, or null to always traverse the graph.
+     */
+    public PedigreeCompletenessAlgorithm(GraphDatabaseService graphDb, int generations, PedigreeIndex pedigreeIndex) {
         this.graphDb = graphDb;
         this.PEDIGREE_GENERATIONS = generations;
+        this.pedigreeIndex = pedigreeIndex;
     }
 
 
     public PedigreeCompleteness getPedigreeCompletenessOfGroup(final Set<String> breedSet, final int minYear, final int maxYear) {
-        DescriptiveStatistics pedigreeSizeStat = new DescriptiveStatistics();
-        DescriptiveStatistics completenessStat = new DescriptiveStatistics();
-        int N = PedigreeCompleteness.getSizeOfCompletePedigree(PEDIGREE_GENERATIONS);
-        int[] pedigreeSizeHistogram = new int[N + 1];
-        List<UuidAndRegNo> dogsWithEmptyPedigree = new ArrayList<>();
-        List<UuidAndRegNo> dogsWithJustOneParent = new ArrayList<>();
+        if (pedigreeIndex != null && pedigreeIndex.isBuilt()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                return getPedigreeCompletenessOfGroup(reader, breedSet, minYear, maxYear);
+            }
+        }
+        return getPedigreeCompletenessOfGroup(null, breedSet, minYear, maxYear);
+    }
+
+    private PedigreeCompleteness getPedigreeCompletenessOfGroup(PedigreeIndex.Reader reader, final Set<String> breedSet, final int minYear, final int maxYear) {
+        PedigreeCompletenessAccumulator accumulator = accumulator(reader);
         CommonTraversals commonTraversals = new CommonTraversals(graphDb);
         for (Path breedMemberPath : commonTraversals.traverseAllBreedSynonymNodesThatAreMembersOfTheSameBreedGroupAsSynonymsInSet(breedSet)) {
             for (Path dogPath : commonTraversals.traverseDogOfBreedBornBetween(breedMemberPath.endNode(), minYear, maxYear)) {
-                Node dogNode = dogPath.endNode();
-                int pedigreeSize = computePedigreeSize(dogNode);
-                pedigreeSizeStat.addValue(pedigreeSize);
-                completenessStat.addValue(100.0 * pedigreeSize / N);
-                pedigreeSizeHistogram[pedigreeSize]++; // update histogram
-                if (pedigreeSize == 0) {
-                    dogsWithEmptyPedigree.add(new UuidAndRegNo(dogNode));
-                }
-                int parents = 0;
-                for (Relationship hasParent : dogNode.getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)) {
-                    parents++;
-                }
-                if (parents == 1) {
-                    dogsWithJustOneParent.add(new UuidAndRegNo(dogNode));
-                }
+                accumulator.add(dogPath.endNode());
             }
         }
-        return new PedigreeCompleteness(PEDIGREE_GENERATIONS, breedSet, minYear, maxYear, new BasicStatistics(pedigreeSizeStat), new BasicStatistics(completenessStat), pedigreeSizeHistogram, dogsWithEmptyPedigree, dogsWithJustOneParent);
+        return accumulator.build(breedSet, minYear, maxYear);
     }
 
-    public int computePedigreeSize(Node dogNode) {
-        int n = 0;
-        for (Path ignored : traversePedigreeToPredefinedDepth(dogNode)) {
-            n++;
-        }
-        return n;
+    /**
+     * @param reader the pedigree-index reader to compute pedigree sizes with, or null to traverse the graph. Must be
+     *               open for as long as the accumulator is used.
+     * @return a new accumulator of the pedigree completeness of dogs.
+     */
+    public PedigreeCompletenessAccumulator accumulator(PedigreeIndex.Reader reader) {
+        return new PedigreeCompletenessAccumulator(this, reader);
+    }
+
+    int getGenerations() {
+        return PEDIGREE_GENERATIONS;
     }
 
-    private Traverser traversePedigreeToPredefinedDepth(Node dogNode) {
-        return graphDb.traversalDescription()
-                .depthFirst()
-                .uniqueness(Uniqueness.NONE)
-                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)
-                .evaluator(Evaluators.includingDepths(1, PEDIGREE_GENERATIONS - 1))
-                .traverse(dogNode);
+    public int computePedigreeSize(Node dogNode) {
+        if (pedigreeIndex != null && pedigreeIndex.isBuilt()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                return new KnownAncestors(reader).pedigreeSize(dogNode, PEDIGREE_GENERATIONS);
+            }
+        }
+        return new KnownAncestors(null).pedigreeSize(dogNode, PEDIGREE_GENERATIONS);
     }
 
 }
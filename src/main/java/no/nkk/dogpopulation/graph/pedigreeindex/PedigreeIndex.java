@@ -0,0 +1,430 @@
+package no.nkk.dogpopulation.graph.pedigreeindex;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import no.nkk.dogpopulation.graph.Builder;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.ParentRole;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteListener;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.dogbuilder.DogChanges;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * In-memory snapshot of the pedigree of all dogs in the graph held in primitive arrays. Each dog is given a dense int
+ * id in range [1, size], and father, mother, birth-year and breed-synonym are stored in one int array each, using 0 for
+ * unknown values. Algorithms can use the index to walk the pedigree without reading relationships or properties from
+ * the graph, which is typically several orders of magnitude faster than a graph traversal.
+ *
+ * The index is built from the graph in the background after startup, and kept current by refreshing every dog that
+ * the bulk-write-service commits a change to. Changes written to the graph without going through the
+ * bulk-write-service are not detected. Algorithms must fall back to traversing the graph when the index is not built.
+ *
+ * The arrays are split into fixed-size pages. Every change is applied to a copy of the index that shares all pages it
+ * does not change with the current index, and the copy is then published in place of the current index. An open
+ * {@link Reader} therefore sees the same immutable snapshot until closed, and readers never block the writer or each
+ * other.
+ *
+ * Thread-safety: Instances of this class are thread-safe. All reads must go through a {@link Reader}.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class PedigreeIndex implements BulkWriteListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PedigreeIndex.class);
+
+    public static final int UNKNOWN = 0;
+
+    private final GraphDatabaseService graphDb;
+
+    // published snapshot, never changed once published
+    private volatile Data data = new Data();
+    private volatile boolean built;
+
+    // serializes the writers, i.e. the build and the bulk-write-service, all fields below are guarded by writeLock
+    private final Object writeLock = new Object();
+    private boolean building;
+    private final Set<Long> changedWhileBuilding = new LinkedHashSet<>();
+
+    @Inject
+    public PedigreeIndex(GraphDatabaseService graphDb, BulkWriteService bulkWriteService) {
+        this.graphDb = graphDb;
+        bulkWriteService.addListener(this);
+    }
+
+
+    /**
+     * Build the index in the background, the index is not used by any algorithm until it is completely built.
+     *
+     * @param executorService
+     */
+    public void buildInBackground(ExecutorService executorService) {
+        executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    build();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to build pedigree index", e);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Build the index from the graph. Changes committed by the bulk-write-service while building are applied before
+     * the new index is made available.
+     */
+    public void build() {
+        long startTime = System.currentTimeMillis();
+        synchronized (writeLock) {
+            building = true;
+            changedWhileBuilding.clear();
+        }
+
+        Data newData = new Data();
+        try (Transaction tx = graphDb.beginTx()) {
+            try (ResourceIterator<Node> dogs = graphDb.findNodes(DogGraphLabel.DOG)) {
+                while (dogs.hasNext()) {
+                    Node dog = dogs.next();
+                    newData.refreshProperties(dog, newData.indexOrAdd(dog.getId()));
+                }
+            }
+            for (int i = 1; i <= newData.size; i++) {
+                newData.refreshParents(graphDb.getNodeById(Data.get(newData.nodeIdByIndex, i)), i);
+            }
+            tx.success();
+        }
+
+        synchronized (writeLock) {
+            try (Transaction tx = graphDb.beginTx()) {
+                for (Long nodeId : changedWhileBuilding) {
+                    newData.refresh(graphDb.getNodeById(nodeId));
+                }
+                tx.success();
+            }
+            changedWhileBuilding.clear();
+            newData.seal();
+            data = newData;
+            built = true;
+            building = false;
+        }
+        LOGGER.info("Pedigree index of {} dogs built in {} ms", newData.size, System.currentTimeMillis() - startTime);
+    }
+
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+
+    /**
+     * Open a reader of the index. The reader should be closed, preferably using try-with-resources.
+     *
+     * @return a reader of a snapshot of the current index.
+     */
+    public Reader reader() {
+        return new Reader(data);
+    }
+
+
+    @Override
+    public void bulkCommitted(List<Builder<?>> builders) {
+        DogChanges changes = DogChanges.of(builders);
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<Node> dogs = new LinkedHashSet<>();
+        dogs.addAll(changes.getDogs());
+        dogs.addAll(changes.getChildrenWithChangedParents());
+        dogs.addAll(changes.getParentsWithChangedLitters());
+        dogs.addAll(changes.getPuppiesWithChangedLitter());
+        if (dogs.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (building) {
+                for (Node dog : dogs) {
+                    changedWhileBuilding.add(dog.getId());
+                }
+            }
+            if (!built) {
+                return;
+            }
+            Data newData = new Data(data);
+            try (Transaction tx = graphDb.beginTx()) {
+                for (Node dog : dogs) {
+                    newData.refresh(dog);
+                }
+                tx.success();
+            }
+            newData.seal();
+            data = newData;
+        }
+    }
+
+
+    /**
+     * Read access to a snapshot of the index. Changes published after the reader was opened are not visible to it.
+     */
+    public class Reader implements AutoCloseable {
+
+        private final Data data;
+
+        private Reader(Data data) {
+            this.data = data;
+        }
+
+        /**
+         * @return the number of dogs in the index, valid ids are in range [1, size].
+         */
+        public int size() {
+            return data.size;
+        }
+
+        /**
+         * @param nodeId
+         * @return the id of the dog with the given node-id, or 0 if the dog is not indexed.
+         */
+        public int indexOf(long nodeId) {
+            return data.indexOf(nodeId);
+        }
+
+        public long nodeId(int dog) {
+            return Data.get(data.nodeIdByIndex, dog);
+        }
+
+        public int father(int dog) {
+            return Data.get(data.father, dog);
+        }
+
+        public int mother(int dog) {
+            return Data.get(data.mother, dog);
+        }
+
+        /**
+         * @param dog
+         * @return the year the dog was born, or 0 if unknown.
+         */
+        public int bornYear(int dog) {
+            return Data.get(data.bornYear, dog);
+        }
+
+        /**
+         * @param dog
+         * @return the id of the breed-synonym of the dog, or 0 if unknown.
+         */
+        public int breed(int dog) {
+            return Data.get(data.breed, dog);
+        }
+
+        /**
+         * @param breedSynonymNodeId
+         * @return the id of the breed-synonym with the given node-id, or 0 if no indexed dog is of this breed.
+         */
+        public int breedIndexOf(long breedSynonymNodeId) {
+            Integer breedIndex = data.breedIndexByNodeId.get(breedSynonymNodeId);
+            if (breedIndex == null) {
+                return UNKNOWN;
+            }
+            return breedIndex;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release, the snapshot is garbage-collected when no longer referenced
+        }
+    }
+
+
+    /**
+     * The arrays of the index, split into pages of PAGE_SIZE elements. Index 0 of every array is reserved for unknown,
+     * a page that was never written is null and read as unknown.
+     *
+     * A copy shares all pages with the data it was copied from, and a shared page is copied before it is written. The
+     * page tables and the breed-index map are owned by one data only, except the map which is also copied on write.
+     * A sealed data copies every page it writes, so that a published data is never changed.
+     */
+    private static class Data {
+        private static final int PAGE_BITS = 12;
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+        private int size;
+        private long[][] nodeIdByIndex;
+        private int[][] father;
+        private int[][] mother;
+        private int[][] bornYear;
+        private int[][] breed;
+        private int[][] indexByNodeId;
+        private Map<Long, Integer> breedIndexByNodeId;
+
+        private final Set<Object> ownPages = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        private boolean ownBreedIndex;
+
+        Data() {
+            nodeIdByIndex = new long[0][];
+            father = new int[0][];
+            mother = new int[0][];
+            bornYear = new int[0][];
+            breed = new int[0][];
+            indexByNodeId = new int[0][];
+            breedIndexByNodeId = new HashMap<>();
+            ownBreedIndex = true;
+        }
+
+        Data(Data data) {
+            size = data.size;
+            nodeIdByIndex = data.nodeIdByIndex.clone();
+            father = data.father.clone();
+            mother = data.mother.clone();
+            bornYear = data.bornYear.clone();
+            breed = data.breed.clone();
+            indexByNodeId = data.indexByNodeId.clone();
+            breedIndexByNodeId = data.breedIndexByNodeId;
+            ownBreedIndex = false;
+        }
+
+        void seal() {
+            ownPages.clear();
+            ownBreedIndex = false;
+        }
+
+        int indexOf(long nodeId) {
+            return get(indexByNodeId, nodeId);
+        }
+
+        int indexOrAdd(long nodeId) {
+            int index = indexOf(nodeId);
+            if (index != UNKNOWN) {
+                return index;
+            }
+            index = ++size;
+            nodeIdByIndex = set(nodeIdByIndex, index, nodeId);
+            indexByNodeId = set(indexByNodeId, nodeId, index);
+            return index;
+        }
+
+        void refresh(Node dog) {
+            int index = indexOrAdd(dog.getId());
+            refreshProperties(dog, index);
+            refreshParents(dog, index);
+        }
+
+        void refreshProperties(Node dog, int index) {
+            bornYear = set(bornYear, index, dog.hasProperty(DogGraphConstants.DOG_BORN_YEAR) ? (int) dog.getProperty(DogGraphConstants.DOG_BORN_YEAR) : UNKNOWN);
+            Relationship isBreed = dog.getSingleRelationship(DogGraphRelationshipType.IS_BREED, Direction.OUTGOING);
+            if (isBreed == null) {
+                breed = set(breed, index, UNKNOWN);
+                return;
+            }
+            long breedSynonymNodeId = isBreed.getEndNode().getId();
+            Integer breedIndex = breedIndexByNodeId.get(breedSynonymNodeId);
+            if (breedIndex == null) {
+                if (!ownBreedIndex) {
+                    breedIndexByNodeId = new HashMap<>(breedIndexByNodeId);
+                    ownBreedIndex = true;
+                }
+                breedIndex = breedIndexByNodeId.size() + 1;
+                breedIndexByNodeId.put(breedSynonymNodeId, breedIndex);
+            }
+            breed = set(breed, index, breedIndex);
+        }
+
+        void refreshParents(Node dog, int index) {
+            int fatherIndex = UNKNOWN;
+            int motherIndex = UNKNOWN;
+            for (Relationship hasParent : dog.getRelationships(DogGraphRelationshipType.HAS_PARENT, Direction.OUTGOING)) {
+                Node parent = hasParent.getEndNode();
+                int parentIndex = indexOf(parent.getId());
+                if (parentIndex == UNKNOWN) {
+                    parentIndex = indexOrAdd(parent.getId());
+                    refreshProperties(parent, parentIndex);
+                }
+                ParentRole role = ParentRole.valueOf(((String) hasParent.getProperty(DogGraphConstants.HASPARENT_ROLE)).toUpperCase());
+                if (role == ParentRole.FATHER) {
+                    fatherIndex = parentIndex;
+                } else {
+                    motherIndex = parentIndex;
+                }
+            }
+            father = set(father, index, fatherIndex);
+            mother = set(mother, index, motherIndex);
+        }
+
+        static int get(int[][] pages, long i) {
+            long page = i >>> PAGE_BITS;
+            if (page >= pages.length || pages[(int) page] == null) {
+                return UNKNOWN;
+            }
+            return pages[(int) page][(int) (i & PAGE_MASK)];
+        }
+
+        static long get(long[][] pages, long i) {
+            long page = i >>> PAGE_BITS;
+            if (page >= pages.length || pages[(int) page] == null) {
+                return UNKNOWN;
+            }
+            return pages[(int) page][(int) (i & PAGE_MASK)];
+        }
+
+        /**
+         * @return the page table, which is replaced by a larger one when i is beyond the current table.
+         */
+        private int[][] set(int[][] pages, long i, int value) {
+            int page = (int) (i >>> PAGE_BITS);
+            if (page >= pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(2 * pages.length, page + 1));
+            }
+            if (pages[page] == null) {
+                if (value == UNKNOWN) {
+                    return pages;
+                }
+                pages[page] = new int[PAGE_SIZE];
+                ownPages.add(pages[page]);
+            } else if (!ownPages.contains(pages[page])) {
+                pages[page] = pages[page].clone();
+                ownPages.add(pages[page]);
+            }
+            pages[page][(int) (i & PAGE_MASK)] = value;
+            return pages;
+        }
+
+        private long[][] set(long[][] pages, long i, long value) {
+            int page = (int) (i >>> PAGE_BITS);
+            if (page >= pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(2 * pages.length, page + 1));
+            }
+            if (pages[page] == null) {
+                pages[page] = new long[PAGE_SIZE];
+                ownPages.add(pages[page]);
+            } else if (!ownPages.contains(pages[page])) {
+                pages[page] = pages[page].clone();
+                ownPages.add(pages[page]);
+            }
+            pages[page][(int) (i & PAGE_MASK)] = value;
+            return pages;
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package no.nkk.dogpopulation.importer;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import no.nkk.dogpopulation.importer.dogsearch.TraversalStatistics;
 
-import java.util.concurrent.Future;
-
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 public interface PedigreeImporter {
 
-    Future<String> importPedigree(final String id);
+    /**
+     * @param id
+     * @return a future that completes when the pedigree has been imported, listeners can be added so that callers
+     * need not block a thread while waiting.
+     */
+    ListenableFuture<String> importPedigree(final String id);
 
     TraversalStatistics importDogPedigree(String id);
 
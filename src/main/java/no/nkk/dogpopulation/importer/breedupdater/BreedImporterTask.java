@@ -44,13 +44,19 @@ public class BreedImporterTask implements Callable<Integer> {
 
     private final Runnable postProcessingTask;
 
+    private final Runnable breedImportedTask;
+
     private final int timeWindowSeconds;
 
     private ManageableExecutor manageableExecutor;
 
     final int concurrentPedigreeImports;
 
-    public BreedImporterTask(int concurrentPedigreeImports, Runnable postProcessingTask, PedigreeImporter pedigreeImporter, ExecutorManager executorManager, DogSearchClient dogSearchClient, String breed, BreedImportStatus progress, GraphQueryService graphQueryService, int timeWindowSeconds) {
+    /**
+     * @param breedImportedTask run once after the pedigrees of all time-windows have been imported, if there was at
+     *                          least one dog to import.
+     */
+    public BreedImporterTask(int concurrentPedigreeImports, Runnable postProcessingTask, Runnable breedImportedTask, PedigreeImporter pedigreeImporter, ExecutorManager executorManager, DogSearchClient dogSearchClient, String breed, BreedImportStatus progress, GraphQueryService graphQueryService, int timeWindowSeconds) {
         this.concurrentPedigreeImports = concurrentPedigreeImports;
         this.executorManager = executorManager;
         this.pedigreeImporter = pedigreeImporter;
@@ -59,6 +65,7 @@ public class BreedImporterTask implements Callable<Integer> {
         this.progress = progress;
         this.graphQueryService = graphQueryService;
         this.postProcessingTask = postProcessingTask;
+        this.breedImportedTask = breedImportedTask;
         this.timeWindowSeconds = timeWindowSeconds;
         executorName = "breed-importer " + breed;
     }
@@ -99,6 +106,9 @@ public class BreedImporterTask implements Callable<Integer> {
                     to = from.plusSeconds(timeWindowSeconds);
                 }
                 LOGGER.debug("Completed updating breed {}, to {}", breed, to.toString());
+                if (n > 0) {
+                    breedImportedTask.run();
+                }
                 shutdownExecutor();
                 return n;
             } finally {
@@ -7,6 +7,7 @@ import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.GraphQueryService;
 import no.nkk.dogpopulation.importer.PedigreeImporter;
 import no.nkk.dogpopulation.importer.dogsearch.DogSearchClient;
+import no.nkk.dogpopulation.pedigree.PedigreeWarmer;
 import org.joda.time.LocalDateTime;
 
 import java.util.*;
@@ -29,12 +30,15 @@ public class BreedUpdateService {
 
     private final GraphQueryService graphQueryService;
 
+    private final PedigreeWarmer pedigreeWarmer;
+
     @Inject
-    public BreedUpdateService(DogSearchClient dogSearchClient, ExecutorManager executorManager, PedigreeImporter pedigreeImporter, GraphQueryService graphQueryService) {
+    public BreedUpdateService(DogSearchClient dogSearchClient, ExecutorManager executorManager, PedigreeImporter pedigreeImporter, GraphQueryService graphQueryService, PedigreeWarmer pedigreeWarmer) {
         this.dogSearchClient = dogSearchClient;
         this.executorManager = executorManager;
         this.pedigreeImporter = pedigreeImporter;
         this.graphQueryService = graphQueryService;
+        this.pedigreeWarmer = pedigreeWarmer;
     }
 
 
@@ -118,12 +122,21 @@ public class BreedUpdateService {
 
         if (shouldImport) {
             Runnable postProcessingTask = createPostProcessingTask(breed);
-            BreedImporterTask breedImporterTask = new BreedImporterTask(CONCURRENT_PEDIGREE_IMPORTS_PER_BREED, postProcessingTask, pedigreeImporter, executorManager, dogSearchClient, breed, progress, graphQueryService, timeWindowSeconds);
+            BreedImporterTask breedImporterTask = new BreedImporterTask(CONCURRENT_PEDIGREE_IMPORTS_PER_BREED, postProcessingTask, createBreedImportedTask(), pedigreeImporter, executorManager, dogSearchClient, breed, progress, graphQueryService, timeWindowSeconds);
             executorManager.getExecutor(ExecutorManager.BREED_IMPORTER_MAP_KEY).submit(breedImporterTask);
         }
         return progress;
     }
 
+    private Runnable createBreedImportedTask() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                pedigreeWarmer.warmInBackground();
+            }
+        };
+    }
+
     private Runnable createPostProcessingTask(final String breed) {
         return new Runnable() {
             @Override
@@ -1,5 +1,8 @@
 package no.nkk.dogpopulation.importer.dogsearch;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
@@ -17,7 +20,6 @@ import org.slf4j.LoggerFactory;
 import java.text.DecimalFormat;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
@@ -34,7 +36,7 @@ public class DogSearchPedigreeImporter implements PedigreeImporter {
     private final Dogs dogs;
     private final BreedSynonymNodeCache breedSynonymNodeCache;
 
-    private final ExecutorService traversingExecutor;
+    private final ListeningExecutorService traversingExecutor;
     private final ExecutorServiceHelper traversingExecutorHelper;
 
     private final BulkWriteService bulkWriteService;
@@ -45,7 +47,7 @@ public class DogSearchPedigreeImporter implements PedigreeImporter {
             GraphDatabaseService graphDb, DogSearchClient dogSearchClient, Dogs dogs,
             BreedSynonymNodeCache breedSynonymNodeCache, BulkWriteService bulkWriteService,
             GraphQueryService graphQueryService) {
-        this.traversingExecutor = traversingExecutor;
+        this.traversingExecutor = MoreExecutors.listeningDecorator(traversingExecutor);
         this.traversingExecutorHelper = new ExecutorServiceHelper(traversingExecutor);
         this.graphDb = graphDb;
         this.dogSearchClient = dogSearchClient;
@@ -57,7 +59,7 @@ public class DogSearchPedigreeImporter implements PedigreeImporter {
 
 
     @Override
-    public Future<String> importPedigree(final String id) {
+    public ListenableFuture<String> importPedigree(final String id) {
         return traversingExecutor.submit(pedigreeImportTaskFor(id));
     }
 
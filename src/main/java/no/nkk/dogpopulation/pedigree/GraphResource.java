@@ -1,15 +1,22 @@
 package no.nkk.dogpopulation.pedigree;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import no.nkk.dogpopulation.graph.DescendantVisitor;
 import no.nkk.dogpopulation.graph.GraphQueryService;
+import no.nkk.dogpopulation.graph.dashboard.Dashboard;
+import no.nkk.dogpopulation.graph.dashboard.DashboardMetrics;
 import no.nkk.dogpopulation.graph.dataerror.breed.IncorrectBreedRecord;
 import no.nkk.dogpopulation.graph.dataerror.circularparentchain.CircularRecord;
 import no.nkk.dogpopulation.graph.dataerror.gender.IncorrectGenderRecord;
+import no.nkk.dogpopulation.graph.diversity.GeneticDiversity;
 import no.nkk.dogpopulation.graph.hdxray.HDXrayStatistics;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingMethod;
 import no.nkk.dogpopulation.graph.inbreeding.InbreedingOfGroup;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingTimeSeries;
+import no.nkk.dogpopulation.graph.inbreeding.StoredInbreedingService;
+import no.nkk.dogpopulation.graph.inbreeding.StoredInbreedingStatus;
 import no.nkk.dogpopulation.graph.litter.LitterStatistics;
 import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
 import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompleteness;
@@ -37,20 +44,22 @@ public class GraphResource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphResource.class);
 
-    private final ObjectMapper objectMapper;
-    private final ObjectWriter prettyPrintingObjectWriter;
+    private static final int MAX_DESCENDANT_GENERATIONS = 30;
+
+    private final JsonResponseWriter jsonResponseWriter;
 
     private final GraphQueryService graphQueryService;
     private final BreedUpdateService breedUpdateService;
 
     private final PedigreeImporter pedigreeImporter;
+    private final StoredInbreedingService storedInbreedingService;
 
     @Inject
     public GraphResource(
-            GraphQueryService graphQueryService, BreedUpdateService breedUpdateService, PedigreeImporter pedigreeImporter) {
+            GraphQueryService graphQueryService, BreedUpdateService breedUpdateService, PedigreeImporter pedigreeImporter, StoredInbreedingService storedInbreedingService, JsonResponseWriter jsonResponseWriter) {
+        this.jsonResponseWriter = jsonResponseWriter;
         this.breedUpdateService = breedUpdateService;
-        objectMapper = new ObjectMapper();
-        prettyPrintingObjectWriter = objectMapper.writerWithDefaultPrettyPrinter();
+        this.storedInbreedingService = storedInbreedingService;
         this.graphQueryService = graphQueryService;
         this.pedigreeImporter = pedigreeImporter;
     }
@@ -58,8 +67,8 @@ public class GraphResource {
 
     @GET
     @Path("/import/dog/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response reimportDog(@PathParam("id") String id) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response reimportDog(@PathParam("id") String id, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("reimportDog for dog with id " + id);
 
         pedigreeImporter.importDogPedigree(id);
@@ -70,82 +79,102 @@ public class GraphResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(dog);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(dog, pretty)).build();
     }
 
     @GET
     @Path("/breed/import")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getImportStatus() {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getImportStatus(@QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getImportStatus()");
 
         BreedImportStatusAggregate statusAggregate = breedUpdateService.statusAggregate();
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(statusAggregate);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(statusAggregate, pretty)).build();
     }
 
     @GET
     @Path("/breed/importall")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response importAllBreeds() {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response importAllBreeds(@QueryParam("pretty") boolean pretty) {
         LOGGER.trace("importAllBreeds()");
 
         int newBreedsMarked = breedUpdateService.markAllBreedsForImport();
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(newBreedsMarked);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        return Response.ok(jsonResponseWriter.streamingOutput(newBreedsMarked, pretty)).build();
+    }
+
+    @GET
+    @Path("/inbreeding/timeseries")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getInbreedingTimeSeriesOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getInbreedingTimeSeriesOfDogGroup({})", breed);
+
+        if (generations == null) {
+            generations = 6;
+        }
+        if (breed == null) {
+            breed = new ArrayList<>();
+        }
+        if (minYear == null) {
+            minYear = 0;
         }
+        if (maxYear == null) {
+            maxYear = Integer.MAX_VALUE;
+        }
+        InbreedingTimeSeries inbreedingTimeSeries = graphQueryService.getInbreedingTimeSeries(generations, new LinkedHashSet<>(breed), minYear, maxYear);
+
+        return Response.ok(jsonResponseWriter.streamingOutput(inbreedingTimeSeries, pretty)).build();
+    }
+
+    @GET
+    @Path("/inbreeding/recompute/status")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getStoredInbreedingStatus(@QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getStoredInbreedingStatus()");
+
+        StoredInbreedingStatus status = storedInbreedingService.getStatus();
+
+        return Response.ok(jsonResponseWriter.streamingOutput(status, pretty)).build();
+    }
+
+    @POST
+    @Path("/inbreeding/recomputeall")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response recomputeAllStoredInbreeding(@QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("recomputeAllStoredInbreeding()");
+
+        StoredInbreedingStatus status = storedInbreedingService.startRecomputeAll();
+
+        return Response.ok(jsonResponseWriter.streamingOutput(status, pretty)).build();
     }
 
     @GET
     @Path("/breed/import/{breed}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response importBreedFromDogSearch(@PathParam("breed") String breed) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response importBreedFromDogSearch(@PathParam("breed") String breed, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("importBreedFromDogSearch()");
 
         BreedImportStatus progress = breedUpdateService.importBreed(breed, 24 * 60 * 60);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(progress);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(progress, pretty)).build();
     }
 
     @GET
     @Path("/breed")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getKnownBreeds() {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getKnownBreeds(@QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getKnownBreeds()");
 
         List<String> breeds = graphQueryService.listAllBreedSynonyms();
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(breeds);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(breeds, pretty)).build();
     }
 
     @GET
     @Path("/pedigreecompleteness")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getPedigreeCompletenessOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getPedigreeCompletenessOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getPedigreeCompletenessOfDogGroup({})", breed);
 
         if (generations == null) {
@@ -162,18 +191,13 @@ public class GraphResource {
         }
         PedigreeCompleteness breedOverview = graphQueryService.getPedigreeCompletenessOfGroup(generations, new LinkedHashSet<>(breed), minYear, maxYear);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(breedOverview);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(breedOverview, pretty)).build();
     }
 
     @GET
     @Path("/hdstatistics/bornyear")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getHdXrayStatisticsOfDogGroupBornBetween(@QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("breed") List<String> breed) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getHdXrayStatisticsOfDogGroupBornBetween(@QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("breed") List<String> breed, @QueryParam("verify") boolean verify, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getHdXrayStatisticsOfDogGroupBornBetween({}, {}, {})", minYear, maxYear, breed);
 
         if (breed == null) {
@@ -185,20 +209,15 @@ public class GraphResource {
         if (maxYear == null) {
             maxYear = Integer.MAX_VALUE;
         }
-        HDXrayStatistics statistics = graphQueryService.getHDXrayStatisticsOfGroupBornBetween(new LinkedHashSet<>(breed), minYear, maxYear);
+        HDXrayStatistics statistics = graphQueryService.getHDXrayStatisticsOfGroupBornBetween(new LinkedHashSet<>(breed), minYear, maxYear, verify);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(statistics);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(statistics, pretty)).build();
     }
 
     @GET
     @Path("/hdstatistics/xrayyear")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getHdXrayStatisticsOfDogGroupHdXrayedBetween(@QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("breed") List<String> breed) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getHdXrayStatisticsOfDogGroupHdXrayedBetween(@QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("breed") List<String> breed, @QueryParam("verify") boolean verify, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getHdXrayStatisticsOfDogGroupHdXrayedBetween({}, {}, {})", minYear, maxYear, breed);
 
         if (breed == null) {
@@ -210,22 +229,25 @@ public class GraphResource {
         if (maxYear == null) {
             maxYear = Integer.MAX_VALUE;
         }
-        HDXrayStatistics statistics = graphQueryService.getHDXrayStatisticsOfGroupHdXRayedBetween(new LinkedHashSet<>(breed), minYear, maxYear);
+        HDXrayStatistics statistics = graphQueryService.getHDXrayStatisticsOfGroupHdXRayedBetween(new LinkedHashSet<>(breed), minYear, maxYear, verify);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(statistics);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(statistics, pretty)).build();
     }
 
     @GET
     @Path("/inbreeding")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getInbreedingOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getInbreedingOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("method") String method, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getInbreedingOfDogGroup({})", breed);
 
+        InbreedingMethod inbreedingMethod = InbreedingMethod.PATHCOUNTING;
+        if (method != null) {
+            try {
+                inbreedingMethod = InbreedingMethod.valueOf(method.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST).build();
+            }
+        }
         if (generations == null) {
             generations = 6;
         }
@@ -238,36 +260,109 @@ public class GraphResource {
         if (maxYear == null) {
             maxYear = Integer.MAX_VALUE;
         }
-        InbreedingOfGroup inbreedingOfGroup = graphQueryService.getInbreedingOfGroup(generations, new LinkedHashSet<>(breed), minYear, maxYear);
+        InbreedingOfGroup inbreedingOfGroup = graphQueryService.getInbreedingOfGroup(inbreedingMethod, generations, new LinkedHashSet<>(breed), minYear, maxYear);
+
+        return Response.ok(jsonResponseWriter.streamingOutput(inbreedingOfGroup, pretty)).build();
+    }
+
+    @GET
+    @Path("/diversity")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getGeneticDiversityOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("top") Integer top, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getGeneticDiversityOfDogGroup({})", breed);
+
+        if (generations == null) {
+            generations = 20;
+        }
+        if (breed == null) {
+            breed = new ArrayList<>();
+        }
+        if (minYear == null) {
+            minYear = 0;
+        }
+        if (maxYear == null) {
+            maxYear = Integer.MAX_VALUE;
+        }
+        if (top == null) {
+            top = 20;
+        }
+        GeneticDiversity geneticDiversity = graphQueryService.getGeneticDiversityOfGroup(generations, new LinkedHashSet<>(breed), minYear, maxYear, top);
+
+        return Response.ok(jsonResponseWriter.streamingOutput(geneticDiversity, pretty)).build();
+    }
+
+    /**
+     * Stream the uuids of the descendants of the dog while they are traversed generation by generation, followed by
+     * the number of descendants in each generation. Each descendant is listed once, in the generation of its shortest
+     * path from the dog.
+     */
+    @GET
+    @Path("/dog/{id}/descendants")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getDescendants(@PathParam("id") final String id, @QueryParam("generations") Integer generations, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getDescendants({}, {})", id, generations);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(inbreedingOfGroup);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        if (generations == null) {
+            generations = MAX_DESCENDANT_GENERATIONS;
+        }
+        if (generations < 1 || generations > MAX_DESCENDANT_GENERATIONS) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        if (graphQueryService.getDog(id) == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
         }
+
+        final int maxGenerations = generations;
+        return Response.ok(jsonResponseWriter.streamingOutput(new JsonResponseWriter.EntityGenerator() {
+            @Override
+            public void generate(final JsonGenerator generator) throws IOException {
+                final int[] countPerGeneration = new int[maxGenerations];
+                generator.writeStartObject();
+                generator.writeStringField("id", id);
+                generator.writeNumberField("generations", maxGenerations);
+                generator.writeArrayFieldStart("descendants");
+                graphQueryService.visitDescendants(id, maxGenerations, new DescendantVisitor() {
+                    @Override
+                    public void visit(String uuid, int generation) throws IOException {
+                        countPerGeneration[generation - 1]++;
+                        generator.writeString(uuid);
+                    }
+                });
+                generator.writeEndArray();
+                int total = 0;
+                int lastGeneration = 0;
+                for (int i = 0; i < maxGenerations; i++) {
+                    total += countPerGeneration[i];
+                    if (countPerGeneration[i] > 0) {
+                        lastGeneration = i + 1;
+                    }
+                }
+                generator.writeArrayFieldStart("countPerGeneration");
+                for (int i = 0; i < lastGeneration; i++) {
+                    generator.writeNumber(countPerGeneration[i]);
+                }
+                generator.writeEndArray();
+                generator.writeNumberField("total", total);
+                generator.writeEndObject();
+            }
+        }, pretty)).build();
     }
 
     @GET
     @Path("/breed/{breed}/uuids")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getDogsForBreed(@PathParam("breed") String breed) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getDogsForBreed(@PathParam("breed") String breed, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getDogsForBreed({})", breed);
 
         List<String> uuids = graphQueryService.getBreedList(breed);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(uuids);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(uuids, pretty)).build();
     }
 
     @GET
     @Path("/litter")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getLitterOfDogGroup(@QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getLitterOfDogGroup(@QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("verify") boolean verify, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getInbreedingOfDogGroup({})", breed);
 
         if (breed == null || breed.isEmpty()) {
@@ -279,20 +374,43 @@ public class GraphResource {
         if (maxYear == null) {
             maxYear = 9999;
         }
-        LitterStatistics litterStatistics = graphQueryService.getLitterStatisticsOfGroup(new LinkedHashSet<>(breed), minYear, maxYear);
+        LitterStatistics litterStatistics = graphQueryService.getLitterStatisticsOfGroup(new LinkedHashSet<>(breed), minYear, maxYear, verify);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(litterStatistics);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        return Response.ok(jsonResponseWriter.streamingOutput(litterStatistics, pretty)).build();
+    }
+
+    @GET
+    @Path("/dashboard")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getDashboardOfDogGroup(@QueryParam("generations") Integer generations, @QueryParam("breed") List<String> breed, @QueryParam("minYear") Integer minYear, @QueryParam("maxYear") Integer maxYear, @QueryParam("metric") List<String> metric, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getDashboardOfDogGroup({})", breed);
+
+        if (generations == null) {
+            generations = 6;
+        }
+        if (breed == null) {
+            breed = new ArrayList<>();
         }
+        if (minYear == null) {
+            minYear = 0;
+        }
+        if (maxYear == null) {
+            maxYear = 9999;
+        }
+        if (metric == null || metric.isEmpty()) {
+            metric = DashboardMetrics.ALL;
+        } else if (!DashboardMetrics.ALL.containsAll(metric)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        Dashboard dashboard = graphQueryService.getDashboard(generations, new LinkedHashSet<>(breed), minYear, maxYear, new LinkedHashSet<>(metric));
+
+        return Response.ok(jsonResponseWriter.streamingOutput(dashboard, pretty)).build();
     }
 
     @GET
     @Path("/inconsistencies/gender/all")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getIncorrectOrMissingGender(@QueryParam("breed") String breedSynonym, @QueryParam("skip") Integer skip, @QueryParam("limit") Integer limit) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getIncorrectOrMissingGender(@QueryParam("breed") String breedSynonym, @QueryParam("skip") Integer skip, @QueryParam("limit") Integer limit, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getIncorrectOrMissingGender()");
         if (skip == null || skip < 0) {
             skip = 0;
@@ -303,37 +421,27 @@ public class GraphResource {
 
         List<String> result = graphQueryService.getAllDogsWithInconsistentGender(skip, limit, breedSynonym);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(result);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(result, pretty)).build();
     }
 
     @GET
     @Path("/inconsistencies/gender/{uuid}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getIncorrectOrMissingGender(@PathParam("uuid") String uuid) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getIncorrectOrMissingGender(@PathParam("uuid") String uuid, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getIncorrectOrMissingGender({})", uuid);
         IncorrectGenderRecord result = graphQueryService.getDogWithInconsistentGender(uuid);
         if (result == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(result);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(result, pretty)).build();
     }
 
 
     @GET
     @Path("/inconsistencies/breed/all")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getIncorrectBreed(@QueryParam("breed") String breedSynonym, @QueryParam("skip") Integer skip, @QueryParam("limit") Integer limit) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getIncorrectBreed(@QueryParam("breed") String breedSynonym, @QueryParam("skip") Integer skip, @QueryParam("limit") Integer limit, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getIncorrectOrMissingGender()");
         if (skip == null || skip < 0) {
             skip = 0;
@@ -344,38 +452,28 @@ public class GraphResource {
 
         List<String> result = graphQueryService.getAllDogsWithInconsistentBreed(skip, limit, breedSynonym);
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(result);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(result, pretty)).build();
     }
 
 
     @GET
     @Path("/inconsistencies/breed/{uuid}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getIncorrectBreed(@PathParam("uuid") String uuid) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getIncorrectBreed(@PathParam("uuid") String uuid, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getIncorrectOrMissingGender({})", uuid);
         IncorrectBreedRecord result = graphQueryService.getDogWithInconsistentBreed(uuid);
         if (result == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(result);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(result, pretty)).build();
     }
 
 
     @GET
     @Path("/inconsistencies/circularancestry/breed")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getCircularAncestry(@QueryParam("breed") List<String> breed) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getCircularAncestry(@QueryParam("breed") List<String> breed, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getCircularAncestry()");
         if (breed == null || breed.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST).build();
@@ -386,30 +484,20 @@ public class GraphResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(result);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(result, pretty)).build();
     }
 
 
     @GET
     @Path("/inconsistencies/circularancestry/{uuid}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getCircularAncestry(@PathParam("uuid") String uuid) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getCircularAncestry(@PathParam("uuid") String uuid, @QueryParam("pretty") boolean pretty) {
         LOGGER.trace("getCircularAncestry({})", uuid);
         List<CircularRecord> result = graphQueryService.getCircluarParentChainInAncestryOf(uuid);
         if (result == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(result);
-            return Response.ok(json).build();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Response.ok(jsonResponseWriter.streamingOutput(result, pretty)).build();
     }
 }
@@ -0,0 +1,159 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.inject.Singleton;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes JSON responses with a generator directly to the response output stream, so that large responses are never
+ * materialized as strings. Responses are compact unless pretty-printing is asked for. The object-writers are created
+ * once and shared by all requests.
+ *
+ * Clients that accept {@link #APPLICATION_SMILE} get the same content in the binary Smile format instead, which is
+ * smaller and cheaper to generate and parse. Smile is never pretty-printed. JSON remains the default.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class JsonResponseWriter {
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE_TYPE = MediaType.valueOf(APPLICATION_SMILE);
+
+    private final JsonFactory jsonFactory;
+    private final ObjectWriter objectWriter;
+    private final ObjectWriter prettyPrintingObjectWriter;
+    private final JsonFactory smileFactory;
+    private final ObjectWriter smileObjectWriter;
+
+    public JsonResponseWriter() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        jsonFactory = objectMapper.getFactory();
+        objectWriter = objectMapper.writer();
+        prettyPrintingObjectWriter = objectMapper.writerWithDefaultPrettyPrinter();
+        ObjectMapper smileObjectMapper = new ObjectMapper(new SmileFactory());
+        smileFactory = smileObjectMapper.getFactory();
+        smileObjectWriter = smileObjectMapper.writer();
+    }
+
+
+    /**
+     * @param entity the object to serialize, or an {@link EntityGenerator}.
+     * @param pretty whether to pretty-print.
+     * @return an entity that serializes the given object when the response is written, in the format negotiated with
+     * the client when written by {@link NegotiatedEntityWriter}.
+     */
+    public StreamingOutput streamingOutput(Object entity, boolean pretty) {
+        return new Entity(this, entity, pretty);
+    }
+
+    /**
+     * Serialize the object to the output stream without closing it.
+     *
+     * @param output
+     * @param entity
+     * @param pretty
+     * @throws IOException
+     */
+    public void writeValue(OutputStream output, Object entity, boolean pretty) throws IOException {
+        writeValue(output, entity, pretty, MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    /**
+     * Serialize the object to the output stream without closing it.
+     *
+     * @param output
+     * @param entity
+     * @param pretty ignored for Smile.
+     * @param mediaType the negotiated media-type, Smile if compatible with {@link #APPLICATION_SMILE_TYPE}, otherwise
+     *                  JSON.
+     * @throws IOException
+     */
+    public void writeValue(OutputStream output, Object entity, boolean pretty, MediaType mediaType) throws IOException {
+        boolean smile = isSmile(mediaType);
+        try (JsonGenerator generator = smile ? smileFactory.createGenerator(output) : jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (entity instanceof EntityGenerator) {
+                if (pretty && !smile) {
+                    generator.useDefaultPrettyPrinter();
+                }
+                ((EntityGenerator) entity).generate(generator);
+                return;
+            }
+            (smile ? smileObjectWriter : pretty ? prettyPrintingObjectWriter : objectWriter).writeValue(generator, entity);
+        }
+    }
+
+    /**
+     * @param entity
+     * @param pretty
+     * @return the serialized object, for responses that must be kept in memory, e.g. to be cached.
+     * @throws IOException
+     */
+    public byte[] writeValueAsBytes(Object entity, boolean pretty) throws IOException {
+        return writeValueAsBytes(entity, pretty, MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    /**
+     * @param entity
+     * @param pretty ignored for Smile.
+     * @param mediaType
+     * @return the serialized object in the given format.
+     * @throws IOException
+     */
+    public byte[] writeValueAsBytes(Object entity, boolean pretty, MediaType mediaType) throws IOException {
+        if (isSmile(mediaType)) {
+            return smileObjectWriter.writeValueAsBytes(entity);
+        }
+        return (pretty ? prettyPrintingObjectWriter : objectWriter).writeValueAsBytes(entity);
+    }
+
+    public static boolean isSmile(MediaType mediaType) {
+        return mediaType != null && APPLICATION_SMILE_TYPE.isCompatible(mediaType) && !mediaType.isWildcardType() && !mediaType.isWildcardSubtype();
+    }
+
+
+    /**
+     * Generates an entity token by token, for responses that are produced while they are written rather than
+     * serialized from an object, e.g. results of a traversal.
+     */
+    public interface EntityGenerator {
+        void generate(JsonGenerator generator) throws IOException;
+    }
+
+
+    /**
+     * An object to serialize, written as JSON unless written by {@link NegotiatedEntityWriter}.
+     */
+    public static class Entity implements StreamingOutput {
+        private final JsonResponseWriter writer;
+        private final Object entity;
+        private final boolean pretty;
+
+        private Entity(JsonResponseWriter writer, Object entity, boolean pretty) {
+            this.writer = writer;
+            this.entity = entity;
+            this.pretty = pretty;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            writer.writeValue(output, entity, pretty);
+        }
+
+        public void write(OutputStream output, MediaType mediaType) throws IOException {
+            writer.writeValue(output, entity, pretty, mediaType);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package no.nkk.dogpopulation.pedigree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request body of the batch fictitious-pedigree endpoint, lists the uuids of candidate fathers and mothers.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class MatingPlanRequest {
+
+    private List<String> fathers = new ArrayList<>();
+    private List<String> mothers = new ArrayList<>();
+    private int generations = 6;
+
+    public List<String> getFathers() {
+        return fathers;
+    }
+
+    public void setFathers(List<String> fathers) {
+        this.fathers = fathers;
+    }
+
+    public List<String> getMothers() {
+        return mothers;
+    }
+
+    public void setMothers(List<String> mothers) {
+        this.mothers = mothers;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public void setGenerations(int generations) {
+        this.generations = generations;
+    }
+}
@@ -0,0 +1,41 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.google.inject.Singleton;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes the entities of {@link JsonResponseWriter} in the media-type that Jersey has negotiated from the Accept
+ * header of the request and the media-types the resource method produces.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Provider
+@Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+@Singleton
+public class NegotiatedEntityWriter implements MessageBodyWriter<JsonResponseWriter.Entity> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return JsonResponseWriter.Entity.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(JsonResponseWriter.Entity entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(JsonResponseWriter.Entity entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        entity.write(entityStream, mediaType);
+    }
+}
@@ -0,0 +1,241 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps track of the most frequently requested pedigrees, so that they can be pre-computed before they are asked for.
+ *
+ * Request frequencies are estimated with a count-min sketch of fixed size, updated without locking. The ids seen are
+ * kept as candidates, and the candidates with the highest estimates, at most as many as the configured size, are only
+ * selected when the hot-set is read or saved. When there are more than twice as many candidates as the configured size
+ * the coldest are dropped by whichever recording thread gets there first, the others carry on. All counts are halved
+ * at regular intervals so that ids that are no longer requested cool down, counts added while halving may or may not
+ * be halved.
+ *
+ * The hottest ids and their estimates are saved to a file, and the sketch is seeded from the file when loaded, so the
+ * hot-set survives restarts.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class PedigreeHotSet {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PedigreeHotSet.class);
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 4096; // power of two
+    private static final int SAMPLES_PER_CAPACITY = 10;
+    private static final int CANDIDATES_PER_CAPACITY = 2;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int capacity;
+    private final File file;
+
+    private final AtomicIntegerArray sketch = new AtomicIntegerArray(DEPTH * WIDTH);
+    private final Set<String> candidates = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger samples = new AtomicInteger();
+    private final Lock trimLock = new ReentrantLock();
+
+    @Inject
+    public PedigreeHotSet(@Named("pedigreeHotSetSize") int capacity, @Named("pedigreeHotSetFile") String file) {
+        this.capacity = capacity;
+        this.file = new File(file);
+    }
+
+
+    /**
+     * Record a request for the pedigree.
+     *
+     * @param id the id used in the request.
+     */
+    public void record(String id) {
+        increment(indexes(id), 1);
+        if (candidates.add(id) && candidates.size() > CANDIDATES_PER_CAPACITY * capacity && trimLock.tryLock()) {
+            try {
+                trim();
+            } finally {
+                trimLock.unlock();
+            }
+        }
+        int threshold = SAMPLES_PER_CAPACITY * capacity;
+        if (samples.incrementAndGet() == threshold) {
+            age();
+            samples.addAndGet(-threshold);
+        }
+    }
+
+    /**
+     * @param n
+     * @return at most n ids, the most frequently requested first.
+     */
+    public List<String> hottest(int n) {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : hot().entrySet()) {
+            if (ids.size() >= n) {
+                break;
+            }
+            ids.add(e.getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Seed the hot-set from the file, if it exists.
+     */
+    public void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        Map<String, Integer> saved;
+        try {
+            saved = objectMapper.readValue(file, new TypeReference<LinkedHashMap<String, Integer>>() {});
+        } catch (IOException e) {
+            LOGGER.warn("Unable to load pedigree hot-set from " + file, e);
+            return;
+        }
+        for (Map.Entry<String, Integer> e : saved.entrySet()) {
+            increment(indexes(e.getKey()), e.getValue());
+            candidates.add(e.getKey());
+        }
+        LOGGER.info("Loaded pedigree hot-set of {} dogs from {}", saved.size(), file);
+    }
+
+    /**
+     * Save the hot-set to the file, replacing the previous file only when completely written.
+     */
+    public void save() {
+        Map<String, Integer> snapshot = hot();
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            File folder = file.getAbsoluteFile().getParentFile();
+            if (folder != null && !folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("Unable to create folder " + folder);
+            }
+            objectMapper.writeValue(tmpFile, snapshot);
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Unable to delete " + file);
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Unable to rename " + tmpFile + " to " + file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save pedigree hot-set to " + file, e);
+        }
+    }
+
+
+    /**
+     * @return at most capacity ids with their estimates, the most frequently requested first.
+     */
+    private Map<String, Integer> hot() {
+        List<Map.Entry<String, Integer>> entries;
+        trimLock.lock();
+        try {
+            entries = trim();
+        } finally {
+            trimLock.unlock();
+        }
+        Map<String, Integer> hot = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : entries) {
+            hot.put(e.getKey(), e.getValue());
+        }
+        return hot;
+    }
+
+    /**
+     * Drop all but the hottest candidates, must be called with the trim lock held.
+     *
+     * @return the remaining candidates with their estimates, the most frequently requested first.
+     */
+    private List<Map.Entry<String, Integer>> trim() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for (String id : candidates) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(id, estimate(indexes(id))));
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+                return Integer.compare(o2.getValue(), o1.getValue());
+            }
+        });
+        if (entries.size() > capacity) {
+            for (Map.Entry<String, Integer> e : entries.subList(capacity, entries.size())) {
+                candidates.remove(e.getKey());
+            }
+            entries = entries.subList(0, capacity);
+        }
+        return entries;
+    }
+
+    private static int[] indexes(String id) {
+        HashCode hashCode = HASH_FUNCTION.hashString(id, Charsets.UTF_8);
+        long hash = hashCode.asLong();
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int[] indexes = new int[DEPTH];
+        for (int i = 0; i < DEPTH; i++) {
+            indexes[i] = i * WIDTH + ((h1 + i * h2) & (WIDTH - 1));
+        }
+        return indexes;
+    }
+
+    private void increment(int[] indexes, int count) {
+        for (int index : indexes) {
+            int value;
+            do {
+                value = sketch.get(index);
+            } while (!sketch.compareAndSet(index, value, (int) Math.min((long) value + count, Integer.MAX_VALUE)));
+        }
+    }
+
+    /**
+     * @return the smallest counter of the id.
+     */
+    private int estimate(int[] indexes) {
+        int estimate = Integer.MAX_VALUE;
+        for (int index : indexes) {
+            estimate = Math.min(estimate, sketch.get(index));
+        }
+        return estimate;
+    }
+
+    private void age() {
+        for (int i = 0; i < sketch.length(); i++) {
+            int value;
+            do {
+                value = sketch.get(i);
+            } while (!sketch.compareAndSet(i, value, value >>> 1));
+        }
+    }
+}
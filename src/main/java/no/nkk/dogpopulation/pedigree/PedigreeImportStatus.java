@@ -0,0 +1,29 @@
+package no.nkk.dogpopulation.pedigree;
+
+/**
+ * State of the pedigree import of a dog, for clients that poll rather than wait for the pedigree.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeImportStatus {
+
+    public enum State {
+        IMPORTING, COMPLETED, NOT_FOUND
+    }
+
+    private final String id;
+    private final State state;
+
+    public PedigreeImportStatus(String id, State state) {
+        this.id = id;
+        this.state = state;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+}
@@ -1,17 +1,40 @@
 package no.nkk.dogpopulation.pedigree;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+import no.nkk.dogpopulation.graph.inbreeding.MatingPlan;
+import no.nkk.dogpopulation.graph.inbreeding.MatingPlanVisitor;
+import no.nkk.dogpopulation.graph.pedigree.OffspringPage;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeBatch;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeDag;
 import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
 import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
@@ -22,62 +45,375 @@ public class PedigreeResource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PedigreeResource.class);
 
+    private static final List<Variant> VARIANTS = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, JsonResponseWriter.APPLICATION_SMILE_TYPE).build();
+
+    private static final int RETRY_AFTER_SECONDS = 5;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_OFFSPRING_LIMIT = 100;
+    private static final int MAX_MATINGS = 10000;
+    private static final int MAX_GENERATIONS = 10;
+    private static final int MAX_DAG_GENERATIONS = 30;
+
     private final ObjectMapper objectMapper;
-    private final ObjectWriter prettyPrintingObjectWriter;
+    private final JsonResponseWriter jsonResponseWriter;
 
     private final PedigreeService pedigreeService;
+    private final PedigreeResponseCache pedigreeResponseCache;
+    private final PedigreeHotSet pedigreeHotSet;
+
+    private final int asyncTimeoutSeconds;
 
     @Inject
-    public PedigreeResource(PedigreeService pedigreeService) {
+    public PedigreeResource(PedigreeService pedigreeService, PedigreeResponseCache pedigreeResponseCache, PedigreeHotSet pedigreeHotSet, JsonResponseWriter jsonResponseWriter,
+                            @Named("pedigreeAsyncTimeoutSeconds") int asyncTimeoutSeconds) {
         objectMapper = new ObjectMapper();
-        prettyPrintingObjectWriter = objectMapper.writerWithDefaultPrettyPrinter();
+        this.asyncTimeoutSeconds = asyncTimeoutSeconds;
+        this.jsonResponseWriter = jsonResponseWriter;
         this.pedigreeService = pedigreeService;
+        this.pedigreeResponseCache = pedigreeResponseCache;
+        this.pedigreeHotSet = pedigreeHotSet;
     }
 
+    /**
+     * Responses are cached and tagged with a strong entity-tag, a request with a matching If-None-Match header gets
+     * 304 Not Modified without a body.
+     *
+     * No request thread is held while the pedigree is imported. The response is resumed when the import completes,
+     * or with 202 Accepted and the location of the import status if the import takes too long. Clients that do not
+     * want to wait at all can send the header "Prefer: respond-async".
+     *
+     * Every request is recorded in the pedigree hot-set, the most requested pedigrees are pre-computed in the
+     * background at startup and after imports.
+     */
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getPedigree(@PathParam("id") String id) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public void getPedigree(@PathParam("id") final String id, @QueryParam("pretty") boolean pretty, @HeaderParam("Prefer") String prefer,
+                            @Context final Request request, @Context UriInfo uriInfo, @Suspended final AsyncResponse asyncResponse) {
         LOGGER.trace("getPedigree for dog with id " + id);
 
-        TopLevelDog dog = pedigreeService.getPedigree(id);
+        pedigreeHotSet.record(id);
+
+        Variant variant = request.selectVariant(VARIANTS);
+        final MediaType mediaType = variant == null ? MediaType.APPLICATION_JSON_TYPE : variant.getMediaType();
+        final boolean prettyJson = pretty && !JsonResponseWriter.isSmile(mediaType);
+
+        PedigreeResponseCache.CachedPedigree cachedPedigree = pedigreeResponseCache.get(id, prettyJson, mediaType);
+
+        if (cachedPedigree != null) {
+            asyncResponse.resume(cachedPedigreeResponse(cachedPedigree, mediaType, request));
+            return;
+        }
+
+        final long version = pedigreeResponseCache.version();
+
+        URI importStatus = importStatusLocation(uriInfo, id);
+
+        if (isRespondAsyncPreferred(prefer) && !pedigreeService.importPedigreeIfMissing(id).isDone()) {
+            asyncResponse.resume(Response.accepted().location(importStatus).build());
+            return;
+        }
+
+        resumeWhenDone(asyncResponse, importStatus, pedigreeService.getPedigreeAsync(id), new Function<TopLevelDog, Response>() {
+            @Override
+            public Response apply(TopLevelDog dog) {
+                if (dog == null) {
+                    return Response.status(Response.Status.NOT_FOUND).build();
+                }
+
+                PedigreeResponseCache.CachedPedigree cachedPedigree;
+                try {
+                    byte[] body = jsonResponseWriter.writeValueAsBytes(dog, prettyJson, mediaType);
+                    cachedPedigree = pedigreeResponseCache.put(id, prettyJson, mediaType, dog.getUuid(), body, version);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+
+                return cachedPedigreeResponse(cachedPedigree, mediaType, request);
+            }
+        });
+    }
+
+    private static Response cachedPedigreeResponse(PedigreeResponseCache.CachedPedigree cachedPedigree, MediaType mediaType, Request request) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(cachedPedigree.getEntityTag());
+        if (notModified != null) {
+            return notModified.header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+        }
+        return Response.ok(cachedPedigree.getBody(), mediaType).tag(cachedPedigree.getEntityTag()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * The state of the pedigree import of the dog. Redirects to the pedigree with 303 See Other once the dog is in the
+     * graph.
+     */
+    @GET
+    @Path("/{id}/status")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getImportStatus(@PathParam("id") String id, @QueryParam("pretty") boolean pretty, @Context UriInfo uriInfo) {
+        LOGGER.trace("getImportStatus({})", id);
 
-        if (dog == null) {
+        PedigreeImportStatus status = pedigreeService.getImportStatus(id);
+
+        switch (status.getState()) {
+            case COMPLETED:
+                return Response.seeOther(uriInfo.getBaseUriBuilder().path("dogpopulation/pedigree/{id}").build(id)).build();
+            case NOT_FOUND:
+                return Response.status(Response.Status.NOT_FOUND).entity(jsonResponseWriter.streamingOutput(status, pretty)).build();
+            default:
+                return Response.ok(jsonResponseWriter.streamingOutput(status, pretty)).header("Retry-After", RETRY_AFTER_SECONDS).build();
+        }
+    }
+
+    /**
+     * Get the litters of the dog with their puppies, page by page with the most recent litter first. The pedigree only
+     * has the number of litters and puppies.
+     */
+    @GET
+    @Path("/{id}/offspring")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getOffspring(@PathParam("id") String id, @QueryParam("offset") @DefaultValue("0") int offset, @QueryParam("limit") @DefaultValue("20") int limit, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getOffspring({}, {}, {})", id, offset, limit);
+
+        if (offset < 0 || limit < 1 || limit > MAX_OFFSPRING_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        OffspringPage offspringPage = pedigreeService.getOffspring(id, offset, limit);
+
+        if (offspringPage == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
+        return Response.ok(jsonResponseWriter.streamingOutput(offspringPage, pretty)).build();
+    }
+
+    /**
+     * Get the pedigree with every ancestor only once in a map keyed by uuid, and parents referenced by uuid. No request
+     * thread is held while the pedigree is imported, see {@link #getPedigree}.
+     */
+    @GET
+    @Path("/{id}/dag")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public void getPedigreeDag(@PathParam("id") String id, @QueryParam("generations") @DefaultValue("9") int generations, @QueryParam("pretty") final boolean pretty,
+                               @Context UriInfo uriInfo, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.trace("getPedigreeDag({}, {})", id, generations);
+
+        if (generations < 1 || generations > MAX_DAG_GENERATIONS) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).build());
+            return;
+        }
+
+        resumeWhenDone(asyncResponse, importStatusLocation(uriInfo, id), pedigreeService.getPedigreeDagAsync(id, generations), new Function<PedigreeDag, Response>() {
+            @Override
+            public Response apply(PedigreeDag pedigree) {
+                if (pedigree == null) {
+                    return Response.status(Response.Status.NOT_FOUND).build();
+                }
+
+                return Response.ok(jsonResponseWriter.streamingOutput(pedigree, pretty)).build();
+            }
+        });
+    }
+
+    /**
+     * Get the pedigrees of all dogs in the request body, e.g. ["uuid-1", "regno-2"], resolved together so that shared
+     * ancestors are only read once. Dogs not found are listed as unknown rather than failing the request.
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getPedigreeBatch(String body, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getPedigreeBatch({})", body);
+
+        List<String> ids;
         try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(dog);
-            return Response.ok(json).build();
+            ids = objectMapper.readValue(body, objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            return Response.status(Response.Status.BAD_REQUEST).build();
         }
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE || ids.contains(null)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        PedigreeBatch pedigreeBatch = pedigreeService.getPedigrees(ids);
+
+        return Response.ok(jsonResponseWriter.streamingOutput(pedigreeBatch, pretty)).build();
     }
 
+    /**
+     * No request thread is held while the parents are imported, see {@link #getPedigree}. If the imports take too long,
+     * or the header "Prefer: respond-async" is sent, the response is 202 Accepted with the location of the import
+     * status of both parents.
+     */
     @GET
     @Path("/fictitious")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getFictitiousPedigree(@QueryParam("father") String fatherUuid, @QueryParam("mother") String motherUuid) {
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public void getFictitiousPedigree(@QueryParam("father") String fatherUuid, @QueryParam("mother") String motherUuid, @QueryParam("pretty") final boolean pretty,
+                                      @HeaderParam("Prefer") String prefer, @Context UriInfo uriInfo, @Suspended AsyncResponse asyncResponse) {
         LOGGER.trace("getFictitiousPedigree({}, {})", fatherUuid, motherUuid);
 
         if (fatherUuid == null) {
-            return Response.status(Response.Status.BAD_REQUEST).build();
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).build());
+            return;
         }
         if (motherUuid == null) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).build());
+            return;
+        }
+
+        URI importStatus = uriInfo.getBaseUriBuilder().path("dogpopulation/pedigree/fictitious/status").queryParam("father", fatherUuid).queryParam("mother", motherUuid).build();
+
+        if (isRespondAsyncPreferred(prefer)) {
+            // start both imports before checking either
+            ListenableFuture<?> fatherImport = pedigreeService.importPedigreeIfMissing(fatherUuid);
+            ListenableFuture<?> motherImport = pedigreeService.importPedigreeIfMissing(motherUuid);
+            if (!fatherImport.isDone() || !motherImport.isDone()) {
+                asyncResponse.resume(Response.accepted().location(importStatus).build());
+                return;
+            }
+        }
+
+        ListenableFuture<TopLevelDog> pedigree = pedigreeService.getFicticiousPedigreeAsync("xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx", "Fictitious", fatherUuid, motherUuid);
+
+        resumeWhenDone(asyncResponse, importStatus, pedigree, new Function<TopLevelDog, Response>() {
+            @Override
+            public Response apply(TopLevelDog dog) {
+                if (dog == null) {
+                    return Response.status(Response.Status.NOT_FOUND).build();
+                }
+
+                return Response.ok(jsonResponseWriter.streamingOutput(dog, pretty)).build();
+            }
+        });
+    }
+
+    /**
+     * The state of the pedigree imports of both parents of a fictitious pedigree. Redirects to the fictitious pedigree
+     * with 303 See Other once both parents are in the graph.
+     */
+    @GET
+    @Path("/fictitious/status")
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getFictitiousImportStatus(@QueryParam("father") String fatherUuid, @QueryParam("mother") String motherUuid, @QueryParam("pretty") boolean pretty, @Context UriInfo uriInfo) {
+        LOGGER.trace("getFictitiousImportStatus({}, {})", fatherUuid, motherUuid);
+
+        if (fatherUuid == null || motherUuid == null) {
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
 
-        TopLevelDog dog = pedigreeService.getFicticiousPedigree("xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx", "Fictitious", fatherUuid, motherUuid);
+        PedigreeImportStatus fatherStatus = pedigreeService.getImportStatus(fatherUuid);
+        PedigreeImportStatus motherStatus = pedigreeService.getImportStatus(motherUuid);
+        List<PedigreeImportStatus> statuses = Arrays.asList(fatherStatus, motherStatus);
 
-        if (dog == null) {
-            return Response.status(Response.Status.NOT_FOUND).build();
+        if (fatherStatus.getState() == PedigreeImportStatus.State.COMPLETED && motherStatus.getState() == PedigreeImportStatus.State.COMPLETED) {
+            return Response.seeOther(uriInfo.getBaseUriBuilder().path("dogpopulation/pedigree/fictitious").queryParam("father", fatherUuid).queryParam("mother", motherUuid).build()).build();
+        }
+        if (fatherStatus.getState() == PedigreeImportStatus.State.NOT_FOUND || motherStatus.getState() == PedigreeImportStatus.State.NOT_FOUND) {
+            return Response.status(Response.Status.NOT_FOUND).entity(jsonResponseWriter.streamingOutput(statuses, pretty)).build();
         }
+        return Response.ok(jsonResponseWriter.streamingOutput(statuses, pretty)).header("Retry-After", RETRY_AFTER_SECONDS).build();
+    }
+
+    /**
+     * Resume the response when the pedigree is ready, or with 202 Accepted and the location of the import status if
+     * that takes longer than the time limit.
+     */
+    private <T> void resumeWhenDone(final AsyncResponse asyncResponse, final URI importStatus, ListenableFuture<T> pedigree, final Function<T, Response> responseFunction) {
+        asyncResponse.setTimeoutHandler(new TimeoutHandler() {
+            @Override
+            public void handleTimeout(AsyncResponse asyncResponse) {
+                asyncResponse.resume(Response.accepted().location(importStatus).build());
+            }
+        });
+        asyncResponse.setTimeout(asyncTimeoutSeconds, TimeUnit.SECONDS);
+        Futures.addCallback(pedigree, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                try {
+                    asyncResponse.resume(responseFunction.apply(result));
+                } catch (RuntimeException e) {
+                    asyncResponse.resume(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                asyncResponse.resume(t);
+            }
+        });
+    }
+
+    private static URI importStatusLocation(UriInfo uriInfo, String id) {
+        return uriInfo.getBaseUriBuilder().path("dogpopulation/pedigree/{id}/status").build(id);
+    }
+
+    private static boolean isRespondAsyncPreferred(String prefer) {
+        return prefer != null && prefer.toLowerCase().contains("respond-async");
+    }
 
+    /**
+     * Compute the expected coefficient of inbreeding of the offspring of every combination of the fathers and mothers
+     * in the request body, e.g. {"fathers": ["uuid-1", "uuid-2"], "mothers": ["uuid-3"], "generations": 6}. The
+     * response has a matrix of coefficients with one row per father and one column per mother, and all matings ranked
+     * from lowest to highest coefficient. Each row is written as soon as it is computed.
+     */
+    @POST
+    @Path("/fictitious/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JsonResponseWriter.APPLICATION_SMILE})
+    public Response getFictitiousPedigreeBatch(String body, @QueryParam("pretty") boolean pretty) {
+        LOGGER.trace("getFictitiousPedigreeBatch({})", body);
+
+        MatingPlanRequest request;
         try {
-            String json = prettyPrintingObjectWriter.writeValueAsString(dog);
-            return Response.ok(json).build();
+            request = objectMapper.readValue(body, MatingPlanRequest.class);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            return Response.status(Response.Status.BAD_REQUEST).build();
         }
+        if (request.getFathers() == null || request.getFathers().isEmpty() || request.getMothers() == null || request.getMothers().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        if (request.getGenerations() < 2 || request.getGenerations() > MAX_GENERATIONS) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        if ((long) request.getFathers().size() * request.getMothers().size() > MAX_MATINGS) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        final MatingPlanRequest matingPlanRequest = request;
+        return Response.ok(jsonResponseWriter.streamingOutput(new JsonResponseWriter.EntityGenerator() {
+            @Override
+            public void generate(final JsonGenerator generator) throws IOException {
+                pedigreeService.visitMatingPlan(matingPlanRequest.getFathers(), matingPlanRequest.getMothers(), matingPlanRequest.getGenerations(), new MatingPlanVisitor() {
+                    @Override
+                    public void start(int generations, List<UuidAndRegNo> fathers, List<UuidAndRegNo> mothers, List<String> unknownDogs) throws IOException {
+                        generator.writeStartObject();
+                        generator.writeNumberField("generations", generations);
+                        generator.writeObjectField("fathers", fathers);
+                        generator.writeObjectField("mothers", mothers);
+                        generator.writeObjectField("unknownDogs", unknownDogs);
+                        generator.writeArrayFieldStart("inbreedingCoefficients");
+                    }
+
+                    @Override
+                    public void father(int father, double[] inbreedingCoefficients) throws IOException {
+                        generator.writeStartArray();
+                        for (double coefficient : inbreedingCoefficients) {
+                            generator.writeNumber(coefficient);
+                        }
+                        generator.writeEndArray();
+                        generator.flush(); // let the client have the row before the next father is computed
+                    }
+
+                    @Override
+                    public void end(List<MatingPlan.Mating> ranking) throws IOException {
+                        generator.writeEndArray();
+                        generator.writeObjectField("ranking", ranking);
+                        generator.writeEndObject();
+                    }
+                });
+            }
+        }, pretty)).build();
     }
 }
@@ -0,0 +1,258 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import no.nkk.dogpopulation.graph.Builder;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteListener;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.dogbuilder.DogChanges;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingCache;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.Evaluators;
+import org.neo4j.graphdb.traversal.Uniqueness;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of serialized pedigree responses keyed by the id used in the request, the media-type and whether the
+ * response is pretty-printed, each with a strong entity-tag computed from the serialized bytes.
+ *
+ * When the bulk-write-service commits changes, every cached pedigree that could include a changed dog is invalidated.
+ * A pedigree shows ancestors up to 9 generations back, and the coefficients of inbreeding depend on the parents of
+ * ancestors up to 10 generations back (common ancestors within 6 generations are themselves computed with a window of
+ * 6 generations), so the pedigrees of the changed dogs and of their descendants within 10 generations are
+ * invalidated. The top-level dog also lists its litters and puppies, so the parents of changed litters and of changed
+ * puppies are invalidated as well. Changes written to the graph without going through the bulk-write-service are not
+ * detected.
+ *
+ * A pedigree computed before a change is not cached after the change invalidated it. The version at which each dog was
+ * last invalidated is kept for a bounded number of dogs, and a pedigree is only refused when its own dog was
+ * invalidated after the computation started, or when that can no longer be ruled out because the record was dropped.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class PedigreeResponseCache implements BulkWriteListener {
+
+    private static final int DESCENDANT_DEPTH = 10;
+    private static final int MAX_INVALIDATIONS = 10000;
+
+    private final GraphDatabaseService graphDb;
+    private final Cache<Key, CachedPedigree> cache;
+
+    // incremented on every invalidation, so that responses computed before a change are never cached after it
+    private final AtomicLong version = new AtomicLong();
+
+    // version of the last invalidation of each dog by uuid, oldest first, guarded by version
+    private final LinkedHashMap<String, Long> invalidatedAt = new LinkedHashMap<>();
+    // the latest version of an invalidation that is no longer in invalidatedAt, guarded by version
+    private long droppedInvalidation;
+
+    /**
+     * The inbreeding-cache is injected to make sure that it is registered as a bulk-write-listener, and thereby
+     * invalidated, before this cache.
+     */
+    @Inject
+    public PedigreeResponseCache(GraphDatabaseService graphDb, BulkWriteService bulkWriteService, InbreedingCache inbreedingCache, @Named("pedigreeResponseCacheSize") int maximumSize) {
+        this.graphDb = graphDb;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        bulkWriteService.addListener(this);
+    }
+
+
+    /**
+     * @param id
+     * @param pretty
+     * @param mediaType
+     * @return the cached pedigree, or null if not cached.
+     */
+    public CachedPedigree get(String id, boolean pretty, MediaType mediaType) {
+        return cache.getIfPresent(new Key(id, pretty, mediaType));
+    }
+
+    /**
+     * @return the version to pass to {@link #put(String, boolean, MediaType, String, byte[], long)}, must be read before the pedigree is
+     * computed.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Cache the serialized pedigree unless the dog has been invalidated since the given version was read.
+     *
+     * @param id the id used in the request.
+     * @param pretty whether the body is pretty-printed.
+     * @param mediaType the media-type of the body.
+     * @param uuid the uuid of the top-level dog of the pedigree.
+     * @param body the serialized pedigree.
+     * @param version
+     * @return the pedigree with its entity-tag, whether cached or not.
+     */
+    public CachedPedigree put(String id, boolean pretty, MediaType mediaType, String uuid, byte[] body, long version) {
+        CachedPedigree cachedPedigree = new CachedPedigree(uuid, body);
+        synchronized (this.version) {
+            Long invalidated = invalidatedAt.get(uuid);
+            if (version >= droppedInvalidation && (invalidated == null || version >= invalidated)) {
+                cache.put(new Key(id, pretty, mediaType), cachedPedigree);
+            }
+        }
+        return cachedPedigree;
+    }
+
+
+    @Override
+    public void bulkCommitted(List<Builder<?>> builders) {
+        DogChanges changes = DogChanges.of(builders);
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<String> affectedUuids = new HashSet<>();
+        try (Transaction tx = graphDb.beginTx()) {
+            Set<Node> changedDogs = new HashSet<>();
+            changedDogs.addAll(changes.getDogs());
+            changedDogs.addAll(changes.getChildrenWithChangedParents());
+            addUuidsOfDescendants(changedDogs, affectedUuids);
+            for (Node litter : changes.getLitters()) {
+                addUuidsOfLitterParents(litter, affectedUuids);
+            }
+            for (Node parent : changes.getParentsWithChangedLitters()) {
+                affectedUuids.add((String) parent.getProperty(DogGraphConstants.DOG_UUID));
+            }
+            Set<Node> puppies = new HashSet<>();
+            puppies.addAll(changes.getPuppiesWithChangedLitter());
+            puppies.addAll(changes.getDogs());
+            for (Node puppy : puppies) {
+                for (Relationship inLitter : puppy.getRelationships(DogGraphRelationshipType.IN_LITTER, Direction.OUTGOING)) {
+                    addUuidsOfLitterParents(inLitter.getEndNode(), affectedUuids);
+                }
+            }
+            tx.success();
+        }
+        if (affectedUuids.isEmpty()) {
+            return;
+        }
+        synchronized (version) {
+            long invalidation = version.incrementAndGet();
+            for (String uuid : affectedUuids) {
+                invalidatedAt.remove(uuid); // keep oldest first
+                invalidatedAt.put(uuid, invalidation);
+            }
+            Iterator<Map.Entry<String, Long>> it = invalidatedAt.entrySet().iterator();
+            while (invalidatedAt.size() > MAX_INVALIDATIONS) {
+                droppedInvalidation = it.next().getValue();
+                it.remove();
+            }
+        }
+        Iterator<Map.Entry<Key, CachedPedigree>> it = cache.asMap().entrySet().iterator();
+        while (it.hasNext()) {
+            if (affectedUuids.contains(it.next().getValue().getUuid())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Add the uuids of the dogs and of their descendants within {@link #DESCENDANT_DEPTH} generations.
+     */
+    private void addUuidsOfDescendants(Set<Node> dogs, Set<String> uuids) {
+        if (dogs.isEmpty()) {
+            return;
+        }
+        for (Path path : graphDb.traversalDescription()
+                .breadthFirst()
+                .uniqueness(Uniqueness.NODE_GLOBAL)
+                .relationships(DogGraphRelationshipType.HAS_PARENT, Direction.INCOMING)
+                .evaluator(Evaluators.toDepth(DESCENDANT_DEPTH))
+                .traverse(dogs.toArray(new Node[dogs.size()]))) {
+            uuids.add((String) path.endNode().getProperty(DogGraphConstants.DOG_UUID));
+        }
+    }
+
+    private static void addUuidsOfLitterParents(Node litter, Set<String> uuids) {
+        for (Relationship hasLitter : litter.getRelationships(DogGraphRelationshipType.HAS_LITTER, Direction.INCOMING)) {
+            uuids.add((String) hasLitter.getStartNode().getProperty(DogGraphConstants.DOG_UUID));
+        }
+    }
+
+
+    public static class CachedPedigree {
+        private final String uuid;
+        private final byte[] body;
+        private final EntityTag entityTag;
+
+        private CachedPedigree(String uuid, byte[] body) {
+            this.uuid = uuid;
+            this.body = body;
+            this.entityTag = new EntityTag(Hashing.sha1().hashBytes(body).toString());
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public EntityTag getEntityTag() {
+            return entityTag;
+        }
+    }
+
+
+    private static class Key {
+        private final String id;
+        private final boolean pretty;
+        private final MediaType mediaType;
+
+        private Key(String id, boolean pretty, MediaType mediaType) {
+            this.id = id;
+            this.pretty = pretty;
+            this.mediaType = mediaType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (pretty != key.pretty) return false;
+            if (!id.equals(key.id)) return false;
+            return mediaType.equals(key.mediaType);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = id.hashCode();
+            result = 31 * result + (pretty ? 1 : 0);
+            result = 31 * result + mediaType.hashCode();
+            return result;
+        }
+    }
+}
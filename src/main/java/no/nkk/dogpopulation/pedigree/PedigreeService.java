@@ -1,14 +1,32 @@
 package no.nkk.dogpopulation.pedigree;
 
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import no.nkk.dogpopulation.concurrent.ExecutorManager;
 import no.nkk.dogpopulation.graph.GraphQueryService;
+import no.nkk.dogpopulation.graph.inbreeding.MatingPlanVisitor;
+import no.nkk.dogpopulation.graph.pedigree.OffspringPage;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeBatch;
+import no.nkk.dogpopulation.graph.pedigree.PedigreeDag;
 import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
 import no.nkk.dogpopulation.importer.PedigreeImporter;
 import org.neo4j.graphdb.GraphDatabaseService;
-import org.neo4j.graphdb.Node;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -23,52 +41,162 @@ public class PedigreeService {
 
     private final PedigreeImporter pedigreeImporter;
 
+    private final ExecutorService pedigreeExecutor;
+
+    private final ConcurrentMap<String, ListenableFuture<String>> importsInProgress = new ConcurrentHashMap<>();
+
     @Inject
-    public PedigreeService(GraphDatabaseService graphDb, GraphQueryService graphQueryService, PedigreeImporter pedigreeImporter) {
+    public PedigreeService(GraphDatabaseService graphDb, GraphQueryService graphQueryService, PedigreeImporter pedigreeImporter, @Named(ExecutorManager.PEDIGREE_MAP_KEY) ExecutorService pedigreeExecutor) {
         this.graphQueryService = graphQueryService;
         this.pedigreeImporter = pedigreeImporter;
+        this.pedigreeExecutor = pedigreeExecutor;
     }
 
-    public TopLevelDog getPedigree(String id) {
-        if (loadPedigree(id)) {
-            return null;
-        }
+    /**
+     * Get the pedigree without blocking the calling thread while the pedigree is imported. The pedigree is computed on
+     * the pedigree executor once the import completes, never on the thread that completes the import.
+     *
+     * @param id
+     * @return a future with the pedigree, or with null if the dog is not found.
+     */
+    public ListenableFuture<TopLevelDog> getPedigreeAsync(final String id) {
+        return Futures.transform(importPedigreeIfMissing(id), new Function<Object, TopLevelDog>() {
+            @Override
+            public TopLevelDog apply(Object input) {
+                return graphQueryService.getPedigree(id);
+            }
+        }, pedigreeExecutor);
+    }
 
-        TopLevelDog dog = graphQueryService.getPedigree(id);
+    public OffspringPage getOffspring(String id, int offset, int limit) {
+        return graphQueryService.getOffspring(id, offset, limit);
+    }
 
-        return dog;
+    /**
+     * @param id
+     * @param generations
+     * @return a future with the pedigree, or with null if the dog is not found.
+     * @see #getPedigreeAsync(String)
+     */
+    public ListenableFuture<PedigreeDag> getPedigreeDagAsync(final String id, final int generations) {
+        return Futures.transform(importPedigreeIfMissing(id), new Function<Object, PedigreeDag>() {
+            @Override
+            public PedigreeDag apply(Object input) {
+                return graphQueryService.getPedigreeDag(id, generations);
+            }
+        }, pedigreeExecutor);
     }
 
-    private boolean loadPedigree(String id) {
-        Node dogWithMoreThanOneParent = graphQueryService.getDogIfItHasAtLeastOneParent(id);
+    /**
+     * @param uuid
+     * @param name
+     * @param fatherUuid
+     * @param motherUuid
+     * @return a future with the pedigree of the fictitious offspring, or with null if a parent is not found.
+     * @see #getPedigreeAsync(String)
+     */
+    public ListenableFuture<TopLevelDog> getFicticiousPedigreeAsync(final String uuid, final String name, final String fatherUuid, final String motherUuid) {
+        ListenableFuture<List<Object>> parentImports = Futures.allAsList(ImmutableList.<ListenableFuture<?>>of(importPedigreeIfMissing(fatherUuid), importPedigreeIfMissing(motherUuid)));
+        return Futures.transform(parentImports, new Function<Object, TopLevelDog>() {
+            @Override
+            public TopLevelDog apply(Object input) {
+                return graphQueryService.getPedigree(uuid, name, fatherUuid, motherUuid);
+            }
+        }, pedigreeExecutor);
+    }
 
-        if (dogWithMoreThanOneParent == null) {
-            Future<?> future = pedigreeImporter.importPedigree(id);
+    /**
+     * Start importing the pedigree of the dog unless it already has at least one parent in the graph. Concurrent
+     * requests for the same dog share a single import.
+     *
+     * @param id
+     * @return a future that completes when the pedigree is imported, already completed if there is nothing to import.
+     */
+    public ListenableFuture<?> importPedigreeIfMissing(final String id) {
+        if (graphQueryService.getDogIfItHasAtLeastOneParent(id) != null) {
+            return Futures.immediateFuture(null);
+        }
+        synchronized (importsInProgress) {
+            ListenableFuture<String> future = importsInProgress.get(id);
+            if (future == null) {
+                final ListenableFuture<String> importFuture = pedigreeImporter.importPedigree(id);
+                importsInProgress.put(id, importFuture);
+                importFuture.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        importsInProgress.remove(id, importFuture);
+                    }
+                }, MoreExecutors.directExecutor());
+                future = importFuture;
+            }
+            return future;
+        }
+    }
 
-            try {
-                future.get(60, TimeUnit.SECONDS);
+    /**
+     * @param id
+     * @return the state of the pedigree import of the dog.
+     */
+    public PedigreeImportStatus getImportStatus(String id) {
+        if (importsInProgress.containsKey(id)) {
+            return new PedigreeImportStatus(id, PedigreeImportStatus.State.IMPORTING);
+        }
+        if (graphQueryService.getDog(id) != null) {
+            return new PedigreeImportStatus(id, PedigreeImportStatus.State.COMPLETED);
+        }
+        return new PedigreeImportStatus(id, PedigreeImportStatus.State.NOT_FOUND);
+    }
+
+    /**
+     * Import the pedigree of every dog that is missing its parents, all imports running concurrently, and then compute
+     * the mating plan. Dogs whose pedigree is not imported within the time limit take part with the pedigree known so
+     * far.
+     *
+     * @param fatherUuids
+     * @param motherUuids
+     * @param generations
+     * @param visitor receives the coefficients of each father as soon as they are computed.
+     * @throws IOException when thrown by the visitor.
+     */
+    public void visitMatingPlan(List<String> fatherUuids, List<String> motherUuids, int generations, MatingPlanVisitor visitor) throws IOException {
+        Set<String> uuids = new LinkedHashSet<>();
+        uuids.addAll(fatherUuids);
+        uuids.addAll(motherUuids);
+        loadPedigrees(uuids);
+
+        graphQueryService.visitMatingPlan(fatherUuids, motherUuids, generations, visitor);
+    }
 
+    /**
+     * Import the pedigree of every dog that is missing its parents, all imports running concurrently, and then get the
+     * pedigrees of all dogs in one go. Dogs whose pedigree is not imported within the time limit get the pedigree
+     * known so far.
+     *
+     * @param ids
+     * @return the pedigrees.
+     */
+    public PedigreeBatch getPedigrees(List<String> ids) {
+        loadPedigrees(new LinkedHashSet<>(ids));
+
+        return graphQueryService.getPedigrees(ids);
+    }
+
+    private void loadPedigrees(Set<String> ids) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (String id : ids) {
+            futures.add(importPedigreeIfMissing(id));
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+        for (Future<?> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             } catch (ExecutionException e) {
                 throw new RuntimeException(e);
             } catch (TimeoutException e) {
-                return true;
+                break;
             }
         }
-        return false;
-    }
-
-    public TopLevelDog getFicticiousPedigree(String uuid, String name, String fatherUuid, String motherUuid) {
-        if (loadPedigree(fatherUuid)) {
-            return null;
-        }
-        if (loadPedigree(motherUuid)) {
-            return null;
-        }
-
-        TopLevelDog dog = graphQueryService.getPedigree(uuid, name, fatherUuid, motherUuid);
-
-        return dog;
     }
 }
@@ -0,0 +1,118 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import no.nkk.dogpopulation.concurrent.ExecutorManager;
+import no.nkk.dogpopulation.graph.GraphQueryService;
+import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pre-computes the pedigrees of the hot-set into the pedigree response cache, as compact JSON which is what most
+ * clients ask for. Computing a pedigree reads all its ancestors, so their nodes are also warm in the graph afterwards.
+ * Only dogs that are already in the graph are warmed, dogs are never imported. Pedigrees that are already cached are
+ * skipped, so warming after a bulk import only recomputes the pedigrees that the import invalidated.
+ *
+ * Requests to warm while warming is in progress are coalesced into one more pass after the current one.
+ *
+ * Thread-safety: Instances of this class are thread-safe.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+@Singleton
+public class PedigreeWarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PedigreeWarmer.class);
+
+    private final PedigreeHotSet pedigreeHotSet;
+    private final GraphQueryService graphQueryService;
+    private final PedigreeResponseCache pedigreeResponseCache;
+    private final JsonResponseWriter jsonResponseWriter;
+    private final ExecutorService backgroundExecutor;
+    private final int pedigreeHotSetSize;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    @Inject
+    public PedigreeWarmer(PedigreeHotSet pedigreeHotSet, GraphQueryService graphQueryService, PedigreeResponseCache pedigreeResponseCache,
+                          JsonResponseWriter jsonResponseWriter, @Named(ExecutorManager.BACKGROUND_MAP_KEY) ExecutorService backgroundExecutor,
+                          @Named("pedigreeHotSetSize") int pedigreeHotSetSize) {
+        this.pedigreeHotSet = pedigreeHotSet;
+        this.graphQueryService = graphQueryService;
+        this.pedigreeResponseCache = pedigreeResponseCache;
+        this.jsonResponseWriter = jsonResponseWriter;
+        this.backgroundExecutor = backgroundExecutor;
+        this.pedigreeHotSetSize = pedigreeHotSetSize;
+    }
+
+
+    /**
+     * Warm the pedigrees of the hot-set using the background executor.
+     */
+    public void warmInBackground() {
+        requested.set(true);
+        if (!scheduled.compareAndSet(false, true)) {
+            return; // the running pass will start another
+        }
+        try {
+            backgroundExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (requested.getAndSet(false)) {
+                            warm();
+                        }
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Warming of pedigree hot-set failed", e);
+                    } finally {
+                        scheduled.set(false);
+                    }
+                    if (requested.get()) {
+                        warmInBackground();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            LOGGER.warn("Warming of pedigree hot-set rejected: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of pedigrees computed.
+     */
+    public int warm() {
+        List<String> ids = pedigreeHotSet.hottest(pedigreeHotSetSize);
+        int computed = 0;
+        for (String id : ids) {
+            if (pedigreeResponseCache.get(id, false, MediaType.APPLICATION_JSON_TYPE) != null) {
+                continue;
+            }
+            long version = pedigreeResponseCache.version();
+            TopLevelDog dog = graphQueryService.getPedigree(id);
+            if (dog == null) {
+                continue;
+            }
+            try {
+                byte[] body = jsonResponseWriter.writeValueAsBytes(dog, false, MediaType.APPLICATION_JSON_TYPE);
+                pedigreeResponseCache.put(id, false, MediaType.APPLICATION_JSON_TYPE, dog.getUuid(), body, version);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            computed++;
+        }
+        pedigreeHotSet.save();
+        LOGGER.debug("Warmed {} of {} pedigrees in hot-set", computed, ids.size());
+        return computed;
+    }
+}
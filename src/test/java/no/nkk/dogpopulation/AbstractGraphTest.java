@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import no.nkk.dogpopulation.concurrent.ExecutorManager;
+import no.nkk.dogpopulation.concurrent.ThreadingModule;
 import no.nkk.dogpopulation.graph.*;
 import no.nkk.dogpopulation.graph.dogbuilder.BreedSynonymNodeCache;
 import no.nkk.dogpopulation.graph.dogbuilder.Dogs;
@@ -18,6 +20,8 @@ import org.neo4j.graphdb.Transaction;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 
+import java.util.Random;
+
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
@@ -33,6 +37,8 @@ public abstract class AbstractGraphTest {
     protected ExecutionEngine executionEngine;
     @Inject
     protected GraphQueryService graphQueryService;
+    @Inject
+    protected ExecutorManager executorManager;
 
     private ObjectMapper objectMapper;
 
@@ -40,6 +46,7 @@ public abstract class AbstractGraphTest {
     public void initGraph() {
         final Injector injector = Guice.createInjector(
                 new UnittestModule(),
+                new ThreadingModule(20),
                 new Neo4jModule()
         );
         injector.injectMembers(this);
@@ -47,6 +54,7 @@ public abstract class AbstractGraphTest {
 
     @AfterMethod
     public void closeGraph() {
+        executorManager.shutdown();
         graphDb.shutdown();
     }
 
@@ -136,6 +144,32 @@ public abstract class AbstractGraphTest {
         }
     }
 
+    /**
+     * Adds a random, inbred pedigree of dogs named "D0" to "D" + (dogCount - 1). Every dog after the founders gets
+     * both parents picked among the window previous dogs, even numbered dogs are fathers and odd numbered mothers.
+     *
+     * @param daysBetweenBirths days between the births of consecutive dogs from 1990-01-01, or 0 to leave born unset.
+     */
+    protected void addRandomPedigree(Node breedSynonymNode, long seed, int dogCount, int founders, int window, int daysBetweenBirths) {
+        Random random = new Random(seed);
+        for (int i = 0; i < dogCount; i++) {
+            if (daysBetweenBirths > 0) {
+                addDog("D" + i, breedSynonymNode, LocalDate.parse("1990-01-01").plusDays(daysBetweenBirths * i));
+            } else {
+                addDog("D" + i, breedSynonymNode);
+            }
+            if (i >= founders) {
+                int first = Math.max(0, i - window);
+                int father = first + random.nextInt(i - first);
+                father -= father % 2;
+                int mother = first + random.nextInt(i - first);
+                mother += (mother % 2 == 0) ? (mother + 1 < i ? 1 : -1) : 0;
+                connectChildToFather("D" + i, "D" + father);
+                connectChildToMother("D" + i, "D" + mother);
+            }
+        }
+    }
+
     protected Relationship connectChildToFather(String childUuid, String fatherUuid) {
         try (Transaction tx = graphDb.beginTx()) {
             Relationship hasFather = dogs.hasParent().child(childUuid).father(fatherUuid).build(graphDb);
@@ -3,6 +3,8 @@ package no.nkk.dogpopulation;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
 import no.nkk.dogpopulation.concurrent.ExecutorManager;
 import no.nkk.dogpopulation.concurrent.ThreadingModule;
 import no.nkk.dogpopulation.graph.DogGraphConstants;
@@ -38,7 +40,7 @@ public class AbstractResourceTest {
     @BeforeMethod
     public void startServer() {
         final Injector injector = Guice.createInjector(
-                new UnittestModule(),
+                Modules.override(new UnittestModule()).with(testOverrides()),
                 new ThreadingModule(20),
                 new Neo4jModule(),
                 new WebModule()
@@ -47,6 +49,13 @@ public class AbstractResourceTest {
         main.start();
     }
 
+    /**
+     * @return bindings that replace those of the unit-test configuration, none by default.
+     */
+    protected Module testOverrides() {
+        return Modules.EMPTY_MODULE;
+    }
+
     @AfterMethod
     public void stopServer() throws Exception {
         if (main != null) {
@@ -40,6 +40,12 @@ public class UnittestModule extends AbstractModule {
         bind(int.class).annotatedWith(Names.named("httpPort")).toInstance(RestAssured.port);
         bind(int.class).annotatedWith(Names.named("maxThreads")).toInstance(3);
         bind(int.class).annotatedWith(Names.named("minThreads")).toInstance(1);
+        bind(int.class).annotatedWith(Names.named("inbreedingCacheSize")).toInstance(10000);
+        bind(int.class).annotatedWith(Names.named("pedigreeResponseCacheSize")).toInstance(100);
+        bind(int.class).annotatedWith(Names.named("pedigreeHotSetSize")).toInstance(100);
+        bind(String.class).annotatedWith(Names.named("pedigreeHotSetFile")).toInstance("target/unittest-pedigree-hotset.json");
+        bind(int.class).annotatedWith(Names.named("pedigreeAsyncTimeoutSeconds")).toInstance(60);
+        bind(int.class).annotatedWith(Names.named("algorithmParallelism")).toInstance(2);
 
         bind(PedigreeImporter.class).to(DogTestImporter.class);
 
@@ -4,6 +4,8 @@ import no.nkk.dogpopulation.AbstractGraphTest;
 import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.DogGraphLabel;
 import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.pedigree.Breed;
+import no.nkk.dogpopulation.graph.pedigree.BreedTable;
 import org.neo4j.cypher.javacompat.ExecutionResult;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
@@ -31,7 +33,7 @@ public class BreedGroupJsonImporterTest extends AbstractGraphTest {
     public void thatJsonCanBeImportedIntoEmptyDatabase() throws IOException {
         //URL url = new URL("https://raw.githubusercontent.com/NKK-IT-Utvikling/Breedmapping/master/Raser.json");
          URL url = new File("src/test/resources/breedimport/Raser.json").toURI().toURL();
-        BreedGroupJsonImporter importer = new BreedGroupJsonImporter(url, graphDb);
+        BreedGroupJsonImporter importer = new BreedGroupJsonImporter(url, graphDb, new BreedTable(graphDb));
         importer.importBreedGroup();
 
         validateBreedSynonymCount(SYNONYMS_IN_FILE);
@@ -42,10 +44,11 @@ public class BreedGroupJsonImporterTest extends AbstractGraphTest {
     @Test(groups = "fast")
     public void thatJsonCanBeImportedWithExistingBreedSynonyms() throws IOException {
         Node australianCattleDogSynonymNode;
+        Node bullshitBreedSynonym;
         try (Transaction tx = graphDb.beginTx()) {
             australianCattleDogSynonymNode = graphDb.createNode(DogGraphLabel.BREED_SYNONYM);
             australianCattleDogSynonymNode.setProperty(DogGraphConstants.BREEDSYNONYM_SYNONYM, "australian cattledog"); // will also be in the imported json file
-            Node bullshitBreedSynonym = graphDb.createNode(DogGraphLabel.BREED_SYNONYM);
+            bullshitBreedSynonym = graphDb.createNode(DogGraphLabel.BREED_SYNONYM);
             bullshitBreedSynonym.setProperty(DogGraphConstants.BREEDSYNONYM_SYNONYM, "BullShitter deluxe");
             addDog("MyCattledog", australianCattleDogSynonymNode);
             addDog("MyBullShitter", bullshitBreedSynonym);
@@ -57,7 +60,8 @@ public class BreedGroupJsonImporterTest extends AbstractGraphTest {
         validateFCIBreedGroupCount(0);
 
         URL url = new File("src/test/resources/breedimport/Raser.json").toURI().toURL();
-        BreedGroupJsonImporter importer = new BreedGroupJsonImporter(url, graphDb);
+        BreedTable breedTable = new BreedTable(graphDb);
+        BreedGroupJsonImporter importer = new BreedGroupJsonImporter(url, graphDb, breedTable);
         importer.importBreedGroup();
 
         validateBreedSynonymCount(1 + SYNONYMS_IN_FILE); // australian cattledog was added both programatically and through file import and should not be counted twice
@@ -76,6 +80,14 @@ public class BreedGroupJsonImporterTest extends AbstractGraphTest {
             Assert.assertNotNull(memberOfBreedGroup);
             Node breedGroupNode = memberOfBreedGroup.getEndNode();
             Assert.assertEquals((String) breedGroupNode.getProperty(DogGraphConstants.BREEDGROUP_FCIBREEDGROUP), "1");
+
+            Assert.assertEquals(breedTable.size(), 1 + SYNONYMS_IN_FILE);
+            Breed australianCattleDog = breedTable.getBreed(australianCattleDogSynonymNode);
+            Assert.assertEquals(australianCattleDog.getName(), "australian cattledog");
+            Assert.assertEquals(australianCattleDog.getId(), "287");
+            Breed bullShitter = breedTable.getBreed(bullshitBreedSynonym);
+            Assert.assertEquals(bullShitter.getName(), "BullShitter deluxe");
+            Assert.assertNull(bullShitter.getId());
             tx.success();
         }
     }
@@ -0,0 +1,106 @@
+package no.nkk.dogpopulation.graph;
+
+import no.nkk.dogpopulation.AbstractGraphTest;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.traversal.Traverser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class BreedYearIndexTest extends AbstractGraphTest {
+
+    @Test(groups = "fast")
+    public void thatIndexIsMaintainedWhenDogsAreBuilt() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        Node otherBreedNode = breed("Other Breed");
+        addDog("A", breedNode, LocalDate.parse("2008-01-01"));
+        addDog("B", breedNode, LocalDate.parse("2010-01-01"));
+        addDog("C", breedNode, LocalDate.parse("2012-01-01"));
+        addDog("D", breedNode);
+        try (Transaction tx = graphDb.beginTx()) {
+            dogs.dog("B").name("B").breed(breedNode).hdXray(DateTime.parse("2012-06-01")).build(graphDb);
+            tx.success();
+        }
+
+        try (Transaction tx = graphDb.beginTx()) {
+            Assert.assertTrue(BreedYearIndex.isIndexed(breedNode));
+            CommonTraversals commonTraversals = new CommonTraversals(graphDb);
+            Assert.assertEquals(uuids(commonTraversals.traverseDogOfBreedBornBetween(breedNode, 2009, 2012)), set("B", "C"));
+            Assert.assertEquals(uuids(commonTraversals.traverseDogOfBreedHdXrayedBetween(breedNode, 2012, 2012)), set("B"));
+            tx.success();
+        }
+
+        // when
+        try (Transaction tx = graphDb.beginTx()) {
+            dogs.dog("B").name("B").breed(breedNode).born(LocalDate.parse("2005-01-01")).build(graphDb);
+            dogs.dog("C").name("C").breed(otherBreedNode).build(graphDb);
+            tx.success();
+        }
+
+        // then
+        try (Transaction tx = graphDb.beginTx()) {
+            CommonTraversals commonTraversals = new CommonTraversals(graphDb);
+            Assert.assertEquals(uuids(commonTraversals.traverseDogOfBreedBornBetween(breedNode, 2000, 2020)), set("A", "B"));
+            Assert.assertEquals(uuids(commonTraversals.traverseDogOfBreedBornBetween(breedNode, 2009, 2012)), set());
+            Assert.assertEquals(uuids(commonTraversals.traverseDogOfBreedBornBetween(otherBreedNode, 2012, 2012)), set("C"));
+            tx.success();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatMigratorIndexesDogsAddedBeforeIndexExisted() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        try (Transaction tx = graphDb.beginTx()) {
+            for (String uuid : new String[]{"A", "B", "C"}) {
+                Node dogNode = graphDb.createNode(DogGraphLabel.DOG);
+                dogNode.setProperty(DogGraphConstants.DOG_UUID, uuid);
+                dogNode.setProperty(DogGraphConstants.DOG_BORN_YEAR, uuid.equals("A") ? 2008 : 2010);
+                dogNode.createRelationshipTo(breedNode, DogGraphRelationshipType.IS_BREED);
+            }
+            tx.success();
+        }
+        try (Transaction tx = graphDb.beginTx()) {
+            Assert.assertFalse(BreedYearIndex.isIndexed(breedNode));
+            Assert.assertEquals(uuids(new CommonTraversals(graphDb).traverseDogOfBreedBornBetween(breedNode, 2009, 2010)), set("B", "C"));
+            tx.success();
+        }
+
+        // when
+        new GraphSchemaMigrator(graphDb).migrateSchema(graphDb);
+
+        // then
+        try (Transaction tx = graphDb.beginTx()) {
+            Assert.assertTrue(BreedYearIndex.isIndexed(breedNode));
+            Assert.assertEquals(uuids(BreedYearIndex.BORN.traverse(graphDb, breedNode, 2009, 2010)), set("B", "C"));
+            Assert.assertEquals(uuids(new CommonTraversals(graphDb).traverseDogOfBreedBornBetween(breedNode, 2008, 2008)), set("A"));
+            tx.success();
+        }
+    }
+
+    private static Set<String> uuids(Traverser traverser) {
+        Set<String> uuids = new TreeSet<>();
+        for (Path path : traverser) {
+            uuids.add((String) path.endNode().getProperty(DogGraphConstants.DOG_UUID));
+        }
+        return uuids;
+    }
+
+    private static Set<String> set(String... uuids) {
+        Set<String> set = new TreeSet<>();
+        for (String uuid : uuids) {
+            set.add(uuid);
+        }
+        return set;
+    }
+}
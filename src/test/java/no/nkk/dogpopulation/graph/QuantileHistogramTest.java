@@ -0,0 +1,89 @@
+package no.nkk.dogpopulation.graph;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class QuantileHistogramTest {
+
+    @Test(groups = "fast")
+    public void thatIntegerValuesGiveSameStatisticsAsDescriptiveStatistics() {
+        Random random = new Random(17);
+        for (int size : new int[]{1, 2, 3, 10, 101, 5000}) {
+            QuantileHistogram histogram = new QuantileHistogram(1);
+            DescriptiveStatistics descriptiveStatistics = new DescriptiveStatistics();
+            for (int i = 0; i < size; i++) {
+                int value = random.nextInt(15) - 2;
+                histogram.add(value);
+                descriptiveStatistics.addValue(value);
+            }
+            assertStatistics(histogram.toBasicStatistics(), descriptiveStatistics, 0.000001);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatPercentilesAreWithinHalfBinWidthOfDescriptiveStatistics() {
+        Random random = new Random(17);
+        QuantileHistogram histogram = new QuantileHistogram(0.01);
+        DescriptiveStatistics descriptiveStatistics = new DescriptiveStatistics();
+        for (int i = 0; i < 10000; i++) {
+            double value = 25 * random.nextDouble() * random.nextDouble();
+            histogram.add(value);
+            descriptiveStatistics.addValue(value);
+        }
+        assertStatistics(histogram.toBasicStatistics(), descriptiveStatistics, 0.005 + 0.000001);
+    }
+
+    @Test(groups = "fast")
+    public void thatMergedHistogramsGiveSameStatisticsAsOneHistogram() {
+        Random random = new Random(17);
+        QuantileHistogram all = new QuantileHistogram(1);
+        QuantileHistogram low = new QuantileHistogram(1);
+        QuantileHistogram high = new QuantileHistogram(1);
+        DescriptiveStatistics descriptiveStatistics = new DescriptiveStatistics();
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(10);
+            all.add(value);
+            (i % 2 == 0 ? low : high).add(value + (i % 2 == 0 ? 0 : 100));
+            descriptiveStatistics.addValue(value + (i % 2 == 0 ? 0 : 100));
+        }
+        high.add(3, 4);
+        descriptiveStatistics.addValue(3);
+        descriptiveStatistics.addValue(3);
+        descriptiveStatistics.addValue(3);
+        descriptiveStatistics.addValue(3);
+        high.merge(low);
+        Assert.assertEquals(high.getN(), 1004);
+        assertStatistics(high.toBasicStatistics(), descriptiveStatistics, 0.000001);
+    }
+
+    @Test(groups = "fast")
+    public void thatEmptyHistogramGivesZeroSumAndUndefinedStatistics() {
+        BasicStatistics statistics = new QuantileHistogram(1).toBasicStatistics();
+        Assert.assertEquals(statistics.getN(), 0);
+        Assert.assertEquals(statistics.getSum(), 0.0);
+        Assert.assertTrue(Double.isNaN(statistics.getMean()));
+        Assert.assertTrue(Double.isNaN(statistics.getPercentile50()));
+    }
+
+    private static void assertStatistics(BasicStatistics actual, DescriptiveStatistics expected, double percentileDelta) {
+        Assert.assertEquals(actual.getN(), expected.getN());
+        Assert.assertEquals(actual.getSum(), expected.getSum(), 0.000001);
+        Assert.assertEquals(actual.getMin(), expected.getMin(), 0.000001);
+        Assert.assertEquals(actual.getMax(), expected.getMax(), 0.000001);
+        Assert.assertEquals(actual.getMean(), expected.getMean(), 0.000001);
+        Assert.assertEquals(actual.getStandardDeviation(), expected.getStandardDeviation(), 0.000001);
+        Assert.assertEquals(actual.getPercentile1(), expected.getPercentile(1), percentileDelta);
+        Assert.assertEquals(actual.getPercentile5(), expected.getPercentile(5), percentileDelta);
+        Assert.assertEquals(actual.getPercentile25(), expected.getPercentile(25), percentileDelta);
+        Assert.assertEquals(actual.getPercentile50(), expected.getPercentile(50), percentileDelta);
+        Assert.assertEquals(actual.getPercentile75(), expected.getPercentile(75), percentileDelta);
+        Assert.assertEquals(actual.getPercentile90(), expected.getPercentile(90), percentileDelta);
+        Assert.assertEquals(actual.getPercentile99(), expected.getPercentile(99), percentileDelta);
+    }
+}
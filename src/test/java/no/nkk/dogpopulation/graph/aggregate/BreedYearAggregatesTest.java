@@ -0,0 +1,113 @@
+package no.nkk.dogpopulation.graph.aggregate;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.DogGender;
+import no.nkk.dogpopulation.graph.ParentRole;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.hdxray.HDXrayStatistics;
+import no.nkk.dogpopulation.graph.hdxray.HDXrayStatisticsAlgorithm;
+import no.nkk.dogpopulation.graph.litter.LitterStatistics;
+import no.nkk.dogpopulation.graph.litter.LitterStatisticsAlgorithm;
+import org.joda.time.LocalDate;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class BreedYearAggregatesTest extends AbstractGraphTest {
+
+    private static final String BREED = "Unit-test Breed";
+
+    @Inject
+    private BulkWriteService bulkWriteService;
+
+    @Inject
+    private BreedYearAggregates breedYearAggregates;
+
+    @Test(groups = "fast")
+    public void thatAggregatesGiveSameStatisticsAsGraphScan() {
+        // given
+        Node father = addDog("F", "NO/1/05", "2005-03-01", DogGender.MALE, BREED, "A", "2007-01-10");
+        Node mother = addDog("M", "NO/2/06", "2006-04-01", DogGender.FEMALE, BREED, "C", "2008-02-10");
+        Node other = addDog("O", "NO/3/06", "2006-05-01", DogGender.MALE, BREED, "A", "2008-03-10");
+        addDog("P", "NO/4/10", "2010-06-01", DogGender.MALE, BREED, "B", "2012-04-10");
+        addDog("Q", "NO/5/02", "2002-06-01", DogGender.MALE, BREED, null, null);
+        try (Transaction tx = graphDb.beginTx()) {
+            Node l1 = dogs.litter().id("L1").born("2009-05-01").count(6).build(graphDb);
+            dogs.hasLitter().parent(father).litter(l1).role(ParentRole.FATHER).build(graphDb);
+            dogs.hasLitter().parent(mother).litter(l1).role(ParentRole.MOTHER).build(graphDb);
+            Node l2 = dogs.litter().id("L2").born("2010-05-01").count(3).build(graphDb);
+            dogs.hasLitter().parent(other).litter(l2).role(ParentRole.FATHER).build(graphDb);
+            tx.success();
+        }
+
+        // when
+        breedYearAggregates.build();
+
+        // then
+        Assert.assertTrue(breedYearAggregates.isBuilt());
+        Set<String> breedSet = ImmutableSet.of(BREED);
+        LitterStatistics aggregated;
+        try (Transaction tx = graphDb.beginTx()) {
+            assertSameHd(new HDXrayStatisticsAlgorithm(graphDb).hdXrayStatisticsForDogsOfBreedBornBetween(breedSet, 2004, 2010),
+                    new HDXrayStatisticsAlgorithm(graphDb, breedYearAggregates).hdXrayStatisticsForDogsOfBreedBornBetween(breedSet, 2004, 2010));
+            assertSameHd(new HDXrayStatisticsAlgorithm(graphDb).hdXrayStatisticsForDogsOfBreedXrayedBetween(breedSet, 2007, 2008),
+                    new HDXrayStatisticsAlgorithm(graphDb, breedYearAggregates).hdXrayStatisticsForDogsOfBreedXrayedBetween(breedSet, 2007, 2008));
+            LitterStatistics scanned = new LitterStatisticsAlgorithm(graphDb, breedSet, 2000, 2010).execute();
+            aggregated = new LitterStatisticsAlgorithm(graphDb, breedSet, 2000, 2010, breedYearAggregates).execute();
+            assertSameLitters(scanned, aggregated);
+            tx.success();
+        }
+        Assert.assertEquals(aggregated.getDogCount(), 5);
+        Assert.assertEquals(aggregated.getDogsWithAtLeastOneLitter(), 3);
+        Assert.assertEquals(aggregated.getLitterCount(), 2); // litter with both parents in range is counted once
+        Assert.assertEquals(aggregated.getPuppyCount(), 9);
+    }
+
+    @Test(groups = "fast")
+    public void thatAggregatesAreRefreshedWhenBulkWriteServiceCommitsChanges() {
+        // given
+        Node breedNode = breed(BREED);
+        addDog("A", breedNode, LocalDate.parse("2008-01-01"));
+        breedYearAggregates.build();
+        Set<Node> breedSynonymNodes = ImmutableSet.of(breedNode);
+        Assert.assertEquals(breedYearAggregates.litterCountsOfDogsBornBetween(breedSynonymNodes, 2000, 2010).getDogCount(), 1);
+
+        // when
+        bulkWriteService.build(dogs.hasLitter()
+                .parent(dogs.dog("B").name("B").breed(breedNode).born(LocalDate.parse("2009-01-01")))
+                .litter(dogs.litter().id("L3").born("2012-01-01").count(5))
+                .role(ParentRole.MOTHER));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        BreedYearAggregates.LitterCounts litterCounts = breedYearAggregates.litterCountsOfDogsBornBetween(breedSynonymNodes, 2000, 2010);
+        Assert.assertEquals(litterCounts.getDogCount(), 2);
+        Assert.assertEquals(litterCounts.getDogsWithAtLeastOneLitter(), 1);
+        Assert.assertEquals(litterCounts.getCountByLitterSize().get(5), Integer.valueOf(1));
+        try (Transaction tx = graphDb.beginTx()) {
+            assertSameLitters(new LitterStatisticsAlgorithm(graphDb, ImmutableSet.of(BREED), 2000, 2010).execute(),
+                    new LitterStatisticsAlgorithm(graphDb, ImmutableSet.of(BREED), 2000, 2010, breedYearAggregates).execute());
+            tx.success();
+        }
+    }
+
+    private static void assertSameHd(HDXrayStatistics scanned, HDXrayStatistics aggregated) {
+        Assert.assertEquals(aggregated.getDogCount(), scanned.getDogCount());
+        Assert.assertEquals(aggregated.getCountByDiagnose(), scanned.getCountByDiagnose());
+    }
+
+    private static void assertSameLitters(LitterStatistics scanned, LitterStatistics aggregated) {
+        Assert.assertEquals(aggregated.getDogCount(), scanned.getDogCount());
+        Assert.assertEquals(aggregated.getDogsWithAtLeastOneLitter(), scanned.getDogsWithAtLeastOneLitter());
+        Assert.assertEquals(aggregated.getLitterCount(), scanned.getLitterCount());
+        Assert.assertEquals(aggregated.getPuppyCount(), scanned.getPuppyCount());
+    }
+}
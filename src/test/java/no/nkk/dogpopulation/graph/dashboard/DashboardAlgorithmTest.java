@@ -0,0 +1,128 @@
+package no.nkk.dogpopulation.graph.dashboard;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.DogGender;
+import no.nkk.dogpopulation.graph.ParentRole;
+import no.nkk.dogpopulation.graph.aggregate.BreedYearAggregates;
+import no.nkk.dogpopulation.graph.hdxray.HDXrayStatistics;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingOfGroup;
+import no.nkk.dogpopulation.graph.litter.LitterStatistics;
+import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompleteness;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class DashboardAlgorithmTest extends AbstractGraphTest {
+
+    private static final String BREED = "Unit-test Breed";
+
+    @Inject
+    private BreedYearAggregates breedYearAggregates;
+
+    @Test(groups = "fast")
+    public void thatDashboardHasSameMetricsAsSeparateScans() {
+        // given
+        Node father = addDog("F", "NO/1/05", "2005-03-01", DogGender.MALE, BREED, "A", "2007-01-10");
+        Node mother = addDog("M", "NO/2/06", "2006-04-01", DogGender.FEMALE, BREED, "C", "2011-02-10");
+        addDog("G", "NO/3/00", "2000-01-01", DogGender.MALE, BREED, null, null);
+        addDog("A", "NO/4/10", "2010-06-01", DogGender.MALE, BREED, "B", "2012-04-10");
+        addDog("B", "NO/5/10", "2010-06-01", DogGender.FEMALE, BREED, null, null);
+        addDog("C", "NO/6/12", "2012-06-01", DogGender.MALE, BREED, null, null);
+        addDog("O", "NO/7/01", "2001-06-01", DogGender.MALE, BREED, "A", "2010-03-10"); // only x-rayed in range
+        connectChildToFather("F", "G");
+        connectChildToFather("A", "F");
+        connectChildToMother("A", "M");
+        connectChildToFather("B", "F");
+        connectChildToMother("B", "M");
+        connectChildToFather("C", "A");
+        connectChildToMother("C", "B");
+        try (Transaction tx = graphDb.beginTx()) {
+            Node litter = dogs.litter().id("L1").born("2010-06-01").count(2).build(graphDb);
+            dogs.hasLitter().parent(father).litter(litter).role(ParentRole.FATHER).build(graphDb);
+            dogs.hasLitter().parent(mother).litter(litter).role(ParentRole.MOTHER).build(graphDb);
+            tx.success();
+        }
+        Set<String> breedSet = ImmutableSet.of(BREED);
+
+        // when
+        Dashboard dashboard = graphQueryService.getDashboard(6, breedSet, 2005, 2012, DashboardMetrics.ALL);
+
+        // then
+        Assert.assertEquals(dashboard.getDogCount(), 5); // F, M, A, B, C born within range
+        Assert.assertEquals(dashboard.getMetrics().keySet(), ImmutableSet.copyOf(DashboardMetrics.ALL));
+
+        PedigreeCompleteness completeness = (PedigreeCompleteness) dashboard.getMetrics().get(DashboardMetrics.PEDIGREE_COMPLETENESS);
+        PedigreeCompleteness expectedCompleteness = graphQueryService.getPedigreeCompletenessOfGroup(6, breedSet, 2005, 2012);
+        Assert.assertEquals(completeness.getPedigreeSizeStatistics().getN(), 5);
+        Assert.assertEquals(completeness.getPedigreeSizeStatistics().getMean(), expectedCompleteness.getPedigreeSizeStatistics().getMean(), 0.000001);
+        Assert.assertEquals(completeness.getPedigreeSizeHistogram(), expectedCompleteness.getPedigreeSizeHistogram());
+
+        InbreedingOfGroup inbreeding = (InbreedingOfGroup) dashboard.getMetrics().get(DashboardMetrics.INBREEDING);
+        InbreedingOfGroup expectedInbreeding = graphQueryService.getInbreedingOfGroup(6, breedSet, 2005, 2012);
+        Assert.assertEquals(inbreeding.getStatistics().getN(), 5);
+        Assert.assertTrue(inbreeding.getStatistics().getMax() > 0); // C
+        Assert.assertEquals(inbreeding.getStatistics().getMean(), expectedInbreeding.getStatistics().getMean(), 0.000001);
+
+        LitterStatistics litter = (LitterStatistics) dashboard.getMetrics().get(DashboardMetrics.LITTER);
+        LitterStatistics expectedLitter = graphQueryService.getLitterStatisticsOfGroup(breedSet, 2005, 2012, true);
+        Assert.assertEquals(litter.getDogCount(), expectedLitter.getDogCount());
+        Assert.assertEquals(litter.getDogsWithAtLeastOneLitter(), 2);
+        Assert.assertEquals(litter.getLitterCount(), 1);
+        Assert.assertEquals(litter.getPuppyCount(), expectedLitter.getPuppyCount());
+
+        HDXrayStatistics hdBorn = (HDXrayStatistics) dashboard.getMetrics().get(DashboardMetrics.HD_STATISTICS_BORN_YEAR);
+        HDXrayStatistics expectedHdBorn = graphQueryService.getHDXrayStatisticsOfGroupBornBetween(breedSet, 2005, 2012, true);
+        Assert.assertEquals(hdBorn.getDogCount(), expectedHdBorn.getDogCount());
+        Assert.assertEquals(hdBorn.getCountByDiagnose(), expectedHdBorn.getCountByDiagnose());
+
+        HDXrayStatistics hdXray = (HDXrayStatistics) dashboard.getMetrics().get(DashboardMetrics.HD_STATISTICS_XRAY_YEAR);
+        HDXrayStatistics expectedHdXray = graphQueryService.getHDXrayStatisticsOfGroupHdXRayedBetween(breedSet, 2005, 2012, true);
+        Assert.assertEquals(hdXray.getDogCount(), 4); // F, M, A, O
+        Assert.assertEquals(hdXray.getDogCount(), expectedHdXray.getDogCount());
+        Assert.assertEquals(hdXray.getCountByDiagnose(), expectedHdXray.getCountByDiagnose());
+    }
+
+    @Test(groups = "fast")
+    public void thatOnlyRequestedMetricsAreComputed() {
+        addDog("A", "NO/1/10", "2010-06-01", DogGender.MALE, BREED, "A", "2012-04-10");
+
+        Dashboard dashboard = graphQueryService.getDashboard(6, ImmutableSet.of(BREED), 2010, 2012, Arrays.asList(DashboardMetrics.LITTER, DashboardMetrics.HD_STATISTICS_BORN_YEAR));
+
+        Assert.assertEquals(dashboard.getDogCount(), 1);
+        Assert.assertEquals(dashboard.getMetrics().keySet(), ImmutableSet.of(DashboardMetrics.LITTER, DashboardMetrics.HD_STATISTICS_BORN_YEAR));
+    }
+
+    @Test(groups = "fast")
+    public void thatLitterAndHdMetricsAreAnsweredFromBuiltAggregates() {
+        // given
+        addDog("A", "NO/1/10", "2010-06-01", DogGender.MALE, BREED, "A", "2012-04-10");
+        addDog("O", "NO/3/01", "2001-06-01", DogGender.MALE, BREED, "A", "2011-03-10"); // only x-rayed in range
+        breedYearAggregates.build();
+        addDog("B", "NO/2/10", "2010-06-01", DogGender.FEMALE, BREED, "B", "2012-04-10"); // not seen by the aggregates
+        Set<String> breedSet = ImmutableSet.of(BREED);
+
+        // when
+        Dashboard dashboard = graphQueryService.getDashboard(6, breedSet, 2010, 2012, Arrays.asList(DashboardMetrics.LITTER, DashboardMetrics.HD_STATISTICS_BORN_YEAR, DashboardMetrics.HD_STATISTICS_XRAY_YEAR));
+
+        // then
+        Assert.assertEquals(dashboard.getDogCount(), 2);
+        LitterStatistics litter = (LitterStatistics) dashboard.getMetrics().get(DashboardMetrics.LITTER);
+        Assert.assertEquals(litter.getDogCount(), 1);
+        Assert.assertEquals(litter.getDogCount(), graphQueryService.getLitterStatisticsOfGroup(breedSet, 2010, 2012).getDogCount());
+        HDXrayStatistics hdBorn = (HDXrayStatistics) dashboard.getMetrics().get(DashboardMetrics.HD_STATISTICS_BORN_YEAR);
+        Assert.assertEquals(hdBorn.getDogCount(), 1);
+        Assert.assertEquals(hdBorn.getCountByDiagnose(), graphQueryService.getHDXrayStatisticsOfGroupBornBetween(breedSet, 2010, 2012).getCountByDiagnose());
+        HDXrayStatistics hdXray = (HDXrayStatistics) dashboard.getMetrics().get(DashboardMetrics.HD_STATISTICS_XRAY_YEAR);
+        Assert.assertEquals(hdXray.getDogCount(), 2); // A and O
+        Assert.assertEquals(hdXray.getCountByDiagnose(), graphQueryService.getHDXrayStatisticsOfGroupHdXRayedBetween(breedSet, 2010, 2012).getCountByDiagnose());
+    }
+}
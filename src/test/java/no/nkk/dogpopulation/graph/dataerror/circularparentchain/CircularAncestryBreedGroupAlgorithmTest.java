@@ -1,8 +1,11 @@
 package no.nkk.dogpopulation.graph.dataerror.circularparentchain;
 
+import com.google.inject.Inject;
 import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
 import org.joda.time.LocalDate;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -15,6 +18,9 @@ import java.util.Set;
  */
 public class CircularAncestryBreedGroupAlgorithmTest extends AbstractGraphTest {
 
+    @Inject
+    private PedigreeIndex pedigreeIndex;
+
     @Test(groups = "fast")
     public void thatCircularAncestryBreedGroupAlgorithmDetectsTheCircle() {
         Node breedNode = breed("Unit-test Breed");
@@ -34,4 +40,37 @@ public class CircularAncestryBreedGroupAlgorithmTest extends AbstractGraphTest {
         Assert.assertEquals(uuids.size(), 1);
     }
 
+    @Test(groups = "fast")
+    public void thatPedigreeIndexFindsSameCirclesAsGraphTraversal() {
+        Node breedNode = breed("Unit-test Breed");
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+        addDog("A", breedNode);
+        addDog("B", breedNode);
+        addDog("C", breedNode);
+        addDog("D", breedNode);
+        addDog("E", breedNode);
+        addDog("F", breedNode);
+        addDog("G", breedNode);
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "E");
+        connectChildToFather("B", "C");
+        connectChildToFather("C", "D");
+        connectChildToFather("D", "B"); // first circle
+        connectChildToFather("E", "F");
+        connectChildToMother("F", "G");
+        connectChildToFather("G", "F"); // second circle
+        pedigreeIndex.build();
+
+        List<String> fromGraph;
+        List<String> fromIndex;
+        try (Transaction tx = graphDb.beginTx()) {
+            fromGraph = new CircularAncestryBreedGroupAlgorithm(graphDb).run(breedSet);
+            fromIndex = new CircularAncestryBreedGroupAlgorithm(graphDb, pedigreeIndex).run(breedSet);
+            tx.success();
+        }
+
+        Assert.assertEquals(fromGraph.size(), 2);
+        Assert.assertEquals(fromIndex, fromGraph);
+    }
 }
@@ -0,0 +1,66 @@
+package no.nkk.dogpopulation.graph.diversity;
+
+import no.nkk.dogpopulation.AbstractGraphTest;
+import org.joda.time.LocalDate;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class GeneticDiversityAlgorithmTest extends AbstractGraphTest {
+
+    @Test(groups = "fast")
+    public void thatBottleneckGivesFewerEffectiveAncestorsThanFounderEquivalents() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("F1", breedNode, LocalDate.parse("2000-01-01"));
+        addDog("F2", breedNode, LocalDate.parse("2000-01-01"));
+        addDog("F3", breedNode, LocalDate.parse("2000-01-01"));
+        addDog("F4", breedNode, LocalDate.parse("2000-01-01"));
+        addDog("A", breedNode, LocalDate.parse("2004-01-01"));
+        addDog("B", breedNode, LocalDate.parse("2004-01-01"));
+        addDog("C", breedNode, LocalDate.parse("2010-01-01"));
+        addDog("D", breedNode, LocalDate.parse("2010-01-01"));
+        connectChildToFather("A", "F1");
+        connectChildToMother("A", "F2");
+        connectChildToFather("B", "F3");
+        connectChildToMother("B", "F4");
+        connectChildToFather("C", "A");
+        connectChildToMother("C", "B");
+        connectChildToFather("D", "A");
+        connectChildToMother("D", "B");
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+
+        // when
+        GeneticDiversity geneticDiversity;
+        try (Transaction tx = graphDb.beginTx()) {
+            geneticDiversity = new GeneticDiversityAlgorithm(graphDb, 20).getGeneticDiversityOfGroup(breedSet, 2010, 2010, 10);
+            tx.success();
+        }
+
+        // then
+        Assert.assertEquals(geneticDiversity.getNumberOfDogs(), 2);
+        Assert.assertEquals(geneticDiversity.getNumberOfFounders(), 4);
+        Assert.assertEquals(geneticDiversity.getNumberOfAncestors(), 6);
+        Assert.assertEquals(geneticDiversity.getFounderEquivalents(), 4.0, 0.000001);
+        Assert.assertEquals(geneticDiversity.getEffectiveNumberOfAncestors(), 2.0, 0.000001);
+        Assert.assertEquals(geneticDiversity.getExplainedByAncestors(), 100.0, 0.000001);
+        AncestorContribution[] topContributors = geneticDiversity.getTopContributors();
+        Assert.assertEquals(topContributors.length, 2);
+        Set<String> topUuids = new LinkedHashSet<>();
+        for (AncestorContribution contributor : topContributors) {
+            topUuids.add(contributor.getUuid());
+            Assert.assertEquals(contributor.getContribution(), 50.0, 0.000001);
+            Assert.assertEquals(contributor.getMarginalContribution(), 50.0, 0.000001);
+        }
+        Assert.assertTrue(topUuids.contains("A"));
+        Assert.assertTrue(topUuids.contains("B"));
+    }
+}
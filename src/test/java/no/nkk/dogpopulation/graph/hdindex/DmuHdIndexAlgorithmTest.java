@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import no.nkk.dogpopulation.AbstractGraphTest;
 import no.nkk.dogpopulation.graph.DogGender;
+import no.nkk.dogpopulation.graph.pedigreeindex.PedigreeIndex;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -28,6 +29,9 @@ public class DmuHdIndexAlgorithmTest extends AbstractGraphTest {
     @Named("hdindex-folder")
     String hdIndexFolderPath;
 
+    @Inject
+    PedigreeIndex pedigreeIndex;
+
     @BeforeMethod
     public void setup() {
         new File(hdIndexFolderPath).mkdirs();
@@ -129,4 +133,28 @@ public class DmuHdIndexAlgorithmTest extends AbstractGraphTest {
         Assert.assertTrue(dataErrorFile.length() > 0);
     }
 
+
+    @Test
+    public void thatCirclesGetEliminatedWhenPedigreeIndexIsBuilt() throws IOException {
+        // given
+        String breed1 = "Breed1";
+        addBreed(breed1, "1");
+        addDog("A", "NO/00777/95", "2008-02-26", DogGender.FEMALE, breed1, "A2", "2010-06-10");
+        addDog("C", "NO/00777/93", "2005-07-11", DogGender.FEMALE, breed1, "B2", "2007-06-12");
+        connectChildToMother("A", "C");
+        connectChildToMother("C", "A");
+        pedigreeIndex.build();
+
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add(breed1);
+
+        // when
+        graphQueryService.writeDmuFiles(dataFile, pedigreeFile, uuidMappingFile, breedCodeMappingFile, dataErrorFile, breedSet, true);
+
+        // then
+        Assert.assertEquals(dataFile.length(), 0);
+        Assert.assertEquals(pedigreeFile.length(), 0);
+        Assert.assertTrue(dataErrorFile.length() > 0);
+    }
+
 }
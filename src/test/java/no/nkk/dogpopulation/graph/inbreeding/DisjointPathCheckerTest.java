@@ -0,0 +1,204 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class DisjointPathCheckerTest {
+
+    @Test(groups = "fast")
+    public void thatOnlyCommonEndNodeMeansDisjoint() {
+        DisjointPathChecker checker = new DisjointPathChecker(3);
+        checker.mark(new long[]{1, 2, 3, 10});
+        Assert.assertTrue(checker.isDisjointExceptEndNode(new long[]{4, 5, 10}));
+        Assert.assertFalse(checker.isDisjointExceptEndNode(new long[]{4, 3, 10}));
+        Assert.assertTrue(checker.isDisjointExceptEndNode(new long[]{10}));
+    }
+
+    @Test(groups = "fast")
+    public void thatPreviouslyMarkedPathIsForgotten() {
+        DisjointPathChecker checker = new DisjointPathChecker(3);
+        checker.mark(new long[]{1, 2, 10});
+        Assert.assertFalse(checker.isDisjointExceptEndNode(new long[]{2, 10}));
+        checker.mark(new long[]{3, 10});
+        Assert.assertTrue(checker.isDisjointExceptEndNode(new long[]{2, 10}));
+    }
+
+    @Test(groups = "fast")
+    public void thatPathsLongerThanExpectedAreSupported() {
+        DisjointPathChecker checker = new DisjointPathChecker(2);
+        long[] longPath = new long[100];
+        for (int i = 0; i < longPath.length; i++) {
+            longPath[i] = 1000L * i + 7;
+        }
+        checker.mark(longPath);
+        Assert.assertFalse(checker.isDisjointExceptEndNode(new long[]{1, 50007, longPath[99]}));
+        Assert.assertTrue(checker.isDisjointExceptEndNode(new long[]{1, 50008, longPath[99]}));
+    }
+
+    @Test(groups = "fast")
+    public void thatCheckerAgreesWithSetIntersectionFor6Generations() {
+        assertCheckerAgreesWithSetIntersection(6);
+    }
+
+    @Test(groups = "fast")
+    public void thatCheckerAgreesWithSetIntersectionFor10Generations() {
+        assertCheckerAgreesWithSetIntersection(10);
+    }
+
+    /**
+     * Allocation depends on the JVM and on what else runs in the test JVM, so this only runs with
+     * <code>-Dtestgroup=benchmark</code>.
+     */
+    @Test(groups = "benchmark")
+    public void thatCheckerAllocatesLessThanSetIntersectionFor6Generations() {
+        assertCheckerAllocatesLessThanSetIntersection(6);
+    }
+
+    @Test(groups = "benchmark")
+    public void thatCheckerAllocatesLessThanSetIntersectionFor10Generations() {
+        assertCheckerAllocatesLessThanSetIntersection(10);
+    }
+
+    private static void assertCheckerAgreesWithSetIntersection(int generations) {
+        Map<Long, List<long[]>> firstParentPaths = new LinkedHashMap<>();
+        Map<Long, List<long[]>> secondParentPaths = new LinkedHashMap<>();
+        randomInbredAncestryPaths(generations, firstParentPaths, secondParentPaths);
+
+        int disjointByChecker = checkAllPairs(new DisjointPathChecker(generations), firstParentPaths, secondParentPaths);
+        int disjointBySets = checkAllPairsWithSetIntersection(firstParentPaths, secondParentPaths);
+
+        Assert.assertEquals(disjointByChecker, disjointBySets);
+        Assert.assertTrue(disjointBySets > 0);
+    }
+
+    /**
+     * Compares the memory allocated by the current thread when checking every pair of ancestry paths to a common
+     * ancestor of an inbred pedigree, with the checker and with the set-intersection it replaced.
+     */
+    private static void assertCheckerAllocatesLessThanSetIntersection(int generations) {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            throw new SkipException("Thread allocated memory is not supported by this JVM");
+        }
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threadMXBean;
+        long threadId = Thread.currentThread().getId();
+
+        Map<Long, List<long[]>> firstParentPaths = new LinkedHashMap<>();
+        Map<Long, List<long[]>> secondParentPaths = new LinkedHashMap<>();
+        randomInbredAncestryPaths(generations, firstParentPaths, secondParentPaths);
+        DisjointPathChecker checker = new DisjointPathChecker(generations);
+        checkAllPairs(checker, firstParentPaths, secondParentPaths); // warm-up
+        checkAllPairsWithSetIntersection(firstParentPaths, secondParentPaths);
+
+        long before = allocation.getThreadAllocatedBytes(threadId);
+        checkAllPairs(checker, firstParentPaths, secondParentPaths);
+        long checkerBytes = allocation.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocation.getThreadAllocatedBytes(threadId);
+        checkAllPairsWithSetIntersection(firstParentPaths, secondParentPaths);
+        long setBytes = allocation.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertTrue(setBytes > 100000, "set-intersection allocated only " + setBytes + " bytes");
+        Assert.assertTrue(checkerBytes < setBytes / 100, "checker allocated " + checkerBytes + " bytes, set-intersection " + setBytes + " bytes");
+    }
+
+    private static int checkAllPairs(DisjointPathChecker checker, Map<Long, List<long[]>> firstParentPaths, Map<Long, List<long[]>> secondParentPaths) {
+        int disjoint = 0;
+        for (Map.Entry<Long, List<long[]>> e : secondParentPaths.entrySet()) {
+            List<long[]> otherPaths = firstParentPaths.get(e.getKey());
+            if (otherPaths == null) {
+                continue;
+            }
+            for (long[] path : e.getValue()) {
+                checker.mark(path);
+                for (long[] otherPath : otherPaths) {
+                    if (checker.isDisjointExceptEndNode(otherPath)) {
+                        disjoint++;
+                    }
+                }
+            }
+        }
+        return disjoint;
+    }
+
+    private static int checkAllPairsWithSetIntersection(Map<Long, List<long[]>> firstParentPaths, Map<Long, List<long[]>> secondParentPaths) {
+        int disjoint = 0;
+        for (Map.Entry<Long, List<long[]>> e : secondParentPaths.entrySet()) {
+            List<long[]> otherPaths = firstParentPaths.get(e.getKey());
+            if (otherPaths == null) {
+                continue;
+            }
+            for (long[] path : e.getValue()) {
+                for (long[] otherPath : otherPaths) {
+                    if (Sets.intersection(Sets.newLinkedHashSet(asList(path)), Sets.newLinkedHashSet(asList(otherPath))).size() == 1) {
+                        disjoint++;
+                    }
+                }
+            }
+        }
+        return disjoint;
+    }
+
+    private static List<Long> asList(long[] nodeIds) {
+        List<Long> list = new ArrayList<>(nodeIds.length);
+        for (long nodeId : nodeIds) {
+            list.add(nodeId);
+        }
+        return list;
+    }
+
+    /**
+     * Ancestors of generation k are drawn from a pool of at most 16 dogs, so that most ancestors are reached through
+     * several paths from both parents.
+     */
+    private static void randomInbredAncestryPaths(int generations, Map<Long, List<long[]>> firstParentPaths, Map<Long, List<long[]>> secondParentPaths) {
+        Random random = new Random(17);
+        Map<Long, long[]> parentsById = new LinkedHashMap<>();
+        long[] generation = {1, 2};
+        long nextId = 3;
+        for (int k = 1; k < generations; k++) {
+            long[] pool = new long[Math.min(1 << (k + 1), 16)];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = nextId++;
+            }
+            for (long dog : generation) {
+                parentsById.put(dog, new long[]{pool[random.nextInt(pool.length)], pool[random.nextInt(pool.length)]});
+            }
+            generation = pool;
+        }
+        addAncestryPaths(parentsById, new long[]{1}, firstParentPaths);
+        addAncestryPaths(parentsById, new long[]{2}, secondParentPaths);
+    }
+
+    private static void addAncestryPaths(Map<Long, long[]> parentsById, long[] path, Map<Long, List<long[]>> pathsByEndNodeId) {
+        long endNodeId = path[path.length - 1];
+        List<long[]> paths = pathsByEndNodeId.get(endNodeId);
+        if (paths == null) {
+            paths = new ArrayList<>();
+            pathsByEndNodeId.put(endNodeId, paths);
+        }
+        paths.add(path);
+        long[] parents = parentsById.get(endNodeId);
+        if (parents == null) {
+            return;
+        }
+        for (long parent : parents) {
+            long[] parentPath = Arrays.copyOf(path, path.length + 1);
+            parentPath[path.length] = parent;
+            addAncestryPaths(parentsById, parentPath, pathsByEndNodeId);
+        }
+    }
+}
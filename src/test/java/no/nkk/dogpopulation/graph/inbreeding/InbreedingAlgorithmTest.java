@@ -1,10 +1,14 @@
 package no.nkk.dogpopulation.graph.inbreeding;
 
 import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
@@ -225,4 +229,30 @@ public class InbreedingAlgorithmTest extends AbstractGraphTest {
         // If we get here without producing StackOverflowError, then the test should pass
     }
 
+
+    @Test(groups = "fast")
+    public void thatCoefficientsOfSeveralGenerationsInOneTraversalAreSameAsWhenComputedAlone() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        int dogCount = 80;
+        addRandomPedigree(breedNode, 11, dogCount, 4, 12, 0);
+
+        try (Transaction tx = graphDb.beginTx()) {
+            for (int i = dogCount - 10; i < dogCount; i++) {
+                Node dog = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "D" + i);
+
+                // when
+                InbreedingResult[] results = new InbreedingAlgorithm(graphDb, 6).computeSewallWrightCoefficientsOfInbreeding(dog, 3, 6);
+                InbreedingResult result3 = new InbreedingAlgorithm(graphDb, 3).computeSewallWrightCoefficientOfInbreeding(dog);
+                InbreedingResult result6 = new InbreedingAlgorithm(graphDb, 6).computeSewallWrightCoefficientOfInbreeding(dog);
+
+                // then
+                Assert.assertEquals(results[0].getCoi(), result3.getCoi(), 0.000001);
+                Assert.assertEquals(results[1].getCoi(), result6.getCoi(), 0.000001);
+                Assert.assertEquals(results[0].getCoiByContributingAncestor(), result3.getCoiByContributingAncestor());
+                Assert.assertEquals(results[1].getCoiByContributingAncestor(), result6.getCoiByContributingAncestor());
+            }
+            tx.success();
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import org.neo4j.graphdb.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class InbreedingCacheTest extends AbstractGraphTest {
+
+    @Inject
+    private BulkWriteService bulkWriteService;
+
+    @Inject
+    private InbreedingCache inbreedingCache;
+
+    @Test(groups = "fast")
+    public void thatCachedCoefficientIsInvalidatedWhenParentOfAncestorIsChangedByBulkWriteService() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("A", breedNode);
+        addDog("B", breedNode);
+        addDog("C", breedNode);
+        addDog("D", breedNode);
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+        connectChildToFather("C", "D");
+
+        Assert.assertEquals(graphQueryService.computeCoefficientOfInbreeding("A", 3).getCoi(), 0.0, 0.000001);
+        Assert.assertTrue(inbreedingCache.size() > 0);
+
+        // when
+        bulkWriteService.build(dogs.hasParent().child("C").father("B"));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        Assert.assertEquals(inbreedingCache.size(), 0);
+        Assert.assertEquals(graphQueryService.computeCoefficientOfInbreeding("A", 3).getCoi(), 0.25, 0.000001);
+    }
+
+    @Test(groups = "fast")
+    public void thatUnrelatedChangeDoesNotInvalidateCachedCoefficient() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("A", breedNode);
+        addDog("B", breedNode);
+        addDog("C", breedNode);
+        addDog("X", breedNode);
+        addDog("Y", breedNode);
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+
+        graphQueryService.computeCoefficientOfInbreeding("A", 3);
+        long sizeBefore = inbreedingCache.size();
+
+        // when
+        bulkWriteService.build(dogs.hasParent().child("X").father("Y"));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        Assert.assertEquals(inbreedingCache.size(), sizeBefore);
+    }
+
+    @Test(groups = "fast")
+    public void thatCoefficientComputedBeforeInvalidationIsNotCached() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        Node A = addDog("A", breedNode);
+        addDog("B", breedNode);
+        addDog("C", breedNode);
+        connectChildToFather("A", "B");
+        long version = inbreedingCache.computationStarted(3); // computation of A starts
+
+        // when
+        bulkWriteService.build(dogs.hasParent().child("B").father("C"));
+        bulkWriteService.writeNextBulk();
+        inbreedingCache.put(A, 3, new InbreedingResult(0, Collections.<String, Double>emptyMap()), version);
+        inbreedingCache.computationFinished();
+
+        // then
+        Assert.assertEquals(inbreedingCache.size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void thatCoefficientComputedBeforeUnrelatedChangeIsCached() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        Node A = addDog("A", breedNode);
+        addDog("X", breedNode);
+        addDog("Y", breedNode);
+        long version = inbreedingCache.computationStarted(3); // computation of A starts
+
+        // when
+        bulkWriteService.build(dogs.hasParent().child("X").father("Y"));
+        bulkWriteService.writeNextBulk();
+        inbreedingCache.put(A, 3, new InbreedingResult(0, Collections.<String, Double>emptyMap()), version);
+        inbreedingCache.computationFinished();
+
+        // then
+        Assert.assertEquals(inbreedingCache.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void thatChangeBeyondCachedGenerationsDoesNotInvalidateCachedCoefficient() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("A", breedNode);
+        addDog("B", breedNode);
+        addDog("C", breedNode);
+        addDog("D", breedNode);
+        addDog("E", breedNode);
+        connectChildToFather("A", "B");
+        connectChildToFather("B", "C");
+        connectChildToFather("C", "D");
+
+        graphQueryService.computeCoefficientOfInbreeding("A", 3);
+        long sizeBefore = inbreedingCache.size();
+
+        // when
+        bulkWriteService.build(dogs.hasParent().child("D").father("E"));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        Assert.assertTrue(sizeBefore > 0);
+        Assert.assertEquals(inbreedingCache.size(), sizeBefore);
+    }
+}
@@ -0,0 +1,91 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class InbreedingOfGroupAlgorithmTest extends AbstractGraphTest {
+
+    @Test(groups = "fast")
+    public void thatParallelComputationGivesSameResultAsSequential() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        int dogCount = 300;
+        addRandomPedigree(breedNode, 17, dogCount, 8, 40, 10);
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+
+        // when
+        InbreedingOfGroup sequential;
+        InbreedingOfGroup parallel;
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try (Transaction tx = graphDb.beginTx()) {
+            sequential = new InbreedingOfGroupAlgorithm(graphDb, 6).getInbreedingOfGroup(breedSet, 0, 3000);
+            parallel = new InbreedingOfGroupAlgorithm(graphDb, 6, new InbreedingCache(graphDb, 1000), forkJoinPool).getInbreedingOfGroup(breedSet, 0, 3000);
+            tx.success();
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        // then
+        Assert.assertEquals(parallel.getNumberOfDogs(), dogCount);
+        Assert.assertTrue(sequential.getStatistics().getMax() > 0);
+        Assert.assertEquals(parallel.getStatistics().getMean(), sequential.getStatistics().getMean(), 0.000001);
+        Assert.assertEquals(parallel.getStatistics().getPercentile90(), sequential.getStatistics().getPercentile90(), 0.000001);
+        Assert.assertEquals(parallel.getFrequency(), sequential.getFrequency());
+        assertSameDogs(parallel.getDogsWithCoefficientAbove1250(), sequential.getDogsWithCoefficientAbove1250());
+        assertSameDogs(parallel.getDogsWithCoefficientAbove2500(), sequential.getDogsWithCoefficientAbove2500());
+        assertSameDogs(parallel.getDogsWithCoefficientAbove3000(), sequential.getDogsWithCoefficientAbove3000());
+    }
+
+    @Test(groups = "fast")
+    public void thatTimeSeriesHasSameResultAsOneGroupPerYear() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        int dogCount = 120;
+        addRandomPedigree(breedNode, 17, dogCount, 8, 40, 30);
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try (Transaction tx = graphDb.beginTx()) {
+            // when
+            InbreedingTimeSeries timeSeries = new InbreedingOfGroupAlgorithm(graphDb, 6, new InbreedingCache(graphDb, 1000), forkJoinPool).getInbreedingTimeSeries(breedSet, 1991, 1997);
+
+            // then
+            Assert.assertEquals(timeSeries.getYears().length, 7);
+            int numberOfDogs = 0;
+            for (int i = 0; i < timeSeries.getYears().length; i++) {
+                InbreedingOfGroup year = timeSeries.getYears()[i];
+                Assert.assertEquals(year.getMinYear(), 1991 + i);
+                Assert.assertEquals(year.getMaxYear(), 1991 + i);
+                InbreedingOfGroup expected = new InbreedingOfGroupAlgorithm(graphDb, 6).getInbreedingOfGroup(breedSet, 1991 + i, 1991 + i);
+                Assert.assertEquals(year.getNumberOfDogs(), expected.getNumberOfDogs());
+                Assert.assertEquals(year.getStatistics().getMean(), expected.getStatistics().getMean(), 0.000001);
+                Assert.assertEquals(year.getFrequency(), expected.getFrequency());
+                numberOfDogs += year.getNumberOfDogs();
+            }
+            Assert.assertEquals(timeSeries.getNumberOfDogs(), numberOfDogs);
+            tx.success();
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    private static void assertSameDogs(UuidAndRegNo[] actual, UuidAndRegNo[] expected) {
+        Assert.assertEquals(actual.length, expected.length);
+        for (int i = 0; i < actual.length; i++) {
+            Assert.assertEquals(actual[i].getUuid(), expected[i].getUuid());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
+import no.nkk.dogpopulation.graph.UuidAndRegNo;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class MatingPlanAlgorithmTest extends AbstractGraphTest {
+
+    @Test(groups = "fast")
+    public void thatMatingPlanHasSameCoefficientsAsSingleMatingsAndIsRanked() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        int dogCount = 60;
+        addRandomPedigree(breedNode, 3, dogCount, 4, 10, 0);
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+        try (Transaction tx = graphDb.beginTx()) {
+            List<Node> fathers = new ArrayList<>();
+            List<Node> mothers = new ArrayList<>();
+            for (int i = dogCount - 12; i < dogCount; i++) {
+                Node dog = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "D" + i);
+                (i % 2 == 0 ? fathers : mothers).add(dog);
+            }
+
+            // when
+            MatingPlan matingPlan = new MatingPlanAlgorithm(graphDb, 6, new InbreedingCache(graphDb, 1000), forkJoinPool).getMatingPlan(fathers, mothers, Collections.singletonList("unknown-uuid"));
+
+            // then
+            Assert.assertEquals(matingPlan.getUnknownDogs(), new String[]{"unknown-uuid"});
+            Assert.assertEquals(matingPlan.getRanking().length, fathers.size() * mothers.size());
+            double max = 0;
+            for (int f = 0; f < fathers.size(); f++) {
+                Assert.assertEquals(matingPlan.getFathers()[f].getUuid(), fathers.get(f).getProperty(DogGraphConstants.DOG_UUID));
+                for (int m = 0; m < mothers.size(); m++) {
+                    double expected = 100 * new InbreedingAlgorithm(graphDb, 6).computeSewallWrightCoefficientOfInbreeding("offspring", fathers.get(f), mothers.get(m)).getCoi();
+                    Assert.assertEquals(matingPlan.getInbreedingCoefficients()[f][m], expected, 0.000001);
+                    max = Math.max(max, expected);
+                }
+            }
+            Assert.assertTrue(max > 0);
+            for (int i = 1; i < matingPlan.getRanking().length; i++) {
+                Assert.assertTrue(matingPlan.getRanking()[i - 1].getInbreedingCoefficient() <= matingPlan.getRanking()[i].getInbreedingCoefficient());
+            }
+            tx.success();
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatEachFatherIsVisitedInOrderBetweenStartAndEnd() throws Exception {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        int dogCount = 40;
+        addRandomPedigree(breedNode, 3, dogCount, 4, 10, 0);
+
+        try (Transaction tx = graphDb.beginTx()) {
+            List<Node> fathers = new ArrayList<>();
+            List<Node> mothers = new ArrayList<>();
+            for (int i = dogCount - 8; i < dogCount; i++) {
+                Node dog = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "D" + i);
+                (i % 2 == 0 ? fathers : mothers).add(dog);
+            }
+            final List<String> events = new ArrayList<>();
+            MatingPlan expected = new MatingPlanAlgorithm(graphDb, 6, new InbreedingCache(graphDb, 1000), null).getMatingPlan(fathers, mothers, Collections.<String>emptyList());
+
+            // when
+            new MatingPlanAlgorithm(graphDb, 6, new InbreedingCache(graphDb, 1000), null).visitMatingPlan(fathers, mothers, Collections.<String>emptyList(), new MatingPlanVisitor() {
+                @Override
+                public void start(int generations, List<UuidAndRegNo> fathers, List<UuidAndRegNo> mothers, List<String> unknownDogs) {
+                    events.add("start");
+                }
+
+                @Override
+                public void father(int father, double[] inbreedingCoefficients) {
+                    events.add("father " + father + " " + Arrays.toString(inbreedingCoefficients));
+                }
+
+                @Override
+                public void end(List<MatingPlan.Mating> ranking) {
+                    events.add("end " + ranking.size());
+                }
+            });
+
+            // then
+            List<String> expectedEvents = new ArrayList<>();
+            expectedEvents.add("start");
+            for (int f = 0; f < fathers.size(); f++) {
+                expectedEvents.add("father " + f + " " + Arrays.toString(expected.getInbreedingCoefficients()[f]));
+            }
+            expectedEvents.add("end " + fathers.size() * mothers.size());
+            Assert.assertEquals(events, expectedEvents);
+            tx.success();
+        }
+    }
+}
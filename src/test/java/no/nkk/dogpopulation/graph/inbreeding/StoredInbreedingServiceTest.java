@@ -0,0 +1,167 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphLabel;
+import no.nkk.dogpopulation.graph.ParentRole;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class StoredInbreedingServiceTest extends AbstractGraphTest {
+
+    @Inject
+    private BulkWriteService bulkWriteService;
+
+    @Inject
+    private StoredInbreedingService storedInbreedingService;
+
+    /**
+     * C is the offspring of the half-siblings A and B, D is the offspring of C and E.
+     */
+    private void createHalfSiblingMating(Node breedNode) {
+        addDog("X", breedNode);
+        addDog("M1", breedNode);
+        addDog("M2", breedNode);
+        addDog("A", breedNode);
+        addDog("B", breedNode);
+        addDog("C", breedNode);
+        addDog("D", breedNode);
+        addDog("E", breedNode);
+        connectChildToFather("A", "X");
+        connectChildToMother("A", "M1");
+        connectChildToFather("B", "X");
+        connectChildToMother("B", "M2");
+        connectChildToFather("C", "A");
+        connectChildToMother("C", "B");
+        connectChildToFather("D", "C");
+        connectChildToMother("D", "E");
+    }
+
+    @Test(groups = "fast")
+    public void thatRecomputeAllStoresCoefficientsOfEveryDog() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        createHalfSiblingMating(breedNode);
+
+        // when
+        storedInbreedingService.recomputeAll();
+
+        // then
+        try (Transaction tx = graphDb.beginTx()) {
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            Node d = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "D");
+            Assert.assertEquals(storedInbreedingService.getStoredCoefficientOfInbreeding(c, 3), 0.125, 0.000001);
+            Assert.assertEquals(storedInbreedingService.getStoredCoefficientOfInbreeding(c, 6), 0.125, 0.000001);
+            Assert.assertEquals(storedInbreedingService.getStoredCoefficientOfInbreeding(d, 6), 0.0, 0.000001);
+            Assert.assertNull(storedInbreedingService.getStoredCoefficientOfInbreeding(c, 4));
+            tx.success();
+        }
+        StoredInbreedingStatus status = storedInbreedingService.getStatus();
+        Assert.assertFalse(status.isRecomputeAllRunning());
+        Assert.assertEquals(status.getRecomputeAllTotal(), 8);
+        Assert.assertEquals(status.getRecomputeAllProcessed(), 8);
+    }
+
+    @Test(groups = "fast")
+    public void thatParentChangeMarksDogAndDescendantsPendingUntilRecomputed() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        createHalfSiblingMating(breedNode);
+        storedInbreedingService.recomputeAll();
+
+        // when
+        bulkWriteService.build(dogs.deleteParent().child(dogs.dog("B").name("B")).role(ParentRole.FATHER));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        Assert.assertEquals(storedInbreedingService.getStatus().getPendingDogs(), 3); // B, C and D
+        try (Transaction tx = graphDb.beginTx()) {
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            Assert.assertNull(storedInbreedingService.getStoredCoefficientOfInbreeding(c, 6));
+            tx.success();
+        }
+
+        // when
+        storedInbreedingService.recomputePending();
+
+        // then
+        Assert.assertEquals(storedInbreedingService.getStatus().getPendingDogs(), 0);
+        try (Transaction tx = graphDb.beginTx()) {
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            Assert.assertEquals(storedInbreedingService.getStoredCoefficientOfInbreeding(c, 3), 0.0, 0.000001);
+            Assert.assertEquals(storedInbreedingService.getStoredCoefficientOfInbreeding(c, 6), 0.0, 0.000001);
+            tx.success();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatPendingDogsAreRecomputedAfterRestart() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        createHalfSiblingMating(breedNode);
+        storedInbreedingService.recomputeAll();
+        bulkWriteService.build(dogs.deleteParent().child(dogs.dog("B").name("B")).role(ParentRole.FATHER));
+        bulkWriteService.writeNextBulk();
+
+        // when
+        StoredInbreedingService restarted = new StoredInbreedingService(graphDb, bulkWriteService, new InbreedingCache(graphDb, 1000));
+
+        // then
+        try (Transaction tx = graphDb.beginTx()) {
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            Assert.assertTrue(c.hasLabel(DogGraphLabel.INBREEDING_PENDING));
+            Assert.assertNull(restarted.getStoredCoefficientOfInbreeding(c, 6));
+            tx.success();
+        }
+
+        // when
+        restarted.start(MoreExecutors.sameThreadExecutor(), MoreExecutors.sameThreadExecutor());
+
+        // then
+        Assert.assertEquals(restarted.getStatus().getPendingDogs(), 0);
+        try (Transaction tx = graphDb.beginTx()) {
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            Assert.assertFalse(c.hasLabel(DogGraphLabel.INBREEDING_PENDING));
+            Assert.assertEquals(restarted.getStoredCoefficientOfInbreeding(c, 6), 0.0, 0.000001);
+            Assert.assertFalse(graphDb.findNodes(DogGraphLabel.INBREEDING_PENDING).hasNext());
+            tx.success();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatFirstStoredValueOfAncestorRecomputesDescendants() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        createHalfSiblingMating(breedNode);
+        storedInbreedingService.recomputeAll();
+        try (Transaction tx = graphDb.beginTx()) {
+            Node a = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "A");
+            a.removeProperty(DogGraphConstants.DOG_INBREEDING3);
+            a.removeProperty(DogGraphConstants.DOG_INBREEDING6);
+            a.addLabel(DogGraphLabel.INBREEDING_PENDING);
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            c.setProperty(DogGraphConstants.DOG_INBREEDING6, 0.5); // stale, computed without A
+            tx.success();
+        }
+
+        // when
+        StoredInbreedingService restarted = new StoredInbreedingService(graphDb, bulkWriteService, new InbreedingCache(graphDb, 1000));
+        restarted.start(MoreExecutors.sameThreadExecutor(), MoreExecutors.sameThreadExecutor());
+
+        // then
+        Assert.assertEquals(restarted.getStatus().getPendingDogs(), 0);
+        try (Transaction tx = graphDb.beginTx()) {
+            Node c = graphDb.findNode(DogGraphLabel.DOG, DogGraphConstants.DOG_UUID, "C");
+            Assert.assertEquals(restarted.getStoredCoefficientOfInbreeding(c, 6), 0.125, 0.000001);
+            tx.success();
+        }
+    }
+}
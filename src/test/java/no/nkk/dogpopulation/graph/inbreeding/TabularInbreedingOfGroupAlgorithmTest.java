@@ -0,0 +1,103 @@
+package no.nkk.dogpopulation.graph.inbreeding;
+
+import no.nkk.dogpopulation.AbstractGraphTest;
+import org.joda.time.LocalDate;
+import org.neo4j.graphdb.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class TabularInbreedingOfGroupAlgorithmTest extends AbstractGraphTest {
+
+    @Test(groups = "fast")
+    public void thatTabularMethodGivesSameResultAsPathCountingForFatherWithDaughterMating() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        LocalDate parentsBorn = LocalDate.parse("2008-06-01");
+        addDog("A", breedNode, LocalDate.parse("2012-03-15"));
+        addDog("A2", breedNode, LocalDate.parse("2012-04-20"));
+        addDog("B", breedNode, parentsBorn);
+        addDog("C", breedNode, parentsBorn);
+        addDog("D", breedNode, parentsBorn);
+        addDog("X", breedNode, parentsBorn);
+        addDog("Y", breedNode, parentsBorn);
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+        connectChildToFather("A2", "X");
+        connectChildToMother("A2", "Y");
+        connectChildToFather("B", "X");
+        connectChildToMother("B", "Y");
+        connectChildToFather("C", "B");
+        connectChildToMother("C", "D");
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+
+        // when
+        InbreedingOfGroup tabular = graphQueryService.getInbreedingOfGroup(InbreedingMethod.TABULAR, 3, breedSet, 2012, 2012);
+        InbreedingOfGroup pathCounting = graphQueryService.getInbreedingOfGroup(InbreedingMethod.PATHCOUNTING, 3, breedSet, 2012, 2012);
+
+        // then
+        Assert.assertEquals(tabular.getNumberOfDogs(), 2);
+        Assert.assertEquals(tabular.getStatistics().getMax(), 25.0, 0.000001);
+        Assert.assertEquals(tabular.getStatistics().getMean(), pathCounting.getStatistics().getMean(), 0.000001);
+        Assert.assertEquals(tabular.getFrequency(), pathCounting.getFrequency());
+    }
+
+    @Test(groups = "fast")
+    public void thatAncestorInbreedingIsIncludedWhenWithinGenerations() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        LocalDate born = LocalDate.parse("2000-01-01");
+        addDog("A", breedNode, LocalDate.parse("2014-01-01"));
+        addDog("B", breedNode, born);
+        addDog("C", breedNode, born);
+        addDog("D", breedNode, born);
+        addDog("E", breedNode, born);
+        // B is the product of D mated with his own daughter E (F=0.25), A is the product of B mated with his own daughter C
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+        connectChildToFather("C", "B");
+        connectChildToFather("B", "D");
+        connectChildToMother("B", "E");
+        connectChildToFather("E", "D");
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+
+        // when
+        InbreedingOfGroup tabular = graphQueryService.getInbreedingOfGroup(InbreedingMethod.TABULAR, 6, breedSet, 2014, 2014);
+        InbreedingOfGroup pathCounting = graphQueryService.getInbreedingOfGroup(InbreedingMethod.PATHCOUNTING, 6, breedSet, 2014, 2014);
+
+        // then
+        Assert.assertEquals(tabular.getNumberOfDogs(), 1);
+        Assert.assertEquals(tabular.getStatistics().getMax(), 31.25, 0.000001);
+        Assert.assertEquals(pathCounting.getStatistics().getMax(), 31.25, 0.000001);
+    }
+
+    @Test(groups = "fast")
+    public void thatCircularPedigreeIsHandled() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("A", breedNode, LocalDate.parse("2010-01-01"));
+        addDog("B", breedNode, LocalDate.parse("2008-01-01"));
+        addDog("C", breedNode, LocalDate.parse("2008-01-01"));
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+        connectChildToFather("B", "A");
+        connectChildToMother("B", "C");
+        connectChildToFather("C", "B");
+        connectChildToMother("C", "A");
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+
+        // when
+        InbreedingOfGroup tabular = graphQueryService.getInbreedingOfGroup(InbreedingMethod.TABULAR, 6, breedSet, 2000, 2020);
+
+        // then
+        Assert.assertEquals(tabular.getNumberOfDogs(), 3);
+    }
+}
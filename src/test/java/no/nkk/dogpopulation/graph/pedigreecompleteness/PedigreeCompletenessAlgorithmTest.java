@@ -126,6 +126,29 @@ public class PedigreeCompletenessAlgorithmTest extends AbstractGraphTest {
         Assert.assertEquals(pedigreeSize, 21);
     }
 
+    @Test(groups = "fast")
+    public void thatPedigreeWithCycleComputesAncestorPathsUpToGenerations() {
+        // given
+        Node rottweiler = breed("Rottweiler");
+        Node A = addDog("A", rottweiler);
+        addDog("B", rottweiler);
+        addDog("C", rottweiler);
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+        connectChildToFather("B", "A"); // invalid registration making A its own grandfather
+
+        // when
+        PedigreeCompletenessAlgorithm algorithm = new PedigreeCompletenessAlgorithm(graphDb, 5);
+        int pedigreeSize;
+        try (Transaction tx = graphDb.beginTx()) {
+            pedigreeSize = algorithm.computePedigreeSize(A);
+            tx.success();
+        }
+
+        // then
+        Assert.assertEquals(pedigreeSize, 6); // B, C, A, B, C, A
+    }
+
     @Test(groups = "fast")
     public void thatPedigreeCompletenessOfRottweilerAndPointerComputesCorrectlyWithoutAlsoIncludingBoxer() {
         // given
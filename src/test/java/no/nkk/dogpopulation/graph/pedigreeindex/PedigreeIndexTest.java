@@ -0,0 +1,143 @@
+package no.nkk.dogpopulation.graph.pedigreeindex;
+
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.ParentRole;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import no.nkk.dogpopulation.graph.inbreeding.InbreedingOfGroup;
+import no.nkk.dogpopulation.graph.inbreeding.TabularInbreedingOfGroupAlgorithm;
+import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompleteness;
+import no.nkk.dogpopulation.graph.pedigreecompleteness.PedigreeCompletenessAlgorithm;
+import org.joda.time.LocalDate;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeIndexTest extends AbstractGraphTest {
+
+    @Inject
+    private BulkWriteService bulkWriteService;
+
+    @Inject
+    private PedigreeIndex pedigreeIndex;
+
+    @Test(groups = "fast")
+    public void thatIndexContainsParentsBirthYearAndBreed() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        Node a = addDog("A", breedNode, LocalDate.parse("2010-05-01"));
+        Node b = addDog("B", breedNode, LocalDate.parse("2005-01-01"));
+        Node c = addDog("C", breedNode);
+        connectChildToFather("A", "B");
+        connectChildToMother("A", "C");
+
+        // when
+        Assert.assertFalse(pedigreeIndex.isBuilt());
+        pedigreeIndex.build();
+
+        // then
+        Assert.assertTrue(pedigreeIndex.isBuilt());
+        try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+            Assert.assertEquals(reader.size(), 3);
+            int dogA = reader.indexOf(a.getId());
+            Assert.assertEquals(reader.nodeId(dogA), a.getId());
+            Assert.assertEquals(reader.nodeId(reader.father(dogA)), b.getId());
+            Assert.assertEquals(reader.nodeId(reader.mother(dogA)), c.getId());
+            Assert.assertEquals(reader.bornYear(dogA), 2010);
+            Assert.assertEquals(reader.bornYear(reader.indexOf(c.getId())), PedigreeIndex.UNKNOWN);
+            Assert.assertEquals(reader.father(reader.indexOf(b.getId())), PedigreeIndex.UNKNOWN);
+            Assert.assertEquals(reader.breed(dogA), reader.breedIndexOf(breedNode.getId()));
+            Assert.assertNotEquals(reader.breed(dogA), PedigreeIndex.UNKNOWN);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatIndexIsRefreshedWhenBulkWriteServiceCommitsChanges() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        Node a = addDog("A", breedNode);
+        addDog("B", breedNode);
+        connectChildToFather("A", "B");
+        pedigreeIndex.build();
+
+        // when
+        bulkWriteService.build(dogs.hasParent().child("A").parent(dogs.dog("D").name("D").breed(breedNode).born(LocalDate.parse("2001-02-03"))).role(ParentRole.MOTHER));
+        bulkWriteService.build(dogs.deleteParent().child(dogs.dog("A").name("A")).role(ParentRole.FATHER));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        try (Transaction tx = graphDb.beginTx()) {
+            try (PedigreeIndex.Reader reader = pedigreeIndex.reader()) {
+                int dogA = reader.indexOf(a.getId());
+                Assert.assertEquals(reader.father(dogA), PedigreeIndex.UNKNOWN);
+                int mother = reader.mother(dogA);
+                Assert.assertNotEquals(mother, PedigreeIndex.UNKNOWN);
+                Assert.assertEquals(graphDb.getNodeById(reader.nodeId(mother)).getProperty("uuid"), "D");
+                Assert.assertEquals(reader.bornYear(mother), 2001);
+            }
+            tx.success();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatOpenReaderKeepsItsSnapshotWhileChangesAreCommitted() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        Node a = addDog("A", breedNode);
+        Node b = addDog("B", breedNode);
+        connectChildToFather("A", "B");
+        pedigreeIndex.build();
+
+        try (PedigreeIndex.Reader before = pedigreeIndex.reader()) {
+            // when
+            bulkWriteService.build(dogs.deleteParent().child(dogs.dog("A").name("A")).role(ParentRole.FATHER));
+            bulkWriteService.writeNextBulk();
+
+            // then
+            Assert.assertEquals(before.nodeId(before.father(before.indexOf(a.getId()))), b.getId());
+            try (PedigreeIndex.Reader after = pedigreeIndex.reader()) {
+                Assert.assertEquals(after.father(after.indexOf(a.getId())), PedigreeIndex.UNKNOWN);
+                Assert.assertEquals(after.size(), before.size());
+            }
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatAlgorithmsGiveSameResultWithAndWithoutIndex() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        int dogCount = 120;
+        addRandomPedigree(breedNode, 5, dogCount, 6, 20, 20);
+        Set<String> breedSet = new LinkedHashSet<>();
+        breedSet.add("Unit-test Breed");
+        pedigreeIndex.build();
+
+        // when
+        PedigreeCompleteness completenessFromGraph;
+        PedigreeCompleteness completenessFromIndex;
+        InbreedingOfGroup inbreedingFromGraph;
+        InbreedingOfGroup inbreedingFromIndex;
+        try (Transaction tx = graphDb.beginTx()) {
+            completenessFromGraph = new PedigreeCompletenessAlgorithm(graphDb, 6).getPedigreeCompletenessOfGroup(breedSet, 0, 3000);
+            completenessFromIndex = new PedigreeCompletenessAlgorithm(graphDb, 6, pedigreeIndex).getPedigreeCompletenessOfGroup(breedSet, 0, 3000);
+            inbreedingFromGraph = new TabularInbreedingOfGroupAlgorithm(graphDb, 6).getInbreedingOfGroup(breedSet, 0, 3000);
+            inbreedingFromIndex = new TabularInbreedingOfGroupAlgorithm(graphDb, 6, pedigreeIndex).getInbreedingOfGroup(breedSet, 0, 3000);
+            tx.success();
+        }
+
+        // then
+        Assert.assertTrue(completenessFromGraph.getPedigreeSizeStatistics().getMean() > 0);
+        Assert.assertEquals(completenessFromIndex.getPedigreeSizeStatistics().getMean(), completenessFromGraph.getPedigreeSizeStatistics().getMean(), 0.000001);
+        Assert.assertEquals(completenessFromIndex.getPedigreeSizeHistogram(), completenessFromGraph.getPedigreeSizeHistogram());
+        Assert.assertTrue(inbreedingFromGraph.getStatistics().getMax() > 0);
+        Assert.assertEquals(inbreedingFromIndex.getStatistics().getMean(), inbreedingFromGraph.getStatistics().getMean(), 0.000001);
+        Assert.assertEquals(inbreedingFromIndex.getFrequency(), inbreedingFromGraph.getFrequency());
+    }
+}
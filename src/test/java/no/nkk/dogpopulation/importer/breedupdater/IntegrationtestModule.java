@@ -27,6 +27,12 @@ public class IntegrationtestModule extends AbstractModule {
         bind(String.class).annotatedWith(Names.named("neo4jFolder")).toInstance(graphDbPath);
 
         bind(URL.class).annotatedWith(Names.named("breedJsonUrl")).toInstance(toUrl(new File("src/test/resources/breedimport/Raser.json")));
+        bind(int.class).annotatedWith(Names.named("inbreedingCacheSize")).toInstance(10000);
+        bind(int.class).annotatedWith(Names.named("pedigreeResponseCacheSize")).toInstance(100);
+        bind(int.class).annotatedWith(Names.named("pedigreeHotSetSize")).toInstance(100);
+        bind(String.class).annotatedWith(Names.named("pedigreeHotSetFile")).toInstance("target/integrationtest-pedigree-hotset.json");
+        bind(int.class).annotatedWith(Names.named("pedigreeAsyncTimeoutSeconds")).toInstance(60);
+        bind(int.class).annotatedWith(Names.named("algorithmParallelism")).toInstance(2);
 
         bind(PedigreeImporter.class).to(DogSearchPedigreeImporter.class);
 
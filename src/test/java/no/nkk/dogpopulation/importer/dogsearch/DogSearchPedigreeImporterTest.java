@@ -5,6 +5,8 @@ import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import no.nkk.dogpopulation.UnittestModule;
+import no.nkk.dogpopulation.concurrent.ExecutorManager;
+import no.nkk.dogpopulation.concurrent.ThreadingModule;
 import no.nkk.dogpopulation.graph.DogGraphConstants;
 import no.nkk.dogpopulation.graph.GraphQueryService;
 import no.nkk.dogpopulation.graph.Neo4jModule;
@@ -39,6 +41,8 @@ public class DogSearchPedigreeImporterTest {
     Dogs dogs;
     @Inject
     BulkWriteService bulkWriteService;
+    @Inject
+    ExecutorManager executorManager;
 
     ExecutorService executorService;
 
@@ -46,6 +50,7 @@ public class DogSearchPedigreeImporterTest {
     public void initGraph() {
         final Injector injector = Guice.createInjector(
                 new UnittestModule(),
+                new ThreadingModule(20),
                 new Neo4jModule()
         );
         injector.injectMembers(this);
@@ -55,6 +60,7 @@ public class DogSearchPedigreeImporterTest {
 
     @AfterMethod
     public void closeGraph() {
+        executorManager.shutdown();
         graphDb.shutdown();
         executorService.shutdown();
     }
@@ -113,6 +119,6 @@ public class DogSearchPedigreeImporterTest {
         Assert.assertEquals(topLevelDog.getBorn(), "1994-04-28");
         Assert.assertEquals(topLevelDog.getHealth().getHdDiag(), "A1");
         Assert.assertEquals(topLevelDog.getHealth().getHdYear(), 1996);
-        Assert.assertEquals(topLevelDog.getOffspring().length, 6);
+        Assert.assertEquals(topLevelDog.getOffspring().getLitters(), 6);
     }
 }
@@ -1,22 +1,23 @@
 package no.nkk.dogpopulation.importer.dogsearch;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import no.nkk.dogpopulation.importer.PedigreeImporter;
 
 import javax.inject.Singleton;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 @Singleton
 public class DogTestImporter implements PedigreeImporter, Callable<String> {
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
 
     @Override
-    public Future<String> importPedigree(String id) {
+    public ListenableFuture<String> importPedigree(String id) {
         return executorService.submit(this);
     }
 
@@ -4,6 +4,8 @@ import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import no.nkk.dogpopulation.UnittestModule;
+import no.nkk.dogpopulation.concurrent.ExecutorManager;
+import no.nkk.dogpopulation.concurrent.ThreadingModule;
 import no.nkk.dogpopulation.graph.GraphQueryService;
 import no.nkk.dogpopulation.graph.Neo4jModule;
 import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
@@ -33,6 +35,8 @@ public class PedigreeImporterTest {
     Dogs dogs;
     @Inject
     BulkWriteService bulkWriteService;
+    @Inject
+    ExecutorManager executorManager;
 
     ExecutorService executorService;
 
@@ -40,6 +44,7 @@ public class PedigreeImporterTest {
     public void initGraph() {
         final Injector injector = Guice.createInjector(
                 new UnittestModule(),
+                new ThreadingModule(20),
                 new Neo4jModule()
         );
         injector.injectMembers(this);
@@ -49,6 +54,7 @@ public class PedigreeImporterTest {
 
     @AfterMethod
     public void closeGraph() {
+        executorManager.shutdown();
         graphDb.shutdown();
         executorService.shutdown();
     }
@@ -0,0 +1,72 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.restassured.RestAssured;
+import no.nkk.dogpopulation.AbstractResourceTest;
+import org.neo4j.graphdb.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class GraphResourceTest extends AbstractResourceTest {
+
+    @Test(groups = "fast")
+    public void thatDescendantsAreListedOnceAndCountedPerGeneration() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        addDog("sire", breedNode);
+        addDog("son", breedNode);
+        addDog("daughter", breedNode);
+        addDog("grandchild", breedNode);
+        addDog("great-grandchild", breedNode);
+        connectChildToFather("son", "sire");
+        connectChildToMother("daughter", "sire");
+        connectChildToFather("grandchild", "son");
+        connectChildToMother("grandchild", "daughter");
+        connectChildToFather("great-grandchild", "grandchild");
+
+        String json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/graph/dog/sire/descendants").asString();
+
+        JsonNode descendants = new ObjectMapper().readTree(json);
+        Assert.assertEquals(descendants.get("total").asInt(), 4);
+        Assert.assertEquals(descendants.get("descendants").size(), 4);
+        Set<String> uuids = new LinkedHashSet<>();
+        for (JsonNode uuid : descendants.get("descendants")) {
+            uuids.add(uuid.asText());
+        }
+        Assert.assertEquals(uuids.size(), 4);
+        Assert.assertEquals(descendants.get("countPerGeneration").size(), 3);
+        Assert.assertEquals(descendants.get("countPerGeneration").get(0).asInt(), 2);
+        Assert.assertEquals(descendants.get("countPerGeneration").get(1).asInt(), 1);
+        Assert.assertEquals(descendants.get("countPerGeneration").get(2).asInt(), 1);
+
+        json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/graph/dog/sire/descendants?generations=2").asString();
+
+        descendants = new ObjectMapper().readTree(json);
+        Assert.assertEquals(descendants.get("total").asInt(), 3);
+        Assert.assertEquals(descendants.get("descendants").get(2).asText(), "grandchild");
+
+        RestAssured.expect().statusCode(404).when().get("/dogpopulation/graph/dog/missing/descendants");
+    }
+
+    @Test(groups = "fast")
+    public void thatRecomputeAllStoredInbreedingIsNotAllowedWithGet() throws Exception {
+        RestAssured.expect().statusCode(405).when().get("/dogpopulation/graph/inbreeding/recomputeall");
+        RestAssured.expect().statusCode(200).when().get("/dogpopulation/graph/inbreeding/recompute/status");
+    }
+
+    @Test(groups = "fast")
+    public void thatDashboardHasSameDefaultYearRangeAsLitter() throws Exception {
+        String json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/graph/dashboard?breed=Rottweiler&metric=litter").asString();
+
+        JsonNode dashboard = new ObjectMapper().readTree(json);
+        Assert.assertEquals(dashboard.get("minYear").asInt(), 0);
+        Assert.assertEquals(dashboard.get("maxYear").asInt(), 9999);
+        Assert.assertEquals(dashboard.get("litter").get("maxYear").asInt(), 9999);
+    }
+}
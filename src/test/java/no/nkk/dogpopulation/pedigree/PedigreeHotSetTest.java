@@ -0,0 +1,82 @@
+package no.nkk.dogpopulation.pedigree;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeHotSetTest {
+
+    @Test(groups = "fast")
+    public void thatColdDogDoesNotDisplaceHotterDogs() {
+        PedigreeHotSet hotSet = new PedigreeHotSet(2, "target/pedigree-hotset-unused.json");
+        record(hotSet, "A", 5);
+        record(hotSet, "B", 3);
+        record(hotSet, "C", 1);
+        Assert.assertEquals(hotSet.hottest(10), Arrays.asList("A", "B"));
+
+        record(hotSet, "C", 5);
+        Assert.assertEquals(hotSet.hottest(10), Arrays.asList("C", "A"));
+        Assert.assertEquals(hotSet.hottest(1), Arrays.asList("C"));
+    }
+
+    @Test(groups = "fast")
+    public void thatHotSetSurvivesSaveAndLoad() {
+        String path = "target/pedigree-hotset-test.json";
+        FileUtils.deleteQuietly(new File(path));
+        PedigreeHotSet hotSet = new PedigreeHotSet(10, path);
+        record(hotSet, "A", 2);
+        record(hotSet, "B", 4);
+        hotSet.save();
+
+        PedigreeHotSet loaded = new PedigreeHotSet(10, path);
+        loaded.load();
+        Assert.assertEquals(loaded.hottest(10), Arrays.asList("B", "A"));
+
+        record(loaded, "A", 3);
+        Assert.assertEquals(loaded.hottest(10), Arrays.asList("A", "B"));
+    }
+
+    @Test(groups = "fast")
+    public void thatConcurrentRecordingKeepsHottestDogs() throws Exception {
+        final PedigreeHotSet hotSet = new PedigreeHotSet(2, "target/pedigree-hotset-unused.json");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 100; i++) {
+                            hotSet.record("A");
+                            hotSet.record(i % 2 == 0 ? "B" : "cold-" + thread + "-" + i);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(hotSet.hottest(10), Arrays.asList("A", "B"));
+    }
+
+    private static void record(PedigreeHotSet hotSet, String id, int times) {
+        for (int i = 0; i < times; i++) {
+            hotSet.record(id);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+import com.jayway.restassured.RestAssured;
+import no.nkk.dogpopulation.AbstractResourceTest;
+import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
+import no.nkk.dogpopulation.importer.PedigreeImporter;
+import no.nkk.dogpopulation.importer.dogsearch.TraversalStatistics;
+import org.neo4j.graphdb.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pedigree requests that have to wait for an import, with imports that only complete when the test says so.
+ *
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeResourceAsyncTest extends AbstractResourceTest {
+
+    private ControlledPedigreeImporter pedigreeImporter;
+
+    @Override
+    protected Module testOverrides() {
+        pedigreeImporter = new ControlledPedigreeImporter();
+        return new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(PedigreeImporter.class).toInstance(pedigreeImporter);
+                bind(int.class).annotatedWith(Names.named("pedigreeAsyncTimeoutSeconds")).toInstance(1);
+            }
+        };
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeIsResumedWhenImportCompletes() throws Exception {
+        addDog("child", breed("Rottweiler"));
+
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<TopLevelDog> response = client.submit(new Callable<TopLevelDog>() {
+                @Override
+                public TopLevelDog call() {
+                    return RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child").as(TopLevelDog.class);
+                }
+            });
+
+            Assert.assertEquals(pedigreeImporter.awaitImport(), "child");
+            Assert.assertFalse(response.isDone());
+
+            pedigreeImporter.complete("child");
+
+            Assert.assertEquals(response.get(10, TimeUnit.SECONDS).getUuid(), "child");
+        } finally {
+            client.shutdownNow();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void thatSlowImportIsAcceptedWithImportStatusLocation() throws Exception {
+        addDog("child", breed("Rottweiler"));
+
+        String location = RestAssured.expect().statusCode(202).when().get("/dogpopulation/pedigree/child").header("Location");
+        Assert.assertTrue(location.endsWith("/dogpopulation/pedigree/child/status"));
+
+        com.jayway.restassured.response.Response status = RestAssured.expect().statusCode(200).header("Retry-After", "5").when().get(location);
+        Assert.assertEquals(new ObjectMapper().readTree(status.asString()).get("state").asText(), "IMPORTING");
+
+        pedigreeImporter.complete("child");
+
+        RestAssured.given().redirects().follow(false).expect().statusCode(303).when().get(location);
+    }
+
+    @Test(groups = "fast")
+    public void thatSlowImportOfPedigreeDagIsAcceptedWithImportStatusLocation() throws Exception {
+        addDog("child", breed("Rottweiler"));
+
+        String location = RestAssured.expect().statusCode(202).when().get("/dogpopulation/pedigree/child/dag").header("Location");
+        Assert.assertTrue(location.endsWith("/dogpopulation/pedigree/child/status"));
+
+        pedigreeImporter.complete("child");
+
+        String json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child/dag").asString();
+        Assert.assertEquals(new ObjectMapper().readTree(json).get("uuid").asText(), "child");
+    }
+
+    @Test(groups = "fast")
+    public void thatRespondAsyncIsOnlyPreferredWhileImporting() throws Exception {
+        Node breedNode = breed("Rottweiler");
+        addDog("child", breedNode);
+        addDog("father", breedNode);
+        connectChildToFather("child", "father");
+
+        String location = RestAssured.given().header("Prefer", "respond-async").expect().statusCode(202).when().get("/dogpopulation/pedigree/father").header("Location");
+        Assert.assertTrue(location.endsWith("/dogpopulation/pedigree/father/status"));
+        Assert.assertEquals(pedigreeImporter.awaitImport(), "father");
+
+        TopLevelDog dog = RestAssured.given().header("Prefer", "respond-async").expect().statusCode(200).when().get("/dogpopulation/pedigree/child").as(TopLevelDog.class);
+        Assert.assertEquals(dog.getAncestry().getFather().getUuid(), "father");
+    }
+
+    @Test(groups = "fast")
+    public void thatFictitiousPedigreeIsAcceptedWithImportStatusOfBothParents() throws Exception {
+        Node breedNode = breed("Rottweiler");
+        addDog("father", breedNode);
+        addDog("mother", breedNode);
+        addDog("grandmother", breedNode);
+        connectChildToMother("mother", "grandmother");
+
+        String location = RestAssured.given().header("Prefer", "respond-async").expect().statusCode(202).when().get("/dogpopulation/pedigree/fictitious?father=father&mother=mother").header("Location");
+        Assert.assertTrue(location.endsWith("/dogpopulation/pedigree/fictitious/status?father=father&mother=mother"));
+
+        String json = RestAssured.expect().statusCode(200).when().get(location).asString();
+        JsonNode statuses = new ObjectMapper().readTree(json);
+        Assert.assertEquals(statuses.get(0).get("state").asText(), "IMPORTING");
+        Assert.assertEquals(statuses.get(1).get("state").asText(), "COMPLETED");
+
+        pedigreeImporter.complete("father");
+
+        String pedigree = RestAssured.given().redirects().follow(false).expect().statusCode(303).when().get(location).header("Location");
+        Assert.assertTrue(pedigree.endsWith("/dogpopulation/pedigree/fictitious?father=father&mother=mother"));
+
+        RestAssured.expect().statusCode(404).when().get("/dogpopulation/pedigree/fictitious/status?father=father&mother=missing");
+    }
+
+    /**
+     * Imports nothing, and only completes an import when told to.
+     */
+    private static class ControlledPedigreeImporter implements PedigreeImporter {
+        private final ConcurrentMap<String, SettableFuture<String>> importById = new ConcurrentHashMap<>();
+        private final BlockingQueue<String> requested = new LinkedBlockingQueue<>();
+
+        @Override
+        public ListenableFuture<String> importPedigree(String id) {
+            requested.add(id);
+            return importOf(id);
+        }
+
+        @Override
+        public TraversalStatistics importDogPedigree(String id) {
+            return new TraversalStatistics(id);
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        String awaitImport() throws InterruptedException {
+            return requested.poll(10, TimeUnit.SECONDS);
+        }
+
+        void complete(String id) {
+            importOf(id).set(id);
+        }
+
+        private SettableFuture<String> importOf(String id) {
+            SettableFuture<String> future = SettableFuture.create();
+            SettableFuture<String> existing = importById.putIfAbsent(id, future);
+            return existing != null ? existing : future;
+        }
+    }
+}
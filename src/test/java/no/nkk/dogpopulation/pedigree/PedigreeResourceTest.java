@@ -1,17 +1,33 @@
 package no.nkk.dogpopulation.pedigree;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.inject.Inject;
 import com.jayway.restassured.RestAssured;
 import no.nkk.dogpopulation.AbstractResourceTest;
+import no.nkk.dogpopulation.graph.DogGraphConstants;
+import no.nkk.dogpopulation.graph.DogGraphRelationshipType;
+import no.nkk.dogpopulation.graph.ParentRole;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
 import no.nkk.dogpopulation.graph.pedigree.TopLevelDog;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
  */
 public class PedigreeResourceTest extends AbstractResourceTest {
 
+    @Inject
+    private BulkWriteService bulkWriteService;
+
     @Test(groups = "fast")
     public void thatPedigreeIsWellFormed() throws Exception {
         String breed = "Rottweiler";
@@ -42,4 +58,231 @@ public class PedigreeResourceTest extends AbstractResourceTest {
         Assert.assertEquals(dogName, "Wicked teeth Sr. II");
     }
 
+    @Test(groups = "fast")
+    public void thatUnchangedPedigreeIsNotModifiedUntilAncestorChanges() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        addDog("child", breedNode);
+        addDog("father", breedNode);
+        addDog("grandfather", breedNode);
+        connectChildToFather("child", "father");
+        connectChildToFather("father", "grandfather");
+
+        String etag = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child").header("ETag");
+        Assert.assertNotNull(etag);
+        RestAssured.given().header("If-None-Match", etag).expect().statusCode(304).when().get("/dogpopulation/pedigree/child");
+
+        bulkWriteService.build(dogs.dog("grandfather").name("Renamed grandfather"));
+        bulkWriteService.writeNextBulk();
+
+        TopLevelDog dog = RestAssured.given().header("If-None-Match", etag).expect().statusCode(200).when().get("/dogpopulation/pedigree/child").as(TopLevelDog.class);
+        Assert.assertEquals(dog.getAncestry().getFather().getAncestry().getFather().getName(), "Renamed grandfather");
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeIsOnlyPrettyPrintedWhenAskedFor() throws Exception {
+        addDog("child", breedSynonymNodeCache.getBreed("Rottweiler"));
+
+        String compact = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child").asString();
+        String pretty = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child?pretty=true").asString();
+
+        Assert.assertFalse(compact.contains("\n"));
+        Assert.assertTrue(pretty.contains("\n"));
+        ObjectMapper objectMapper = new ObjectMapper();
+        Assert.assertEquals(objectMapper.readTree(pretty), objectMapper.readTree(compact));
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeIsEncodedAsSmileWhenAccepted() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        addDog("child", breedNode);
+        addDog("father", breedNode);
+        connectChildToFather("child", "father");
+
+        String json = RestAssured.expect().statusCode(200).contentType("application/json").when().get("/dogpopulation/pedigree/child").asString();
+        byte[] smile = RestAssured.given().header("Accept", JsonResponseWriter.APPLICATION_SMILE)
+                .expect().statusCode(200).contentType(JsonResponseWriter.APPLICATION_SMILE).when().get("/dogpopulation/pedigree/child?pretty=true").asByteArray();
+
+        Assert.assertTrue(smile.length < json.getBytes("UTF-8").length);
+        Assert.assertEquals(new ObjectMapper(new SmileFactory()).readTree(smile), new ObjectMapper().readTree(json));
+
+        String dagJson = RestAssured.expect().statusCode(200).contentType("application/json").when().get("/dogpopulation/pedigree/child/dag").asString();
+        byte[] dagSmile = RestAssured.given().header("Accept", JsonResponseWriter.APPLICATION_SMILE)
+                .expect().statusCode(200).contentType(JsonResponseWriter.APPLICATION_SMILE).when().get("/dogpopulation/pedigree/child/dag").asByteArray();
+        Assert.assertEquals(new ObjectMapper(new SmileFactory()).readTree(dagSmile), new ObjectMapper().readTree(dagJson));
+    }
+
+    @Test(groups = "fast")
+    public void thatOffspringArePagedByLitterBirthDate() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        Node father = addDog("father", breedNode);
+        String[][] litters = {{"L1", "2010-05-01", "p1", "p2"}, {"L2", "2012-03-01", "p3"}, {"L3", "2011-01-01", "p4"}};
+        Map<String, Node> puppies = new HashMap<>();
+        for (String[] litter : litters) {
+            for (int i = 2; i < litter.length; i++) {
+                puppies.put(litter[i], addDog(litter[i], breedNode));
+            }
+        }
+        try (Transaction tx = graphDb.beginTx()) {
+            for (String[] litter : litters) {
+                Node litterNode = dogs.litter().id(litter[0]).born(litter[1]).count(litter.length - 2).build(graphDb);
+                dogs.hasLitter().parent(father).litter(litterNode).role(ParentRole.FATHER).build(graphDb);
+                for (int i = 2; i < litter.length; i++) {
+                    dogs.inLitter().puppy(puppies.get(litter[i])).litter(litterNode).build(graphDb);
+                }
+            }
+            tx.success();
+        }
+
+        TopLevelDog dog = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/father").as(TopLevelDog.class);
+        Assert.assertEquals(dog.getOffspring().getLitters(), 3);
+        Assert.assertEquals(dog.getOffspring().getPuppies(), 4);
+
+        String json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/father/offspring?offset=1&limit=1").asString();
+        JsonNode offspringPage = new ObjectMapper().readTree(json);
+        Assert.assertEquals(offspringPage.get("totalLitters").asInt(), 3);
+        Assert.assertEquals(offspringPage.get("offspring").size(), 1);
+        JsonNode litter = offspringPage.get("offspring").get(0);
+        Assert.assertEquals(litter.get("id").asText(), "L3");
+        Assert.assertEquals(litter.get("born").asText(), "2011-01-01");
+        Assert.assertEquals(litter.get("puppies").get(0).get("id").asText(), "p4");
+    }
+
+    @Test(groups = "fast")
+    public void thatImportStatusRedirectsToPedigreeOnceDogIsImported() throws Exception {
+        addDog("child", breedSynonymNodeCache.getBreed("Rottweiler"));
+
+        String location = RestAssured.given().redirects().follow(false).expect().statusCode(303).when().get("/dogpopulation/pedigree/child/status").header("Location");
+        Assert.assertTrue(location.endsWith("/dogpopulation/pedigree/child"));
+
+        String json = RestAssured.expect().statusCode(404).when().get("/dogpopulation/pedigree/missing/status").asString();
+        Assert.assertEquals(new ObjectMapper().readTree(json).get("state").asText(), "NOT_FOUND");
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeDagHasEveryAncestorOnce() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        addDog("great-grandfather", breedNode);
+        addDog("grandfather", breedNode);
+        addDog("father", breedNode);
+        addDog("mother", breedNode);
+        addDog("child", breedNode);
+        connectChildToFather("grandfather", "great-grandfather");
+        connectChildToFather("father", "grandfather");
+        connectChildToFather("mother", "grandfather");
+        connectChildToFather("child", "father");
+        connectChildToMother("child", "mother");
+
+        String json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child/dag?generations=2").asString();
+
+        JsonNode pedigree = new ObjectMapper().readTree(json);
+        Assert.assertEquals(pedigree.get("uuid").asText(), "child");
+        JsonNode dogs = pedigree.get("dogs");
+        Assert.assertEquals(dogs.size(), 4);
+        Assert.assertEquals(dogs.get("child").get("father").asText(), "father");
+        Assert.assertEquals(dogs.get("child").get("mother").asText(), "mother");
+        Assert.assertEquals(dogs.get("child").get("inbreedingCoefficient6").asDouble(), 12.5, 0.000001);
+        Assert.assertEquals(dogs.get("father").get("father").asText(), "grandfather");
+        Assert.assertEquals(dogs.get("mother").get("father").asText(), "grandfather");
+        Assert.assertEquals(dogs.get("grandfather").get("generation").asInt(), 2);
+        Assert.assertTrue(dogs.get("grandfather").get("father").isNull());
+        Assert.assertNull(dogs.get("great-grandfather"));
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeDagHasOwnAncestorEdges() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        Node child = addDog("child", breedNode);
+        Node father = addDog("father", breedNode);
+        addDog("mother", breedNode);
+        connectChildToFather("child", "father");
+        connectChildToMother("child", "mother");
+        try (Transaction tx = graphDb.beginTx()) {
+            Relationship ownAncestor = father.createRelationshipTo(child, DogGraphRelationshipType.OWN_ANCESTOR);
+            ownAncestor.setProperty(DogGraphConstants.HASPARENT_ROLE, ParentRole.FATHER.name().toLowerCase());
+            tx.success();
+        }
+
+        String json = RestAssured.expect().statusCode(200).when().get("/dogpopulation/pedigree/child/dag?generations=3").asString();
+
+        JsonNode dogs = new ObjectMapper().readTree(json).get("dogs");
+        Assert.assertEquals(dogs.size(), 3);
+        Assert.assertEquals(dogs.get("father").get("ownAncestors").size(), 1);
+        Assert.assertEquals(dogs.get("father").get("ownAncestors").get(0).asText(), "child");
+        Assert.assertEquals(dogs.get("father").get("father").asText(), "child");
+        Assert.assertNull(dogs.get("child").get("ownAncestors"));
+        Assert.assertNull(dogs.get("mother").get("ownAncestors"));
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeDagWithTooManyGenerationsIsBadRequest() throws Exception {
+        RestAssured.expect().statusCode(400).when().get("/dogpopulation/pedigree/child/dag?generations=31");
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeBatchSharesAncestorsBetweenPedigrees() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        addDog("grandfather", "Common grandfather", breedNode);
+        addDog("father", breedNode);
+        addDog("mother", breedNode);
+        addDog("child", breedNode);
+        connectChildToFather("father", "grandfather");
+        connectChildToFather("mother", "grandfather");
+        connectChildToFather("child", "father");
+        connectChildToMother("child", "mother");
+
+        String json = RestAssured.given().contentType("application/json").body("[\"child\", \"missing\", \"father\"]")
+                .expect().statusCode(200).when().post("/dogpopulation/pedigree/batch").asString();
+
+        JsonNode batch = new ObjectMapper().readTree(json);
+        Assert.assertEquals(batch.get("unknownDogs").size(), 1);
+        Assert.assertEquals(batch.get("unknownDogs").get(0).asText(), "missing");
+        JsonNode child = batch.get("pedigrees").get(0);
+        JsonNode father = batch.get("pedigrees").get(1);
+        Assert.assertEquals(child.get("uuid").asText(), "child");
+        Assert.assertEquals(child.get("inbreedingCoefficient6").asDouble(), 12.5, 0.000001);
+        Assert.assertEquals(child.get("ancestry").get("father").get("ancestry").get("father").get("name").asText(), "Common grandfather");
+        Assert.assertEquals(child.get("ancestry").get("mother").get("ancestry").get("father").get("name").asText(), "Common grandfather");
+        Assert.assertEquals(father.get("uuid").asText(), "father");
+        Assert.assertEquals(father.get("inbreedingCoefficient6").asDouble(), 0.0, 0.000001);
+        Assert.assertEquals(father.get("ancestry").get("father").get("name").asText(), "Common grandfather");
+        Assert.assertEquals(father.get("ancestry").get("father").get("inbreedingCoefficient6").asDouble(), 0.0, 0.000001);
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeBatchWithoutIdsIsBadRequest() throws Exception {
+        RestAssured.given().contentType("application/json").body("[]")
+                .expect().statusCode(400).when().post("/dogpopulation/pedigree/batch");
+    }
+
+    @Test(groups = "fast")
+    public void thatFictitiousPedigreeBatchRanksMatings() throws Exception {
+        Node breedNode = breedSynonymNodeCache.getBreed("Rottweiler");
+        addDog("grandfather", breedNode);
+        addDog("grandmother", breedNode);
+        addDog("father", breedNode);
+        addDog("sister", breedNode);
+        addDog("other", breedNode);
+        for (String child : new String[]{"father", "sister"}) {
+            connectChildToFather(child, "grandfather");
+            connectChildToMother(child, "grandmother");
+        }
+        addDog("other-father", breedNode);
+        connectChildToFather("other", "other-father");
+
+        String json = RestAssured.given().contentType("application/json").body("{\"fathers\": [\"father\"], \"mothers\": [\"sister\", \"other\", \"missing\"]}")
+                .expect().statusCode(200).when().post("/dogpopulation/pedigree/fictitious/batch").asString();
+
+        JsonNode matingPlan = new ObjectMapper().readTree(json);
+        Assert.assertEquals(matingPlan.get("unknownDogs").get(0).asText(), "missing");
+        Assert.assertEquals(matingPlan.get("inbreedingCoefficients").get(0).get(0).asDouble(), 25.0, 0.000001);
+        Assert.assertEquals(matingPlan.get("inbreedingCoefficients").get(0).get(1).asDouble(), 0.0, 0.000001);
+        Assert.assertEquals(matingPlan.get("ranking").get(0).get("mother").asText(), "other");
+        Assert.assertEquals(matingPlan.get("ranking").get(1).get("mother").asText(), "sister");
+    }
+
+    @Test(groups = "fast")
+    public void thatFictitiousPedigreeBatchWithoutMothersIsBadRequest() throws Exception {
+        RestAssured.given().contentType("application/json").body("{\"fathers\": [\"father\"], \"mothers\": []}")
+                .expect().statusCode(400).when().post("/dogpopulation/pedigree/fictitious/batch");
+    }
 }
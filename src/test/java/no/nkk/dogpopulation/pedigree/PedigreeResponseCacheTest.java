@@ -0,0 +1,89 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import org.neo4j.graphdb.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeResponseCacheTest extends AbstractGraphTest {
+
+    @Inject
+    private BulkWriteService bulkWriteService;
+
+    @Inject
+    private PedigreeResponseCache pedigreeResponseCache;
+
+    private void cache(String uuid) {
+        pedigreeResponseCache.put(uuid, false, MediaType.APPLICATION_JSON_TYPE, uuid, uuid.getBytes(), pedigreeResponseCache.version());
+    }
+
+    private boolean isCached(String uuid) {
+        return pedigreeResponseCache.get(uuid, false, MediaType.APPLICATION_JSON_TYPE) != null;
+    }
+
+    @Test(groups = "fast")
+    public void thatOnlyPedigreesWithChangedAncestorAreInvalidated() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("grandfather", breedNode);
+        addDog("father", breedNode);
+        addDog("child", breedNode);
+        addDog("other", breedNode);
+        connectChildToFather("father", "grandfather");
+        connectChildToFather("child", "father");
+        cache("child");
+        cache("grandfather");
+        cache("other");
+
+        // when
+        bulkWriteService.build(dogs.dog("father").name("Renamed father"));
+        bulkWriteService.writeNextBulk();
+
+        // then
+        Assert.assertFalse(isCached("child"));
+        Assert.assertTrue(isCached("grandfather"));
+        Assert.assertTrue(isCached("other"));
+    }
+
+    @Test(groups = "fast")
+    public void thatPedigreeComputedBeforeChangeIsNotCachedWhenCacheWasEmpty() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("father", breedNode);
+        addDog("child", breedNode);
+        connectChildToFather("child", "father");
+        long version = pedigreeResponseCache.version();
+
+        // when
+        bulkWriteService.build(dogs.dog("father").name("Renamed father"));
+        bulkWriteService.writeNextBulk();
+        pedigreeResponseCache.put("child", false, MediaType.APPLICATION_JSON_TYPE, "child", new byte[0], version);
+
+        // then
+        Assert.assertFalse(isCached("child"));
+    }
+
+    @Test(groups = "fast")
+    public void thatUnrelatedPedigreeComputedBeforeChangeIsCached() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("father", breedNode);
+        addDog("other", breedNode);
+        long version = pedigreeResponseCache.version();
+
+        // when
+        bulkWriteService.build(dogs.dog("father").name("Renamed father"));
+        bulkWriteService.writeNextBulk();
+        pedigreeResponseCache.put("other", false, MediaType.APPLICATION_JSON_TYPE, "other", new byte[0], version);
+
+        // then
+        Assert.assertTrue(isCached("other"));
+    }
+}
@@ -0,0 +1,62 @@
+package no.nkk.dogpopulation.pedigree;
+
+import com.google.inject.Inject;
+import no.nkk.dogpopulation.AbstractGraphTest;
+import no.nkk.dogpopulation.graph.bulkwrite.BulkWriteService;
+import org.neo4j.graphdb.Node;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * @author <a href="mailto:kim.christian.swenson@gmail.com">Kim Christian Swenson</a>
+ */
+public class PedigreeWarmerTest extends AbstractGraphTest {
+
+    @Inject
+    private BulkWriteService bulkWriteService;
+
+    @Inject
+    private PedigreeResponseCache pedigreeResponseCache;
+
+    @Inject
+    private PedigreeHotSet pedigreeHotSet;
+
+    @Inject
+    private PedigreeWarmer pedigreeWarmer;
+
+    private boolean isCached(String uuid) {
+        return pedigreeResponseCache.get(uuid, false, MediaType.APPLICATION_JSON_TYPE) != null;
+    }
+
+    @Test(groups = "fast")
+    public void thatOnlyHotPedigreesNotAlreadyCachedAreComputed() {
+        // given
+        Node breedNode = breed("Unit-test Breed");
+        addDog("father", breedNode);
+        addDog("child", breedNode);
+        addDog("cold", breedNode);
+        connectChildToFather("child", "father");
+        pedigreeHotSet.record("child");
+        pedigreeHotSet.record("father");
+        pedigreeHotSet.record("missing");
+
+        // when
+        int computed = pedigreeWarmer.warm();
+
+        // then
+        Assert.assertEquals(computed, 2);
+        Assert.assertTrue(isCached("child"));
+        Assert.assertTrue(isCached("father"));
+        Assert.assertFalse(isCached("cold"));
+        Assert.assertFalse(isCached("missing"));
+
+        Assert.assertEquals(pedigreeWarmer.warm(), 0);
+
+        bulkWriteService.build(dogs.dog("father").name("Renamed father"));
+        bulkWriteService.writeNextBulk();
+
+        Assert.assertEquals(pedigreeWarmer.warm(), 2);
+    }
+}